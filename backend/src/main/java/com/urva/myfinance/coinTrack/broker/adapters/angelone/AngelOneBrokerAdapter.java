@@ -18,10 +18,12 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapability;
+import com.urva.myfinance.coinTrack.broker.core.codec.BrokerEnvelopeDecoder;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerAuthException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
-import com.urva.myfinance.coinTrack.broker.core.port.BrokerAdapter;
+import com.urva.myfinance.coinTrack.broker.core.executor.BrokerIoExecutor;
+import com.urva.myfinance.coinTrack.broker.core.port.ReactiveBrokerAdapter;
 import com.urva.myfinance.coinTrack.broker.core.session.AngelOneCredentials;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerCredentials;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerSession;
@@ -39,12 +41,15 @@ import dev.samstevens.totp.time.SystemTimeProvider;
 import dev.samstevens.totp.time.TimeProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.Instant;
@@ -78,7 +83,7 @@ import java.util.concurrent.CompletableFuture;
  * Profile API: rate limit 1 req/sec — kept thin; we do not poll profile.
  */
 @Component
-public class AngelOneBrokerAdapter implements BrokerAdapter {
+public class AngelOneBrokerAdapter implements ReactiveBrokerAdapter {
 
     private static final Logger log = LoggerFactory.getLogger(AngelOneBrokerAdapter.class);
 
@@ -112,6 +117,7 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
 
     private final WebClient webClient;
     private final EncryptionUtil encryptionUtil;
+    private final BrokerIoExecutor ioExecutor;
     private final BrokerAccountRepository accountRepository;
     private final AngelOneHoldingMapper holdingMapper;
     private final AngelOnePositionMapper positionMapper;
@@ -120,12 +126,14 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
     private final AngelOneTradeMapper tradeMapper;
     private final AngelOneFundsToKiteMapper fundsToKiteMapper;
     private final ObjectMapper objectMapper;
+    private final BrokerEnvelopeDecoder envelopeDecoder;
 
     private final CodeGenerator totpCodeGenerator = new DefaultCodeGenerator();
     private final TimeProvider totpTimeProvider = new SystemTimeProvider();
 
     public AngelOneBrokerAdapter(WebClient.Builder brokerWebClientBuilder,
                                  EncryptionUtil encryptionUtil,
+                                 BrokerIoExecutor ioExecutor,
                                  BrokerAccountRepository accountRepository,
                                  AngelOneHoldingMapper holdingMapper,
                                  AngelOnePositionMapper positionMapper,
@@ -135,6 +143,7 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
                                  AngelOneFundsToKiteMapper fundsToKiteMapper) {
         this.webClient = brokerWebClientBuilder.build();
         this.encryptionUtil = encryptionUtil;
+        this.ioExecutor = ioExecutor;
         this.accountRepository = accountRepository;
         this.holdingMapper = holdingMapper;
         this.positionMapper = positionMapper;
@@ -144,6 +153,7 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
         this.fundsToKiteMapper = fundsToKiteMapper;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.envelopeDecoder = new BrokerEnvelopeDecoder(objectMapper);
     }
 
     @Override
@@ -160,7 +170,7 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<BrokerSession> authenticate(BrokerCredentials credentials) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ANGELONE, () -> {
             if (!(credentials instanceof AngelOneCredentials aCreds)) {
                 throw new BrokerAuthException("Invalid credentials type for AngelOne", Broker.ANGELONE);
             }
@@ -217,7 +227,7 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<BrokerSession> refreshSession(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ANGELONE, () -> {
             try {
                 String refreshToken = session.metadata().get("refreshToken");
                 if (refreshToken == null) {
@@ -283,35 +293,52 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<List<CanonicalHolding>> fetchHoldings(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ANGELONE, () -> {
             List<AngelOneHoldingRaw> rawList = fetchListFromAngelOne(
                 session, HOLDINGS_URL, "holdings", AngelOneHoldingRaw.class);
-            return rawList.stream()
-                .map(raw -> holdingMapper.toCanonical(raw, session.accountId(), session.accountId()))
-                .toList();
+            return holdingMapper.toCanonicalList(rawList, session.accountId(), session.accountId());
         });
     }
 
     @Override
     public CompletableFuture<List<CanonicalPosition>> fetchPositions(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ANGELONE, () -> {
             List<AngelOnePositionRaw> rawList = fetchListFromAngelOne(
                 session, POSITIONS_URL, "positions", AngelOnePositionRaw.class);
-            return rawList.stream()
-                .map(raw -> positionMapper.toCanonical(raw, session.accountId(), session.accountId()))
-                .toList();
+            return positionMapper.toCanonicalList(rawList, session.accountId(), session.accountId());
         });
     }
 
     @Override
     public CompletableFuture<CanonicalFunds> fetchFunds(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ANGELONE, () -> {
             AngelOneFundsRaw raw = fetchObjectFromAngelOne(
                 session, FUNDS_URL, "funds", AngelOneFundsRaw.class);
             return fundsMapper.toCanonical(raw, session.accountId(), session.accountId());
         });
     }
 
+    // ── Portfolio (canonical) — non-blocking port methods ────────
+
+    @Override
+    public Flux<CanonicalHolding> streamHoldings(BrokerSession session) {
+        return streamFromAngelOne(session, HOLDINGS_URL, "holdings", AngelOneHoldingRaw.class)
+            .map(raw -> holdingMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
+    @Override
+    public Flux<CanonicalPosition> streamPositions(BrokerSession session) {
+        return streamFromAngelOne(session, POSITIONS_URL, "positions", AngelOnePositionRaw.class)
+            .map(raw -> positionMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
+    @Override
+    public Mono<CanonicalFunds> loadFunds(BrokerSession session) {
+        return streamFromAngelOne(session, FUNDS_URL, "funds", AngelOneFundsRaw.class)
+            .next()
+            .map(raw -> fundsMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
     // ── Pass-through fetchers (Kite-shaped, account-input) ───────
     //
     // Mirror Upstox/ZerodhaLiveDataService: take a BrokerAccount, refresh-if-needed,
@@ -465,59 +492,44 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
 
     // ── HTTP Helpers ─────────────────────────────────────────────
 
+    /** Blocking view of {@link #streamFromAngelOne}: records are still decoded one at a time. */
     private <T> List<T> fetchListFromAngelOne(BrokerSession session, String url, String logTag, Class<T> itemType) {
-        try {
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(h -> applySmartApiHeaders(h,
-                            session.metadata().getOrDefault("apiKey", ""), session.accessToken()))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            validateAngelOneResponse(root, logTag);
-
-            JsonNode data = root.get("data");
-            if (data != null && data.isArray()) {
-                return objectMapper.readValue(data.traverse(),
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, itemType));
-            }
-            return Collections.emptyList();
-
-        } catch (BrokerAuthException | BrokerRateLimitException | BrokerApiDownException e) {
-            throw e;
-        } catch (WebClientResponseException | WebClientRequestException e) {
-            throw new BrokerApiDownException("AngelOne API error for " + logTag, Broker.ANGELONE, e);
-        } catch (Exception e) {
-            log.error("Error fetching AngelOne {}: {}", logTag, e.getMessage());
-            throw new BrokerApiDownException("Failed to fetch " + logTag, Broker.ANGELONE, e);
-        }
+        List<T> items = streamFromAngelOne(session, url, logTag, itemType).collectList().block();
+        return items != null ? items : Collections.emptyList();
     }
 
     private <T> T fetchObjectFromAngelOne(BrokerSession session, String url, String logTag, Class<T> responseType) {
-        try {
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(h -> applySmartApiHeaders(h,
-                            session.metadata().getOrDefault("apiKey", ""), session.accessToken()))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            validateAngelOneResponse(root, logTag);
-
-            return objectMapper.treeToValue(root.get("data"), responseType);
+        return streamFromAngelOne(session, url, logTag, responseType).next().block();
+    }
 
-        } catch (BrokerAuthException | BrokerRateLimitException | BrokerApiDownException e) {
-            throw e;
-        } catch (WebClientResponseException | WebClientRequestException e) {
-            throw new BrokerApiDownException("AngelOne API error for " + logTag, Broker.ANGELONE, e);
-        } catch (Exception e) {
-            log.error("Error fetching AngelOne {}: {}", logTag, e.getMessage());
-            throw new BrokerApiDownException("Failed to fetch " + logTag, Broker.ANGELONE, e);
-        }
+    /**
+     * Non-blocking fetch: streams {@code data} out of the SmartAPI envelope. The errorcode /
+     * status check runs on the envelope header before the first record is emitted.
+     */
+    private <T> Flux<T> streamFromAngelOne(BrokerSession session, String url, String logTag, Class<T> itemType) {
+        Flux<DataBuffer> body = webClient.get()
+                .uri(url)
+                .headers(h -> applySmartApiHeaders(h,
+                        session.metadata().getOrDefault("apiKey", ""), session.accessToken()))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+
+        return envelopeDecoder.decode(body, itemType, header -> validateAngelOneEnvelope(
+                    header.getOrDefault("errorcode", ""),
+                    Boolean.parseBoolean(header.get("status")),
+                    header.getOrDefault("message", "Unknown error"),
+                    logTag), "data")
+            .onErrorMap(e -> {
+                if (e instanceof BrokerAuthException || e instanceof BrokerRateLimitException
+                        || e instanceof BrokerApiDownException) {
+                    return e;
+                }
+                if (e instanceof WebClientResponseException || e instanceof WebClientRequestException) {
+                    return new BrokerApiDownException("AngelOne API error for " + logTag, Broker.ANGELONE, e);
+                }
+                log.error("Error fetching AngelOne {}: {}", logTag, e.getMessage());
+                return new BrokerApiDownException("Failed to fetch " + logTag, Broker.ANGELONE, e);
+            });
     }
 
     private void applySmartApiHeaders(HttpHeaders headers, String apiKey, String jwtToken) {
@@ -549,13 +561,16 @@ public class AngelOneBrokerAdapter implements BrokerAdapter {
 
         String errorCode = root.has("errorcode") ? root.get("errorcode").asText("") : "";
         boolean statusFlag = root.has("status") && root.get("status").asBoolean(false);
+        String message = root.has("message") ? root.get("message").asText("Unknown error") : "Unknown error";
 
+        validateAngelOneEnvelope(errorCode, statusFlag, message, context);
+    }
+
+    private void validateAngelOneEnvelope(String errorCode, boolean statusFlag, String message, String context) {
         if (("0".equals(errorCode) || errorCode.isEmpty()) && statusFlag) {
             return; // Success
         }
 
-        String message = root.has("message") ? root.get("message").asText("Unknown error") : "Unknown error";
-
         if ("AB1010".equals(errorCode)) {
             throw new BrokerAuthException("AngelOne session expired: " + message, Broker.ANGELONE, errorCode);
         }
@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.adapters.angelone.mapper;
 
 import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOneHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalBatch;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataConfidence;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataSource;
@@ -8,6 +9,7 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.normalization.ExchangeNormalizer;
 import com.urva.myfinance.coinTrack.broker.normalization.PriceNormalizer;
+import com.urva.myfinance.coinTrack.broker.normalization.SymbolDictionary;
 import com.urva.myfinance.coinTrack.broker.normalization.SymbolNormalizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +18,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Maps Angel One SmartAPI holdings response to canonical holding model.
@@ -33,7 +36,15 @@ public class AngelOneHoldingMapper {
 
     private static final Logger log = LoggerFactory.getLogger(AngelOneHoldingMapper.class);
 
+    public List<CanonicalHolding> toCanonicalList(List<AngelOneHoldingRaw> raws, String userId, String brokerAccountId) {
+        return CanonicalBatch.map(raws, userId, brokerAccountId, this::toCanonical);
+    }
+
     public CanonicalHolding toCanonical(AngelOneHoldingRaw raw, String userId, String brokerAccountId) {
+        return toCanonical(raw, userId, brokerAccountId, Instant.now());
+    }
+
+    CanonicalHolding toCanonical(AngelOneHoldingRaw raw, String userId, String brokerAccountId, Instant syncedAt) {
         DataConfidence dataConfidence = DataConfidence.HIGH;
 
         // ISIN — primary dedup key
@@ -98,7 +109,7 @@ public class AngelOneHoldingMapper {
                 .userId(userId)
                 .brokerAccountId(brokerAccountId)
                 .brokerType(Broker.ANGELONE)
-                .isin(isin)
+                .isin(SymbolDictionary.intern(isin))
                 .symbol(symbol)
                 .exchange(exchange)
                 .quantity(quantity)
@@ -112,7 +123,7 @@ public class AngelOneHoldingMapper {
                 .dayChange(null)
                 .dayChangePct(null)
                 .dataConfidence(dataConfidence)
-                .lastSyncedAt(Instant.now())
+                .lastSyncedAt(syncedAt)
                 .dataSource(DataSource.LIVE)
                 .build();
     }
@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.adapters.angelone.mapper;
 
 import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOnePositionRaw;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalBatch;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataSource;
 import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
@@ -17,6 +18,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Maps Angel One SmartAPI positions response to canonical position model.
@@ -31,7 +33,15 @@ public class AngelOnePositionMapper {
 
     private static final Logger log = LoggerFactory.getLogger(AngelOnePositionMapper.class);
 
+    public List<CanonicalPosition> toCanonicalList(List<AngelOnePositionRaw> raws, String userId, String brokerAccountId) {
+        return CanonicalBatch.map(raws, userId, brokerAccountId, this::toCanonical);
+    }
+
     public CanonicalPosition toCanonical(AngelOnePositionRaw raw, String userId, String brokerAccountId) {
+        return toCanonical(raw, userId, brokerAccountId, Instant.now());
+    }
+
+    CanonicalPosition toCanonical(AngelOnePositionRaw raw, String userId, String brokerAccountId, Instant syncedAt) {
         // Symbol normalization
         String symbol = SymbolNormalizer.normalize(raw.getTradingsymbol(), Broker.ANGELONE, raw.getExchange());
 
@@ -106,7 +116,7 @@ public class AngelOnePositionMapper {
                 .totalPnL(totalPnL)
                 .multiplier(multiplier)
                 .closePrice(closePrice)
-                .lastSyncedAt(Instant.now())
+                .lastSyncedAt(syncedAt)
                 .dataSource(DataSource.LIVE)
                 .build();
     }
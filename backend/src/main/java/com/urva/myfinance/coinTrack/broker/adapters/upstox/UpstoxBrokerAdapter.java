@@ -18,12 +18,15 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapability;
+import com.urva.myfinance.coinTrack.broker.core.codec.BrokerEnvelopeDecoder;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerAuthException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
-import com.urva.myfinance.coinTrack.broker.core.port.BrokerAdapter;
+import com.urva.myfinance.coinTrack.broker.core.executor.BrokerIoExecutor;
+import com.urva.myfinance.coinTrack.broker.core.port.ReactiveBrokerAdapter;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerCredentials;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerSession;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSessionCache;
 import com.urva.myfinance.coinTrack.broker.core.session.UpstoxCredentials;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
@@ -34,6 +37,7 @@ import com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -43,6 +47,8 @@ import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
@@ -53,6 +59,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Upstox v2 API adapter.
@@ -64,9 +71,11 @@ import java.util.concurrent.CompletableFuture;
  * - Rate limit: 1000 req/min shared — X-RateLimit-Remaining is tracked for early warning.
  * - All prices are Float; numeric conversion goes through PriceNormalizer.
  * - sell_quantity is a negative Integer; mappers use the explicit `side` field.
+ * - Non-blocking stream* / load* methods decode the envelope record by record; unlike the
+ *   blocking list helper they fail on a non-success envelope instead of returning empty.
  */
 @Component
-public class UpstoxBrokerAdapter implements BrokerAdapter {
+public class UpstoxBrokerAdapter implements ReactiveBrokerAdapter {
 
     private static final Logger log = LoggerFactory.getLogger(UpstoxBrokerAdapter.class);
 
@@ -90,6 +99,8 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
 
     private final WebClient webClient;
     private final EncryptionUtil encryptionUtil;
+    private final BrokerSessionCache sessionCache;
+    private final BrokerIoExecutor ioExecutor;
     private final UpstoxHoldingMapper holdingMapper;
     private final UpstoxPositionMapper positionMapper;
     private final UpstoxFundsMapper fundsMapper;
@@ -97,9 +108,12 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
     private final UpstoxTradeMapper tradeMapper;
     private final UpstoxFundsToKiteMapper fundsToKiteMapper;
     private final ObjectMapper objectMapper;
+    private final BrokerEnvelopeDecoder envelopeDecoder;
 
     public UpstoxBrokerAdapter(WebClient.Builder brokerWebClientBuilder,
                                EncryptionUtil encryptionUtil,
+                               BrokerSessionCache sessionCache,
+                               BrokerIoExecutor ioExecutor,
                                UpstoxHoldingMapper holdingMapper,
                                UpstoxPositionMapper positionMapper,
                                UpstoxFundsMapper fundsMapper,
@@ -108,6 +122,8 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
                                UpstoxFundsToKiteMapper fundsToKiteMapper) {
         this.webClient = brokerWebClientBuilder.build();
         this.encryptionUtil = encryptionUtil;
+        this.sessionCache = sessionCache;
+        this.ioExecutor = ioExecutor;
         this.holdingMapper = holdingMapper;
         this.positionMapper = positionMapper;
         this.fundsMapper = fundsMapper;
@@ -116,6 +132,7 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
         this.fundsToKiteMapper = fundsToKiteMapper;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.envelopeDecoder = new BrokerEnvelopeDecoder(objectMapper);
     }
 
     @Override
@@ -142,7 +159,7 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<BrokerSession> authenticate(BrokerCredentials credentials) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.UPSTOX, () -> {
             if (!(credentials instanceof UpstoxCredentials uCreds)) {
                 throw new BrokerAuthException("Invalid credentials type for Upstox", Broker.UPSTOX);
             }
@@ -222,24 +239,29 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<List<CanonicalHolding>> fetchHoldings(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.UPSTOX, () -> {
             List<UpstoxHoldingRaw> rawList = fetchListFromUpstox(
                 session.accessToken(),
                 UPSTOX_BASE + "/portfolio/long-term-holdings",
                 "holdings",
                 UpstoxHoldingRaw.class);
 
-            return rawList.stream()
-                .map(raw -> holdingMapper.toCanonical(raw, session.accountId(), session.accountId()))
-                .toList();
+            return holdingMapper.toCanonicalList(rawList, session.accountId(), session.accountId());
         });
     }
 
+    @Override
+    public Flux<CanonicalHolding> streamHoldings(BrokerSession session) {
+        return streamFromUpstox(session.accessToken(), UPSTOX_BASE + "/portfolio/long-term-holdings",
+                "holdings", UpstoxHoldingRaw.class)
+            .map(raw -> holdingMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
     // ── Positions ────────────────────────────────────────────────
 
     @Override
     public CompletableFuture<List<CanonicalPosition>> fetchPositions(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.UPSTOX, () -> {
             // Upstox returns intraday + overnight on the same row (overnight_quantity column).
             // A single call to short-term-positions covers both.
             List<UpstoxPositionRaw> rawList = fetchListFromUpstox(
@@ -248,17 +270,22 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
                 "positions",
                 UpstoxPositionRaw.class);
 
-            return rawList.stream()
-                .map(raw -> positionMapper.toCanonical(raw, session.accountId(), session.accountId()))
-                .toList();
+            return positionMapper.toCanonicalList(rawList, session.accountId(), session.accountId());
         });
     }
 
+    @Override
+    public Flux<CanonicalPosition> streamPositions(BrokerSession session) {
+        return streamFromUpstox(session.accessToken(), UPSTOX_BASE + "/portfolio/short-term-positions",
+                "positions", UpstoxPositionRaw.class)
+            .map(raw -> positionMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
     // ── Funds (canonical) ────────────────────────────────────────
 
     @Override
     public CompletableFuture<CanonicalFunds> fetchFunds(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.UPSTOX, () -> {
             UpstoxFundsRaw raw = fetchObjectFromUpstox(
                 session.accessToken(),
                 UPSTOX_BASE + "/user/get-funds-and-margin",
@@ -268,6 +295,14 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
         });
     }
 
+    @Override
+    public Mono<CanonicalFunds> loadFunds(BrokerSession session) {
+        return streamFromUpstox(session.accessToken(), UPSTOX_BASE + "/user/get-funds-and-margin",
+                "funds", UpstoxFundsRaw.class)
+            .next()
+            .map(raw -> fundsMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
     // ── Pass-through fetchers (Kite-shaped DTOs, account-input) ──
     //
     // Mirror ZerodhaLiveDataService's role: take a BrokerAccount, decrypt the
@@ -322,82 +357,81 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
         if (account == null || account.getAccessToken() == null || account.isTokenExpired()) {
             throw new BrokerException(SESSION_EXPIRED_MSG, Broker.UPSTOX);
         }
-        try {
-            return encryptionUtil.decrypt(account.getAccessToken());
-        } catch (Exception e) {
-            throw new BrokerException(SESSION_EXPIRED_MSG, Broker.UPSTOX, e);
+        // Decrypted once per login, not on every orders / trades / funds call
+        String token = sessionCache.accessToken(account);
+        if (token == null || token.isEmpty()) {
+            throw new BrokerException(SESSION_EXPIRED_MSG, Broker.UPSTOX);
         }
+        return token;
     }
 
     // ── HTTP Helpers ─────────────────────────────────────────────
 
+    /**
+     * Blocking view of {@link #streamFromUpstox}: records are still decoded one at a time.
+     * A non-success envelope is logged and read as an empty list, as list endpoints always have.
+     */
     private <T> List<T> fetchListFromUpstox(String accessToken, String url, String logTag, Class<T> itemType) {
+        AtomicReference<String> nonSuccess = new AtomicReference<>();
         try {
-            ResponseEntity<String> response = webClient.get()
-                    .uri(url)
-                    .headers(h -> applyUpstoxHeaders(h, accessToken))
-                    .retrieve()
-                    .toEntity(String.class)
-                    .block();
-
-            trackRateLimit(response);
-
-            JsonNode root = objectMapper.readTree(response == null ? null : response.getBody());
-            if (root == null || !"success".equals(root.path("status").asText())) {
-                log.error("Upstox {} returned non-success: {}", logTag,
-                    response == null ? "<null>" : response.getBody());
-                return Collections.emptyList();
-            }
-
-            JsonNode data = root.get("data");
-            if (data != null && data.isArray()) {
-                return objectMapper.readValue(data.traverse(),
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, itemType));
-            }
+            List<T> items = streamFromUpstox(accessToken, url, logTag, itemType, header -> {
+                if (!"success".equals(header.get("status"))) {
+                    nonSuccess.set(String.valueOf(header));
+                    throw new BrokerApiDownException("Upstox non-success for " + logTag, Broker.UPSTOX);
+                }
+            }).collectList().block();
+            return items != null ? items : Collections.emptyList();
+        } catch (BrokerApiDownException e) {
+            if (nonSuccess.get() == null) throw e;
+            log.error("Upstox {} returned non-success: {}", logTag, nonSuccess.get());
             return Collections.emptyList();
-
-        } catch (WebClientResponseException e) {
-            handleWebClientError(e, logTag);
-            return Collections.emptyList(); // unreachable
-        } catch (WebClientRequestException e) {
-            throw new BrokerApiDownException("Upstox API unreachable fetching " + logTag, Broker.UPSTOX, e);
-        } catch (BrokerAuthException | BrokerRateLimitException | BrokerApiDownException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error fetching Upstox {}: {}", logTag, e.getMessage());
-            throw new BrokerApiDownException("Failed to fetch " + logTag, Broker.UPSTOX, e);
         }
     }
 
     private <T> T fetchObjectFromUpstox(String accessToken, String url, String logTag, Class<T> responseType) {
-        try {
-            ResponseEntity<String> response = webClient.get()
-                    .uri(url)
-                    .headers(h -> applyUpstoxHeaders(h, accessToken))
-                    .retrieve()
-                    .toEntity(String.class)
-                    .block();
-
-            trackRateLimit(response);
+        return streamFromUpstox(accessToken, url, logTag, responseType).next().block();
+    }
 
-            JsonNode root = objectMapper.readTree(response == null ? null : response.getBody());
-            if (root == null || !"success".equals(root.path("status").asText())) {
+    /**
+     * Non-blocking fetch: streams {@code data} (array elements, or the object itself) out of
+     * the Upstox envelope. Rate-limit headers are tracked before the body is read.
+     */
+    private <T> Flux<T> streamFromUpstox(String accessToken, String url, String logTag, Class<T> itemType) {
+        return streamFromUpstox(accessToken, url, logTag, itemType, header -> {
+            if (!"success".equals(header.get("status"))) {
                 throw new BrokerApiDownException("Upstox non-success for " + logTag, Broker.UPSTOX);
             }
+        });
+    }
+
+    private <T> Flux<T> streamFromUpstox(String accessToken, String url, String logTag, Class<T> itemType,
+                                         BrokerEnvelopeDecoder.EnvelopeCheck check) {
+        return webClient.get()
+                .uri(url)
+                .headers(h -> applyUpstoxHeaders(h, accessToken))
+                .retrieve()
+                .toEntityFlux(DataBuffer.class)
+                .flatMapMany(response -> {
+                    trackRateLimit(response);
+                    Flux<DataBuffer> body = response.getBody() != null ? response.getBody() : Flux.empty();
+                    return envelopeDecoder.decode(body, itemType, check, "data");
+                })
+                .onErrorMap(e -> toBrokerException(e, logTag));
+    }
 
-            return objectMapper.treeToValue(root.get("data"), responseType);
-
-        } catch (WebClientResponseException e) {
-            handleWebClientError(e, logTag);
-            return null; // unreachable
-        } catch (WebClientRequestException e) {
-            throw new BrokerApiDownException("Upstox API unreachable fetching " + logTag, Broker.UPSTOX, e);
-        } catch (BrokerAuthException | BrokerRateLimitException | BrokerApiDownException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error fetching Upstox {}: {}", logTag, e.getMessage());
-            throw new BrokerApiDownException("Failed to fetch " + logTag, Broker.UPSTOX, e);
+    private RuntimeException toBrokerException(Throwable e, String logTag) {
+        if (e instanceof BrokerAuthException || e instanceof BrokerRateLimitException
+                || e instanceof BrokerApiDownException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof WebClientResponseException wcre) {
+            return mapWebClientError(wcre, logTag);
         }
+        if (e instanceof WebClientRequestException) {
+            return new BrokerApiDownException("Upstox API unreachable fetching " + logTag, Broker.UPSTOX, e);
+        }
+        log.error("Error fetching Upstox {}: {}", logTag, e.getMessage());
+        return new BrokerApiDownException("Failed to fetch " + logTag, Broker.UPSTOX, e);
     }
 
     private void applyUpstoxHeaders(HttpHeaders headers, String accessToken) {
@@ -420,19 +454,23 @@ public class UpstoxBrokerAdapter implements BrokerAdapter {
     }
 
     private void handleWebClientError(WebClientResponseException e, String logTag) {
+        throw mapWebClientError(e, logTag);
+    }
+
+    private RuntimeException mapWebClientError(WebClientResponseException e, String logTag) {
         HttpStatus status = HttpStatus.resolve(e.getStatusCode().value());
         if (status == null) {
-            throw new BrokerApiDownException("Upstox unknown error for " + logTag, Broker.UPSTOX, e);
+            return new BrokerApiDownException("Upstox unknown error for " + logTag, Broker.UPSTOX, e);
         }
         if (status == HttpStatus.UNAUTHORIZED || status == HttpStatus.FORBIDDEN) {
-            throw new BrokerAuthException(SESSION_EXPIRED_MSG, Broker.UPSTOX, e);
+            return new BrokerAuthException(SESSION_EXPIRED_MSG, Broker.UPSTOX, e);
         }
         if (status == HttpStatus.TOO_MANY_REQUESTS) {
-            throw new BrokerRateLimitException("Upstox rate limit exceeded for " + logTag, Broker.UPSTOX);
+            return new BrokerRateLimitException("Upstox rate limit exceeded for " + logTag, Broker.UPSTOX);
         }
         if (status.is5xxServerError()) {
-            throw new BrokerApiDownException("Upstox server error for " + logTag, Broker.UPSTOX, e);
+            return new BrokerApiDownException("Upstox server error for " + logTag, Broker.UPSTOX, e);
         }
-        throw new BrokerApiDownException("Upstox client error " + status.value() + " for " + logTag, Broker.UPSTOX, e);
+        return new BrokerApiDownException("Upstox client error " + status.value() + " for " + logTag, Broker.UPSTOX, e);
     }
 }
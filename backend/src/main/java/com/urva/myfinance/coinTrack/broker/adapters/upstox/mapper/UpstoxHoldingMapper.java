@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.adapters.upstox.mapper;
 
 import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalBatch;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataConfidence;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataSource;
@@ -8,6 +9,7 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.normalization.ExchangeNormalizer;
 import com.urva.myfinance.coinTrack.broker.normalization.PriceNormalizer;
+import com.urva.myfinance.coinTrack.broker.normalization.SymbolDictionary;
 import com.urva.myfinance.coinTrack.broker.normalization.SymbolNormalizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +18,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Maps Upstox API v2 holdings response to canonical holding model.
@@ -31,7 +34,15 @@ public class UpstoxHoldingMapper {
 
     private static final Logger log = LoggerFactory.getLogger(UpstoxHoldingMapper.class);
 
+    public List<CanonicalHolding> toCanonicalList(List<UpstoxHoldingRaw> raws, String userId, String brokerAccountId) {
+        return CanonicalBatch.map(raws, userId, brokerAccountId, this::toCanonical);
+    }
+
     public CanonicalHolding toCanonical(UpstoxHoldingRaw raw, String userId, String brokerAccountId) {
+        return toCanonical(raw, userId, brokerAccountId, Instant.now());
+    }
+
+    CanonicalHolding toCanonical(UpstoxHoldingRaw raw, String userId, String brokerAccountId, Instant syncedAt) {
         DataConfidence dataConfidence = DataConfidence.HIGH;
 
         // ISIN — try direct field first, then extract from instrumentToken as fallback
@@ -100,7 +111,7 @@ public class UpstoxHoldingMapper {
                 .userId(userId)
                 .brokerAccountId(brokerAccountId)
                 .brokerType(Broker.UPSTOX)
-                .isin(isin)
+                .isin(SymbolDictionary.intern(isin))
                 .symbol(symbol)
                 .exchange(exchange)
                 .quantity(quantity)
@@ -114,7 +125,7 @@ public class UpstoxHoldingMapper {
                 .dayChange(dayChange)
                 .dayChangePct(dayChangePct)
                 .dataConfidence(dataConfidence)
-                .lastSyncedAt(Instant.now())
+                .lastSyncedAt(syncedAt)
                 .dataSource(DataSource.LIVE)
                 .build();
     }
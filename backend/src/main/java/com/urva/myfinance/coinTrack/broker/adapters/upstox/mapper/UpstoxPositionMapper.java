@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.adapters.upstox.mapper;
 
 import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxPositionRaw;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalBatch;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataSource;
 import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
@@ -17,6 +18,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Maps Upstox API v2 positions response to canonical position model.
@@ -32,7 +34,15 @@ public class UpstoxPositionMapper {
 
     private static final Logger log = LoggerFactory.getLogger(UpstoxPositionMapper.class);
 
+    public List<CanonicalPosition> toCanonicalList(List<UpstoxPositionRaw> raws, String userId, String brokerAccountId) {
+        return CanonicalBatch.map(raws, userId, brokerAccountId, this::toCanonical);
+    }
+
     public CanonicalPosition toCanonical(UpstoxPositionRaw raw, String userId, String brokerAccountId) {
+        return toCanonical(raw, userId, brokerAccountId, Instant.now());
+    }
+
+    CanonicalPosition toCanonical(UpstoxPositionRaw raw, String userId, String brokerAccountId, Instant syncedAt) {
         // Symbol normalization
         String symbol = SymbolNormalizer.normalize(raw.getTradingSymbol(), Broker.UPSTOX, raw.getExchange());
 
@@ -107,7 +117,7 @@ public class UpstoxPositionMapper {
                 .totalPnL(totalPnL)
                 .multiplier(multiplier)
                 .closePrice(closePrice)
-                .lastSyncedAt(Instant.now())
+                .lastSyncedAt(syncedAt)
                 .dataSource(DataSource.LIVE)
                 .build();
     }
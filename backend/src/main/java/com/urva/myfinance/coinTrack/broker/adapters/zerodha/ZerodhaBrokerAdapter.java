@@ -1,7 +1,6 @@
 package com.urva.myfinance.coinTrack.broker.adapters.zerodha;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.urva.myfinance.coinTrack.broker.adapters.zerodha.mapper.ZerodhaFundsMapper;
 import com.urva.myfinance.coinTrack.broker.adapters.zerodha.mapper.ZerodhaHoldingMapper;
@@ -17,10 +16,12 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfOrder;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapability;
+import com.urva.myfinance.coinTrack.broker.core.codec.BrokerEnvelopeDecoder;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerAuthException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
-import com.urva.myfinance.coinTrack.broker.core.port.BrokerAdapter;
+import com.urva.myfinance.coinTrack.broker.core.executor.BrokerIoExecutor;
+import com.urva.myfinance.coinTrack.broker.core.port.ReactiveBrokerAdapter;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerCredentials;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerSession;
 import com.urva.myfinance.coinTrack.broker.core.session.ZerodhaCredentials;
@@ -28,6 +29,7 @@ import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -36,6 +38,8 @@ import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
@@ -57,10 +61,12 @@ import java.util.concurrent.CompletableFuture;
  * Zerodha-specific wire protocol and the canonical domain models.
  *
  * All fetch methods return CompletableFuture for parallel execution.
+ * The stream* / load* methods are the non-blocking equivalents: the Kite envelope
+ * is decoded record by record straight off the network buffers.
  * HTTP responses are validated: 4xx/5xx throw typed exceptions.
  */
 @Component
-public class ZerodhaBrokerAdapter implements BrokerAdapter {
+public class ZerodhaBrokerAdapter implements ReactiveBrokerAdapter {
 
     private static final Logger log = LoggerFactory.getLogger(ZerodhaBrokerAdapter.class);
 
@@ -83,26 +89,31 @@ public class ZerodhaBrokerAdapter implements BrokerAdapter {
 
     private final WebClient webClient;
     private final EncryptionUtil encryptionUtil;
+    private final BrokerIoExecutor ioExecutor;
     private final ZerodhaHoldingMapper holdingMapper;
     private final ZerodhaPositionMapper positionMapper;
     private final ZerodhaFundsMapper fundsMapper;
     private final ZerodhaMfMapper mfMapper;
     private final ObjectMapper objectMapper;
+    private final BrokerEnvelopeDecoder envelopeDecoder;
 
     public ZerodhaBrokerAdapter(WebClient.Builder brokerWebClientBuilder,
                                 EncryptionUtil encryptionUtil,
+                                BrokerIoExecutor ioExecutor,
                                 ZerodhaHoldingMapper holdingMapper,
                                 ZerodhaPositionMapper positionMapper,
                                 ZerodhaFundsMapper fundsMapper,
                                 ZerodhaMfMapper mfMapper) {
         this.webClient = brokerWebClientBuilder.build();
         this.encryptionUtil = encryptionUtil;
+        this.ioExecutor = ioExecutor;
         this.holdingMapper = holdingMapper;
         this.positionMapper = positionMapper;
         this.fundsMapper = fundsMapper;
         this.mfMapper = mfMapper;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.envelopeDecoder = new BrokerEnvelopeDecoder(objectMapper);
     }
 
     @Override
@@ -119,7 +130,7 @@ public class ZerodhaBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<BrokerSession> authenticate(BrokerCredentials credentials) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ZERODHA, () -> {
             if (!(credentials instanceof ZerodhaCredentials zCreds)) {
                 throw new BrokerAuthException("Invalid credentials type for Zerodha", Broker.ZERODHA);
             }
@@ -186,28 +197,36 @@ public class ZerodhaBrokerAdapter implements BrokerAdapter {
 
     @Override
     public CompletableFuture<List<CanonicalHolding>> fetchHoldings(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ZERODHA, () -> {
             List<ZerodhaHoldingRaw> rawList = fetchListFromKite(
                 session, KITE_BASE + "/portfolio/holdings", "holdings", ZerodhaHoldingRaw.class);
 
-            return rawList.stream()
-                .filter(raw -> {
-                    if (raw.getQuantity() != null && raw.getQuantity() < 0) {
-                        log.warn("Skipping holding with negative quantity: {}", raw.getTradingsymbol());
-                        return false;
-                    }
-                    return true;
-                })
-                .map(raw -> holdingMapper.toCanonical(raw, session.accountId(), session.accountId()))
-                .toList();
+            rawList.removeIf(raw -> !hasValidQuantity(raw));
+            return holdingMapper.toCanonicalList(rawList, session.accountId(), session.accountId());
         });
     }
 
+    @Override
+    public Flux<CanonicalHolding> streamHoldings(BrokerSession session) {
+        return streamFromKite(session, KITE_BASE + "/portfolio/holdings", "holdings",
+                ZerodhaHoldingRaw.class, "data")
+            .filter(this::hasValidQuantity)
+            .map(raw -> holdingMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
+    private boolean hasValidQuantity(ZerodhaHoldingRaw raw) {
+        if (raw.getQuantity() != null && raw.getQuantity() < 0) {
+            log.warn("Skipping holding with negative quantity: {}", raw.getTradingsymbol());
+            return false;
+        }
+        return true;
+    }
+
     // ── Positions ────────────────────────────────────────────────
 
     @Override
     public CompletableFuture<List<CanonicalPosition>> fetchPositions(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ZERODHA, () -> {
             @SuppressWarnings("unchecked")
             Map<String, Object> dataMap = fetchObjectFromKite(
                 session, KITE_BASE + "/portfolio/positions", "positions", Map.class);
@@ -216,64 +235,85 @@ public class ZerodhaBrokerAdapter implements BrokerAdapter {
                 return Collections.<CanonicalPosition>emptyList();
             }
 
-            List<Map<String, Object>> netPositions = objectMapper.convertValue(
+            List<ZerodhaPositionRaw> netPositions = objectMapper.convertValue(
                 dataMap.get("net"),
-                objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+                objectMapper.getTypeFactory().constructCollectionType(List.class, ZerodhaPositionRaw.class));
 
             if (netPositions == null) return Collections.<CanonicalPosition>emptyList();
 
-            return netPositions.stream()
-                .map(rawMap -> objectMapper.convertValue(rawMap, ZerodhaPositionRaw.class))
-                .map(raw -> positionMapper.toCanonical(raw, session.accountId(), session.accountId()))
-                .toList();
+            return positionMapper.toCanonicalList(netPositions, session.accountId(), session.accountId());
         });
     }
 
+    @Override
+    public Flux<CanonicalPosition> streamPositions(BrokerSession session) {
+        return streamFromKite(session, KITE_BASE + "/portfolio/positions", "positions",
+                ZerodhaPositionRaw.class, "data", "net")
+            .map(raw -> positionMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
     // ── Funds ────────────────────────────────────────────────────
 
     @Override
     public CompletableFuture<CanonicalFunds> fetchFunds(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ZERODHA, () -> {
             ZerodhaFundsRaw raw = fetchObjectFromKite(
                 session, KITE_BASE + "/user/margins", "funds", ZerodhaFundsRaw.class);
             return fundsMapper.toCanonical(raw, session.accountId(), session.accountId());
         });
     }
 
+    @Override
+    public Mono<CanonicalFunds> loadFunds(BrokerSession session) {
+        return streamFromKite(session, KITE_BASE + "/user/margins", "funds", ZerodhaFundsRaw.class, "data")
+            .next()
+            .map(raw -> fundsMapper.toCanonical(raw, session.accountId(), session.accountId()));
+    }
+
     // ── MF Holdings ──────────────────────────────────────────────
 
     @Override
     public CompletableFuture<List<CanonicalMfHolding>> fetchMfHoldings(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ZERODHA, () -> {
             @SuppressWarnings({"unchecked", "rawtypes"})
             List<Map<String, Object>> rawList = (List) fetchListFromKite(
                 session, KITE_BASE + "/mf/holdings", "MF Holdings", Map.class);
 
             return rawList.stream()
-                .map(rawMap -> {
-                    ZerodhaMfHoldingRaw dto = new ZerodhaMfHoldingRaw();
-                    dto.setFund(getString(rawMap, "fund"));
-                    dto.setTradingsymbol(getString(rawMap, "tradingsymbol"));
-                    dto.setFolio(getString(rawMap, "folio"));
-                    dto.setQuantity(safeDouble(rawMap.get("quantity")));
-                    dto.setAveragePrice(safeDouble(rawMap.get("average_price")));
-                    dto.setLastPrice(safeDouble(rawMap.get("last_price")));
-                    dto.setPnl(safeDouble(rawMap.get("pnl")));
-                    dto.setLastPriceDate(getString(rawMap, "last_price_date"));
-                    dto.setPledgedQuantity(safeInteger(rawMap.get("pledged_quantity")));
-                    dto.setRaw(rawMap);
-                    return dto;
-                })
+                .map(this::toMfHoldingRaw)
                 .map(dto -> mfMapper.toCanonicalMfHolding(dto, session.accountId(), session.accountId()))
                 .toList();
         });
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public Flux<CanonicalMfHolding> streamMfHoldings(BrokerSession session) {
+        return streamFromKite(session, KITE_BASE + "/mf/holdings", "MF Holdings", Map.class, "data")
+            .map(rawMap -> toMfHoldingRaw((Map<String, Object>) rawMap))
+            .map(dto -> mfMapper.toCanonicalMfHolding(dto, session.accountId(), session.accountId()));
+    }
+
+    private ZerodhaMfHoldingRaw toMfHoldingRaw(Map<String, Object> rawMap) {
+        ZerodhaMfHoldingRaw dto = new ZerodhaMfHoldingRaw();
+        dto.setFund(getString(rawMap, "fund"));
+        dto.setTradingsymbol(getString(rawMap, "tradingsymbol"));
+        dto.setFolio(getString(rawMap, "folio"));
+        dto.setQuantity(safeDouble(rawMap.get("quantity")));
+        dto.setAveragePrice(safeDouble(rawMap.get("average_price")));
+        dto.setLastPrice(safeDouble(rawMap.get("last_price")));
+        dto.setPnl(safeDouble(rawMap.get("pnl")));
+        dto.setLastPriceDate(getString(rawMap, "last_price_date"));
+        dto.setPledgedQuantity(safeInteger(rawMap.get("pledged_quantity")));
+        dto.setRaw(rawMap);
+        return dto;
+    }
+
     // ── MF Orders ────────────────────────────────────────────────
 
     @Override
     public CompletableFuture<List<CanonicalMfOrder>> fetchMfOrders(BrokerSession session) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ioExecutor.supply(Broker.ZERODHA, () -> {
             @SuppressWarnings({"unchecked", "rawtypes"})
             List<Map<String, Object>> rawList = (List) fetchListFromKite(
                 session, KITE_BASE + "/mf/orders", "MF Orders", Map.class);
@@ -302,69 +342,50 @@ public class ZerodhaBrokerAdapter implements BrokerAdapter {
 
     // ── HTTP Helpers ─────────────────────────────────────────────
 
+    /** Blocking view of {@link #streamFromKite}: records are still decoded one at a time. */
     private <T> List<T> fetchListFromKite(BrokerSession session, String url, String logTag, Class<T> itemType) {
-        try {
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(h -> applyKiteHeaders(h, session))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            if (root == null || !"success".equals(root.path("status").asText())) {
-                throw new com.urva.myfinance.coinTrack.broker.service.exception.BrokerException(
-                    "Failed to fetch " + logTag, Broker.ZERODHA);
-            }
-
-            JsonNode dataArray = root.get("data");
-            if (dataArray != null && dataArray.isArray()) {
-                return objectMapper.readValue(dataArray.traverse(),
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, itemType));
-            }
-            return Collections.emptyList();
-
-        } catch (WebClientResponseException e) {
-            handleWebClientError(e, logTag);
-            return Collections.emptyList(); // unreachable
-        } catch (WebClientRequestException e) {
-            throw new BrokerApiDownException("Zerodha API unreachable fetching " + logTag, Broker.ZERODHA, e);
-        } catch (BrokerAuthException | BrokerRateLimitException | BrokerApiDownException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error fetching Zerodha {}: {}", logTag, e.getMessage());
-            throw new BrokerApiDownException("Failed to fetch " + logTag, Broker.ZERODHA, e);
-        }
+        List<T> items = streamFromKite(session, url, logTag, itemType, "data").collectList().block();
+        return items != null ? items : Collections.emptyList();
     }
 
     private <T> T fetchObjectFromKite(BrokerSession session, String url, String logTag, Class<T> responseType) {
-        try {
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(h -> applyKiteHeaders(h, session))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            if (root == null || !"success".equals(root.path("status").asText())) {
-                throw new com.urva.myfinance.coinTrack.broker.service.exception.BrokerException(
-                    "Failed to fetch " + logTag, Broker.ZERODHA);
-            }
+        return streamFromKite(session, url, logTag, responseType, "data").next().block();
+    }
+
+    /**
+     * Non-blocking fetch: streams the records at {@code path} out of the Kite envelope.
+     * Errors are mapped to the same typed exceptions as the blocking helpers.
+     */
+    private <T> Flux<T> streamFromKite(BrokerSession session, String url, String logTag,
+                                       Class<T> itemType, String... path) {
+        Flux<DataBuffer> body = webClient.get()
+                .uri(url)
+                .headers(h -> applyKiteHeaders(h, session))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+
+        return envelopeDecoder.decode(body, itemType, header -> {
+                    if (!"success".equals(header.get("status"))) {
+                        throw new BrokerApiDownException("Zerodha non-success for " + logTag
+                            + ": " + header.get("message"), Broker.ZERODHA);
+                    }
+                }, path)
+            .onErrorMap(e -> toBrokerException(e, logTag));
+    }
 
-            return objectMapper.treeToValue(root.get("data"), responseType);
-
-        } catch (WebClientResponseException e) {
-            handleWebClientError(e, logTag);
-            return null; // unreachable
-        } catch (WebClientRequestException e) {
-            throw new BrokerApiDownException("Zerodha unreachable for " + logTag, Broker.ZERODHA, e);
-        } catch (BrokerAuthException | BrokerRateLimitException | BrokerApiDownException e) {
-            throw e;
-        } catch (Exception e) {
-            log.error("Error fetching Zerodha {}: {}", logTag, e.getMessage());
-            throw new BrokerApiDownException("Failed to fetch " + logTag, Broker.ZERODHA, e);
+    private RuntimeException toBrokerException(Throwable e, String logTag) {
+        if (e instanceof BrokerAuthException || e instanceof BrokerRateLimitException
+                || e instanceof BrokerApiDownException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof WebClientResponseException wcre) {
+            return mapWebClientError(wcre, logTag);
+        }
+        if (e instanceof WebClientRequestException) {
+            return new BrokerApiDownException("Zerodha API unreachable fetching " + logTag, Broker.ZERODHA, e);
         }
+        log.error("Error fetching Zerodha {}: {}", logTag, e.getMessage());
+        return new BrokerApiDownException("Failed to fetch " + logTag, Broker.ZERODHA, e);
     }
 
     private void applyKiteHeaders(HttpHeaders headers, BrokerSession session) {
@@ -373,20 +394,24 @@ public class ZerodhaBrokerAdapter implements BrokerAdapter {
     }
 
     private void handleWebClientError(WebClientResponseException e, String context) {
+        throw mapWebClientError(e, context);
+    }
+
+    private RuntimeException mapWebClientError(WebClientResponseException e, String context) {
         HttpStatus status = HttpStatus.resolve(e.getStatusCode().value());
         if (status == null) {
-            throw new BrokerApiDownException("Zerodha unknown error for " + context, Broker.ZERODHA, e);
+            return new BrokerApiDownException("Zerodha unknown error for " + context, Broker.ZERODHA, e);
         }
         if (status == HttpStatus.UNAUTHORIZED || status == HttpStatus.FORBIDDEN) {
-            throw new BrokerAuthException("Zerodha auth failed for " + context, Broker.ZERODHA, e);
+            return new BrokerAuthException("Zerodha auth failed for " + context, Broker.ZERODHA, e);
         }
         if (status == HttpStatus.TOO_MANY_REQUESTS) {
-            throw new BrokerRateLimitException("Zerodha rate limit for " + context, Broker.ZERODHA);
+            return new BrokerRateLimitException("Zerodha rate limit for " + context, Broker.ZERODHA);
         }
         if (status.is5xxServerError()) {
-            throw new BrokerApiDownException("Zerodha server error for " + context, Broker.ZERODHA, e);
+            return new BrokerApiDownException("Zerodha server error for " + context, Broker.ZERODHA, e);
         }
-        throw new BrokerApiDownException("Zerodha client error " + status.value() + " for " + context, Broker.ZERODHA, e);
+        return new BrokerApiDownException("Zerodha client error " + status.value() + " for " + context, Broker.ZERODHA, e);
     }
 
     private String bytesToHex(byte[] hash) {
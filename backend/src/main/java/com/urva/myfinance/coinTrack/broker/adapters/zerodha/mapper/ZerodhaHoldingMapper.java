@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.adapters.zerodha.mapper;
 
 import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalBatch;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataConfidence;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataSource;
@@ -8,6 +9,7 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.normalization.ExchangeNormalizer;
 import com.urva.myfinance.coinTrack.broker.normalization.PriceNormalizer;
+import com.urva.myfinance.coinTrack.broker.normalization.SymbolDictionary;
 import com.urva.myfinance.coinTrack.broker.normalization.SymbolNormalizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +19,7 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Maps Zerodha Kite holdings API response to canonical holding model.
@@ -31,7 +34,15 @@ public class ZerodhaHoldingMapper {
 
     private static final Logger log = LoggerFactory.getLogger(ZerodhaHoldingMapper.class);
 
+    public List<CanonicalHolding> toCanonicalList(List<ZerodhaHoldingRaw> raws, String userId, String brokerAccountId) {
+        return CanonicalBatch.map(raws, userId, brokerAccountId, this::toCanonical);
+    }
+
     public CanonicalHolding toCanonical(ZerodhaHoldingRaw raw, String userId, String brokerAccountId) {
+        return toCanonical(raw, userId, brokerAccountId, Instant.now());
+    }
+
+    CanonicalHolding toCanonical(ZerodhaHoldingRaw raw, String userId, String brokerAccountId, Instant syncedAt) {
         DataConfidence dataConfidence = DataConfidence.HIGH;
 
         // 1. ISIN — primary dedup key
@@ -98,9 +109,10 @@ public class ZerodhaHoldingMapper {
                 .userId(userId)
                 .brokerAccountId(brokerAccountId)
                 .brokerType(Broker.ZERODHA)
-                .isin(isin)
+                .isin(SymbolDictionary.intern(isin))
                 .symbol(symbol)
                 .exchange(exchange)
+                .instrumentToken(raw.getInstrument_token())
                 .quantity(quantity)
                 .t1Quantity(t1Quantity)
                 .avgBuyPrice(avgBuyPrice)
@@ -112,7 +124,7 @@ public class ZerodhaHoldingMapper {
                 .dayChange(dayChange)
                 .dayChangePct(dayChangePct)
                 .dataConfidence(dataConfidence)
-                .lastSyncedAt(Instant.now())
+                .lastSyncedAt(syncedAt)
                 .dataSource(DataSource.LIVE)
                 .build();
     }
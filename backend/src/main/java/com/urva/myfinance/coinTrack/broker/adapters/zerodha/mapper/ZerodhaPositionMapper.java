@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.adapters.zerodha.mapper;
 
 import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaPositionRaw;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalBatch;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.canonical.DataSource;
 import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
@@ -17,6 +18,7 @@ import org.springframework.stereotype.Component;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Maps Zerodha Kite positions API response to canonical position model.
@@ -32,7 +34,15 @@ public class ZerodhaPositionMapper {
 
     private static final Logger log = LoggerFactory.getLogger(ZerodhaPositionMapper.class);
 
+    public List<CanonicalPosition> toCanonicalList(List<ZerodhaPositionRaw> raws, String userId, String brokerAccountId) {
+        return CanonicalBatch.map(raws, userId, brokerAccountId, this::toCanonical);
+    }
+
     public CanonicalPosition toCanonical(ZerodhaPositionRaw raw, String userId, String brokerAccountId) {
+        return toCanonical(raw, userId, brokerAccountId, Instant.now());
+    }
+
+    CanonicalPosition toCanonical(ZerodhaPositionRaw raw, String userId, String brokerAccountId, Instant syncedAt) {
         // Symbol normalization
         String symbol = SymbolNormalizer.normalize(raw.getTradingsymbol(), Broker.ZERODHA, raw.getExchange());
 
@@ -88,6 +98,7 @@ public class ZerodhaPositionMapper {
                 .brokerType(Broker.ZERODHA)
                 .symbol(symbol)
                 .exchange(exchange)
+                .instrumentToken(raw.getInstrument_token())
                 .instrumentType(instrumentType)
                 .positionType(positionType)
                 .quantity(quantity)
@@ -100,7 +111,7 @@ public class ZerodhaPositionMapper {
                 .totalPnL(totalPnL)
                 .multiplier(raw.getMultiplier() != null && raw.getMultiplier() > 0 ? raw.getMultiplier() : 1)
                 .closePrice(closePrice)
-                .lastSyncedAt(Instant.now())
+                .lastSyncedAt(syncedAt)
                 .dataSource(DataSource.LIVE)
                 .build();
     }
@@ -0,0 +1,30 @@
+package com.urva.myfinance.coinTrack.broker.core.canonical;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps a whole broker response in one pass into a list sized up front. Every row carries the
+ * same lastSyncedAt, the time the batch was mapped. Shared by the holding and position mappers
+ * of every broker; each supplies its own per-row mapping.
+ */
+public final class CanonicalBatch {
+
+    /** One raw broker row to its canonical form, stamped with the batch's sync time. */
+    @FunctionalInterface
+    public interface RowMapper<R, C> {
+        C map(R raw, String userId, String brokerAccountId, Instant syncedAt);
+    }
+
+    private CanonicalBatch() {}
+
+    public static <R, C> List<C> map(List<R> raws, String userId, String brokerAccountId, RowMapper<R, C> mapper) {
+        Instant syncedAt = Instant.now();
+        List<C> rows = new ArrayList<>(raws.size());
+        for (R raw : raws) {
+            rows.add(mapper.map(raw, userId, brokerAccountId, syncedAt));
+        }
+        return rows;
+    }
+}
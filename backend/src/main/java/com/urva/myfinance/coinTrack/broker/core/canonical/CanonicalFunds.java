@@ -57,4 +57,7 @@ public class CanonicalFunds {
     private BigDecimal openingBalance;
 
     private Instant lastSyncedAt;
+
+    /** SHA-256 of the row's broker-sourced content (excludes id, lastSyncedAt). Unchanged hash → sync skips the write. */
+    private String contentHash;
 }
@@ -56,6 +56,9 @@ public class CanonicalHolding {
 
     private Exchange exchange;
 
+    /** Kite instrument token — Zerodha only, null for other brokers. Drives the live ticker subscription. */
+    private Long instrumentToken;
+
     /** Always BigDecimal — int quantities are converted by mappers. */
     private BigDecimal quantity;
 
@@ -92,5 +95,8 @@ public class CanonicalHolding {
     @Indexed
     private Instant lastSyncedAt;
 
+    /** SHA-256 of the row's broker-sourced content (excludes id, lastSyncedAt). Unchanged hash → sync skips the write. */
+    private String contentHash;
+
     private DataSource dataSource;
 }
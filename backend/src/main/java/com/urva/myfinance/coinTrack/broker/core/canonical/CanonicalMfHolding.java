@@ -67,4 +67,7 @@ public class CanonicalMfHolding {
     private BigDecimal unrealizedPnLPct;
 
     private Instant lastSyncedAt;
+
+    /** SHA-256 of the row's broker-sourced content (excludes id, lastSyncedAt). Unchanged hash → sync skips the write. */
+    private String contentHash;
 }
@@ -49,6 +49,9 @@ public class CanonicalPosition {
 
     private Exchange exchange;
 
+    /** Kite instrument token — Zerodha only, null for other brokers. */
+    private Long instrumentToken;
+
     private InstrumentType instrumentType;
 
     private PositionType positionType;
@@ -83,5 +86,8 @@ public class CanonicalPosition {
 
     private Instant lastSyncedAt;
 
+    /** SHA-256 of the row's broker-sourced content (excludes id, lastSyncedAt). Unchanged hash → sync skips the write. */
+    private String contentHash;
+
     private DataSource dataSource;
 }
@@ -0,0 +1,257 @@
+package com.urva.myfinance.coinTrack.broker.core.circuit;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerCircuitOpenException;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+/**
+ * Circuit breaker per broker (or per broker + endpoint with {@code broker.circuit.per-endpoint}).
+ *
+ * Without it, every user's sync during a broker outage waits out the full fetch timeout
+ * before falling back, and the sequential market-hours sweep stalls for the length of the
+ * outage. The breaker learns from the last {@code window-size} calls instead:
+ *
+ * - CLOSED: calls pass. Once {@code minimum-calls} are recorded, a failure rate or
+ *   slow-call rate at or above its threshold opens the circuit.
+ * - OPEN: calls fail immediately with BrokerCircuitOpenException, which the aggregation
+ *   layer treats like API_DOWN (cached data, broker stale). After {@code open-duration}
+ *   the next call moves it to HALF_OPEN.
+ * - HALF_OPEN: only {@code half-open-probes} calls are let through at a time; the rest
+ *   are rejected. All probes succeeding closes the circuit, any failed or slow probe
+ *   re-opens it.
+ *
+ * Only broker-side faults count as failures: BrokerApiDownException and timeouts. Auth and
+ * rate-limit errors prove the broker is answering and count as successes.
+ *
+ * Metrics (tags {@code broker}, {@code endpoint}): broker.circuit.state (0 closed,
+ * 1 open, 2 half-open), broker.circuit.rejected.
+ */
+@Component
+public class BrokerCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerCircuitBreaker.class);
+    private static final String ALL_ENDPOINTS = "all";
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean perEndpoint;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public BrokerCircuitBreaker(MeterRegistry meterRegistry,
+                                @Value("${broker.circuit.per-endpoint:false}") boolean perEndpoint,
+                                @Value("${broker.circuit.failure-rate-threshold:50}") int failureRateThreshold,
+                                @Value("${broker.circuit.slow-call-rate-threshold:80}") int slowCallRateThreshold,
+                                @Value("${broker.circuit.slow-call-duration:10s}") Duration slowCallDuration,
+                                @Value("${broker.circuit.window-size:20}") int windowSize,
+                                @Value("${broker.circuit.minimum-calls:10}") int minimumCalls,
+                                @Value("${broker.circuit.open-duration:30s}") Duration openDuration,
+                                @Value("${broker.circuit.half-open-probes:3}") int halfOpenProbes) {
+        this.meterRegistry = meterRegistry;
+        this.perEndpoint = perEndpoint;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenProbes = halfOpenProbes;
+    }
+
+    /**
+     * Runs {@code source} through the breaker for {@code broker}/{@code endpoint}. The
+     * permission check happens at subscription; the outcome and duration are recorded
+     * when the source terminates. A cancelled call records nothing.
+     */
+    public <T> Mono<T> protect(Broker broker, String endpoint, Mono<T> source) {
+        return Mono.defer(() -> {
+            Breaker breaker = breaker(broker, endpoint);
+            long permit = breaker.tryAcquire(System.nanoTime());
+            if (permit < 0) {
+                breaker.rejected.increment();
+                return Mono.error(new BrokerCircuitOpenException(
+                        broker + " circuit " + breaker.state() + " for " + breaker.endpoint
+                                + "; serving cached data", broker));
+            }
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean();
+            return source
+                    .doOnSuccess(value -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            long elapsed = System.nanoTime() - start;
+                            breaker.onResult(permit, false, elapsed >= slowCallNanos);
+                        }
+                    })
+                    .doOnError(error -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            breaker.onResult(permit, isBrokerFault(error), false);
+                        }
+                    })
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            breaker.release(permit);
+                        }
+                    });
+        });
+    }
+
+    public State state(Broker broker, String endpoint) {
+        return breaker(broker, endpoint).state();
+    }
+
+    private static boolean isBrokerFault(Throwable error) {
+        return (error instanceof BrokerApiDownException && !(error instanceof BrokerCircuitOpenException))
+                || error instanceof TimeoutException;
+    }
+
+    private Breaker breaker(Broker broker, String endpoint) {
+        String scope = perEndpoint && endpoint != null ? endpoint : ALL_ENDPOINTS;
+        return breakers.computeIfAbsent(broker.name() + ":" + scope, key -> {
+            Breaker breaker = new Breaker(broker, scope,
+                    Counter.builder("broker.circuit.rejected")
+                            .tag("broker", broker.name()).tag("endpoint", scope)
+                            .description("Broker calls short-circuited by an open breaker")
+                            .register(meterRegistry));
+            Gauge.builder("broker.circuit.state", breaker, b -> b.state().ordinal())
+                    .tag("broker", broker.name()).tag("endpoint", scope)
+                    .description("Circuit state: 0 closed, 1 open, 2 half-open")
+                    .register(meterRegistry);
+            return breaker;
+        });
+    }
+
+    /**
+     * One breaker's state. Every transition bumps {@code generation}; results carrying
+     * an older generation belong to calls admitted under a previous state and are ignored.
+     */
+    private final class Breaker {
+
+        private final Broker broker;
+        private final String endpoint;
+        private final Counter rejected;
+        private final boolean[] failed = new boolean[windowSize];
+        private final boolean[] slow = new boolean[windowSize];
+
+        private State state = State.CLOSED;
+        private long generation;
+        private int next;
+        private int recorded;
+        private long openedAt;
+        private int probesInFlight;
+        private int probeSuccesses;
+
+        Breaker(Broker broker, String endpoint, Counter rejected) {
+            this.broker = broker;
+            this.endpoint = endpoint;
+            this.rejected = rejected;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        /** @return the permit generation, or -1 if the call must be rejected */
+        synchronized long tryAcquire(long now) {
+            if (state == State.OPEN) {
+                if (now - openedAt < openNanos) {
+                    return -1;
+                }
+                transition(State.HALF_OPEN);
+                probesInFlight = 0;
+                probeSuccesses = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight >= halfOpenProbes) {
+                    return -1;
+                }
+                probesInFlight++;
+            }
+            return generation;
+        }
+
+        synchronized void onResult(long permit, boolean failure, boolean slowCall) {
+            if (permit != generation) {
+                return;
+            }
+            if (state == State.HALF_OPEN) {
+                probesInFlight--;
+                if (failure || slowCall) {
+                    open("probe " + (failure ? "failed" : "was slow"));
+                } else if (++probeSuccesses >= halfOpenProbes) {
+                    transition(State.CLOSED);
+                    next = 0;
+                    recorded = 0;
+                }
+                return;
+            }
+
+            failed[next] = failure;
+            slow[next] = slowCall;
+            next = (next + 1) % windowSize;
+            recorded = Math.min(recorded + 1, windowSize);
+            if (recorded < minimumCalls) {
+                return;
+            }
+            int failures = 0;
+            int slowCalls = 0;
+            for (int i = 0; i < recorded; i++) {
+                if (failed[i]) failures++;
+                if (slow[i]) slowCalls++;
+            }
+            int failureRate = failures * 100 / recorded;
+            int slowRate = slowCalls * 100 / recorded;
+            if (failureRate >= failureRateThreshold || slowRate >= slowCallRateThreshold) {
+                open("failure rate " + failureRate + "%, slow-call rate " + slowRate + "% over "
+                        + recorded + " calls");
+            }
+        }
+
+        synchronized void release(long permit) {
+            if (permit == generation && state == State.HALF_OPEN) {
+                probesInFlight--;
+            }
+        }
+
+        private void open(String reason) {
+            transition(State.OPEN);
+            openedAt = System.nanoTime();
+            log.warn("Circuit for {} [{}] OPEN ({}); short-circuiting for {}s",
+                    broker, endpoint, reason, Duration.ofNanos(openNanos).toSeconds());
+        }
+
+        private void transition(State target) {
+            if (target != State.OPEN) {
+                log.info("Circuit for {} [{}] {} -> {}", broker, endpoint, state, target);
+            }
+            state = target;
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.urva.myfinance.coinTrack.broker.core.codec;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Streams the records out of a broker JSON envelope without materialising the body.
+ *
+ * Kite, Upstox and SmartAPI all wrap payloads the same way:
+ * <pre>
+ *   { "status": "success" | true, "message": ..., "errorcode": ..., "data": [ {...}, {...} ] }
+ * </pre>
+ * The body is fed chunk by chunk into Jackson's non-blocking parser. Root-level scalars
+ * (status, message, errorcode) are collected as the envelope header; each element of the
+ * array at {@code path} is buffered as tokens just long enough to bind it to {@code type},
+ * then emitted. Memory is bounded by one network chunk plus one record.
+ *
+ * If {@code path} points at an object instead of an array, that object is emitted once;
+ * a missing or null value emits nothing.
+ *
+ * The envelope check runs as soon as the target value starts (status is the first field
+ * in practice, so nothing is emitted for an error envelope) and again at end of input if
+ * it has not run yet.
+ */
+public final class BrokerEnvelopeDecoder {
+
+    /** Validates the root-level scalar fields; throws to fail the stream. */
+    @FunctionalInterface
+    public interface EnvelopeCheck {
+        void check(Map<String, String> header);
+    }
+
+    private final ObjectMapper objectMapper;
+
+    public BrokerEnvelopeDecoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param path field names from the root to the records, e.g. {@code "data"} or {@code "data", "net"}
+     */
+    public <T> Flux<T> decode(Flux<DataBuffer> body, Class<T> type, EnvelopeCheck check, String... path) {
+        return Flux.defer(() -> {
+            Tokenizer tokenizer = new Tokenizer(path, check);
+            return body
+                .concatMapIterable(buffer -> {
+                    try {
+                        return tokenizer.feed(buffer);
+                    } finally {
+                        DataBufferUtils.release(buffer);
+                    }
+                })
+                .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(tokenizer.endOfInput())))
+                .map(tokens -> bind(tokens, type));
+        });
+    }
+
+    private <T> T bind(TokenBuffer tokens, Class<T> type) {
+        try (JsonParser parser = tokens.asParser(objectMapper)) {
+            return objectMapper.readValue(parser, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to bind " + type.getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Incremental state machine over one response. Not thread-safe; one per subscription.
+     */
+    private final class Tokenizer {
+
+        private final String[] path;
+        private final EnvelopeCheck check;
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final Map<String, String> header = new HashMap<>();
+
+        private int depth;               // containers currently open
+        private int matched;             // path objects currently open along the chain
+        private boolean fieldMatches;    // last field name is the next path segment
+        private String rootField;
+        private boolean inTargetArray;
+        private TokenBuffer record;
+        private int recordDepth;
+        private boolean checked;
+
+        Tokenizer(String[] path, EnvelopeCheck check) {
+            this.path = path;
+            this.check = check;
+            try {
+                this.parser = objectMapper.getFactory().createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        List<TokenBuffer> feed(DataBuffer buffer) {
+            byte[] bytes = new byte[buffer.readableByteCount()];
+            buffer.read(bytes);
+            try {
+                feeder.feedInput(bytes, 0, bytes.length);
+                return drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        List<TokenBuffer> endOfInput() {
+            feeder.endOfInput();
+            try {
+                List<TokenBuffer> records = drain();
+                if (depth > 0 || record != null) {
+                    throw new EOFException("Truncated broker response");
+                }
+                runCheck();
+                return records;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private List<TokenBuffer> drain() throws IOException {
+            List<TokenBuffer> records = new ArrayList<>();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                if (record != null) {
+                    record.copyCurrentEvent(parser);
+                    if (token.isStructStart()) recordDepth++;
+                    else if (token.isStructEnd()) recordDepth--;
+                    if (recordDepth == 0) {
+                        records.add(record);
+                        record = null;
+                    }
+                } else if (inTargetArray) {
+                    if (token == JsonToken.END_ARRAY) {
+                        inTargetArray = false;
+                        depth--;
+                    } else {
+                        startRecord(token, records);
+                    }
+                } else {
+                    structural(token, records);
+                }
+            }
+            return records;
+        }
+
+        private void structural(JsonToken token, List<TokenBuffer> records) throws IOException {
+            boolean atTarget = fieldMatches && matched == path.length - 1;
+            switch (token) {
+                case FIELD_NAME -> {
+                    String name = parser.currentName();
+                    if (depth == 1) rootField = name;
+                    fieldMatches = depth == matched + 1 && matched < path.length && path[matched].equals(name);
+                    return;
+                }
+                case START_OBJECT -> {
+                    if (atTarget) {
+                        runCheck();
+                        startRecord(token, records);
+                    } else {
+                        if (fieldMatches) matched++;
+                        depth++;
+                    }
+                }
+                case START_ARRAY -> {
+                    if (atTarget) {
+                        runCheck();
+                        inTargetArray = true;
+                    }
+                    depth++;
+                }
+                case END_OBJECT, END_ARRAY -> {
+                    if (matched > 0 && depth == matched + 1) matched--;
+                    depth--;
+                }
+                case VALUE_NULL -> { /* absent payload: nothing to emit */ }
+                default -> {
+                    if (depth == 1 && rootField != null) {
+                        header.put(rootField, parser.getText());
+                    } else if (atTarget) {
+                        runCheck();
+                        startRecord(token, records);
+                    }
+                }
+            }
+            fieldMatches = false;
+        }
+
+        private void startRecord(JsonToken token, List<TokenBuffer> records) throws IOException {
+            TokenBuffer buffer = new TokenBuffer(parser);
+            buffer.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                record = buffer;
+                recordDepth = 1;
+            } else {
+                records.add(buffer);
+            }
+        }
+
+        private void runCheck() {
+            if (checked) return;
+            checked = true;
+            check.check(header);
+        }
+    }
+}
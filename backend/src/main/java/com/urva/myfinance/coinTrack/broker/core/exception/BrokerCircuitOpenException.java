@@ -0,0 +1,17 @@
+package com.urva.myfinance.coinTrack.broker.core.exception;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+/**
+ * Thrown without calling the broker because its circuit breaker is open (recent calls
+ * mostly failed or were slow) or half-open with all probe slots taken.
+ *
+ * A BrokerApiDownException, so it triggers the same fallback: cached canonical data,
+ * broker marked stale.
+ */
+public class BrokerCircuitOpenException extends BrokerApiDownException {
+
+    public BrokerCircuitOpenException(String message, Broker broker) {
+        super(message, broker);
+    }
+}
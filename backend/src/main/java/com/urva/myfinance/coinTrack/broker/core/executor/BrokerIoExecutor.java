@@ -0,0 +1,172 @@
+package com.urva.myfinance.coinTrack.broker.core.executor;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Per-broker bulkheads for the adapters' blocking HTTP calls.
+ *
+ * Adapters block on WebClient inside their CompletableFutures. Run on the common
+ * ForkJoinPool, that blocking competes with parallel streams and with the other brokers.
+ * Here every broker gets its own lane instead:
+ *
+ * - Each task runs on its own virtual thread, so a blocked call never pins a platform thread.
+ * - At most {@code broker.io.max-concurrent} tasks per broker are in flight; the rest wait
+ *   in FIFO order (fair semaphore) without holding a connection.
+ * - At most {@code broker.io.max-queued} tasks per broker may wait. Beyond that the call fails
+ *   fast with BrokerRateLimitException, which the aggregation layer already turns into
+ *   "serve cached data, mark broker stale".
+ *
+ * One slow broker therefore fills only its own queue; Zerodha piling up does not delay
+ * Upstox or Angel One.
+ *
+ * Metrics (tag {@code broker}): broker.io.queue.depth, broker.io.active, broker.io.rejected.
+ */
+@Component
+public class BrokerIoExecutor {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerIoExecutor.class);
+
+    private final Map<Broker, Bulkhead> bulkheads = new EnumMap<>(Broker.class);
+
+    public BrokerIoExecutor(MeterRegistry meterRegistry,
+                            @Value("${broker.io.max-concurrent:8}") int maxConcurrent,
+                            @Value("${broker.io.max-queued:256}") int maxQueued) {
+        for (Broker broker : Broker.values()) {
+            Bulkhead bulkhead = new Bulkhead(broker, maxConcurrent, maxQueued,
+                    Counter.builder("broker.io.rejected").tag("broker", broker.name())
+                            .description("Broker I/O tasks rejected because the queue was full")
+                            .register(meterRegistry));
+            bulkheads.put(broker, bulkhead);
+
+            Gauge.builder("broker.io.queue.depth", bulkhead, Bulkhead::queueDepth)
+                    .tag("broker", broker.name())
+                    .description("Broker I/O tasks waiting for a concurrency slot")
+                    .register(meterRegistry);
+            Gauge.builder("broker.io.active", bulkhead, Bulkhead::activeCount)
+                    .tag("broker", broker.name())
+                    .description("Broker I/O tasks currently running")
+                    .register(meterRegistry);
+        }
+        log.info("Broker I/O bulkheads ready: {} concurrent / {} queued per broker", maxConcurrent, maxQueued);
+    }
+
+    /**
+     * Drop-in for {@code CompletableFuture.supplyAsync(supplier)} that runs on the broker's
+     * bulkhead. A full queue yields a future failed with BrokerRateLimitException.
+     */
+    public <T> CompletableFuture<T> supply(Broker broker, Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, bulkheads.get(broker));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(
+                    new BrokerRateLimitException(e.getMessage(), broker));
+        }
+    }
+
+    /** The broker's bulkhead as a plain Executor, for callers composing their own futures. */
+    public Executor forBroker(Broker broker) {
+        return bulkheads.get(broker);
+    }
+
+    public int queueDepth(Broker broker) {
+        return bulkheads.get(broker).queueDepth();
+    }
+
+    public int activeCount(Broker broker) {
+        return bulkheads.get(broker).activeCount();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        bulkheads.values().forEach(Bulkhead::close);
+    }
+
+    /**
+     * Virtual thread per task, gated by a fair semaphore. Queue depth is the number of
+     * tasks parked on the semaphore.
+     */
+    static final class Bulkhead implements Executor {
+
+        private final Broker broker;
+        private final int maxQueued;
+        private final Semaphore permits;
+        private final ExecutorService threads;
+        private final Counter rejected;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger active = new AtomicInteger();
+
+        Bulkhead(Broker broker, int maxConcurrent, int maxQueued, Counter rejected) {
+            this.broker = broker;
+            this.maxQueued = maxQueued;
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.rejected = rejected;
+            this.threads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                    .name("broker-io-" + broker.name().toLowerCase(Locale.ROOT) + "-", 0)
+                    .factory());
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.increment();
+                throw new RejectedExecutionException(
+                        broker + " I/O queue full (" + maxQueued + " waiting)");
+            }
+            try {
+                threads.execute(() -> run(task));
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                throw e;
+            }
+        }
+
+        private void run(Runnable task) {
+            // Uninterruptible: an abandoned task would leave its CompletableFuture pending forever
+            permits.acquireUninterruptibly();
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                active.decrementAndGet();
+                permits.release();
+            }
+        }
+
+        int queueDepth() {
+            return queued.get();
+        }
+
+        int activeCount() {
+            return active.get();
+        }
+
+        void close() {
+            threads.shutdownNow();
+        }
+    }
+}
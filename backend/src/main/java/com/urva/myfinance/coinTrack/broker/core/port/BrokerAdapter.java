@@ -24,8 +24,9 @@ import static com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapabili
  * The portfolio module depends only on this interface and canonical models.
  * Each broker provides an adapter implementation in broker/adapters/{name}/.
  *
- * All fetch methods return CompletableFuture for parallel execution
- * via Java 21 virtual threads in the aggregation layer.
+ * All fetch methods return CompletableFuture for parallel execution.
+ * Implementations run their blocking HTTP calls on the broker's lane of
+ * BrokerIoExecutor, never on the common ForkJoinPool.
  *
  * Default implementations throw UnsupportedBrokerOperationException,
  * so adapters only override capabilities they actually support.
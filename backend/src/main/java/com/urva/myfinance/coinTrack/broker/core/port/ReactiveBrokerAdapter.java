@@ -0,0 +1,46 @@
+package com.urva.myfinance.coinTrack.broker.core.port;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.exception.UnsupportedBrokerOperationException;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSession;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import static com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapability.*;
+
+/**
+ * Non-blocking variant of the {@link BrokerAdapter} port.
+ *
+ * Each method is a cold publisher over the broker's HTTP response: nothing is sent until
+ * subscription, the body is decoded record by record as it arrives, and no thread is
+ * parked while the broker is thinking. The aggregation layer prefers these methods when an
+ * adapter implements them, so a sync holds event-loop time only while bytes are flowing.
+ *
+ * Errors are signalled with the same typed exceptions as the CompletableFuture methods
+ * (BrokerAuthException, BrokerRateLimitException, BrokerApiDownException).
+ *
+ * Defaults emit UnsupportedBrokerOperationException; BrokerCapabilityChecker still gates
+ * every call.
+ */
+public interface ReactiveBrokerAdapter extends BrokerAdapter {
+
+    default Flux<CanonicalHolding> streamHoldings(BrokerSession session) {
+        return Flux.error(new UnsupportedBrokerOperationException(getBrokerType(), EQUITY_HOLDINGS));
+    }
+
+    default Flux<CanonicalPosition> streamPositions(BrokerSession session) {
+        return Flux.error(new UnsupportedBrokerOperationException(getBrokerType(), INTRADAY_POSITIONS));
+    }
+
+    default Mono<CanonicalFunds> loadFunds(BrokerSession session) {
+        return Mono.error(new UnsupportedBrokerOperationException(getBrokerType(), FUNDS));
+    }
+
+    default Flux<CanonicalMfHolding> streamMfHoldings(BrokerSession session) {
+        return Flux.error(new UnsupportedBrokerOperationException(getBrokerType(), MF_HOLDINGS));
+    }
+}
@@ -0,0 +1,284 @@
+package com.urva.myfinance.coinTrack.broker.core.ratelimit;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.EstimationProbe;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+
+/**
+ * Process-wide outbound rate governor: one token bucket per (broker, API credential, endpoint
+ * class).
+ *
+ * Every BrokerAccount brings its own app, so Kite and SmartAPI enforce their per-second limits
+ * per API key, and Upstox per user access token. Each credential therefore gets its own
+ * buckets, shared by every adapter and service calling the broker with it; one account
+ * draining its budget never slows another. Reacting to 429s after the fact only marks the
+ * broker stale; the governor keeps each credential under its limit instead.
+ *
+ * Enforcement sits in {@link #filter()}, installed on the shared broker WebClient, so no
+ * caller can bypass it. Requests are classified by host and path ({@link #classify}) and keyed
+ * by the credential they carry ({@link #credentialOf}); a request without one (login, token
+ * exchange) draws from a shared per-broker bucket. A request that finds its bucket empty
+ * reserves the next token and waits for it without holding a thread; if that wait would
+ * exceed {@code broker.rate.max-wait} it fails with BrokerRateLimitException, which the
+ * aggregation layer already treats as "serve cached".
+ *
+ * Background sweeps call {@link #awaitHeadroom} before starting a user so they don't take the
+ * account's whole budget from under its own interactive requests. Idle buckets are dropped
+ * after {@link #IDLE_BUCKET_EXPIRY}; by then they have refilled, so a new one is equivalent.
+ *
+ * Metrics (tags {@code broker}, {@code endpoint}; summed over credentials):
+ * broker.rate.permit.wait, broker.rate.denied.
+ */
+@Component
+public class BrokerRateGovernor {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerRateGovernor.class);
+
+    /** Broker limit families. Each has its own budget at every broker. */
+    public enum EndpointClass {
+        QUOTE,
+        PORTFOLIO,
+        ORDERS
+    }
+
+    private static final Map<String, Broker> HOSTS = Map.of(
+        "api.kite.trade", Broker.ZERODHA,
+        "api.upstox.com", Broker.UPSTOX,
+        "apiconnect.angelbroking.com", Broker.ANGELONE,
+        "apiconnect.angelone.in", Broker.ANGELONE
+    );
+
+    /** Bucket key for requests that carry no credential. */
+    static final String SHARED = "";
+    static final Duration IDLE_BUCKET_EXPIRY = Duration.ofMinutes(10);
+    private static final long MAX_BUCKETS = 200_000;
+
+    private final Map<Broker, Map<EndpointClass, Lane>> lanes = new EnumMap<>(Broker.class);
+    private final Cache<BucketKey, Bucket> buckets = Caffeine.newBuilder()
+            .maximumSize(MAX_BUCKETS)
+            .expireAfterAccess(IDLE_BUCKET_EXPIRY)
+            .build();
+    private final Duration maxWait;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "broker-rate-governor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public BrokerRateGovernor(BrokerRateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.maxWait = properties.getMaxWait();
+        for (Broker broker : Broker.values()) {
+            Map<EndpointClass, Lane> byClass = new EnumMap<>(EndpointClass.class);
+            for (EndpointClass endpointClass : EndpointClass.values()) {
+                int perSecond = properties.limitsFor(broker).perSecond(endpointClass);
+                byClass.put(endpointClass, new Lane(perSecond,
+                        Timer.builder("broker.rate.permit.wait")
+                                .tag("broker", broker.name()).tag("endpoint", endpointClass.name())
+                                .description("Time outbound broker calls waited for a rate permit")
+                                .register(meterRegistry),
+                        Counter.builder("broker.rate.denied")
+                                .tag("broker", broker.name()).tag("endpoint", endpointClass.name())
+                                .description("Outbound broker calls refused because the permit wait exceeded max-wait")
+                                .register(meterRegistry)));
+            }
+            lanes.put(broker, byClass);
+            log.info("Rate governor for {}: quote {}/s, portfolio {}/s, orders {}/s per credential", broker,
+                    byClass.get(EndpointClass.QUOTE).perSecond(), byClass.get(EndpointClass.PORTFOLIO).perSecond(),
+                    byClass.get(EndpointClass.ORDERS).perSecond());
+        }
+    }
+
+    /** Waits up to {@code broker.rate.max-wait} for one permit of the credential's budget. */
+    public Mono<Void> acquire(Broker broker, String credential, EndpointClass endpointClass) {
+        return acquire(broker, credential, endpointClass, maxWait);
+    }
+
+    /**
+     * Completes when a permit is granted. The token is reserved at subscription, so
+     * concurrent callers are served in arrival order. Errors with BrokerRateLimitException
+     * if the reservation would be due later than {@code deadline}; nothing is consumed then.
+     */
+    public Mono<Void> acquire(Broker broker, String credential, EndpointClass endpointClass, Duration deadline) {
+        Lane lane = lane(broker, endpointClass);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.fromFuture(bucket(broker, credential, endpointClass).asScheduler().tryConsume(1, deadline, scheduler))
+                    .flatMap(granted -> {
+                        if (!granted) {
+                            lane.denied().increment();
+                            return Mono.error(new BrokerRateLimitException(broker + " " + endpointClass
+                                    + " budget exhausted; no permit within " + deadline.toMillis() + "ms", broker,
+                                    (int) Math.max(1, deadline.toSeconds())));
+                        }
+                        lane.waits().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        return Mono.<Void>empty();
+                    });
+        });
+    }
+
+    /**
+     * Blocks until {@code permits} tokens of the credential's budget are available (without
+     * taking them), or until {@code broker.rate.max-wait} has passed. Used to pace background
+     * sweeps against the same budget the account's interactive callers draw from.
+     *
+     * @return false if the deadline passed first; the caller may proceed, its requests
+     *         will still wait for their own permits
+     */
+    public boolean awaitHeadroom(Broker broker, String credential, EndpointClass endpointClass, int permits) {
+        Lane lane = lane(broker, endpointClass);
+        Bucket bucket = bucket(broker, credential, endpointClass);
+        long wanted = Math.min(permits, lane.perSecond());
+        long deadline = System.nanoTime() + maxWait.toNanos();
+        while (true) {
+            EstimationProbe probe = bucket.estimateAbilityToConsume(wanted);
+            if (probe.canBeConsumed()) {
+                return true;
+            }
+            long waitNanos = probe.getNanosToWaitForRefill();
+            if (System.nanoTime() + waitNanos > deadline) {
+                return false;
+            }
+            LockSupport.parkNanos(waitNanos);
+            if (Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+        }
+    }
+
+    /** Tokens currently available; negative while reservations are outstanding. */
+    public long availablePermits(Broker broker, String credential, EndpointClass endpointClass) {
+        return bucket(broker, credential, endpointClass).getAvailableTokens();
+    }
+
+    /**
+     * WebClient filter that takes a permit before each request to a known broker host.
+     * Requests to any other host pass straight through.
+     */
+    public ExchangeFilterFunction filter() {
+        return (request, next) -> {
+            Broker broker = brokerForHost(request.url());
+            if (broker == null) {
+                return next.exchange(request);
+            }
+            return acquire(broker, credentialOf(broker, request.headers()), classify(broker, request.url().getPath()))
+                    .then(Mono.defer(() -> next.exchange(request)));
+        };
+    }
+
+    /**
+     * The credential a request is limited under: the Kite API key from {@code Authorization:
+     * token apiKey:accessToken}, the SmartAPI key from {@code X-PrivateKey}, or a fingerprint of
+     * the Upstox bearer token (Upstox limits per user token; the token itself isn't kept).
+     * {@link #SHARED} when the request carries none.
+     */
+    static String credentialOf(Broker broker, HttpHeaders headers) {
+        String credential = switch (broker) {
+            case ZERODHA -> {
+                String auth = headers.getFirst(HttpHeaders.AUTHORIZATION);
+                if (auth == null || !auth.startsWith("token ")) yield null;
+                int colon = auth.indexOf(':');
+                yield colon > 6 ? auth.substring(6, colon) : auth.substring(6);
+            }
+            case ANGELONE -> headers.getFirst("X-PrivateKey");
+            case UPSTOX -> {
+                String auth = headers.getFirst(HttpHeaders.AUTHORIZATION);
+                yield auth != null && auth.startsWith("Bearer ") ? upstoxFingerprint(auth.substring(7)) : null;
+            }
+        };
+        return credential == null || credential.isBlank() ? SHARED : credential;
+    }
+
+    /**
+     * The credential an account's broker calls will be limited under, for sweep pacing.
+     * Upstox keys on the access token, which the sweep doesn't hold, so it gets
+     * {@link #SHARED}; one user's sync is far below a per-token budget anyway.
+     */
+    public static String credentialOf(BrokerAccount account) {
+        String credential = switch (account.getBroker()) {
+            case ZERODHA -> account.getZerodhaApiKey();
+            case ANGELONE -> account.getAngelOneApiKey();
+            case UPSTOX -> null;
+        };
+        return credential == null || credential.isBlank() ? SHARED : credential;
+    }
+
+    private static String upstoxFingerprint(String accessToken) {
+        return "upstox#" + Integer.toHexString(accessToken.hashCode());
+    }
+
+    static Broker brokerForHost(URI url) {
+        String host = url.getHost();
+        return host == null ? null : HOSTS.get(host.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Maps a request path onto the broker's limit family. Anything not recognised as a
+     * quote or order-book call counts against the portfolio budget.
+     */
+    static EndpointClass classify(Broker broker, String path) {
+        String p = path == null ? "" : path.toLowerCase(Locale.ROOT);
+        return switch (broker) {
+            case ZERODHA -> p.startsWith("/quote") ? EndpointClass.QUOTE
+                    : p.startsWith("/orders") || p.startsWith("/trades")
+                        || p.startsWith("/mf/orders") || p.startsWith("/mf/sips") ? EndpointClass.ORDERS
+                    : EndpointClass.PORTFOLIO;
+            case UPSTOX -> p.contains("/market-quote") ? EndpointClass.QUOTE
+                    : p.contains("/order/") ? EndpointClass.ORDERS
+                    : EndpointClass.PORTFOLIO;
+            case ANGELONE -> p.contains("/market/") || p.endsWith("/getltpdata") ? EndpointClass.QUOTE
+                    : p.endsWith("/getorderbook") || p.endsWith("/gettradebook") ? EndpointClass.ORDERS
+                    : EndpointClass.PORTFOLIO;
+        };
+    }
+
+    private Lane lane(Broker broker, EndpointClass endpointClass) {
+        return lanes.get(broker).get(endpointClass);
+    }
+
+    private Bucket bucket(Broker broker, String credential, EndpointClass endpointClass) {
+        int perSecond = lane(broker, endpointClass).perSecond();
+        return buckets.get(new BucketKey(broker, Objects.requireNonNullElse(credential, SHARED), endpointClass),
+                key -> Bucket.builder()
+                        .addLimit(Bandwidth.builder().capacity(perSecond)
+                                .refillGreedy(perSecond, Duration.ofSeconds(1)).build())
+                        .build());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /** Per (broker, endpoint class): the configured rate and the shared meters. */
+    private record Lane(int perSecond, Timer waits, Counter denied) {}
+
+    private record BucketKey(Broker broker, String credential, EndpointClass endpointClass) {}
+}
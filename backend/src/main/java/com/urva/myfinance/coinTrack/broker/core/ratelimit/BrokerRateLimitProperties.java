@@ -0,0 +1,67 @@
+package com.urva.myfinance.coinTrack.broker.core.ratelimit;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor.EndpointClass;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outbound request budgets per broker, loaded from application.properties with prefix
+ * "broker.rate.".
+ *
+ * Values are requests per second per API credential (Kite / SmartAPI API key, Upstox user
+ * token), shared by every caller of the broker WebClient using that credential. Defaults sit
+ * at or just under the published limits:
+ * - Kite: quote 1/s, everything else 10/s
+ * - Upstox: 25/s for standard APIs, orders kept lower
+ * - SmartAPI: getHolding / getPosition 1/s each, order book 1/s, LTP 10/s
+ */
+@Configuration
+@ConfigurationProperties(prefix = "broker.rate")
+@Data
+public class BrokerRateLimitProperties {
+
+    /**
+     * Longest a caller waits for a permit before failing with BrokerRateLimitException.
+     * Default: 5 seconds
+     */
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    private Limits zerodha = new Limits(1, 10, 10);
+
+    private Limits upstox = new Limits(25, 25, 10);
+
+    private Limits angelone = new Limits(10, 2, 1);
+
+    public Limits limitsFor(Broker broker) {
+        return switch (broker) {
+            case ZERODHA -> zerodha;
+            case UPSTOX -> upstox;
+            case ANGELONE -> angelone;
+        };
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limits {
+        private int quote;
+        private int portfolio;
+        private int orders;
+
+        public int perSecond(EndpointClass endpointClass) {
+            return switch (endpointClass) {
+                case QUOTE -> quote;
+                case PORTFOLIO -> portfolio;
+                case ORDERS -> orders;
+            };
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.urva.myfinance.coinTrack.broker.core.session;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Decrypted broker access tokens, one per broker account, so the AES-GCM decrypt runs once per
+ * login instead of on every sync, LTP batch and pass-through call.
+ *
+ * An entry is only reused while the account still carries the same encrypted token and the same
+ * expiry; a re-login (new ciphertext), a logout or a reconnect flag (token cleared, expiry moved)
+ * all force a fresh decrypt. Entries expire at the token's own expiry, or after
+ * {@link #DEFAULT_LIFETIME} when none is stored, and the decrypted characters are zeroed when an
+ * entry leaves the cache.
+ *
+ * Token fields per broker follow the sync path: Zerodha uses the zerodha* fields, AngelOne the
+ * encrypted JWT and angelOneTokenExpiresAt; everything else the generic accessToken /
+ * tokenExpiresAt pair.
+ */
+@Component
+public class BrokerSessionCache {
+
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final long MAX_ACCOUNTS = 50_000;
+    /** Lifetime of a session whose account has no stored expiry, as before: one hour. */
+    static final Duration DEFAULT_LIFETIME = Duration.ofHours(1);
+
+    private final EncryptionUtil encryptionUtil;
+    private final Cache<String, Entry> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public BrokerSessionCache(EncryptionUtil encryptionUtil, MeterRegistry meterRegistry) {
+        this.encryptionUtil = encryptionUtil;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(MAX_ACCOUNTS)
+                .expireAfter(new UntilExpiresAt())
+                .removalListener((String accountId, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) entry.wipe();
+                })
+                .build();
+        this.hits = Counter.builder("broker.session.cache").tag("outcome", "hit").register(meterRegistry);
+        this.misses = Counter.builder("broker.session.cache").tag("outcome", "miss").register(meterRegistry);
+    }
+
+    /**
+     * The account's decrypted access token, or null when it has none. Zerodha tokens come without
+     * the {@code apiKey:} prefix.
+     */
+    public String accessToken(BrokerAccount account) {
+        if (account == null) return null;
+        String ciphertext = storedToken(account);
+        if (ciphertext == null || ciphertext.isEmpty()) {
+            invalidate(account.getId());
+            return null;
+        }
+        if (account.getId() == null) return encryptionUtil.decryptSafe(ciphertext);
+        LocalDateTime storedExpiry = storedExpiry(account);
+
+        Entry entry = cache.getIfPresent(account.getId());
+        if (entry != null && entry.matches(ciphertext, storedExpiry)) {
+            String token = entry.token();
+            if (token != null) {
+                hits.increment();
+                return token;
+            }
+        }
+
+        misses.increment();
+        String token = encryptionUtil.decryptSafe(ciphertext);
+        cache.put(account.getId(), new Entry(ciphertext, storedExpiry, token.toCharArray(), expiresAt(storedExpiry)));
+        return token;
+    }
+
+    /**
+     * Session for the sync path, or null when the account has no token. Zerodha sessions carry
+     * {@code apiKey:accessToken}, the form Kite's Authorization header expects.
+     */
+    public BrokerSession session(BrokerAccount account) {
+        String token = accessToken(account);
+        if (token == null) return null;
+        Broker broker = account.getBroker();
+        String sessionToken = broker == Broker.ZERODHA ? account.getZerodhaApiKey() + ":" + token : token;
+        return new BrokerSession(account.getId(), broker, sessionToken, expiresAt(storedExpiry(account)), Map.of());
+    }
+
+    public void invalidate(String accountId) {
+        if (accountId != null) cache.invalidate(accountId);
+    }
+
+    long size() {
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+
+    private static Instant expiresAt(LocalDateTime storedExpiry) {
+        return storedExpiry != null ? storedExpiry.atZone(INDIA_ZONE).toInstant() : Instant.now().plus(DEFAULT_LIFETIME);
+    }
+
+    private static String storedToken(BrokerAccount account) {
+        if (account.getBroker() == Broker.ZERODHA) return account.getZerodhaAccessToken();
+        if (account.getBroker() == Broker.ANGELONE) return account.getEncryptedAngelOneJwtToken();
+        return account.getAccessToken();
+    }
+
+    private static LocalDateTime storedExpiry(BrokerAccount account) {
+        if (account.getBroker() == Broker.ZERODHA) return account.getZerodhaTokenExpiresAt();
+        if (account.getBroker() == Broker.ANGELONE) return account.getAngelOneTokenExpiresAt();
+        return account.getTokenExpiresAt();
+    }
+
+    /** One decrypted token, tied to the ciphertext and expiry it was decrypted from. */
+    static final class Entry {
+        private final String ciphertext;
+        private final LocalDateTime storedExpiry;
+        private final Instant expiresAt;
+        // Guarded by this; zeroed and nulled by wipe()
+        private char[] token;
+
+        Entry(String ciphertext, LocalDateTime storedExpiry, char[] token, Instant expiresAt) {
+            this.ciphertext = ciphertext;
+            this.storedExpiry = storedExpiry;
+            this.token = token;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean matches(String currentCiphertext, LocalDateTime currentExpiry) {
+            return ciphertext.equals(currentCiphertext) && Objects.equals(storedExpiry, currentExpiry)
+                    && Instant.now().isBefore(expiresAt);
+        }
+
+        /** The token, or null once wiped (the caller then decrypts again). */
+        synchronized String token() {
+            return token != null ? new String(token) : null;
+        }
+
+        synchronized void wipe() {
+            if (token != null) {
+                Arrays.fill(token, '\0');
+                token = null;
+            }
+        }
+    }
+
+    private static final class UntilExpiresAt implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String accountId, Entry entry, long currentTime) {
+            return Math.max(0L, Duration.between(Instant.now(), entry.expiresAt).toNanos());
+        }
+
+        @Override
+        public long expireAfterUpdate(String accountId, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(accountId, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String accountId, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
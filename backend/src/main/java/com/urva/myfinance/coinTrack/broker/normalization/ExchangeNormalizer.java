@@ -1,5 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.normalization;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import org.slf4j.Logger;
@@ -15,12 +17,20 @@ import org.slf4j.LoggerFactory;
  *   "MCX", "mcx", "MCX_FO"           → Exchange.MCX
  *   anything else                     → Exchange.UNKNOWN + log warning
  *
- * Stateless utility — no Spring dependency needed.
+ * Recognised raw spellings are remembered as seen, so the mappers' per-row call is a map lookup
+ * rather than a trim/uppercase copy. Unknown values are not remembered and still log each time.
+ *
+ * Static utility — no Spring dependency needed.
  */
 public final class ExchangeNormalizer {
 
     private static final Logger log = LoggerFactory.getLogger(ExchangeNormalizer.class);
 
+    /** Brokers send a handful of spellings; the bound only guards against junk input. */
+    private static final int MAX_SPELLINGS = 256;
+
+    private static final ConcurrentHashMap<String, Exchange> bySpelling = new ConcurrentHashMap<>();
+
     private ExchangeNormalizer() {}
 
     /**
@@ -34,7 +44,10 @@ public final class ExchangeNormalizer {
             return Exchange.UNKNOWN;
         }
 
-        return switch (rawExchange.trim().toUpperCase()) {
+        Exchange known = bySpelling.get(rawExchange);
+        if (known != null) return known;
+
+        Exchange exchange = switch (rawExchange.trim().toUpperCase()) {
             case "NSE", "NSE_EQ", "NSE_FO" -> Exchange.NSE;
             case "BSE", "BSE_EQ" -> Exchange.BSE;
             case "NFO" -> Exchange.NFO;
@@ -44,5 +57,9 @@ public final class ExchangeNormalizer {
                 yield Exchange.UNKNOWN;
             }
         };
+        if (exchange != Exchange.UNKNOWN && bySpelling.size() < MAX_SPELLINGS) {
+            bySpelling.put(rawExchange, exchange);
+        }
+        return exchange;
     }
 }
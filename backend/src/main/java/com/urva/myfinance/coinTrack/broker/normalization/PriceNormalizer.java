@@ -27,6 +27,8 @@ public final class PriceNormalizer {
 
     private static final Logger log = LoggerFactory.getLogger(PriceNormalizer.class);
     private static final int DEFAULT_SCALE = 2;
+    /** BigDecimal is immutable, so every zero-valued field can share one instance. */
+    private static final BigDecimal ZERO = BigDecimal.ZERO.setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
 
     private PriceNormalizer() {}
 
@@ -42,14 +44,18 @@ public final class PriceNormalizer {
     public static BigDecimal toBigDecimal(Object value, String fieldName, Broker broker) {
         if (value == null) {
             log.warn("Null value for field='{}' from broker={}, defaulting to ZERO", fieldName, broker);
-            return BigDecimal.ZERO.setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
+            return ZERO;
         }
 
         try {
             return switch (value) {
+                case Double d when d == 0.0 -> ZERO;
+
                 case Double d -> new BigDecimal(Double.toString(d))
                         .setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
 
+                case Float f when f == 0.0f -> ZERO;
+
                 case Float f -> new BigDecimal(Float.toString(f))
                         .setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
 
@@ -89,7 +95,7 @@ public final class PriceNormalizer {
     private static BigDecimal parseString(String s, String fieldName, Broker broker) {
         if (s == null || s.isBlank()) {
             log.warn("Empty string for field='{}' from broker={}, defaulting to ZERO", fieldName, broker);
-            return BigDecimal.ZERO.setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
+            return ZERO;
         }
 
         String trimmed = s.trim();
@@ -97,7 +103,7 @@ public final class PriceNormalizer {
             BigDecimal result = new BigDecimal(trimmed).setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
             // Normalize -0.00 to 0.00
             if (result.compareTo(BigDecimal.ZERO) == 0) {
-                return BigDecimal.ZERO.setScale(DEFAULT_SCALE, RoundingMode.HALF_UP);
+                return ZERO;
             }
             return result;
         } catch (NumberFormatException e) {
@@ -0,0 +1,47 @@
+package com.urva.myfinance.coinTrack.broker.normalization;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared intern pool for the strings the broker mappers copy onto every canonical row: canonical
+ * symbols and ISINs.
+ *
+ * Each broker response deserializes a fresh String per row, so without interning a sync of a
+ * large account retains one copy of "NSE:RELIANCE" per holding, per position, per user. Routing
+ * them through here leaves one instance per distinct value, shared by every row and every user.
+ *
+ * Bounded at {@link #MAX_ENTRIES}: the listed universe is a few tens of thousands of symbols, so
+ * the pool is simply cleared if junk input ever fills it. Interning is an optimization only —
+ * callers must still compare with equals().
+ *
+ * Static utility — no Spring dependency needed.
+ */
+public final class SymbolDictionary {
+
+    static final int MAX_ENTRIES = 200_000;
+
+    private static final ConcurrentHashMap<String, String> pool = new ConcurrentHashMap<>();
+
+    private SymbolDictionary() {}
+
+    /**
+     * @param value a symbol, ISIN or exchange string (null passes through)
+     * @return the pooled instance equal to {@code value}
+     */
+    public static String intern(String value) {
+        if (value == null) return null;
+        String pooled = pool.get(value);
+        if (pooled != null) return pooled;
+        if (pool.size() >= MAX_ENTRIES) pool.clear();
+        pooled = pool.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    static int size() {
+        return pool.size();
+    }
+
+    static void clear() {
+        pool.clear();
+    }
+}
@@ -1,5 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.normalization;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,12 +19,24 @@ import org.slf4j.LoggerFactory;
  *
  * Output: Always "EXCHANGE:BASESYMBOL" with uppercase exchange and symbol.
  *
- * Stateless utility — no Spring dependency needed.
+ * Resolution is purely syntactic and never consults the instrument master, so a symbol is
+ * stored under the same key whether or not the master has loaded. Matching a broker's series
+ * suffix ("SBIN-EQ" from Angel One) to the master's listing is done at lookup time
+ * ({@code InstrumentIndex.indexOfListed}); changing stored keys needs a re-key migration.
+ *
+ * A broker response repeats the same few thousand (symbol, exchange) pairs across every account,
+ * so results are memoized per (broker, raw exchange, raw symbol) and handed out as the
+ * {@link SymbolDictionary} instance.
  */
 public final class SymbolNormalizer {
 
     private static final Logger log = LoggerFactory.getLogger(SymbolNormalizer.class);
 
+    /** Upper bound on memoized results; cleared when reached, as with {@link SymbolDictionary}. */
+    static final int MAX_MEMOIZED = 100_000;
+
+    private static final ConcurrentHashMap<Key, String> memo = new ConcurrentHashMap<>();
+
     private SymbolNormalizer() {}
 
     /**
@@ -39,6 +53,19 @@ public final class SymbolNormalizer {
             return "UNKNOWN:UNKNOWN";
         }
 
+        Key key = new Key(broker, rawExchange, rawSymbol);
+        String cached = memo.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String symbol = SymbolDictionary.intern(resolve(rawSymbol, broker, rawExchange));
+        if (memo.size() >= MAX_MEMOIZED) memo.clear();
+        memo.put(key, symbol);
+        return symbol;
+    }
+
+    private static String resolve(String rawSymbol, Broker broker, String rawExchange) {
         String exchange = ExchangeNormalizer.normalize(rawExchange, broker).name();
         String baseSymbol;
 
@@ -114,4 +141,14 @@ public final class SymbolNormalizer {
         }
         return null;
     }
+
+    static int memoized() {
+        return memo.size();
+    }
+
+    static void clearMemo() {
+        memo.clear();
+    }
+
+    private record Key(Broker broker, String rawExchange, String rawSymbol) {}
 }
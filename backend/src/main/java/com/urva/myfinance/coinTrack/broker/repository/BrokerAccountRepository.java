@@ -1,5 +1,6 @@
 package com.urva.myfinance.coinTrack.broker.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +20,8 @@ public interface BrokerAccountRepository extends MongoRepository<BrokerAccount,
 
     List<BrokerAccount> findByIsActiveTrue();
 
+    List<BrokerAccount> findByUserIdInAndIsActiveTrue(Collection<String> userIds);
+
     org.springframework.data.domain.Page<BrokerAccount> findByIsActiveTrue(
             org.springframework.data.domain.Pageable pageable);
 }
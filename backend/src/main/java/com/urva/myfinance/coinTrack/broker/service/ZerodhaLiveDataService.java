@@ -1,5 +1,7 @@
 package com.urva.myfinance.coinTrack.broker.service;
 
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
@@ -7,13 +9,14 @@ import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.BodyInserters;
@@ -23,6 +26,8 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urva.myfinance.coinTrack.broker.core.codec.BrokerEnvelopeDecoder;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSessionCache;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
 import com.urva.myfinance.coinTrack.broker.service.exception.BrokerException;
@@ -35,6 +40,9 @@ import com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.UserProfileDTO;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentCsv;
+
+import reactor.core.publisher.Flux;
 
 /**
  * Provides live data fetching from Zerodha Kite API for pass-through endpoints.
@@ -53,14 +61,19 @@ public class ZerodhaLiveDataService {
 
     private final WebClient webClient;
     private final EncryptionUtil encryptionUtil;
+    private final BrokerSessionCache sessionCache;
     private final ObjectMapper objectMapper;
+    private final BrokerEnvelopeDecoder envelopeDecoder;
 
     @Autowired
-    public ZerodhaLiveDataService(WebClient.Builder brokerWebClientBuilder, EncryptionUtil encryptionUtil) {
+    public ZerodhaLiveDataService(WebClient.Builder brokerWebClientBuilder, EncryptionUtil encryptionUtil,
+                                  BrokerSessionCache sessionCache) {
         this.webClient = brokerWebClientBuilder.build();
         this.encryptionUtil = encryptionUtil;
+        this.sessionCache = sessionCache;
         this.objectMapper = new ObjectMapper();
         this.objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.envelopeDecoder = new BrokerEnvelopeDecoder(objectMapper);
     }
 
     // ============================================================================================
@@ -193,22 +206,8 @@ public class ZerodhaLiveDataService {
         }
 
         try {
-            String url = "https://api.kite.trade/user/margins";
-
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(headers -> buildKiteHeaders(headers, account))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            // Manual parsing
-            JsonNode root = objectMapper.readTree(responseBody);
-            if (root == null || !root.has("status") || !"success".equals(root.get("status").asText())) {
-                throw new BrokerException("Failed to fetch margins", Broker.ZERODHA);
-            }
-
-            JsonNode dataNode = root.get("data");
+            JsonNode dataNode = streamFromKite(account, "https://api.kite.trade/user/margins", "margins",
+                    JsonNode.class).next().block();
 
             // 1. Convert to DTO
             FundsDTO fundsDTO = objectMapper.treeToValue(dataNode, FundsDTO.class);
@@ -396,7 +395,9 @@ public class ZerodhaLiveDataService {
 
     /**
      * Fetches mutual fund instruments from Zerodha Kite API.
-     * Note: This endpoint returns CSV (not JSON!).
+     * Note: This endpoint returns CSV (not JSON!). The body is streamed through
+     * {@link MfInstrumentCsv} rather than buffered as one String, so it is not subject to the
+     * WebClient in-memory limit.
      *
      * @param account the broker account with valid token
      * @return list of MF instruments
@@ -409,93 +410,16 @@ public class ZerodhaLiveDataService {
         String url = "https://api.kite.trade/mf/instruments";
 
         try {
-            String csvBody = webClient.get()
+            Flux<DataBuffer> body = webClient.get()
                     .uri(url)
                     .headers(headers -> buildKiteHeaders(headers, account))
                     .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
+                    .bodyToFlux(DataBuffer.class);
 
-            if (csvBody == null || csvBody.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            List<MfInstrumentDTO> results = new ArrayList<>();
-            // Split by newline
-            String[] lines = csvBody.split("\\r?\\n");
-            if (lines.length < 2) {
-                return results; // Only header or empty
-            }
-
-            // Parse Header
-            String headerLine = lines[0].trim();
-            String[] headersArr = headerLine.split(",");
-            Map<String, Integer> headerMap = new HashMap<>();
-            for (int i = 0; i < headersArr.length; i++) {
-                // Remove quotes if present
-                headerMap.put(headersArr[i].trim().replaceAll("^\"|\"$", ""), i);
-            }
-
-            // Parse Data Lines
-            for (int i = 1; i < lines.length; i++) {
-                String line = lines[i].trim();
-                if (line.isEmpty()) {
-                    continue;
-                }
-
-                // Split by comma, respecting quotes
-                String[] cols = line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-
-                MfInstrumentDTO dto = new MfInstrumentDTO();
-                Map<String, Object> raw = new HashMap<>();
-
-                // 1. Populate full raw map
-                for (Map.Entry<String, Integer> entry : headerMap.entrySet()) {
-                    Integer idx = entry.getValue();
-                    if (idx != null && idx < cols.length) {
-                        String val = cols[idx].trim().replaceAll("^\"|\"$", "");
-                        raw.put(entry.getKey(), val);
-                    }
-                }
-
-                // 2. Map to DTO properties from raw map
-                dto.setTradingSymbol((String) raw.get("tradingsymbol"));
-                dto.setName((String) raw.get("name"));
-                dto.setAmc((String) raw.get("amc"));
-                dto.setIsin((String) raw.get("isin"));
-                dto.setSchemeType((String) raw.get("scheme_type"));
-                dto.setPlan((String) raw.get("plan"));
-
-                // Helper to get string from raw map safely
-                java.util.function.Function<String, String> str = (key) -> {
-                    Object val = raw.get(key);
-                    return val != null ? val.toString() : null;
-                };
-
-                // Extra fields
-                dto.setFundHouse(str.apply("amc")); // Map AMC to fundHouse too
-
-                dto.setDividendType(str.apply("dividend_type"));
-                dto.setPurchaseAmountMultiplier(safeBigDecimal(str.apply("purchase_amount_multiplier")));
-                dto.setMinimumAdditionalPurchaseAmount(
-                        safeBigDecimal(str.apply("minimum_additional_purchase_amount")));
-                dto.setMinimumPurchaseAmount(safeBigDecimal(str.apply("minimum_purchase_amount")));
-
-                String redAllowed = str.apply("redemption_allowed");
-                dto.setRedemptionAllowed("1".equals(redAllowed));
-
-                dto.setMinimumRedemptionQuantity(safeBigDecimal(str.apply("minimum_redemption_quantity")));
-                dto.setRedemptionQuantityMultiplier(safeBigDecimal(str.apply("redemption_quantity_multiplier")));
-                dto.setLastPriceDate(str.apply("last_price_date"));
-
-                String purchAllowed = str.apply("purchase_allowed");
-                dto.setPurchaseAllowed("1".equals(purchAllowed));
-
-                dto.setSettlementType(str.apply("settlement_type"));
-                dto.setLastPrice(safeBigDecimal(str.apply("last_price")));
-
-                dto.setRaw(raw);
-                results.add(dto);
+            List<MfInstrumentDTO> results = new ArrayList<>(16_384);
+            try (Reader reader = new InputStreamReader(DataBufferUtils.subscriberInputStream(body, 4),
+                    StandardCharsets.UTF_8)) {
+                MfInstrumentCsv.parse(reader, results::add);
             }
             return results;
 
@@ -512,7 +436,8 @@ public class ZerodhaLiveDataService {
     // ============================================================================================
 
     /**
-     * Fetches a list of items from Kite API, unwrapping the "data" array.
+     * Fetches a list of items from Kite API, unwrapping the "data" array. Records are bound one
+     * at a time as the body streams in (see {@link #streamFromKite}).
      *
      * @param account  the broker account with valid token
      * @param url      the Kite API endpoint URL
@@ -521,36 +446,8 @@ public class ZerodhaLiveDataService {
      * @return list of items
      */
     private <T> List<T> fetchListFromKite(BrokerAccount account, String url, String logTag, Class<T> itemType) {
-        if (!account.hasValidToken()) {
-            throw new BrokerException("Invalid token", Broker.ZERODHA);
-        }
-
-        try {
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(headers -> buildKiteHeaders(headers, account))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            if (root == null || !root.has("status") || !"success".equals(root.get("status").asText())) {
-                throw new BrokerException("Failed to fetch " + logTag, Broker.ZERODHA);
-            }
-
-            JsonNode dataArray = root.get("data");
-            if (dataArray != null && dataArray.isArray()) {
-                return objectMapper.readValue(dataArray.traverse(),
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, itemType));
-            }
-            return Collections.emptyList();
-
-        } catch (BrokerException e) {
-            throw e;
-        } catch (Exception e) {
-            logger.error("Error fetching Zerodha {}: {}", logTag, e.getMessage());
-            throw new BrokerException("Failed to fetch " + logTag, Broker.ZERODHA, e);
-        }
+        List<T> items = streamFromKite(account, url, logTag, itemType).collectList().block();
+        return items != null ? items : Collections.emptyList();
     }
 
     /**
@@ -560,34 +457,37 @@ public class ZerodhaLiveDataService {
      * @param url          the Kite API endpoint URL
      * @param logTag       human-readable label for logging
      * @param responseType the class type of the response object
-     * @return the parsed object
+     * @return the parsed object, or null when data is absent
      */
     private <T> T fetchObjectFromKite(BrokerAccount account, String url, String logTag, Class<T> responseType) {
-        if (!account.hasValidToken()) {
-            throw new BrokerException("Invalid token", Broker.ZERODHA);
-        }
-
-        try {
-            String responseBody = webClient.get()
-                    .uri(url)
-                    .headers(headers -> buildKiteHeaders(headers, account))
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            JsonNode root = objectMapper.readTree(responseBody);
-            if (root == null || !root.has("status") || !"success".equals(root.get("status").asText())) {
-                throw new BrokerException("Failed to fetch " + logTag, Broker.ZERODHA);
-            }
-
-            return objectMapper.treeToValue(root.get("data"), responseType);
+        return streamFromKite(account, url, logTag, responseType).next().block();
+    }
 
-        } catch (BrokerException e) {
-            throw e;
-        } catch (Exception e) {
-            logger.error("Error fetching Zerodha {}: {}", logTag, e.getMessage());
-            throw new BrokerException("Failed to fetch " + logTag, Broker.ZERODHA, e);
+    /**
+     * Streams {@code data} (each array element, or the object itself) out of the Kite envelope
+     * without buffering the body, so a large order book never sits in memory as a String and
+     * is not subject to the codec's in-memory size limit. Every failure surfaces as
+     * BrokerException("Failed to fetch " + logTag).
+     */
+    private <T> Flux<T> streamFromKite(BrokerAccount account, String url, String logTag, Class<T> itemType) {
+        if (!account.hasValidToken()) {
+            return Flux.error(new BrokerException("Invalid token", Broker.ZERODHA));
         }
+        Flux<DataBuffer> body = webClient.get()
+                .uri(url)
+                .headers(headers -> buildKiteHeaders(headers, account))
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+
+        return envelopeDecoder.decode(body, itemType, header -> {
+                    if (!"success".equals(header.get("status"))) {
+                        throw new BrokerException("Failed to fetch " + logTag, Broker.ZERODHA);
+                    }
+                }, "data")
+                .onErrorMap(e -> !(e instanceof BrokerException), e -> {
+                    logger.error("Error fetching Zerodha {}: {}", logTag, e.getMessage());
+                    return new BrokerException("Failed to fetch " + logTag, Broker.ZERODHA, e);
+                });
     }
 
     /**
@@ -598,7 +498,7 @@ public class ZerodhaLiveDataService {
      * @param account the broker account containing API key and access token
      */
     private void buildKiteHeaders(org.springframework.http.HttpHeaders headers, BrokerAccount account) {
-        String accessToken = encryptionUtil.decryptSafe(account.getZerodhaAccessToken());
+        String accessToken = sessionCache.accessToken(account);
         headers.set("Authorization", "token " + account.getZerodhaApiKey() + ":" + accessToken);
         headers.set("X-Kite-Version", "3");
     }
@@ -27,10 +27,10 @@ public class CorsConfig {
             List.of("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS");
 
     private static final List<String> ALLOWED_HEADERS =
-            List.of("Authorization", "Content-Type", "X-Request-ID");
+            List.of("Authorization", "Content-Type", "X-Request-ID", "If-None-Match");
 
     private static final List<String> EXPOSED_HEADERS =
-            List.of("Authorization", "Content-Type", "X-Request-ID", "X-Correlation-ID");
+            List.of("Authorization", "Content-Type", "X-Request-ID", "X-Correlation-ID", "ETag");
 
     private static final long MAX_AGE_SECONDS = 3600L;
 
@@ -1,14 +1,11 @@
 package com.urva.myfinance.coinTrack.common.config;
 
-import java.time.Duration;
-
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
-import io.netty.channel.ChannelOption;
-import reactor.netty.http.client.HttpClient;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor;
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
 
 /**
  * Provides a pre-configured {@link WebClient.Builder} for outbound HTTP calls
@@ -17,25 +14,23 @@ import reactor.netty.http.client.HttpClient;
  * Replaces the legacy RestTemplate configuration.
  *
  * Settings:
- * - Connection timeout : 10 s
- * - Response timeout   : 15 s
- * - Max in-memory size : 2 MB (prevents OOM on large responses)
+ * - Connection pools   : one per upstream host (see {@link OutboundHttpClients}); each request is
+ *   routed to its target host's pool, with connection (10 s) and response (15 s) timeouts
+ * - Max in-memory size : 2 MB (prevents OOM on large responses); bulk CSV dumps are read
+ *   as a DataBuffer stream instead, which this limit doesn't apply to
+ * - Broker rate governor: every request to a broker host waits for a permit
  */
 @Configuration
 public class WebClientConfig {
 
-    private static final int CONNECT_TIMEOUT_MS = 10_000;
-    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(15);
     private static final int MAX_IN_MEMORY_SIZE = 2 * 1024 * 1024; // 2 MB
 
     @Bean
-    public WebClient.Builder brokerWebClientBuilder() {
-        HttpClient httpClient = HttpClient.create()
-                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
-                .responseTimeout(RESPONSE_TIMEOUT);
-
+    public WebClient.Builder brokerWebClientBuilder(BrokerRateGovernor rateGovernor,
+                                                    OutboundHttpClients outboundHttpClients) {
         return WebClient.builder()
-                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .clientConnector(outboundHttpClients.connector())
+                .filter(rateGovernor.filter())
                 .codecs(configurer -> configurer
                         .defaultCodecs()
                         .maxInMemorySize(MAX_IN_MEMORY_SIZE));
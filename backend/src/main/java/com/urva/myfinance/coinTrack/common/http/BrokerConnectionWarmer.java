@@ -0,0 +1,80 @@
+package com.urva.myfinance.coinTrack.common.http;
+
+import java.time.Duration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+
+/**
+ * Opens broker connections shortly before the 09:15 open, so the first syncs and quote batches
+ * of the session skip DNS, TCP and TLS setup.
+ *
+ * Each broker pool gets {@code warmup-connections} concurrent HEAD requests to its host root;
+ * the connections go back to the pool and stay there for the pool's idle time (55 s by default,
+ * which is why the default cron fires at 09:14:30). Failures are logged and ignored: a cold pool
+ * just opens connections on first use as before.
+ */
+@Component
+public class BrokerConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerConnectionWarmer.class);
+    private static final Duration WARMUP_TIMEOUT = Duration.ofSeconds(20);
+
+    private final OutboundHttpClients clients;
+    private final OutboundHttpProperties properties;
+    private final Counter opened;
+    private final Counter failed;
+
+    public BrokerConnectionWarmer(OutboundHttpClients clients,
+                                  OutboundHttpProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.clients = clients;
+        this.properties = properties;
+        this.opened = Counter.builder("outbound.http.warmup").tag("outcome", "opened").register(meterRegistry);
+        this.failed = Counter.builder("outbound.http.warmup").tag("outcome", "failed").register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${outbound.http.warmup-cron:30 14 9 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void scheduledWarmUp() {
+        int total = 0;
+        for (Upstream upstream : Upstream.values()) {
+            if (upstream.isBroker()) total += warmUp(upstream);
+        }
+        log.info("Broker connection warm-up: {} connections opened", total);
+    }
+
+    /** Opens up to the configured number of connections to the upstream; returns how many succeeded. */
+    int warmUp(Upstream upstream) {
+        int connections = properties.poolFor(upstream).getWarmupConnections();
+        if (connections <= 0) return 0;
+        HttpClient client = clients.httpClient(upstream);
+        try {
+            client.warmup().block(WARMUP_TIMEOUT);
+            Long ok = Flux.range(0, connections)
+                    .flatMap(i -> client.head().uri(upstream.baseUrl()).response()
+                            .map(response -> 1)
+                            .onErrorResume(e -> {
+                                log.debug("Warm-up request to {} failed: {}", upstream.host(), e.getMessage());
+                                return Mono.empty();
+                            }), connections)
+                    .count()
+                    .block(WARMUP_TIMEOUT);
+            int succeeded = ok != null ? ok.intValue() : 0;
+            opened.increment(succeeded);
+            failed.increment(connections - succeeded);
+            return succeeded;
+        } catch (Exception e) {
+            log.warn("Connection warm-up for {} failed: {}", upstream.host(), e.getMessage());
+            failed.increment(connections);
+            return 0;
+        }
+    }
+}
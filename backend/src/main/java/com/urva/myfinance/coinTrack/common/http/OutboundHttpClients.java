@@ -0,0 +1,147 @@
+package com.urva.myfinance.coinTrack.common.http;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Registry of outbound HTTP clients, one Reactor Netty connection pool per {@link Upstream}.
+ *
+ * Every outbound call (broker APIs, AMFI, mfapi, NSE, Brevo) goes through one of these pools, so
+ * a slow AMFI download can't hold connections a Kite sync needs, and each host keeps its own
+ * idle / lifetime policy. Hosts outside the table share a fallback pool.
+ *
+ * Pools publish Reactor Netty's connection provider metrics under
+ * {@code reactor.netty.connection.provider.*}, tagged with the pool name
+ * ({@code outbound-kite}, ...): total / active / idle / pending connections, and
+ * {@code pending.connections.time}, the time a request waited to acquire a connection.
+ *
+ * Settings shared by all pools:
+ * - Connection timeout : 10 s
+ * - Response timeout   : 15 s (between reads, so large streamed bodies are fine)
+ */
+@Component
+public class OutboundHttpClients {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundHttpClients.class);
+
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final Duration RESPONSE_TIMEOUT = Duration.ofSeconds(15);
+
+    private final Map<Upstream, HttpClient> clients = new EnumMap<>(Upstream.class);
+    private final List<ConnectionProvider> providers = new ArrayList<>();
+    private final HttpClient fallback;
+    private final ClientHttpConnector connector;
+
+    public OutboundHttpClients(OutboundHttpProperties properties) {
+        Map<String, ClientHttpConnector> byHost = new HashMap<>();
+        for (Upstream upstream : Upstream.values()) {
+            HttpClient client = build("outbound-" + upstream.key(), properties.poolFor(upstream),
+                    properties.getPendingAcquireTimeout());
+            clients.put(upstream, client);
+            byHost.put(upstream.host(), new ReactorClientHttpConnector(client));
+        }
+        this.fallback = build("outbound-fallback", properties.getFallback(), properties.getPendingAcquireTimeout());
+        this.connector = new HostRoutingConnector(byHost, new ReactorClientHttpConnector(fallback));
+    }
+
+    public HttpClient httpClient(Upstream upstream) {
+        return clients.get(upstream);
+    }
+
+    /** Connector that sends each request through the pool of its target host. */
+    public ClientHttpConnector connector() {
+        return connector;
+    }
+
+    public WebClient webClient(Upstream upstream) {
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient(upstream)))
+                .build();
+    }
+
+    /** Blocking client on the upstream's pool, for callers still written against RestTemplate. */
+    public RestTemplate restTemplate(Upstream upstream) {
+        return new RestTemplate(new ReactorClientHttpRequestFactory(httpClient(upstream)));
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ConnectionProvider provider : providers) {
+            try {
+                provider.disposeLater().block(Duration.ofSeconds(5));
+            } catch (Exception e) {
+                log.debug("Connection pool {} did not close cleanly: {}", provider.name(), e.getMessage());
+            }
+        }
+    }
+
+    private HttpClient build(String name, OutboundHttpProperties.Pool pool, Duration pendingAcquireTimeout) {
+        ConnectionProvider provider = ConnectionProvider.builder(name)
+                .maxConnections(pool.getMaxConnections())
+                .pendingAcquireMaxCount(pool.getMaxConnections() * 4)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+        providers.add(provider);
+
+        HttpClient client = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, CONNECT_TIMEOUT_MS)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(RESPONSE_TIMEOUT);
+        if (pool.isHttp2()) {
+            client = client.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure();
+        }
+        return client;
+    }
+
+    /** Picks the connector by request host; unknown hosts use the fallback pool. */
+    static final class HostRoutingConnector implements ClientHttpConnector {
+
+        private final Map<String, ClientHttpConnector> byHost;
+        private final ClientHttpConnector fallback;
+
+        HostRoutingConnector(Map<String, ClientHttpConnector> byHost, ClientHttpConnector fallback) {
+            this.byHost = Map.copyOf(byHost);
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+                Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+            return route(uri).connect(method, uri, requestCallback);
+        }
+
+        ClientHttpConnector route(URI uri) {
+            String host = uri.getHost();
+            return host != null ? byHost.getOrDefault(host.toLowerCase(), fallback) : fallback;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.urva.myfinance.coinTrack.common.http;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Connection pool settings per upstream host, loaded from application.properties with prefix
+ * "outbound.http.".
+ *
+ * Broker pools are sized a little above the broker I/O bulkhead (8 concurrent calls per broker)
+ * plus the market data and pass-through paths. Their idle time stays under the ~60 s keep-alive
+ * the broker load balancers use, so a pooled connection is dropped by us before the server
+ * resets it mid-request. Hosts not listed here share the {@code fallback} pool.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "outbound.http")
+@Data
+public class OutboundHttpProperties {
+
+    private Pool kite = new Pool(32, Duration.ofSeconds(55), Duration.ofMinutes(10), false, 8);
+
+    private Pool upstox = new Pool(32, Duration.ofSeconds(55), Duration.ofMinutes(10), false, 8);
+
+    private Pool smartapi = new Pool(16, Duration.ofSeconds(55), Duration.ofMinutes(10), false, 4);
+
+    private Pool amfi = new Pool(2, Duration.ofSeconds(30), Duration.ofMinutes(5), false, 0);
+
+    private Pool mfapi = new Pool(8, Duration.ofSeconds(30), Duration.ofMinutes(5), false, 0);
+
+    private Pool nse = new Pool(2, Duration.ofSeconds(30), Duration.ofMinutes(5), false, 0);
+
+    private Pool brevo = new Pool(8, Duration.ofSeconds(30), Duration.ofMinutes(5), false, 0);
+
+    private Pool fallback = new Pool(16, Duration.ofSeconds(30), Duration.ofMinutes(5), false, 0);
+
+    /**
+     * Longest a request waits for a free pooled connection before failing.
+     * Default: 5 seconds
+     */
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+    public Pool poolFor(Upstream upstream) {
+        return switch (upstream) {
+            case KITE -> kite;
+            case UPSTOX -> upstox;
+            case SMARTAPI -> smartapi;
+            case AMFI -> amfi;
+            case MFAPI -> mfapi;
+            case NSE -> nse;
+            case BREVO -> brevo;
+        };
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Pool {
+        /** Connections per remote address; with http2 each one multiplexes many requests. */
+        private int maxConnections;
+        /** Idle connections are closed after this long. */
+        private Duration maxIdleTime;
+        /** Connections are retired after this long, so DNS changes are picked up. */
+        private Duration maxLifeTime;
+        /** Negotiate HTTP/2 over TLS (ALPN), falling back to HTTP/1.1. */
+        private boolean http2;
+        /** Connections opened by the pre-open warm-up; 0 skips the host. */
+        private int warmupConnections;
+    }
+}
@@ -0,0 +1,42 @@
+package com.urva.myfinance.coinTrack.common.http;
+
+/**
+ * External hosts that get their own connection pool in {@link OutboundHttpClients}.
+ *
+ * Broker hosts are pre-warmed before the market opens; the rest are opened on first use.
+ */
+public enum Upstream {
+
+    KITE("api.kite.trade", true),
+    UPSTOX("api.upstox.com", true),
+    SMARTAPI("apiconnect.angelbroking.com", true),
+    AMFI("www.amfiindia.com", false),
+    MFAPI("api.mfapi.in", false),
+    NSE("www.nseindia.com", false),
+    BREVO("api.brevo.com", false);
+
+    private final String host;
+    private final boolean broker;
+
+    Upstream(String host, boolean broker) {
+        this.host = host;
+        this.broker = broker;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public String baseUrl() {
+        return "https://" + host;
+    }
+
+    public boolean isBroker() {
+        return broker;
+    }
+
+    /** Property-style name used for pool names and metric tags, e.g. "smartapi". */
+    public String key() {
+        return name().toLowerCase();
+    }
+}
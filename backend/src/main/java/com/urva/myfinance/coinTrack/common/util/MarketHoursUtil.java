@@ -28,4 +28,10 @@ public final class MarketHoursUtil {
 
         return !time.isBefore(LocalTime.of(9, 15)) && !time.isAfter(LocalTime.of(15, 30));
     }
+
+    /** Returns true on Monday–Friday IST. */
+    public static boolean isTradingDay() {
+        DayOfWeek day = LocalDateTime.now(INDIA_ZONE).getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
 }
@@ -14,9 +14,10 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
+import com.urva.myfinance.coinTrack.common.http.Upstream;
 import com.urva.myfinance.coinTrack.email.config.BrevoConfigProperties;
 
-import lombok.RequiredArgsConstructor;
 import reactor.util.retry.Retry;
 
 /**
@@ -29,13 +30,17 @@ import reactor.util.retry.Retry;
  * Non-retryable: 400 (bad payload), 401 (bad API key).
  */
 @Service
-@RequiredArgsConstructor
 public class BrevoEmailService implements EmailSender {
 
     private static final Logger log = LoggerFactory.getLogger(BrevoEmailService.class);
 
     private final BrevoConfigProperties config;
-    private final WebClient webClient = WebClient.create();
+    private final WebClient webClient;
+
+    public BrevoEmailService(BrevoConfigProperties config, OutboundHttpClients outboundHttpClients) {
+        this.config = config;
+        this.webClient = outboundHttpClients.webClient(Upstream.BREVO);
+    }
 
     /**
      * Send an email using Brevo Transactional Email API.
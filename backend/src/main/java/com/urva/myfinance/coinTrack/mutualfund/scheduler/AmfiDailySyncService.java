@@ -1,5 +1,7 @@
 package com.urva.myfinance.coinTrack.mutualfund.scheduler;
 
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
+import com.urva.myfinance.coinTrack.common.http.Upstream;
 import com.urva.myfinance.coinTrack.mutualfund.model.MutualFundLtp;
 import com.urva.myfinance.coinTrack.mutualfund.repository.MutualFundLtpRepository;
 import org.slf4j.Logger;
@@ -27,9 +29,9 @@ public class AmfiDailySyncService {
     private final MutualFundLtpRepository ltpRepository;
     private final RestTemplate restTemplate;
 
-    public AmfiDailySyncService(MutualFundLtpRepository ltpRepository) {
+    public AmfiDailySyncService(MutualFundLtpRepository ltpRepository, OutboundHttpClients outboundHttpClients) {
         this.ltpRepository = ltpRepository;
-        this.restTemplate = new RestTemplate();
+        this.restTemplate = outboundHttpClients.restTemplate(Upstream.AMFI);
     }
 
     // Run every night at 11:30 PM IST
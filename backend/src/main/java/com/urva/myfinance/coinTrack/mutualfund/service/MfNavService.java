@@ -1,5 +1,7 @@
 package com.urva.myfinance.coinTrack.mutualfund.service;
 
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
+import com.urva.myfinance.coinTrack.common.http.Upstream;
 import com.urva.myfinance.coinTrack.mutualfund.model.MutualFundNavCache;
 import com.urva.myfinance.coinTrack.mutualfund.repository.MutualFundNavCacheRepository;
 import org.slf4j.Logger;
@@ -28,8 +30,9 @@ public class MfNavService {
     private final RestTemplate restTemplate;
     private final MutualFundNavCacheRepository navCacheRepository;
 
-    public MfNavService(MutualFundNavCacheRepository navCacheRepository) {
-        this.restTemplate = new RestTemplate();
+    // Tigzig calls share the mfapi pool settings; the pool keeps separate connections per host
+    public MfNavService(MutualFundNavCacheRepository navCacheRepository, OutboundHttpClients outboundHttpClients) {
+        this.restTemplate = outboundHttpClients.restTemplate(Upstream.MFAPI);
         this.navCacheRepository = navCacheRepository;
     }
 
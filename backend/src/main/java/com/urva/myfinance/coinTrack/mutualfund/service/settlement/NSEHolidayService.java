@@ -2,6 +2,8 @@ package com.urva.myfinance.coinTrack.mutualfund.service.settlement;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
+import com.urva.myfinance.coinTrack.common.http.Upstream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.*;
@@ -21,12 +23,16 @@ public class NSEHolidayService {
     private static final Logger logger = LoggerFactory.getLogger(NSEHolidayService.class);
     
     private final Set<LocalDate> holidays = new HashSet<>();
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     private static final String NSE_HOLIDAY_URL = "https://www.nseindia.com/api/holiday-master?type=trading";
     private static final DateTimeFormatter NSE_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MMM-yyyy", Locale.ENGLISH);
 
+    public NSEHolidayService(OutboundHttpClients outboundHttpClients) {
+        this.restTemplate = outboundHttpClients.restTemplate(Upstream.NSE);
+    }
+
     @PostConstruct
     public void init() {
         refreshHolidays();
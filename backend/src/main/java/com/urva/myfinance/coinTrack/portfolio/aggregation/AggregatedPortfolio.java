@@ -10,12 +10,16 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Result of a multi-broker parallel fetch and aggregation.
  *
  * Holdings from the same ISIN across different brokers are kept as SEPARATE
  * entries (different cost bases). They are NOT summed.
+ *
+ * completedFetches lists every (account, dataset) fetch that succeeded; persistence
+ * only removes vanished rows for those, and never for a broker in staleBrokers.
  */
 public record AggregatedPortfolio(
     List<CanonicalHolding> holdings,
@@ -24,5 +28,25 @@ public record AggregatedPortfolio(
     List<CanonicalMfHolding> mfHoldings,
     List<BrokerSyncError> syncErrors,
     Instant syncedAt,
-    Set<Broker> staleBrokers
-) {}
+    Set<Broker> staleBrokers,
+    Set<CompletedFetch> completedFetches
+) {
+
+    /** Result with no completion info — persistence will upsert but never remove rows. */
+    public AggregatedPortfolio(List<CanonicalHolding> holdings, List<CanonicalPosition> positions,
+            Map<Broker, CanonicalFunds> funds, List<CanonicalMfHolding> mfHoldings,
+            List<BrokerSyncError> syncErrors, Instant syncedAt, Set<Broker> staleBrokers) {
+        this(holdings, positions, funds, mfHoldings, syncErrors, syncedAt, staleBrokers, Set.of());
+    }
+
+    /**
+     * Broker accounts whose {@code dataset} is authoritative in this result: fetched
+     * successfully and not from a stale broker.
+     */
+    public Set<String> reconcilableAccountIds(CompletedFetch.Dataset dataset) {
+        return completedFetches.stream()
+            .filter(f -> f.dataset() == dataset && !staleBrokers.contains(f.brokerType()))
+            .map(CompletedFetch::accountId)
+            .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,21 @@
+package com.urva.myfinance.coinTrack.portfolio.aggregation;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+/**
+ * Records that one dataset for one broker account was fetched successfully within the
+ * aggregation timeout. Only these fetches are authoritative enough to delete rows the
+ * broker no longer returns.
+ */
+public record CompletedFetch(
+    Broker brokerType,
+    String accountId,
+    Dataset dataset
+) {
+    public enum Dataset {
+        HOLDINGS,
+        POSITIONS,
+        FUNDS,
+        MF_HOLDINGS
+    }
+}
@@ -6,20 +6,28 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapability;
 import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapabilityChecker;
+import com.urva.myfinance.coinTrack.broker.core.circuit.BrokerCircuitBreaker;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerAuthException;
 import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
 import com.urva.myfinance.coinTrack.broker.core.port.BrokerAdapter;
+import com.urva.myfinance.coinTrack.broker.core.port.ReactiveBrokerAdapter;
 import com.urva.myfinance.coinTrack.broker.core.session.BrokerSession;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSessionCache;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
 import com.urva.myfinance.coinTrack.broker.registry.BrokerAdapterRegistry;
 import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
-import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+import com.urva.myfinance.coinTrack.portfolio.aggregation.CompletedFetch.Dataset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -27,11 +35,14 @@ import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
 
 /**
  * The ONLY class that directly uses BrokerAdapter. Portfolio service layer
@@ -42,7 +53,8 @@ import java.util.concurrent.TimeUnit;
  * 2. Filter: active, not expired
  * 3. Build BrokerSession from each account
  * 4. Check BrokerCapabilityChecker before each call
- * 5. Launch ALL fetches IN PARALLEL using virtual threads
+ * 5. Launch ALL fetches IN PARALLEL as Mono/Flux, each with its broker's timeout,
+ *    through the broker's circuit breaker (open circuit = immediate fallback)
  * 6. Per-broker error handling with fallback to cached data
  * 7. Merge results (same ISIN in 2 brokers = SEPARATE entries)
  * 8. Return AggregatedPortfolio
@@ -51,45 +63,80 @@ import java.util.concurrent.TimeUnit;
 public class PortfolioAggregationService {
 
     private static final Logger log = LoggerFactory.getLogger(PortfolioAggregationService.class);
-    private static final long TIMEOUT_SECONDS = 30;
 
     private final BrokerAdapterRegistry adapterRegistry;
     private final BrokerCapabilityChecker capabilityChecker;
     private final BrokerAccountRepository brokerAccountRepository;
-    private final EncryptionUtil encryptionUtil;
+    private final BrokerSessionCache sessionCache;
+    private final BrokerCircuitBreaker circuitBreaker;
+    private final Map<Broker, Duration> fetchTimeouts = new EnumMap<>(Broker.class);
+    private final Duration fetchDeadline;
 
     public PortfolioAggregationService(BrokerAdapterRegistry adapterRegistry,
                                        BrokerCapabilityChecker capabilityChecker,
                                        BrokerAccountRepository brokerAccountRepository,
-                                       EncryptionUtil encryptionUtil) {
+                                       BrokerSessionCache sessionCache,
+                                       BrokerCircuitBreaker circuitBreaker,
+                                       @Value("${broker.fetch-timeout.zerodha:20s}") Duration zerodhaTimeout,
+                                       @Value("${broker.fetch-timeout.upstox:20s}") Duration upstoxTimeout,
+                                       @Value("${broker.fetch-timeout.angelone:25s}") Duration angelOneTimeout,
+                                       @Value("${broker.fetch-deadline:30s}") Duration fetchDeadline) {
         this.adapterRegistry = adapterRegistry;
         this.capabilityChecker = capabilityChecker;
         this.brokerAccountRepository = brokerAccountRepository;
-        this.encryptionUtil = encryptionUtil;
+        this.sessionCache = sessionCache;
+        this.circuitBreaker = circuitBreaker;
+        this.fetchTimeouts.put(Broker.ZERODHA, zerodhaTimeout);
+        this.fetchTimeouts.put(Broker.UPSTOX, upstoxTimeout);
+        this.fetchTimeouts.put(Broker.ANGELONE, angelOneTimeout);
+        this.fetchDeadline = fetchDeadline;
     }
 
     /**
      * Aggregates portfolio data from all connected broker accounts for a user.
-     * Uses Java 21 virtual threads for parallel execution.
+     * Blocking facade over {@link #aggregate(String)} for the sync service. The fetch phase is
+     * already cut off at {@code broker.fetch-deadline}, so a slow broker yields a partial result
+     * with that broker stale rather than a timeout here.
      */
     public AggregatedPortfolio aggregateForUser(String userId) {
+        return aggregate(userId).block();
+    }
+
+    /**
+     * Non-blocking aggregation. Every (account, dataset) fetch is one publisher with its
+     * broker's timeout; they are merged with Mono.when, so a user's sync holds no thread
+     * while broker responses are in flight. Adapters implementing ReactiveBrokerAdapter
+     * stream records off the wire; others are adapted from their CompletableFutures.
+     *
+     * Only the account lookup and error bookkeeping (which write to Mongo) run on
+     * boundedElastic.
+     */
+    public Mono<AggregatedPortfolio> aggregate(String userId) {
+        return Mono.fromCallable(() -> loadActiveAccounts(userId))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(activeAccounts -> aggregateAccounts(userId, activeAccounts));
+    }
+
+    private List<BrokerAccount> loadActiveAccounts(String userId) {
         // 1. Load all broker accounts
         List<BrokerAccount> accounts = brokerAccountRepository.findByUserId(userId);
 
         // 2. Filter: active and not expired
-        List<BrokerAccount> activeAccounts = accounts.stream()
+        return accounts.stream()
             .filter(a -> Boolean.TRUE.equals(a.getIsActive()))
             .filter(a -> a.hasCredentials())
             .filter(a -> !Boolean.TRUE.equals(a.isTokenExpired()))
             .toList();
+    }
 
+    private Mono<AggregatedPortfolio> aggregateAccounts(String userId, List<BrokerAccount> activeAccounts) {
         if (activeAccounts.isEmpty()) {
             log.info("No active broker accounts for user {}", userId);
-            return new AggregatedPortfolio(
+            return Mono.just(new AggregatedPortfolio(
                 Collections.emptyList(), Collections.emptyList(),
                 Collections.emptyMap(), Collections.emptyList(),
                 Collections.emptyList(), Instant.now(), Collections.emptySet()
-            );
+            ));
         }
 
         // Shared result containers (thread-safe via synchronized lists)
@@ -99,125 +146,139 @@ public class PortfolioAggregationService {
         List<CanonicalMfHolding> allMfHoldings = Collections.synchronizedList(new ArrayList<>());
         List<BrokerSyncError> syncErrors = Collections.synchronizedList(new ArrayList<>());
         Set<Broker> staleBrokers = Collections.synchronizedSet(new HashSet<>());
+        Set<CompletedFetch> completedFetches = ConcurrentHashMap.newKeySet();
+        Queue<FetchFailure> failures = new ConcurrentLinkedQueue<>();
 
-        // 5. Launch ALL broker fetches IN PARALLEL using virtual threads
-        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            List<CompletableFuture<Void>> allFutures = new ArrayList<>();
+        // 5. Launch ALL broker fetches IN PARALLEL, each bounded by its broker's timeout
+        List<Mono<Void>> fetches = new ArrayList<>();
 
-            for (BrokerAccount account : activeAccounts) {
-                Broker brokerType = account.getBroker();
+        for (BrokerAccount account : activeAccounts) {
+            Broker brokerType = account.getBroker();
 
-                if (!adapterRegistry.hasAdapter(brokerType)) {
-                    log.warn("No adapter for broker {}, skipping account {}", brokerType, account.getId());
-                    continue;
-                }
+            if (!adapterRegistry.hasAdapter(brokerType)) {
+                log.warn("No adapter for broker {}, skipping account {}", brokerType, account.getId());
+                continue;
+            }
 
-                BrokerAdapter adapter = adapterRegistry.getAdapter(brokerType);
+            BrokerAdapter adapter = adapterRegistry.getAdapter(brokerType);
+            ReactiveBrokerAdapter reactive = adapter instanceof ReactiveBrokerAdapter r ? r : null;
 
-                // 3. Build session from account
-                BrokerSession session = buildSessionFromAccount(account);
-                if (session == null || session.isExpired()) {
-                    syncErrors.add(new BrokerSyncError(
-                        brokerType, account.getId(),
-                        BrokerSyncError.SyncErrorType.AUTH_EXPIRED,
-                        "Session expired for " + brokerType, false));
-                    continue;
-                }
+            // 3. Build session from account
+            BrokerSession session = buildSessionFromAccount(account);
+            if (session == null || session.isExpired()) {
+                syncErrors.add(new BrokerSyncError(
+                    brokerType, account.getId(),
+                    BrokerSyncError.SyncErrorType.AUTH_EXPIRED,
+                    "Session expired for " + brokerType, false));
+                continue;
+            }
 
-                // Holdings
-                if (capabilityChecker.supports(adapter, BrokerCapability.EQUITY_HOLDINGS)) {
-                    allFutures.add(
-                        adapter.fetchHoldings(session)
-                            .thenAccept(allHoldings::addAll)
-                            .exceptionally(ex -> handleBrokerError(ex, brokerType, account.getId(),
-                                "holdings", syncErrors, staleBrokers))
-                    );
-                }
+            FetchContext ctx = new FetchContext(brokerType, account.getId(), completedFetches, failures);
 
-                // Positions
-                if (capabilityChecker.supports(adapter, BrokerCapability.INTRADAY_POSITIONS)) {
-                    allFutures.add(
-                        adapter.fetchPositions(session)
-                            .thenAccept(allPositions::addAll)
-                            .exceptionally(ex -> handleBrokerError(ex, brokerType, account.getId(),
-                                "positions", syncErrors, staleBrokers))
-                    );
-                }
+            // Holdings
+            if (capabilityChecker.supports(adapter, BrokerCapability.EQUITY_HOLDINGS)) {
+                fetches.add(fetch(ctx, Dataset.HOLDINGS,
+                    reactive != null
+                        ? reactive.streamHoldings(session).collectList()
+                        : Mono.fromFuture(() -> adapter.fetchHoldings(session)),
+                    allHoldings::addAll));
+            }
 
-                // Funds
-                if (capabilityChecker.supports(adapter, BrokerCapability.FUNDS)) {
-                    allFutures.add(
-                        adapter.fetchFunds(session)
-                            .thenAccept(funds -> allFunds.put(brokerType, funds))
-                            .exceptionally(ex -> handleBrokerError(ex, brokerType, account.getId(),
-                                "funds", syncErrors, staleBrokers))
-                    );
-                }
+            // Positions
+            if (capabilityChecker.supports(adapter, BrokerCapability.INTRADAY_POSITIONS)) {
+                fetches.add(fetch(ctx, Dataset.POSITIONS,
+                    reactive != null
+                        ? reactive.streamPositions(session).collectList()
+                        : Mono.fromFuture(() -> adapter.fetchPositions(session)),
+                    allPositions::addAll));
+            }
 
-                // MF Holdings (Zerodha only currently)
-                if (capabilityChecker.supports(adapter, BrokerCapability.MF_HOLDINGS)) {
-                    allFutures.add(
-                        adapter.fetchMfHoldings(session)
-                            .thenAccept(allMfHoldings::addAll)
-                            .exceptionally(ex -> handleBrokerError(ex, brokerType, account.getId(),
-                                "mfHoldings", syncErrors, staleBrokers))
-                    );
-                }
+            // Funds
+            if (capabilityChecker.supports(adapter, BrokerCapability.FUNDS)) {
+                fetches.add(fetch(ctx, Dataset.FUNDS,
+                    reactive != null
+                        ? reactive.loadFunds(session)
+                        : Mono.fromFuture(() -> adapter.fetchFunds(session)),
+                    funds -> allFunds.put(brokerType, funds)));
             }
 
-            // Wait for all with timeout
-            try {
-                CompletableFuture.allOf(allFutures.toArray(new CompletableFuture[0]))
-                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            } catch (Exception e) {
-                log.warn("Some broker fetches timed out or failed for user {}: {}", userId, e.getMessage());
+            // MF Holdings (Zerodha only currently)
+            if (capabilityChecker.supports(adapter, BrokerCapability.MF_HOLDINGS)) {
+                fetches.add(fetch(ctx, Dataset.MF_HOLDINGS,
+                    reactive != null
+                        ? reactive.streamMfHoldings(session).collectList()
+                        : Mono.fromFuture(() -> adapter.fetchMfHoldings(session)),
+                    allMfHoldings::addAll));
             }
         }
 
-        // 9. Return aggregated result
-        return new AggregatedPortfolio(
-            allHoldings, allPositions, allFunds, allMfHoldings,
-            syncErrors, Instant.now(), staleBrokers
-        );
+        // 6. Past the deadline, fetches still in flight are cancelled (and recorded as failures
+        //    by fetch()); the rest of the result is kept. Error bookkeeping may write to Mongo,
+        //    so it runs off the event loop
+        return Mono.when(fetches)
+            .timeout(fetchDeadline, Mono.empty())
+            .publishOn(Schedulers.boundedElastic())
+            .then(Mono.fromCallable(() -> {
+                for (FetchFailure failure : failures) {
+                    handleBrokerError(failure.error(), failure.broker(), failure.accountId(),
+                        failure.dataset().name(), syncErrors, staleBrokers);
+                }
+                // 9. Return aggregated result
+                // Snapshot completions: every fetch has completed, failed or timed out by now
+                return new AggregatedPortfolio(
+                    allHoldings, allPositions, allFunds, allMfHoldings,
+                    syncErrors, Instant.now(), staleBrokers, Set.copyOf(completedFetches)
+                );
+            }));
     }
 
     /**
-     * Builds a BrokerSession from existing BrokerAccount credentials.
+     * One (account, dataset) fetch: bounded by the broker's timeout and guarded by its
+     * circuit breaker, hands the value to {@code sink} and records completion on success,
+     * records the failure otherwise. While the circuit is open the fetch fails at once
+     * with BrokerCircuitOpenException (an API_DOWN), so a broker outage costs no waiting.
+     * Never errors, so one broker cannot cancel the others in Mono.when. A fetch cancelled by
+     * the sync deadline is recorded as an API_DOWN failure too.
      */
-    private BrokerSession buildSessionFromAccount(BrokerAccount account) {
-        try {
-            Broker broker = account.getBroker();
-            String accessToken;
-            Instant expiresAt;
-
-            switch (broker) {
-                case ZERODHA -> {
-                    String apiKey = account.getZerodhaApiKey();
-                    accessToken = apiKey + ":" + encryptionUtil.decryptSafe(account.getZerodhaAccessToken());
-                    expiresAt = account.getZerodhaTokenExpiresAt() != null
-                        ? account.getZerodhaTokenExpiresAt().atZone(java.time.ZoneId.of("Asia/Kolkata")).toInstant()
-                        : Instant.now().plusSeconds(3600);
-                }
-                case ANGELONE, UPSTOX -> {
-                    accessToken = account.getAccessToken();
-                    expiresAt = account.getTokenExpiresAt() != null
-                        ? account.getTokenExpiresAt().atZone(java.time.ZoneId.of("Asia/Kolkata")).toInstant()
-                        : Instant.now().plusSeconds(3600);
+    private <T> Mono<Void> fetch(FetchContext ctx, Dataset dataset, Mono<T> source, Consumer<T> sink) {
+        Duration timeout = fetchTimeouts.get(ctx.broker());
+        return circuitBreaker.protect(ctx.broker(), dataset.name(), source.timeout(timeout))
+            .doOnNext(value -> {
+                sink.accept(value);
+                ctx.completed().add(new CompletedFetch(ctx.broker(), ctx.accountId(), dataset));
+            })
+            .then()
+            .onErrorResume(ex -> {
+                Throwable error = ex instanceof TimeoutException
+                    ? new BrokerApiDownException(ctx.broker() + " timed out after " + timeout.toSeconds()
+                        + "s fetching " + dataset, ctx.broker(), ex)
+                    : ex;
+                ctx.failures().add(new FetchFailure(error, ctx.broker(), ctx.accountId(), dataset));
+                return Mono.empty();
+            })
+            // doFinally fires once, so a fetch that already finished is never counted as cancelled
+            .doFinally(signal -> {
+                if (signal == SignalType.CANCEL) {
+                    ctx.failures().add(new FetchFailure(
+                        new BrokerApiDownException(ctx.broker() + " did not finish " + dataset + " within the "
+                            + fetchDeadline.toMillis() + "ms sync deadline", ctx.broker()),
+                        ctx.broker(), ctx.accountId(), dataset));
                 }
-                default -> {
-                    return null;
-                }
-            }
+            });
+    }
 
-            if (accessToken == null) return null;
+    private record FetchContext(Broker broker, String accountId,
+                                Set<CompletedFetch> completed, Queue<FetchFailure> failures) {}
 
-            return new BrokerSession(
-                account.getId(),
-                broker,
-                accessToken,
-                expiresAt,
-                Map.of()
-            );
+    private record FetchFailure(Throwable error, Broker broker, String accountId, Dataset dataset) {}
+
+    /**
+     * Builds a BrokerSession from existing BrokerAccount credentials. The decrypted token comes
+     * from {@link BrokerSessionCache}, so it is decrypted once per login rather than per sync.
+     */
+    private BrokerSession buildSessionFromAccount(BrokerAccount account) {
+        try {
+            return sessionCache.session(account);
         } catch (Exception e) {
             log.error("Failed to build session for account {}: {}", account.getId(), e.getMessage());
             return null;
@@ -234,7 +295,8 @@ public class PortfolioAggregationService {
     private Void handleBrokerError(Throwable ex, Broker brokerType, String accountId,
                                     String dataType, List<BrokerSyncError> syncErrors,
                                     Set<Broker> staleBrokers) {
-        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        Throwable cause = (ex instanceof CompletionException || ex instanceof ExecutionException)
+            && ex.getCause() != null ? ex.getCause() : ex;
 
         if (cause instanceof BrokerAuthException) {
             log.warn("{} auth expired for account {}", brokerType, accountId);
@@ -6,9 +6,15 @@ import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -17,8 +23,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import com.urva.myfinance.coinTrack.common.response.ApiResponse;
 import com.urva.myfinance.coinTrack.portfolio.dto.NetPositionDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.history.HistoryRange;
+import com.urva.myfinance.coinTrack.portfolio.history.PortfolioHistoryService;
+import com.urva.myfinance.coinTrack.portfolio.intraday.IntradayPnlTracker;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentQuery;
+import com.urva.myfinance.coinTrack.portfolio.scheduler.PortfolioSyncScheduler;
 import com.urva.myfinance.coinTrack.portfolio.service.NetPositionService;
 import com.urva.myfinance.coinTrack.portfolio.service.PortfolioSummaryService;
+import com.urva.myfinance.coinTrack.security.model.UserPrincipal;
 import com.urva.myfinance.coinTrack.user.model.User;
 import com.urva.myfinance.coinTrack.user.repository.UserRepository;
 
@@ -26,6 +38,10 @@ import com.urva.myfinance.coinTrack.user.repository.UserRepository;
  * REST controller for portfolio operations.
  * Uses Principal from SecurityContext for user identification (not
  * getUserByToken).
+ *
+ * /summary, /holdings and /positions support conditional GETs: strong ETags come from the
+ * in-memory portfolio versions, so a matching If-None-Match is answered 304 without a
+ * database read, enrichment or serialising the lists.
  */
 @RestController
 @RequestMapping("/api/portfolio")
@@ -37,13 +53,20 @@ public class PortfolioController {
     private final PortfolioSummaryService portfolioSummaryService;
     private final NetPositionService netPositionService;
     private final UserRepository userRepository;
+    private final PortfolioSyncScheduler syncScheduler;
+    private final PortfolioHistoryService historyService;
+    private final IntradayPnlTracker intradayPnlTracker;
 
     @Autowired
     public PortfolioController(PortfolioSummaryService portfolioSummaryService, NetPositionService netPositionService,
-            UserRepository userRepository) {
+            UserRepository userRepository, PortfolioSyncScheduler syncScheduler,
+            PortfolioHistoryService historyService, IntradayPnlTracker intradayPnlTracker) {
         this.portfolioSummaryService = portfolioSummaryService;
         this.netPositionService = netPositionService;
         this.userRepository = userRepository;
+        this.syncScheduler = syncScheduler;
+        this.historyService = historyService;
+        this.intradayPnlTracker = intradayPnlTracker;
     }
 
     /**
@@ -52,17 +75,27 @@ public class PortfolioController {
      */
     @Operation(summary = "Get consolidated portfolio summary")
     @GetMapping("/summary")
-    public ResponseEntity<?> getPortfolioSummary(Principal principal) {
+    public ResponseEntity<?> getPortfolioSummary(Principal principal,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Getting portfolio summary for user: {}", principal.getName());
 
-        User user = userRepository.findByUsername(principal.getName());
-        if (user == null) {
+        String userId = resolveUserId(principal);
+        if (userId == null) {
             logger.warn("User not found: {}", principal.getName());
             return ResponseEntity.status(401).body(ApiResponse.error("User not found"));
         }
 
-        PortfolioSummaryResponse response = portfolioSummaryService.getPortfolioSummary(user.getId());
-        return ResponseEntity.ok(ApiResponse.success(response));
+        // Dashboard polls drive the adaptive scheduler: they mark the user active and
+        // kick off an on-demand sync for a returning idle user with stale data.
+        syncScheduler.onPortfolioRequest(userId);
+
+        Long version = portfolioSummaryService.getSummaryVersion(userId);
+        if (version != null && etagMatches(ifNoneMatch, etag("s", version))) {
+            return notModified(etag("s", version));
+        }
+        PortfolioSummaryResponse response = portfolioSummaryService.getPortfolioSummary(userId);
+        return withEtag(response.getVersion() != null ? etag("s", response.getVersion()) : null)
+                .body(ApiResponse.success(response));
     }
 
     /**
@@ -71,21 +104,29 @@ public class PortfolioController {
      */
     @Operation(summary = "Get equity holdings")
     @GetMapping("/holdings")
-    public ResponseEntity<?> getHoldings(Principal principal) {
+    public ResponseEntity<?> getHoldings(Principal principal,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Getting holdings for user: {}", principal.getName());
 
-        User user = userRepository.findByUsername(principal.getName());
-        if (user == null) {
+        String userId = resolveUserId(principal);
+        if (userId == null) {
             logger.warn("User not found: {}", principal.getName());
             return ResponseEntity.status(401).body(ApiResponse.error("User not found"));
         }
 
-        PortfolioSummaryResponse summary = portfolioSummaryService.getPortfolioSummary(user.getId());
+        syncScheduler.onPortfolioRequest(userId);
+
+        Long version = portfolioSummaryService.getSummaryVersion(userId);
+        if (version != null && etagMatches(ifNoneMatch, etag("h", version))) {
+            return notModified(etag("h", version));
+        }
+        PortfolioSummaryResponse summary = portfolioSummaryService.getPortfolioSummary(userId);
         List<com.urva.myfinance.coinTrack.portfolio.dto.SummaryHoldingDTO> holdings = summary.getHoldingsList().stream()
                 .filter(h -> "HOLDING".equalsIgnoreCase(h.getType()))
                 .collect(java.util.stream.Collectors.toList());
 
-        return ResponseEntity.ok(ApiResponse.success(holdings));
+        return withEtag(summary.getVersion() != null ? etag("h", summary.getVersion()) : null)
+                .body(ApiResponse.success(holdings));
     }
 
     /**
@@ -94,17 +135,57 @@ public class PortfolioController {
      */
     @Operation(summary = "Get net positions")
     @GetMapping("/positions")
-    public ResponseEntity<?> getPositions(Principal principal) {
+    public ResponseEntity<?> getPositions(Principal principal,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         logger.debug("Getting net positions for user: {}", principal.getName());
 
-        User user = userRepository.findByUsername(principal.getName());
-        if (user == null) {
+        String userId = resolveUserId(principal);
+        if (userId == null) {
             logger.warn("User not found: {}", principal.getName());
             return ResponseEntity.status(401).body(ApiResponse.error("User not found"));
         }
 
-        List<NetPositionDTO> positions = netPositionService.mergeHoldingsAndPositions(user.getId());
-        return ResponseEntity.ok(ApiResponse.success(positions));
+        syncScheduler.onPortfolioRequest(userId);
+
+        // Read before computing: if the data moves meanwhile, the next poll sees a new tag
+        String etag = etag("p", portfolioSummaryService.getPortfolioEpoch(userId));
+        if (etagMatches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        List<NetPositionDTO> positions = netPositionService.mergeHoldingsAndPositions(userId);
+        return withEtag(etag).body(ApiResponse.success(positions));
+    }
+
+    /**
+     * End-of-day portfolio value, invested amount and P&L over 1W, 1M, 1Y or ALL, downsampled
+     * server-side for charting. With {@code symbol}, the same series for a single holding.
+     */
+    @Operation(summary = "Get portfolio value history")
+    @GetMapping("/history")
+    public ResponseEntity<?> getHistory(Principal principal,
+            @RequestParam(defaultValue = "1M") String range,
+            @RequestParam(required = false) String symbol) {
+        String userId = resolveUserId(principal);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("User not found"));
+        }
+        HistoryRange historyRange = HistoryRange.fromCode(range);
+        if (historyRange == null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("range must be one of 1W, 1M, 1Y, ALL"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(historyService.getHistory(userId, historyRange, symbol)));
+    }
+
+    /** Today's P&L curve, one point per minute of the session, in a single response. */
+    @Operation(summary = "Get intraday P&L curve")
+    @GetMapping("/intraday")
+    public ResponseEntity<?> getIntradayPnl(Principal principal) {
+        String userId = resolveUserId(principal);
+        if (userId == null) {
+            return ResponseEntity.status(401).body(ApiResponse.error("User not found"));
+        }
+        syncScheduler.onPortfolioRequest(userId);
+        return ResponseEntity.ok(ApiResponse.success(intradayPnlTracker.getCurve(userId)));
     }
 
     @Operation(summary = "Get orders")
@@ -184,13 +265,63 @@ public class PortfolioController {
         return ResponseEntity.ok(ApiResponse.success(portfolioSummaryService.getMfSips(user.getId())));
     }
 
+    /**
+     * MF scheme list from the daily cached catalog.
+     * Optional filters: ?search=&isin=&amc=&plan=&schemeType=
+     * Paging: ?page=0&size=50 (size at most 500); without size every match is returned.
+     */
     @Operation(summary = "Get mutual fund instruments")
     @GetMapping("/mf/instruments")
-    public ResponseEntity<?> getMfInstruments(Principal principal) {
+    public ResponseEntity<?> getMfInstruments(Principal principal,
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) String isin,
+            @RequestParam(required = false) String amc,
+            @RequestParam(required = false) String plan,
+            @RequestParam(required = false) String schemeType,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer size) {
         User user = userRepository.findByUsername(principal.getName());
         if (user == null) {
             return ResponseEntity.status(401).body(ApiResponse.error("User not found"));
         }
-        return ResponseEntity.ok(ApiResponse.success(portfolioSummaryService.getMfInstruments(user.getId())));
+        MfInstrumentQuery query = new MfInstrumentQuery(search, isin, amc, plan, schemeType, page, size);
+        return ResponseEntity.ok(ApiResponse.success(portfolioSummaryService.getMfInstruments(user.getId(), query)));
+    }
+
+    // ── Conditional GET helpers ─────────────────────────────────
+
+    /** Prefers the userId carried in the JWT principal; falls back to a lookup by username. */
+    private String resolveUserId(Principal principal) {
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof UserPrincipal userPrincipal
+                && userPrincipal.getUserId() != null) {
+            return userPrincipal.getUserId();
+        }
+        User user = userRepository.findByUsername(principal.getName());
+        return user != null ? user.getId() : null;
+    }
+
+    private static String etag(String resource, long version) {
+        return "\"" + resource + version + "\"";
+    }
+
+    /** If-None-Match uses the weak comparison, so W/-prefixed copies of our tag also match. */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) return false;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) return true;
+        }
+        return false;
+    }
+
+    private static ResponseEntity<?> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+    }
+
+    /** no-cache: clients may store the body but must revalidate it with the ETag on every poll. */
+    private static ResponseEntity.BodyBuilder withEtag(String etag) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok().cacheControl(CacheControl.noCache());
+        return etag != null ? builder.eTag(etag) : builder;
     }
 }
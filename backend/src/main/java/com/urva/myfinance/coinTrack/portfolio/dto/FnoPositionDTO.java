@@ -22,8 +22,8 @@ public class FnoPositionDTO {
     private FnoDetailsDTO fnoDetails;
     private LocalDateTime lastUpdated;
     private BigDecimal currentLtp;
-    private BigDecimal currentNotional; // currentLtp * qty * contractMultiplier
-    private BigDecimal investedNotional; // buyPrice * qty * contractMultiplier
+    private BigDecimal currentNotional; // currentLtp * qty * position multiplier (qty in units)
+    private BigDecimal investedNotional; // buyPrice * qty * position multiplier
     private BigDecimal mtm; // currentNotional - investedNotional
-    private BigDecimal dayGain; // (currentLtp - prevClose) * qty * contractMultiplier
+    private BigDecimal dayGain; // (currentLtp - prevClose) * qty * position multiplier
 }
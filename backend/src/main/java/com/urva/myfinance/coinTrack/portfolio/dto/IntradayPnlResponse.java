@@ -0,0 +1,33 @@
+package com.urva.myfinance.coinTrack.portfolio.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Intraday P&L curve: point i is at {@code from + i * intervalMinutes}. pnl is the day's gain
+ * on holdings plus positions; value is the holdings' current value at the same minute.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IntradayPnlResponse {
+
+    private LocalDate date;
+
+    /** Time of the first point; null when nothing was recorded yet today. */
+    private LocalTime from;
+
+    private int intervalMinutes;
+
+    private List<BigDecimal> pnl;
+
+    private List<BigDecimal> value;
+}
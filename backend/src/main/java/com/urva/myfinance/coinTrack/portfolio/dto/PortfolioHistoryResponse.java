@@ -0,0 +1,44 @@
+package com.urva.myfinance.coinTrack.portfolio.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PortfolioHistoryResponse {
+
+    private String range;
+
+    /** Null for the whole portfolio. */
+    private String symbol;
+
+    private LocalDate from;
+    private LocalDate to;
+
+    /** End-of-day points in the range before downsampling. */
+    private int totalPoints;
+
+    /** True if {@link #points} is a subset of the stored days. */
+    private boolean downsampled;
+
+    private List<Point> points;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Point {
+        private LocalDate date;
+        private BigDecimal value;
+        private BigDecimal invested;
+        private BigDecimal pnl;
+    }
+}
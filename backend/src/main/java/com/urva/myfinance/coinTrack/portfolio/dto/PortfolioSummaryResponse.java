@@ -44,4 +44,10 @@ public class PortfolioSummaryResponse {
 
     /** True if any price in the response is stale (not live from broker API). */
     private boolean hasStalePrices;
+
+    // Read-model Metadata
+    /** Increases whenever any other field of the summary changes. */
+    private Long version;
+    /** When this version of the summary was computed. */
+    private LocalDateTime asOf;
 }
@@ -1,6 +1,7 @@
 package com.urva.myfinance.coinTrack.portfolio.dto.kite;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 
@@ -11,4 +12,8 @@ import lombok.Data;
 public class KiteResponseMetadata {
     private LocalDateTime lastSyncedAt;
     private String source; // "CACHE" or "LIVE"
+
+    // Set only when some connected brokers failed or timed out; data holds the others
+    private Boolean partial;
+    private List<String> unavailableBrokers;
 }
@@ -0,0 +1,17 @@
+package com.urva.myfinance.coinTrack.portfolio.dto.kite;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * MF instruments listing: data holds one page of the matches. Paging fields are null when the
+ * request asked for every match.
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class MfInstrumentListResponse extends KiteListResponse<MfInstrumentDTO> {
+    private Integer page;
+    private Integer size;
+    private Long totalElements;
+    private Integer totalPages;
+}
@@ -5,7 +5,10 @@ import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -18,6 +21,8 @@ import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
 import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
 import com.urva.myfinance.coinTrack.portfolio.fno.FnoPositionService;
 import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentIndex;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentMaster;
 import com.urva.myfinance.coinTrack.portfolio.util.FnoUtils;
 
 @Service
@@ -25,79 +30,112 @@ public class FnoPositionServiceImpl implements FnoPositionService {
 
     private final CanonicalPositionRepository positionRepository;
     private final MarketDataService marketDataService;
+    private final InstrumentMaster instrumentMaster;
 
     @Autowired
-    public FnoPositionServiceImpl(CanonicalPositionRepository positionRepository, MarketDataService marketDataService) {
+    public FnoPositionServiceImpl(CanonicalPositionRepository positionRepository, MarketDataService marketDataService,
+                                  InstrumentMaster instrumentMaster) {
         this.positionRepository = positionRepository;
         this.marketDataService = marketDataService;
+        this.instrumentMaster = instrumentMaster;
     }
 
+    /**
+     * Builds the F&O view with one pricing round-trip: legs are filtered first, their symbols
+     * priced together via {@link MarketDataService#getPrices} (last price and previous close
+     * arrive in the same quote), then MTM and day gain are computed in a single pass.
+     * Contract metadata comes from the instrument master, with symbol parsing as the fallback.
+     */
     @Override
     public List<FnoPositionDTO> getFnoPositionsForUser(String userId) {
         List<CanonicalPosition> rawPositions = positionRepository.findByUserId(userId);
-        List<FnoPositionDTO> fnoPositions = new ArrayList<>();
 
+        // Filter only FNO (Futures or Options)
+        List<CanonicalPosition> legs = new ArrayList<>(rawPositions.size());
+        Set<String> symbols = new LinkedHashSet<>();
         for (CanonicalPosition pos : rawPositions) {
-            // Filter only FNO (Futures or Options)
             if (pos.getInstrumentType() != InstrumentType.FUTURES && pos.getInstrumentType() != InstrumentType.OPTIONS) {
                 continue;
             }
-
-            // 1. Parse Metadata using Utils
-            FnoDetailsDTO details = FnoUtils.parseSymbol(pos.getSymbol());
-            if (details == null) {
-                // Determine a fallback logic if parsing fails, or just use symbol as underlying
-                details = FnoDetailsDTO.builder()
-                        .symbol(pos.getSymbol())
-                        .contractMultiplier(BigDecimal.ONE)
-                        .lotSize(1)
-                        .build();
+            legs.add(pos);
+            if (pos.getSymbol() != null) {
+                symbols.add(pos.getSymbol());
             }
+        }
+        if (legs.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            // 2. Fetch Market Data
-            MarketPrice marketPrice = marketDataService.getPrice(pos.getSymbol());
-            BigDecimal ltp = (marketPrice != null && marketPrice.getCurrentPrice() != null)
-                    ? marketPrice.getCurrentPrice()
-                    : BigDecimal.ZERO;
-            BigDecimal prevClose = (marketPrice != null && marketPrice.getPreviousClose() != null)
-                    ? marketPrice.getPreviousClose()
-                    : BigDecimal.ZERO;
-
-            // 3. Compute Financials
-            BigDecimal qty = pos.getQuantity(); // BigDecimal in CanonicalPosition (Total Qty)
-            BigDecimal buyPrice = pos.getAvgBuyPrice();
-
-            BigDecimal currentNotional = ltp.multiply(qty);
-            BigDecimal investedNotional = buyPrice.multiply(qty);
-            BigDecimal mtm = currentNotional.subtract(investedNotional);
-
-            BigDecimal dayGain = BigDecimal.ZERO;
-            if (prevClose.compareTo(BigDecimal.ZERO) != 0 && ltp.compareTo(BigDecimal.ZERO) != 0) {
-                dayGain = (ltp.subtract(prevClose)).multiply(qty);
-            }
+        // One batched lookup for every leg (L1 → Mongo → Kite quote, misses coalesced)
+        Map<String, MarketPrice> prices = symbols.isEmpty()
+                ? Map.of()
+                : marketDataService.getPrices(new ArrayList<>(symbols));
 
-            // Convert Instant to LocalDateTime for DTO compatibility
-            LocalDateTime lastUpdated = pos.getLastSyncedAt() != null
-                    ? LocalDateTime.ofInstant(pos.getLastSyncedAt(), ZoneId.systemDefault())
-                    : null;
+        InstrumentIndex instruments = instrumentMaster.index();
+        List<FnoPositionDTO> fnoPositions = new ArrayList<>(legs.size());
+        for (CanonicalPosition pos : legs) {
+            fnoPositions.add(toDto(pos, pos.getSymbol() != null ? prices.get(pos.getSymbol()) : null, instruments));
+        }
+        return fnoPositions;
+    }
 
-            fnoPositions.add(FnoPositionDTO.builder()
-                    .id(pos.getId())
-                    .userId(pos.getUserId())
-                    .broker(pos.getBrokerType() != null ? pos.getBrokerType().name() : "UNKNOWN")
+    private static FnoPositionDTO toDto(CanonicalPosition pos, MarketPrice marketPrice, InstrumentIndex instruments) {
+        // 1. Contract metadata: instrument master first, symbol parsing when it doesn't list the leg
+        FnoDetailsDTO details = FnoUtils.fromInstrumentMaster(instruments, pos.getSymbol(), pos.getInstrumentToken());
+        if (details == null) {
+            details = FnoUtils.parseSymbol(pos.getSymbol());
+        }
+        if (details == null) {
+            // Determine a fallback logic if parsing fails, or just use symbol as underlying
+            details = FnoDetailsDTO.builder()
                     .symbol(pos.getSymbol())
-                    .quantity(qty.intValue())
-                    .buyPrice(buyPrice)
-                    .fnoDetails(details)
-                    .lastUpdated(lastUpdated)
-                    .currentLtp(ltp.setScale(2, RoundingMode.HALF_UP))
-                    .currentNotional(currentNotional.setScale(2, RoundingMode.HALF_UP))
-                    .investedNotional(investedNotional.setScale(2, RoundingMode.HALF_UP))
-                    .mtm(mtm.setScale(2, RoundingMode.HALF_UP))
-                    .dayGain(dayGain.setScale(2, RoundingMode.HALF_UP))
-                    .build());
+                    .contractMultiplier(BigDecimal.ONE)
+                    .lotSize(1)
+                    .build();
         }
 
-        return fnoPositions;
+        // 2. Market Data from the batch
+        BigDecimal ltp = (marketPrice != null && marketPrice.getCurrentPrice() != null)
+                ? marketPrice.getCurrentPrice()
+                : BigDecimal.ZERO;
+        BigDecimal prevClose = (marketPrice != null && marketPrice.getPreviousClose() != null)
+                ? marketPrice.getPreviousClose()
+                : BigDecimal.ZERO;
+
+        // 3. Compute Financials
+        BigDecimal qty = pos.getQuantity() != null ? pos.getQuantity() : BigDecimal.ZERO; // Total Qty (units, not lots)
+        BigDecimal buyPrice = pos.getAvgBuyPrice() != null ? pos.getAvgBuyPrice() : BigDecimal.ZERO;
+        // Broker price multiplier: 1 for NFO, contract-specific on MCX/CDS
+        BigDecimal units = pos.getMultiplier() > 1 ? qty.multiply(BigDecimal.valueOf(pos.getMultiplier())) : qty;
+
+        BigDecimal currentNotional = ltp.multiply(units);
+        BigDecimal investedNotional = buyPrice.multiply(units);
+        BigDecimal mtm = currentNotional.subtract(investedNotional);
+
+        BigDecimal dayGain = BigDecimal.ZERO;
+        if (prevClose.signum() != 0 && ltp.signum() != 0) {
+            dayGain = (ltp.subtract(prevClose)).multiply(units);
+        }
+
+        // Convert Instant to LocalDateTime for DTO compatibility
+        LocalDateTime lastUpdated = pos.getLastSyncedAt() != null
+                ? LocalDateTime.ofInstant(pos.getLastSyncedAt(), ZoneId.systemDefault())
+                : null;
+
+        return FnoPositionDTO.builder()
+                .id(pos.getId())
+                .userId(pos.getUserId())
+                .broker(pos.getBrokerType() != null ? pos.getBrokerType().name() : "UNKNOWN")
+                .symbol(pos.getSymbol())
+                .quantity(qty.intValue())
+                .buyPrice(buyPrice)
+                .fnoDetails(details)
+                .lastUpdated(lastUpdated)
+                .currentLtp(ltp.setScale(2, RoundingMode.HALF_UP))
+                .currentNotional(currentNotional.setScale(2, RoundingMode.HALF_UP))
+                .investedNotional(investedNotional.setScale(2, RoundingMode.HALF_UP))
+                .mtm(mtm.setScale(2, RoundingMode.HALF_UP))
+                .dayGain(dayGain.setScale(2, RoundingMode.HALF_UP))
+                .build();
     }
 }
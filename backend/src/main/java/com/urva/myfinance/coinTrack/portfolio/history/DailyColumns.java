@@ -0,0 +1,104 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+import java.util.Arrays;
+
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioValueSeries;
+
+/**
+ * Decoded, mutable form of one {@link PortfolioValueSeries.Series}: parallel primitive arrays
+ * sorted by day, with at most one point per day.
+ */
+final class DailyColumns {
+
+    private long[] days;
+    private long[] values;
+    private long[] invested;
+    private int size;
+
+    DailyColumns(int capacity) {
+        int initial = Math.max(capacity, 8);
+        this.days = new long[initial];
+        this.values = new long[initial];
+        this.invested = new long[initial];
+    }
+
+    private DailyColumns(long[] days, long[] values, long[] invested, int size) {
+        this.days = days;
+        this.values = values;
+        this.invested = invested;
+        this.size = size;
+    }
+
+    static DailyColumns decode(PortfolioValueSeries.Series series) {
+        if (series == null || series.getPoints() == 0) return new DailyColumns(0);
+        int n = series.getPoints();
+        return new DailyColumns(DeltaCodec.decode(series.getDays(), n), DeltaCodec.decode(series.getValue(), n),
+                DeltaCodec.decode(series.getInvested(), n), n);
+    }
+
+    PortfolioValueSeries.Series encode(String symbol) {
+        return PortfolioValueSeries.Series.builder()
+                .symbol(symbol)
+                .points(size)
+                .days(DeltaCodec.encode(days, size))
+                .value(DeltaCodec.encode(values, size))
+                .invested(DeltaCodec.encode(invested, size))
+                .build();
+    }
+
+    /** Sets the day's point, replacing one already recorded for that day. */
+    void put(long day, long value, long investedValue) {
+        int at = Arrays.binarySearch(days, 0, size, day);
+        if (at < 0) {
+            at = -at - 1;
+            if (size == days.length) grow();
+            // Usually an append; a backfilled day shifts the tail
+            System.arraycopy(days, at, days, at + 1, size - at);
+            System.arraycopy(values, at, values, at + 1, size - at);
+            System.arraycopy(invested, at, invested, at + 1, size - at);
+            size++;
+        }
+        days[at] = day;
+        values[at] = value;
+        invested[at] = investedValue;
+    }
+
+    /** Drops the day's point, if any. */
+    void remove(long day) {
+        int at = Arrays.binarySearch(days, 0, size, day);
+        if (at < 0) return;
+        System.arraycopy(days, at + 1, days, at, size - at - 1);
+        System.arraycopy(values, at + 1, values, at, size - at - 1);
+        System.arraycopy(invested, at + 1, invested, at, size - at - 1);
+        size--;
+    }
+
+    /** Index of the first point on or after {@code day}. */
+    int firstOnOrAfter(long day) {
+        int at = Arrays.binarySearch(days, 0, size, day);
+        return at >= 0 ? at : -at - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long day(int i) {
+        return days[i];
+    }
+
+    long value(int i) {
+        return values[i];
+    }
+
+    long invested(int i) {
+        return invested[i];
+    }
+
+    private void grow() {
+        int capacity = days.length * 2;
+        days = Arrays.copyOf(days, capacity);
+        values = Arrays.copyOf(values, capacity);
+        invested = Arrays.copyOf(invested, capacity);
+    }
+}
@@ -0,0 +1,58 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+import java.util.Arrays;
+
+/**
+ * Column codec for daily series: each value is stored as the difference from the previous one,
+ * zig-zag mapped (so small negative deltas stay small) and written as a base-128 varint.
+ *
+ * Consecutive trading days are a delta of 1-3 (one byte); day-to-day moves in paise of a
+ * typical portfolio fit in 3-4 bytes instead of 8.
+ */
+final class DeltaCodec {
+
+    private static final int MAX_VARINT_BYTES = 10;
+
+    private DeltaCodec() {
+    }
+
+    static byte[] encode(long[] values, int count) {
+        byte[] out = new byte[count * MAX_VARINT_BYTES];
+        int pos = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = values[i] - previous;
+            previous = values[i];
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            while ((zigzag & ~0x7FL) != 0) {
+                out[pos++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            out[pos++] = (byte) zigzag;
+        }
+        return Arrays.copyOf(out, pos);
+    }
+
+    /** Decodes {@code count} values; throws if {@code data} holds fewer. */
+    static long[] decode(byte[] data, int count) {
+        long[] values = new long[count];
+        int pos = 0;
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long zigzag = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= data.length) {
+                    throw new IllegalArgumentException("column holds " + i + " of " + count + " values");
+                }
+                b = data[pos++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = previous;
+        }
+        return values;
+    }
+}
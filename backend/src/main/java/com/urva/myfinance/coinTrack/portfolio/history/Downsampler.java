@@ -0,0 +1,63 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling: keeps the first and last points and, from each
+ * bucket in between, the point forming the largest triangle with the previously kept point and
+ * the next bucket's average. Peaks and drawdowns survive, unlike with every-nth sampling.
+ */
+final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /**
+     * Indices (ascending) of the points to keep out of {@code x[from, to)}, {@code y[from, to)}.
+     * Returns every index when the range already fits in {@code threshold}.
+     */
+    static int[] lttb(long[] x, long[] y, int from, int to, int threshold) {
+        int n = to - from;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = from + i;
+            return all;
+        }
+
+        int[] kept = new int[threshold];
+        int k = 0;
+        kept[k++] = from;
+        double bucket = (double) (n - 2) / (threshold - 2);
+        int a = from;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            // Average of the next bucket (the last point for the final one)
+            int avgStart = from + (int) Math.floor((i + 1) * bucket) + 1;
+            int avgEnd = Math.min(from + (int) Math.floor((i + 2) * bucket) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgCount = avgEnd - avgStart;
+            avgX /= avgCount;
+            avgY /= avgCount;
+
+            int rangeStart = from + (int) Math.floor(i * bucket) + 1;
+            int rangeEnd = from + (int) Math.floor((i + 1) * bucket) + 1;
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((double) (x[a] - avgX) * (y[j] - y[a])
+                        - (double) (x[a] - x[j]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = j;
+                }
+            }
+            kept[k++] = next;
+            a = next;
+        }
+        kept[k] = to - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,40 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+import java.time.LocalDate;
+
+/** Chart ranges served by {@code GET /api/portfolio/history}. */
+public enum HistoryRange {
+    ONE_WEEK("1W"),
+    ONE_MONTH("1M"),
+    ONE_YEAR("1Y"),
+    ALL("ALL");
+
+    private final String code;
+
+    HistoryRange(String code) {
+        this.code = code;
+    }
+
+    public String code() {
+        return code;
+    }
+
+    /** First day of the range ending on {@code today}; null for ALL. */
+    public LocalDate startingFrom(LocalDate today) {
+        return switch (this) {
+            case ONE_WEEK -> today.minusWeeks(1);
+            case ONE_MONTH -> today.minusMonths(1);
+            case ONE_YEAR -> today.minusYears(1);
+            case ALL -> null;
+        };
+    }
+
+    /** Parses "1W", "1M", "1Y" or "ALL" (case-insensitive); null if unknown. */
+    public static HistoryRange fromCode(String code) {
+        if (code == null) return null;
+        for (HistoryRange range : values()) {
+            if (range.code.equalsIgnoreCase(code.trim())) return range;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,312 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.mutualfund.service.settlement.BusinessDayCalendar;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioHistoryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryHoldingDTO;
+import com.urva.myfinance.coinTrack.portfolio.intraday.IntradayPnlTracker;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioValueSeries;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.PortfolioValueSeriesRepository;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.HoldingEnricher;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.PortfolioTotalsCalculator;
+import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Daily portfolio value history.
+ *
+ * - After the close on a trading day, every user with an active broker account gets an
+ *   end-of-day point: the portfolio total and each holding's value and invested amount. Values
+ *   come from the canonical holdings and closing quotes fetched once per symbol for the run, not
+ *   from the materialized summary, which may be a stored snapshot with old prices and would be
+ *   kept resident for every user. In a cluster each instance records only the users it owns in
+ *   the sync sweep. Recording a day twice replaces that day's point.
+ * - Days that are not NSE business days ({@link BusinessDayCalendar}) record nothing.
+ * - Points are kept per user per year in {@code portfolio_value_series} as delta-encoded
+ *   columns ({@link DeltaCodec}), so a chart reads one small document per year covered.
+ * - Range queries decode the years in range, cut to the window and downsample to at most
+ *   {@code portfolio.history.max-points} points ({@link Downsampler}).
+ */
+@Service
+public class PortfolioHistoryService {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioHistoryService.class);
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final int ACCOUNT_PAGE_SIZE = 100;
+
+    private final PortfolioValueSeriesRepository seriesRepository;
+    private final CanonicalHoldingRepository holdingRepository;
+    private final MarketDataService marketDataService;
+    private final HoldingEnricher holdingEnricher;
+    private final PortfolioTotalsCalculator totalsCalculator;
+    private final BrokerAccountRepository brokerAccountRepository;
+    private final SyncSafetyService syncSafetyService;
+    private final BusinessDayCalendar businessDayCalendar;
+    private final int maxPoints;
+    private final Counter recorded;
+    private final Counter skipped;
+    private final Counter failed;
+
+    public PortfolioHistoryService(PortfolioValueSeriesRepository seriesRepository,
+                                   CanonicalHoldingRepository holdingRepository,
+                                   MarketDataService marketDataService,
+                                   HoldingEnricher holdingEnricher,
+                                   PortfolioTotalsCalculator totalsCalculator,
+                                   BrokerAccountRepository brokerAccountRepository,
+                                   SyncSafetyService syncSafetyService,
+                                   BusinessDayCalendar businessDayCalendar,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${portfolio.history.max-points:200}") int maxPoints) {
+        this.seriesRepository = seriesRepository;
+        this.holdingRepository = holdingRepository;
+        this.marketDataService = marketDataService;
+        this.holdingEnricher = holdingEnricher;
+        this.totalsCalculator = totalsCalculator;
+        this.brokerAccountRepository = brokerAccountRepository;
+        this.syncSafetyService = syncSafetyService;
+        this.businessDayCalendar = businessDayCalendar;
+        this.maxPoints = maxPoints;
+        this.recorded = Counter.builder("portfolio.history.snapshots").tag("outcome", "recorded").register(meterRegistry);
+        this.skipped = Counter.builder("portfolio.history.snapshots").tag("outcome", "skipped").register(meterRegistry);
+        this.failed = Counter.builder("portfolio.history.snapshots").tag("outcome", "failure").register(meterRegistry);
+    }
+
+    /** Runs after the 15:30 close, once the day's closing prices are available. */
+    @Scheduled(cron = "${portfolio.history.snapshot-cron:0 15 16 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void recordEndOfDayForAll() {
+        recordEndOfDayForAll(LocalDate.now(INDIA_ZONE));
+    }
+
+    void recordEndOfDayForAll(LocalDate today) {
+        if (!businessDayCalendar.isBusinessDay(today)) {
+            log.info("No end-of-day portfolio values on {}: not a trading day", today);
+            return;
+        }
+
+        Set<String> userIds = new LinkedHashSet<>();
+        int page = 0;
+        Page<BrokerAccount> accountPage;
+        do {
+            accountPage = brokerAccountRepository.findByIsActiveTrue(
+                    PageRequest.of(page++, ACCOUNT_PAGE_SIZE, Sort.by("userId", "id")));
+            for (BrokerAccount account : accountPage.getContent()) {
+                String userId = account.getUserId();
+                if (userId != null && syncSafetyService.ownsUser(userId)) userIds.add(userId);
+            }
+        } while (accountPage.hasNext());
+
+        // Closing quote per symbol, fetched once for the whole run
+        Map<String, MarketPrice> closes = new HashMap<>();
+        List<String> owned = new ArrayList<>(userIds);
+        int count = 0;
+        for (int from = 0; from < owned.size(); from += ACCOUNT_PAGE_SIZE) {
+            List<String> batch = owned.subList(from, Math.min(from + ACCOUNT_PAGE_SIZE, owned.size()));
+            Map<String, List<CanonicalHolding>> holdingsByUser;
+            try {
+                holdingsByUser = holdingRepository.findByUserIdIn(batch).stream()
+                        .collect(Collectors.groupingBy(CanonicalHolding::getUserId));
+                fetchCloses(holdingsByUser, closes);
+            } catch (Exception e) {
+                failed.increment(batch.size());
+                log.warn("End-of-day snapshot failed for {} users: {}", batch.size(), e.getMessage());
+                continue;
+            }
+            for (String userId : batch) {
+                try {
+                    List<CanonicalHolding> holdings = holdingsByUser.getOrDefault(userId, List.of());
+                    if (recordEndOfDay(userId, today, closingSummary(holdings, closes))) count++;
+                } catch (Exception e) {
+                    failed.increment();
+                    log.warn("End-of-day snapshot failed for user {}: {}", userId, e.getMessage());
+                }
+            }
+        }
+        log.info("Recorded end-of-day portfolio values for {} users ({})", count, today);
+    }
+
+    /**
+     * Records {@code summary} as the user's point for {@code date}. Returns false (and stores
+     * nothing) for a user with no holdings and no history yet.
+     */
+    public boolean recordEndOfDay(String userId, LocalDate date, PortfolioSummaryResponse summary) {
+        List<SummaryHoldingDTO> holdings = summary != null && summary.getHoldingsList() != null
+                ? summary.getHoldingsList() : List.of();
+        String id = PortfolioValueSeries.idFor(userId, date.getYear());
+        PortfolioValueSeries doc = seriesRepository.findById(id).orElse(null);
+        if (doc == null) {
+            if (holdings.isEmpty()) {
+                skipped.increment();
+                return false;
+            }
+            doc = PortfolioValueSeries.builder().id(id).userId(userId).year(date.getYear())
+                    .holdings(new ArrayList<>()).build();
+        }
+        long day = date.toEpochDay();
+
+        DailyColumns total = DailyColumns.decode(doc.getTotal());
+        total.put(day, IntradayPnlTracker.paise(summary != null ? summary.getTotalCurrentValue() : null),
+                IntradayPnlTracker.paise(summary != null ? summary.getTotalInvestedValue() : null));
+        doc.setTotal(total.encode(null));
+
+        // The same symbol can be held with several brokers; chart it once
+        Map<String, long[]> bySymbol = new LinkedHashMap<>();
+        for (SummaryHoldingDTO holding : holdings) {
+            if (holding.getSymbol() == null) continue;
+            long[] sums = bySymbol.computeIfAbsent(holding.getSymbol(), s -> new long[2]);
+            sums[0] += IntradayPnlTracker.paise(holding.getCurrentValue());
+            sums[1] += IntradayPnlTracker.paise(holding.getInvestedValue());
+        }
+
+        List<PortfolioValueSeries.Series> series = new ArrayList<>(
+                Math.max(bySymbol.size(), doc.getHoldings() != null ? doc.getHoldings().size() : 0));
+        if (doc.getHoldings() != null) {
+            for (PortfolioValueSeries.Series existing : doc.getHoldings()) {
+                DailyColumns columns = DailyColumns.decode(existing);
+                long[] sums = bySymbol.remove(existing.getSymbol());
+                if (sums != null) {
+                    columns.put(day, sums[0], sums[1]);
+                } else {
+                    // Not held (any more) on this day; drops a point from an earlier run
+                    columns.remove(day);
+                }
+                if (columns.size() > 0) series.add(columns.encode(existing.getSymbol()));
+            }
+        }
+        bySymbol.forEach((symbol, sums) -> {
+            DailyColumns columns = new DailyColumns(1);
+            columns.put(day, sums[0], sums[1]);
+            series.add(columns.encode(symbol));
+        });
+        doc.setHoldings(series);
+        doc.setUpdatedAt(LocalDateTime.now());
+        seriesRepository.save(doc);
+        recorded.increment();
+        return true;
+    }
+
+    /** Daily points for the portfolio, or for one holding when {@code symbol} is given. */
+    public PortfolioHistoryResponse getHistory(String userId, HistoryRange range, String symbol) {
+        return getHistory(userId, range, symbol, LocalDate.now(INDIA_ZONE));
+    }
+
+    PortfolioHistoryResponse getHistory(String userId, HistoryRange range, String symbol, LocalDate today) {
+        LocalDate start = range.startingFrom(today);
+        int fromYear = start != null ? start.getYear() : 0;
+        long fromDay = start != null ? start.toEpochDay() : Long.MIN_VALUE;
+        long toDay = today.toEpochDay();
+
+        // Concatenate the years' points inside the window
+        long[] days = new long[0];
+        long[] values = new long[0];
+        long[] invested = new long[0];
+        int n = 0;
+        for (PortfolioValueSeries doc : seriesRepository.findYears(userId, fromYear, today.getYear())) {
+            DailyColumns columns = DailyColumns.decode(select(doc, symbol));
+            int first = columns.firstOnOrAfter(fromDay);
+            int end = columns.firstOnOrAfter(toDay + 1);
+            if (end <= first) continue;
+            int needed = n + end - first;
+            if (needed > days.length) {
+                int capacity = Math.max(needed, days.length * 2);
+                days = Arrays.copyOf(days, capacity);
+                values = Arrays.copyOf(values, capacity);
+                invested = Arrays.copyOf(invested, capacity);
+            }
+            for (int i = first; i < end; i++, n++) {
+                days[n] = columns.day(i);
+                values[n] = columns.value(i);
+                invested[n] = columns.invested(i);
+            }
+        }
+
+        int[] kept = Downsampler.lttb(days, values, 0, n, maxPoints);
+        List<PortfolioHistoryResponse.Point> points = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            points.add(PortfolioHistoryResponse.Point.builder()
+                    .date(LocalDate.ofEpochDay(days[i]))
+                    .value(rupees(values[i]))
+                    .invested(rupees(invested[i]))
+                    .pnl(rupees(values[i] - invested[i]))
+                    .build());
+        }
+
+        return PortfolioHistoryResponse.builder()
+                .range(range.code())
+                .symbol(symbol)
+                .from(start != null ? start : n > 0 ? LocalDate.ofEpochDay(days[0]) : null)
+                .to(today)
+                .totalPoints(n)
+                .downsampled(kept.length < n)
+                .points(points)
+                .build();
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    /** Adds fresh quotes for the batch's symbols not yet in {@code closes}; cached prices fill any gaps. */
+    private void fetchCloses(Map<String, List<CanonicalHolding>> holdingsByUser, Map<String, MarketPrice> closes) {
+        Set<String> missing = new LinkedHashSet<>();
+        holdingsByUser.values().forEach(holdings -> holdings.forEach(h -> {
+            if (h.getSymbol() != null && !closes.containsKey(h.getSymbol())) missing.add(h.getSymbol());
+        }));
+        if (missing.isEmpty()) return;
+
+        closes.putAll(marketDataService.refreshPrices(new ArrayList<>(missing)));
+        missing.removeAll(closes.keySet());
+        if (!missing.isEmpty()) closes.putAll(marketDataService.getPrices(new ArrayList<>(missing)));
+    }
+
+    private PortfolioSummaryResponse closingSummary(List<CanonicalHolding> holdings, Map<String, MarketPrice> closes) {
+        List<SummaryHoldingDTO> enriched = holdingEnricher.enrich(holdings, closes);
+        PortfolioTotalsCalculator.PortfolioTotals totals = totalsCalculator.calculate(enriched);
+        return PortfolioSummaryResponse.builder()
+                .totalCurrentValue(totals.totalCurrentValue())
+                .totalInvestedValue(totals.totalInvestedValue())
+                .holdingsList(enriched)
+                .build();
+    }
+
+    private static PortfolioValueSeries.Series select(PortfolioValueSeries doc, String symbol) {
+        if (symbol == null) return doc.getTotal();
+        if (doc.getHoldings() == null) return null;
+        for (PortfolioValueSeries.Series series : doc.getHoldings()) {
+            if (symbol.equals(series.getSymbol())) return series;
+        }
+        return null;
+    }
+
+    private static BigDecimal rupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+}
@@ -0,0 +1,48 @@
+package com.urva.myfinance.coinTrack.portfolio.intraday;
+
+import java.util.Arrays;
+
+/**
+ * One user's P&L curve for one session: a slot per minute from 09:15 to 15:30, held in
+ * primitive arrays (paise). A slot keeps the last update received in its minute; minutes
+ * without an update repeat the previous value. About 6 KB per user, allocated once.
+ */
+final class IntradayPnlBuffer {
+
+    static final int SLOTS = 376; // 09:15 .. 15:30 inclusive
+
+    final long epochDay;
+    private final long[] pnl = new long[SLOTS];
+    private final long[] value = new long[SLOTS];
+    private int first = -1;
+    private int last = -1;
+
+    IntradayPnlBuffer(long epochDay) {
+        this.epochDay = epochDay;
+    }
+
+    /** Updates for a minute before the latest recorded one are late and dropped. */
+    synchronized void record(int slot, long pnlPaise, long valuePaise) {
+        if (slot < 0 || slot >= SLOTS || slot < last) return;
+        if (first < 0) {
+            first = slot;
+        } else {
+            for (int i = last + 1; i < slot; i++) {
+                pnl[i] = pnl[last];
+                value[i] = value[last];
+            }
+        }
+        pnl[slot] = pnlPaise;
+        value[slot] = valuePaise;
+        last = slot;
+    }
+
+    synchronized Snapshot snapshot() {
+        if (first < 0) return new Snapshot(-1, new long[0], new long[0]);
+        return new Snapshot(first, Arrays.copyOfRange(pnl, first, last + 1), Arrays.copyOfRange(value, first, last + 1));
+    }
+
+    /** Points from slot {@code first}, one per minute. */
+    record Snapshot(int first, long[] pnl, long[] value) {
+    }
+}
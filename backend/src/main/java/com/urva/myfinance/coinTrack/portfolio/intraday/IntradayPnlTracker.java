@@ -0,0 +1,163 @@
+package com.urva.myfinance.coinTrack.portfolio.intraday;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.portfolio.dto.IntradayPnlResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryPositionDTO;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.PortfolioSummaryMaterializer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-user intraday P&L curves for live charts.
+ *
+ * Points come from the summary materializer: every reprice (a held symbol ticked, or the
+ * prices' L1 TTL ran out) and every reload after a sync writes the user's day P&L into the
+ * current minute's slot of their {@link IntradayPnlBuffer}. Only users with a resident summary
+ * view, i.e. users who have used the portfolio API recently, are tracked.
+ *
+ * Memory is bounded by {@code portfolio.intraday.max-users} buffers of fixed size; users beyond
+ * that get no curve until the next session. All buffers are dropped after the close.
+ */
+@Component
+public class IntradayPnlTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(IntradayPnlTracker.class);
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final LocalTime SESSION_OPEN = LocalTime.of(9, 15);
+    private static final LocalTime SESSION_CLOSE = LocalTime.of(15, 30);
+
+    private final PortfolioSummaryMaterializer summaryMaterializer;
+    private final int maxUsers;
+    private final Map<String, IntradayPnlBuffer> buffers = new ConcurrentHashMap<>();
+    private final Counter rejected;
+
+    public IntradayPnlTracker(PortfolioSummaryMaterializer summaryMaterializer,
+                              MeterRegistry meterRegistry,
+                              @Value("${portfolio.intraday.max-users:5000}") int maxUsers) {
+        this.summaryMaterializer = summaryMaterializer;
+        this.maxUsers = maxUsers;
+        this.rejected = Counter.builder("portfolio.intraday.rejected").register(meterRegistry);
+        Gauge.builder("portfolio.intraday.buffers", buffers, Map::size).register(meterRegistry);
+        summaryMaterializer.addSummaryListener(this::onSummary);
+    }
+
+    /**
+     * Today's curve for the user. During the session a user without a curve yet gets one,
+     * starting with the current summary.
+     */
+    public IntradayPnlResponse getCurve(String userId) {
+        return getCurve(userId, LocalDateTime.now(INDIA_ZONE));
+    }
+
+    IntradayPnlResponse getCurve(String userId, LocalDateTime now) {
+        IntradayPnlBuffer buffer = buffers.get(userId);
+        if ((buffer == null || buffer.epochDay != now.toLocalDate().toEpochDay()) && slotOf(now) >= 0) {
+            record(userId, summaryMaterializer.get(userId), now);
+            buffer = buffers.get(userId);
+        }
+        return toResponse(buffer, now);
+    }
+
+    /** Drops every curve once the session is over. */
+    @Scheduled(cron = "${portfolio.intraday.evict-cron:0 45 15 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void evictAll() {
+        int count = buffers.size();
+        buffers.clear();
+        log.info("Dropped {} intraday P&L curves after the close", count);
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    void onSummary(String userId, PortfolioSummaryResponse summary) {
+        record(userId, summary, LocalDateTime.now(INDIA_ZONE));
+    }
+
+    void record(String userId, PortfolioSummaryResponse summary, LocalDateTime now) {
+        int slot = slotOf(now);
+        if (slot < 0 || summary == null) return;
+        long day = now.toLocalDate().toEpochDay();
+
+        IntradayPnlBuffer buffer = buffers.get(userId);
+        if (buffer == null || buffer.epochDay != day) {
+            if (buffer == null && buffers.size() >= maxUsers) {
+                rejected.increment();
+                return;
+            }
+            // Yesterday's buffer, if the eviction did not run, is replaced rather than extended
+            buffer = buffers.compute(userId, (id, current) ->
+                    current != null && current.epochDay == day ? current : new IntradayPnlBuffer(day));
+        }
+        buffer.record(slot, paise(dayPnl(summary)), paise(summary.getTotalCurrentValue()));
+    }
+
+    /** Minute of the session (0 = 09:15), or -1 outside it. */
+    static int slotOf(LocalDateTime now) {
+        DayOfWeek day = now.getDayOfWeek();
+        if (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY) return -1;
+        LocalTime time = now.toLocalTime();
+        if (time.isBefore(SESSION_OPEN) || time.isAfter(SESSION_CLOSE)) return -1;
+        return (int) Duration.between(SESSION_OPEN, time).toMinutes();
+    }
+
+    int bufferCount() {
+        return buffers.size();
+    }
+
+    private static IntradayPnlResponse toResponse(IntradayPnlBuffer buffer, LocalDateTime now) {
+        IntradayPnlBuffer.Snapshot snapshot = buffer != null && buffer.epochDay == now.toLocalDate().toEpochDay()
+                ? buffer.snapshot() : null;
+        if (snapshot == null || snapshot.first() < 0) {
+            return IntradayPnlResponse.builder().date(now.toLocalDate()).intervalMinutes(1)
+                    .pnl(List.of()).value(List.of()).build();
+        }
+        List<BigDecimal> pnl = new ArrayList<>(snapshot.pnl().length);
+        List<BigDecimal> value = new ArrayList<>(snapshot.value().length);
+        for (int i = 0; i < snapshot.pnl().length; i++) {
+            pnl.add(BigDecimal.valueOf(snapshot.pnl()[i], 2));
+            value.add(BigDecimal.valueOf(snapshot.value()[i], 2));
+        }
+        return IntradayPnlResponse.builder()
+                .date(now.toLocalDate())
+                .from(SESSION_OPEN.plusMinutes(snapshot.first()))
+                .intervalMinutes(1)
+                .pnl(pnl)
+                .value(value)
+                .build();
+    }
+
+    /** Day gain on holdings plus positions; positions move on syncs, holdings on every reprice. */
+    private static BigDecimal dayPnl(PortfolioSummaryResponse summary) {
+        BigDecimal total = summary.getTotalDayGain() != null ? summary.getTotalDayGain() : BigDecimal.ZERO;
+        if (summary.getPositionsList() != null) {
+            for (SummaryPositionDTO position : summary.getPositionsList()) {
+                if (position.getDayGain() != null) total = total.add(position.getDayGain());
+            }
+        }
+        return total;
+    }
+
+    /** Rupees to whole paise, rounded half-up; null counts as zero. */
+    public static long paise(BigDecimal rupees) {
+        return rupees == null ? 0L : rupees.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
@@ -14,5 +14,11 @@ public interface MarketDataService {
 
     void warmupPrices(List<String> symbols);
 
+    /**
+     * Fetches fresh quotes for the given symbols (at most one quote batch) regardless of cache
+     * state and writes them to the price cache. Returns the symbols resolved.
+     */
+    Map<String, MarketPrice> refreshPrices(List<String> symbols);
+
     boolean isMarketOpen();
 }
@@ -0,0 +1,186 @@
+package com.urva.myfinance.coinTrack.portfolio.market.cache;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.urva.myfinance.coinTrack.common.util.MarketHoursUtil;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+
+/**
+ * In-process L1 price tier sitting in front of the {@code market_prices} collection.
+ *
+ * - Bounded (LRU-ish via Caffeine's W-TinyLFU), so memory stays flat no matter how many symbols users hold.
+ * - TTL is market-hours aware: 15s while NSE/BSE is open, 5 min otherwise. An entry's lifetime is
+ *   measured from its {@code updatedAt}, so a price read from Mongo that is already 10s old only
+ *   lives another 5s in L1.
+ * - Single-flight: concurrent misses for the same symbol share ONE in-flight load. The first caller
+ *   runs the loader; everyone else waits on the same future and receives the same result.
+ *
+ * Symbols the loader could not resolve are NOT cached — the next caller retries.
+ *
+ * Change listeners are told about every {@link #put} that moves a symbol's price (ticks, explicit
+ * refreshes). They run on the writer's thread — for ticks the Netty event loop — so must not block.
+ */
+@Component
+public class MarketPriceCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketPriceCache.class);
+
+    private static final long MAX_SYMBOLS = 20_000;
+    private static final Duration MARKET_OPEN_TTL = Duration.ofSeconds(15);
+    private static final Duration MARKET_CLOSED_TTL = Duration.ofMinutes(5);
+    /** Upper bound a follower waits on someone else's in-flight load before giving up. */
+    private static final Duration LOAD_WAIT = Duration.ofSeconds(20);
+
+    private final AsyncCache<String, MarketPrice> cache = Caffeine.newBuilder()
+            .maximumSize(MAX_SYMBOLS)
+            .expireAfter(new MarketHoursExpiry())
+            .buildAsync();
+
+    private final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns only the symbols currently resolved in L1. Never blocks on in-flight loads.
+     */
+    public Map<String, MarketPrice> getAllPresent(Collection<String> symbols) {
+        return cache.synchronous().getAllPresent(symbols);
+    }
+
+    /**
+     * Returns cached prices and loads the rest through {@code loader}, coalescing with any load
+     * already running for the same symbols. The loader is invoked on the caller's thread with the
+     * symbols nobody else is loading; keys it leaves out of its result are treated as misses.
+     */
+    public Map<String, MarketPrice> getAll(Collection<String> symbols,
+                                           Function<Set<String>, Map<String, MarketPrice>> loader) {
+        if (symbols == null || symbols.isEmpty()) return Collections.emptyMap();
+
+        CompletableFuture<Map<String, MarketPrice>> future = cache.getAll(symbols, (keys, executor) -> {
+            try {
+                @SuppressWarnings("unchecked")
+                Set<String> toLoad = (Set<String>) keys;
+                Map<String, MarketPrice> loaded = loader.apply(toLoad);
+                return CompletableFuture.completedFuture(loaded != null ? loaded : Collections.emptyMap());
+            } catch (Exception e) {
+                log.warn("Price load failed for {} symbols: {}", keys.size(), e.getMessage());
+                return CompletableFuture.completedFuture(Collections.<String, MarketPrice>emptyMap());
+            }
+        });
+
+        try {
+            return future.get(LOAD_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Timed out waiting on in-flight price load for {} symbols", symbols.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("In-flight price load failed: {}", e.getMessage());
+        }
+        // Serve whatever is resolved; unresolved symbols drop to the caller's fallback chain.
+        return new HashMap<>(getAllPresent(symbols));
+    }
+
+    public void put(MarketPrice price) {
+        if (price == null || price.getSymbol() == null) return;
+        CompletableFuture<MarketPrice> previous = cache.getIfPresent(price.getSymbol());
+        cache.put(price.getSymbol(), CompletableFuture.completedFuture(price));
+        if (!changeListeners.isEmpty() && priceMoved(previous, price)) {
+            notifyChanged(price.getSymbol());
+        }
+    }
+
+    public void putAll(Collection<MarketPrice> prices) {
+        if (prices == null) return;
+        prices.forEach(this::put);
+    }
+
+    public void invalidate(String symbol) {
+        cache.synchronous().invalidate(symbol);
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /** Registers a callback receiving the symbol of every price that changed. Must not block. */
+    public void addChangeListener(Consumer<String> listener) {
+        changeListeners.add(listener);
+    }
+
+    private void notifyChanged(String symbol) {
+        for (Consumer<String> listener : changeListeners) {
+            try {
+                listener.accept(symbol);
+            } catch (Exception e) {
+                log.warn("Price change listener failed for {}: {}", symbol, e.getMessage());
+            }
+        }
+    }
+
+    /** True unless the entry being replaced is resolved and carries the same price and close. */
+    private static boolean priceMoved(CompletableFuture<MarketPrice> previous, MarketPrice price) {
+        if (previous == null || !previous.isDone() || previous.isCompletedExceptionally()) return true;
+        MarketPrice old = previous.getNow(null);
+        return old == null
+                || !sameValue(old.getCurrentPrice(), price.getCurrentPrice())
+                || !sameValue(old.getPreviousClose(), price.getPreviousClose());
+    }
+
+    private static boolean sameValue(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    /** Current L1 lifetime of a price: 15s while the market is open, 5 min otherwise. */
+    public static Duration currentTtl() {
+        return MarketHoursUtil.isMarketOpen() ? MARKET_OPEN_TTL : MARKET_CLOSED_TTL;
+    }
+
+    /**
+     * Expires each entry {@code ttl} after the price's own {@code updatedAt}, not after insertion.
+     * Updates reset the clock the same way; reads never extend it.
+     */
+    private static final class MarketHoursExpiry implements Expiry<String, MarketPrice> {
+
+        @Override
+        public long expireAfterCreate(String symbol, MarketPrice price, long currentTime) {
+            return remainingNanos(price);
+        }
+
+        @Override
+        public long expireAfterUpdate(String symbol, MarketPrice price, long currentTime, long currentDuration) {
+            return remainingNanos(price);
+        }
+
+        @Override
+        public long expireAfterRead(String symbol, MarketPrice price, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        private long remainingNanos(MarketPrice price) {
+            Duration ttl = currentTtl();
+            if (price == null || price.getUpdatedAt() == null) return ttl.toNanos();
+            Duration age = Duration.between(price.getUpdatedAt(), LocalDateTime.now());
+            return Math.max(0L, ttl.minus(age).toNanos());
+        }
+    }
+}
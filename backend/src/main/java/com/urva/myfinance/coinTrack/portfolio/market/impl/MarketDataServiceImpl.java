@@ -25,11 +25,13 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSessionCache;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
 import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
-import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
 import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.market.universe.SymbolUniverse;
 import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
 import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
 import com.urva.myfinance.coinTrack.portfolio.repository.MarketPriceRepository;
@@ -38,9 +40,16 @@ import com.urva.myfinance.coinTrack.portfolio.repository.MarketPriceRepository;
  * Real market data implementation using Zerodha LTP API.
  *
  * Priority chain:
+ * 0. In-process L1 cache ({@link MarketPriceCache}) — bounded, same TTLs as below.
+ *    Concurrent misses for a symbol coalesce into ONE Mongo read + LTP call (single-flight).
  * 1. MongoDB cache (15-sec TTL during market hours, 5-min off-hours)
- * 2. Zerodha LTP API: GET /quote/ltp?i=NSE:RELIANCE&i=BSE:SBIN (max 200 per call)
- * 3. Canonical holding's stored currentPrice (marked stale)
+ * 2. Zerodha quote API: GET /quote/ohlc?i=NSE:RELIANCE&i=BSE:SBIN (max 200 per call) —
+ *    same quota as /quote/ltp, but also carries the day's OHLC and previous close, so
+ *    day gain needs no second lookup.
+ * 3. Canonical holding's stored currentPrice (marked stale, never promoted into L1)
+ *
+ * Symbols in the {@link SymbolUniverse} are kept warm by PriceUniverseRefresher; while it is
+ * serving, a miss on one of them skips step 2 instead of calling Zerodha on the request path.
  *
  * Changed: Replaced random/hardcoded stub with real Zerodha LTP API calls.
  * Never throws — always returns best available data.
@@ -58,7 +67,9 @@ public class MarketDataServiceImpl implements MarketDataService {
     private final MarketPriceRepository priceRepository;
     private final BrokerAccountRepository brokerAccountRepository;
     private final CanonicalHoldingRepository holdingRepository;
-    private final EncryptionUtil encryptionUtil;
+    private final BrokerSessionCache sessionCache;
+    private final MarketPriceCache priceCache;
+    private final SymbolUniverse symbolUniverse;
     private final WebClient webClient;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
@@ -71,12 +82,16 @@ public class MarketDataServiceImpl implements MarketDataService {
     public MarketDataServiceImpl(MarketPriceRepository priceRepository,
                                   BrokerAccountRepository brokerAccountRepository,
                                   CanonicalHoldingRepository holdingRepository,
-                                  EncryptionUtil encryptionUtil,
+                                  BrokerSessionCache sessionCache,
+                                  MarketPriceCache priceCache,
+                                  SymbolUniverse symbolUniverse,
                                   WebClient.Builder brokerWebClientBuilder) {
         this.priceRepository = priceRepository;
         this.brokerAccountRepository = brokerAccountRepository;
         this.holdingRepository = holdingRepository;
-        this.encryptionUtil = encryptionUtil;
+        this.sessionCache = sessionCache;
+        this.priceCache = priceCache;
+        this.symbolUniverse = symbolUniverse;
         this.webClient = brokerWebClientBuilder.build();
     }
 
@@ -90,33 +105,19 @@ public class MarketDataServiceImpl implements MarketDataService {
     public Map<String, MarketPrice> getPrices(List<String> symbols) {
         if (symbols == null || symbols.isEmpty()) return Collections.emptyMap();
 
-        // 1. Check MongoDB cache
-        List<MarketPrice> cached = priceRepository.findBySymbolIn(symbols);
-        Map<String, MarketPrice> result = new HashMap<>(cached.stream()
-                .filter(mp -> Duration.between(mp.getUpdatedAt(), LocalDateTime.now()).getSeconds() < getCacheTtlSeconds())
-                .collect(Collectors.toMap(MarketPrice::getSymbol, Function.identity(), (a, b) -> a)));
+        // 1-2. L1 cache; misses go through loadPrices (Mongo → Zerodha LTP), coalesced per symbol
+        List<String> distinct = symbols.stream().distinct().toList();
+        Map<String, MarketPrice> result = new HashMap<>(priceCache.getAll(distinct,
+                keys -> loadPrices(distinct.stream().filter(keys::contains).toList())));
 
-        // 2. Identify missing symbols
-        List<String> missing = symbols.stream()
+        List<String> missing = distinct.stream()
                 .filter(s -> !result.containsKey(s))
-                .distinct()
                 .toList();
 
         if (missing.isEmpty()) return result;
 
-        // 3. Try Zerodha LTP API
-        Map<String, MarketPrice> fetched = fetchFromZerodhaLtp(missing);
-        result.putAll(fetched);
-
-        // 4. For still-missing symbols, fall back to canonical stored prices
-        List<String> stillMissing = missing.stream()
-                .filter(s -> !result.containsKey(s))
-                .toList();
-
-        if (!stillMissing.isEmpty()) {
-            Map<String, MarketPrice> fallback = fallbackToCanonical(stillMissing);
-            result.putAll(fallback);
-        }
+        // 3. For still-missing symbols, fall back to canonical stored prices
+        result.putAll(fallbackToCanonical(missing));
 
         return result;
     }
@@ -124,7 +125,10 @@ public class MarketDataServiceImpl implements MarketDataService {
     @Override
     public MarketPrice fetchAndCachePrice(String symbol) {
         Map<String, MarketPrice> result = fetchFromZerodhaLtp(List.of(symbol));
-        if (result.containsKey(symbol)) return result.get(symbol);
+        if (result.containsKey(symbol)) {
+            priceCache.put(result.get(symbol));
+            return result.get(symbol);
+        }
 
         // Fallback
         Map<String, MarketPrice> fallback = fallbackToCanonical(List.of(symbol));
@@ -144,11 +148,49 @@ public class MarketDataServiceImpl implements MarketDataService {
         });
     }
 
+    @Override
+    public Map<String, MarketPrice> refreshPrices(List<String> symbols) {
+        if (symbols == null || symbols.isEmpty()) return Collections.emptyMap();
+        Map<String, MarketPrice> fetched = fetchFromZerodhaLtp(symbols);
+        priceCache.putAll(fetched.values());
+        return fetched;
+    }
+
     @Override
     public boolean isMarketOpen() {
         return com.urva.myfinance.coinTrack.common.util.MarketHoursUtil.isMarketOpen();
     }
 
+    // ── L1 loader ───────────────────────────────────────────────
+
+    /**
+     * Resolves L1 misses: fresh Mongo entries first, then one batched LTP fetch for the rest
+     * (minus universe symbols while the refresher is serving them).
+     * Runs once per symbol at a time — concurrent callers for the same symbols wait on this load.
+     */
+    private Map<String, MarketPrice> loadPrices(List<String> symbols) {
+        if (symbols.isEmpty()) return Collections.emptyMap();
+
+        List<MarketPrice> cached = priceRepository.findBySymbolIn(symbols);
+        Map<String, MarketPrice> result = new HashMap<>(cached.stream()
+                .filter(mp -> mp.getUpdatedAt() != null)
+                .filter(mp -> Duration.between(mp.getUpdatedAt(), LocalDateTime.now()).getSeconds() < getCacheTtlSeconds())
+                .collect(Collectors.toMap(MarketPrice::getSymbol, Function.identity(), (a, b) -> a)));
+
+        List<String> missing = symbols.stream()
+                .filter(s -> !result.containsKey(s))
+                .toList();
+
+        // Universe symbols are the refresher's job; only symbols outside it are fetched here
+        List<String> toFetch = symbolUniverse.isServing()
+                ? missing.stream().filter(s -> !symbolUniverse.contains(s)).toList()
+                : missing;
+        if (!toFetch.isEmpty()) {
+            result.putAll(fetchFromZerodhaLtp(toFetch));
+        }
+        return result;
+    }
+
     // ── Zerodha LTP API ─────────────────────────────────────────
 
     /**
@@ -186,7 +228,7 @@ public class MarketDataServiceImpl implements MarketDataService {
             return result;
         }
 
-        String accessToken = encryptionUtil.decryptSafe(active.getZerodhaAccessToken());
+        String accessToken = sessionCache.accessToken(active);
 
         String apiKey = active.getZerodhaApiKey();
 
@@ -210,8 +252,10 @@ public class MarketDataServiceImpl implements MarketDataService {
     }
 
     /**
-     * GET https://api.kite.trade/quote/ltp?i=NSE:RELIANCE&i=BSE:SBIN
-     * Response: { "status": "success", "data": { "NSE:RELIANCE": { "instrument_token": 738561, "last_price": 2680.30 } } }
+     * GET https://api.kite.trade/quote/ohlc?i=NSE:RELIANCE&i=BSE:SBIN
+     * Response: { "status": "success", "data": { "NSE:RELIANCE": { "instrument_token": 738561, "last_price": 2680.30,
+     *             "ohlc": { "open": 2650.0, "high": 2690.0, "low": 2640.0, "close": 2655.10 } } } }
+     * During market hours ohlc.close is the previous session's close.
      */
     private Map<String, MarketPrice> callZerodhaLtpApi(List<String> symbols, String apiKey, String accessToken, BrokerAccount active) {
         Map<String, MarketPrice> result = new HashMap<>();
@@ -223,7 +267,7 @@ public class MarketDataServiceImpl implements MarketDataService {
 
         try {
             String responseBody = webClient.get()
-                    .uri(KITE_BASE + "/quote/ltp?" + queryParams)
+                    .uri(KITE_BASE + "/quote/ohlc?" + queryParams)
                     .header("Authorization", "token " + apiKey + ":" + accessToken)
                     .header("X-Kite-Version", "3")
                     .retrieve()
@@ -245,10 +289,14 @@ public class MarketDataServiceImpl implements MarketDataService {
                 double lastPrice = priceNode.path("last_price").asDouble(0);
 
                 if (lastPrice > 0) {
+                    JsonNode ohlc = priceNode.path("ohlc");
                     result.put(symbol, MarketPrice.builder()
                             .symbol(symbol)
                             .currentPrice(new BigDecimal(Double.toString(lastPrice)).setScale(2, RoundingMode.HALF_UP))
-                            .previousClose(null) // LTP endpoint doesn't provide close — will be filled from canonical
+                            .previousClose(quotePrice(ohlc, "close"))
+                            .open(quotePrice(ohlc, "open"))
+                            .high(quotePrice(ohlc, "high"))
+                            .low(quotePrice(ohlc, "low"))
                             .updatedAt(LocalDateTime.now())
                             .build());
                 }
@@ -347,6 +395,12 @@ public class MarketDataServiceImpl implements MarketDataService {
         return result;
     }
 
+    /** Quote field as a 2dp price; null when absent or zero (Kite sends 0 for instruments that haven't traded). */
+    private static BigDecimal quotePrice(JsonNode ohlc, String field) {
+        double value = ohlc.path(field).asDouble(0);
+        return value > 0 ? new BigDecimal(Double.toString(value)).setScale(2, RoundingMode.HALF_UP) : null;
+    }
+
     private MarketPrice buildStalePrice(String symbol, BigDecimal price, BigDecimal close) {
         return MarketPrice.builder()
                 .symbol(symbol)
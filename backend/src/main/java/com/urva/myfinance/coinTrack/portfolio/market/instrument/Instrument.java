@@ -0,0 +1,33 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One row of the Kite instrument master, materialized from {@link InstrumentIndex}.
+ *
+ * @param instrumentType Kite instrument_type: EQ, FUT, CE, PE
+ * @param name           underlying for derivatives ("NIFTY"), company name for equity
+ * @param strike         null unless CE/PE
+ * @param expiry         null for instruments that don't expire
+ */
+public record Instrument(
+        long instrumentToken,
+        String exchange,
+        String tradingsymbol,
+        String name,
+        String segment,
+        String instrumentType,
+        int lotSize,
+        BigDecimal tickSize,
+        BigDecimal strike,
+        LocalDate expiry) {
+
+    public String canonicalSymbol() {
+        return exchange + ":" + tradingsymbol;
+    }
+
+    public boolean isDerivative() {
+        return expiry != null && !"EQ".equals(instrumentType);
+    }
+}
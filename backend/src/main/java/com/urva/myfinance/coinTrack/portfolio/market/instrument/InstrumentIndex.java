@@ -0,0 +1,599 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only index over the Kite instrument master, laid out in one flat file and memory-mapped,
+ * so ~100k instruments cost a few MB off-heap and nothing on the Java heap beyond three tiny
+ * dictionaries.
+ *
+ * Lookups by tradingsymbol (per exchange, or canonical "EXCHANGE:SYMBOL") and by instrument
+ * token are open-addressed hash probes over the mapped bytes: O(1), no regex and no allocation.
+ * They return a record index (or -1) that the accessors read fields from; {@link #get(int)}
+ * materializes an {@link Instrument} when a caller wants an object.
+ *
+ * File layout (big-endian):
+ * <pre>
+ * header      MAGIC, VERSION, count, symbolSlots, tokenSlots, records/symbols/tokens/pool/dict offsets, builtAt
+ * dict        exchanges, segments, instrument types (each: n, then n × [len, ISO-8859-1 bytes])
+ * records     count × RECORD_SIZE fixed-width rows (see R_* offsets)
+ * symbols     symbolSlots × int (record index + 1, 0 = empty), key = exchange + tradingsymbol
+ * tokens      tokenSlots × int (record index + 1, 0 = empty), key = instrument token
+ * pool        tradingsymbol (ISO-8859-1) and name (UTF-8) bytes
+ * </pre>
+ *
+ * Instances are immutable; a new trading day gets a new file and a new instance
+ * (see {@link InstrumentMaster}).
+ */
+public final class InstrumentIndex {
+
+    static final int MAGIC = 0x4B494458; // "KIDX"
+    static final int VERSION = 1;
+
+    private static final int H_COUNT = 8;
+    private static final int H_SYMBOL_SLOTS = 12;
+    private static final int H_TOKEN_SLOTS = 16;
+    private static final int H_RECORDS = 20;
+    private static final int H_SYMBOLS = 24;
+    private static final int H_TOKENS = 28;
+    private static final int H_POOL = 32;
+    private static final int H_DICT = 36;
+    private static final int H_BUILT_AT = 40;
+    private static final int HEADER_SIZE = 48;
+
+    private static final int R_TOKEN = 0;        // long
+    private static final int R_SYMBOL_OFF = 8;   // int
+    private static final int R_SYMBOL_LEN = 12;  // short
+    private static final int R_EXCHANGE = 14;    // byte (dict)
+    private static final int R_SEGMENT = 15;     // byte (dict)
+    private static final int R_TYPE = 16;        // byte (dict)
+    private static final int R_NAME_LEN = 18;    // short
+    private static final int R_NAME_OFF = 20;    // int
+    private static final int R_LOT_SIZE = 24;    // int
+    private static final int R_TICK = 28;        // int, tick size × 10^4
+    private static final int R_STRIKE = 32;      // long, strike × 10^4
+    private static final int R_EXPIRY = 40;      // int, epoch day or NO_EXPIRY
+    static final int RECORD_SIZE = 48;
+
+    private static final int PRICE_SCALE = 4;
+    private static final int NO_EXPIRY = Integer.MIN_VALUE;
+
+    private static final InstrumentIndex EMPTY = encode(new Rows(), Instant.EPOCH);
+
+    private final ByteBuffer buf;
+    private final int count;
+    private final int symbolMask;
+    private final int tokenMask;
+    private final int records;
+    private final int symbols;
+    private final int tokens;
+    private final int pool;
+    private final long builtAt;
+    private final String[] exchanges;
+    private final String[] segments;
+    private final String[] types;
+
+    private InstrumentIndex(ByteBuffer buf) {
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not an instrument index (or an older format)");
+        }
+        this.buf = buf;
+        this.count = buf.getInt(H_COUNT);
+        this.symbolMask = buf.getInt(H_SYMBOL_SLOTS) - 1;
+        this.tokenMask = buf.getInt(H_TOKEN_SLOTS) - 1;
+        this.records = buf.getInt(H_RECORDS);
+        this.symbols = buf.getInt(H_SYMBOLS);
+        this.tokens = buf.getInt(H_TOKENS);
+        this.pool = buf.getInt(H_POOL);
+        this.builtAt = buf.getLong(H_BUILT_AT);
+
+        int[] cursor = { buf.getInt(H_DICT) };
+        this.exchanges = readDict(buf, cursor);
+        this.segments = readDict(buf, cursor);
+        this.types = readDict(buf, cursor);
+    }
+
+    /** An index with no instruments — every lookup misses. Used until the first build completes. */
+    public static InstrumentIndex empty() {
+        return EMPTY;
+    }
+
+    /** Maps an index file written by {@link #write}. */
+    public static InstrumentIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new InstrumentIndex(mapped);
+        }
+    }
+
+    /**
+     * Parses a Kite instruments CSV (streamed, one line at a time) and writes the index to
+     * {@code target}. Returns the number of instruments written.
+     */
+    public static int write(Reader csv, Path target, Instant builtAt) throws IOException {
+        Rows rows = Rows.parse(csv);
+        long size = layoutSize(rows);
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            encodeInto(rows, out, builtAt);
+            out.force();
+        }
+        return rows.count;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public Instant builtAt() {
+        return Instant.ofEpochMilli(builtAt);
+    }
+
+    // ── Lookups ─────────────────────────────────────────────────
+
+    /** Record index for a tradingsymbol on an exchange ("NFO", "NIFTY24DECFUT"), or -1. */
+    public int indexOf(String exchange, CharSequence tradingsymbol) {
+        return tradingsymbol == null ? -1 : indexOf(exchange, tradingsymbol, 0, tradingsymbol.length());
+    }
+
+    /** As {@link #indexOf(String, CharSequence)} for {@code tradingsymbol[from, to)}, without a substring. */
+    public int indexOf(String exchange, CharSequence tradingsymbol, int from, int to) {
+        if (exchange == null || tradingsymbol == null) return -1;
+        int exchangeId = dictId(exchanges, exchange, 0, exchange.length());
+        return exchangeId < 0 ? -1 : probeSymbol(exchangeId, tradingsymbol, from, to);
+    }
+
+    /** Record index for a canonical "EXCHANGE:SYMBOL", or -1. */
+    public int indexOfCanonical(CharSequence canonicalSymbol) {
+        int colon = colonOf(canonicalSymbol);
+        if (colon <= 0) return -1;
+        int exchangeId = dictId(exchanges, canonicalSymbol, 0, colon);
+        return exchangeId < 0 ? -1 : probeSymbol(exchangeId, canonicalSymbol, colon + 1, canonicalSymbol.length());
+    }
+
+    /**
+     * As {@link #indexOfCanonical}, but a trailing "-SERIES" this index doesn't list falls back to
+     * the bare symbol ("NSE:SBIN-EQ" from Angel One → SBIN). Symbols listed with their suffix
+     * ("NSE:IDEA-BE") match as-is.
+     */
+    public int indexOfListed(CharSequence canonicalSymbol) {
+        int i = indexOfCanonical(canonicalSymbol);
+        if (i >= 0) return i;
+        int colon = colonOf(canonicalSymbol);
+        if (colon <= 0) return -1;
+        int dash = -1;
+        for (int j = canonicalSymbol.length() - 1; j > colon + 1; j--) {
+            if (canonicalSymbol.charAt(j) == '-') {
+                dash = j;
+                break;
+            }
+        }
+        if (dash < 0) return -1;
+        int exchangeId = dictId(exchanges, canonicalSymbol, 0, colon);
+        return exchangeId < 0 ? -1 : probeSymbol(exchangeId, canonicalSymbol, colon + 1, dash);
+    }
+
+    /** Record index for an instrument token, or -1. */
+    public int indexOfToken(long instrumentToken) {
+        if (count == 0) return -1;
+        int slot = mix(instrumentToken) & tokenMask;
+        while (true) {
+            int entry = buf.getInt(tokens + slot * Integer.BYTES);
+            if (entry == 0) return -1;
+            if (token(entry - 1) == instrumentToken) return entry - 1;
+            slot = (slot + 1) & tokenMask;
+        }
+    }
+
+    // ── Accessors (record index from a lookup) ──────────────────
+
+    public long token(int i) {
+        return buf.getLong(record(i) + R_TOKEN);
+    }
+
+    public String exchange(int i) {
+        return exchanges[buf.get(record(i) + R_EXCHANGE)];
+    }
+
+    public String segment(int i) {
+        return segments[buf.get(record(i) + R_SEGMENT)];
+    }
+
+    /** Kite instrument_type: EQ, FUT, CE, PE, ... */
+    public String instrumentType(int i) {
+        return types[buf.get(record(i) + R_TYPE)];
+    }
+
+    public int lotSize(int i) {
+        return buf.getInt(record(i) + R_LOT_SIZE);
+    }
+
+    public BigDecimal tickSize(int i) {
+        return price(buf.getInt(record(i) + R_TICK));
+    }
+
+    /** Strike for options; null for everything else. */
+    public BigDecimal strike(int i) {
+        String type = instrumentType(i);
+        if (!"CE".equals(type) && !"PE".equals(type)) return null;
+        return price(buf.getLong(record(i) + R_STRIKE));
+    }
+
+    /** Scaled long back to a plain decimal: 240000000 → 24000, 500 → 0.05 (never 2.4E+4). */
+    private static BigDecimal price(long scaled) {
+        BigDecimal value = BigDecimal.valueOf(scaled, PRICE_SCALE).stripTrailingZeros();
+        return value.scale() < 0 ? value.setScale(0) : value;
+    }
+
+    public LocalDate expiry(int i) {
+        int day = buf.getInt(record(i) + R_EXPIRY);
+        return day == NO_EXPIRY ? null : LocalDate.ofEpochDay(day);
+    }
+
+    public String tradingsymbol(int i) {
+        int r = record(i);
+        return poolString(buf.getInt(r + R_SYMBOL_OFF), buf.getShort(r + R_SYMBOL_LEN),
+                StandardCharsets.ISO_8859_1);
+    }
+
+    /** Kite "name" column — the underlying for derivatives, company name for equity. */
+    public String name(int i) {
+        int r = record(i);
+        return poolString(buf.getInt(r + R_NAME_OFF), buf.getShort(r + R_NAME_LEN), StandardCharsets.UTF_8);
+    }
+
+    public String canonicalSymbol(int i) {
+        return exchange(i) + ":" + tradingsymbol(i);
+    }
+
+    public Instrument get(int i) {
+        return new Instrument(token(i), exchange(i), tradingsymbol(i), name(i), segment(i), instrumentType(i),
+                lotSize(i), tickSize(i), strike(i), expiry(i));
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    private int record(int i) {
+        if (i < 0 || i >= count) throw new IndexOutOfBoundsException(i);
+        return records + i * RECORD_SIZE;
+    }
+
+    private static int colonOf(CharSequence canonicalSymbol) {
+        if (canonicalSymbol == null) return -1;
+        for (int i = 0; i < canonicalSymbol.length(); i++) {
+            if (canonicalSymbol.charAt(i) == ':') return i;
+        }
+        return -1;
+    }
+
+    private int probeSymbol(int exchangeId, CharSequence key, int from, int to) {
+        if (count == 0 || to <= from) return -1;
+        int slot = symbolHash(exchangeId, key, from, to) & symbolMask;
+        while (true) {
+            int entry = buf.getInt(symbols + slot * Integer.BYTES);
+            if (entry == 0) return -1;
+            int r = records + (entry - 1) * RECORD_SIZE;
+            if (buf.get(r + R_EXCHANGE) == exchangeId && symbolEquals(r, key, from, to)) return entry - 1;
+            slot = (slot + 1) & symbolMask;
+        }
+    }
+
+    private boolean symbolEquals(int r, CharSequence key, int from, int to) {
+        int len = buf.getShort(r + R_SYMBOL_LEN);
+        if (len != to - from) return false;
+        int off = pool + buf.getInt(r + R_SYMBOL_OFF);
+        for (int k = 0; k < len; k++) {
+            if ((buf.get(off + k) & 0xFF) != key.charAt(from + k)) return false;
+        }
+        return true;
+    }
+
+    private String poolString(int offset, int length, Charset charset) {
+        if (length == 0) return "";
+        byte[] bytes = new byte[length];
+        buf.get(pool + offset, bytes);
+        return new String(bytes, charset);
+    }
+
+    /** FNV-1a over the exchange id and the symbol's chars (ISO-8859-1, so chars == bytes). */
+    private static int symbolHash(int exchangeId, CharSequence key, int from, int to) {
+        int h = 0x811C9DC5 ^ exchangeId;
+        h *= 0x01000193;
+        for (int k = from; k < to; k++) {
+            h ^= key.charAt(k) & 0xFF;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int symbolHash(int exchangeId, byte[] bytes) {
+        int h = 0x811C9DC5 ^ exchangeId;
+        h *= 0x01000193;
+        for (byte b : bytes) {
+            h ^= b & 0xFF;
+            h *= 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int mix(long token) {
+        long h = token * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int dictId(String[] dict, CharSequence key, int from, int to) {
+        int len = to - from;
+        for (int d = 0; d < dict.length; d++) {
+            String entry = dict[d];
+            if (entry.length() != len) continue;
+            boolean match = true;
+            for (int k = 0; k < len && match; k++) {
+                match = entry.charAt(k) == key.charAt(from + k);
+            }
+            if (match) return d;
+        }
+        return -1;
+    }
+
+    private static String[] readDict(ByteBuffer buf, int[] cursor) {
+        int pos = cursor[0];
+        int n = buf.getInt(pos);
+        pos += Integer.BYTES;
+        String[] dict = new String[n];
+        for (int d = 0; d < n; d++) {
+            int len = buf.getShort(pos);
+            byte[] bytes = new byte[len];
+            buf.get(pos + Short.BYTES, bytes);
+            dict[d] = new String(bytes, StandardCharsets.ISO_8859_1).intern();
+            pos += Short.BYTES + len;
+        }
+        cursor[0] = pos;
+        return dict;
+    }
+
+    // ── Encoding ────────────────────────────────────────────────
+
+    private static InstrumentIndex encode(Rows rows, Instant builtAt) {
+        ByteBuffer out = ByteBuffer.allocate((int) layoutSize(rows));
+        encodeInto(rows, out, builtAt);
+        return new InstrumentIndex(out);
+    }
+
+    private static int tableSlots(int count) {
+        // Load factor ≤ 0.5 keeps probe chains short
+        return Integer.highestOneBit(Math.max(2, count * 2 - 1)) << 1;
+    }
+
+    private static int dictSize(List<String> dict) {
+        int size = Integer.BYTES;
+        for (String entry : dict) size += Short.BYTES + entry.length();
+        return size;
+    }
+
+    private static long layoutSize(Rows rows) {
+        long dict = dictSize(rows.exchanges) + dictSize(rows.segments) + dictSize(rows.types);
+        long recordsStart = align8(HEADER_SIZE + dict);
+        return recordsStart
+                + (long) rows.count * RECORD_SIZE
+                + (long) tableSlots(rows.count) * Integer.BYTES * 2
+                + rows.poolSize;
+    }
+
+    private static long align8(long n) {
+        return (n + 7) & ~7L;
+    }
+
+    private static void encodeInto(Rows rows, ByteBuffer out, Instant builtAt) {
+        int symbolSlots = tableSlots(rows.count);
+        int tokenSlots = symbolSlots;
+
+        int dict = HEADER_SIZE;
+        int pos = dict;
+        for (List<String> d : List.of(rows.exchanges, rows.segments, rows.types)) {
+            out.putInt(pos, d.size());
+            pos += Integer.BYTES;
+            for (String entry : d) {
+                byte[] bytes = entry.getBytes(StandardCharsets.ISO_8859_1);
+                out.putShort(pos, (short) bytes.length);
+                out.put(pos + Short.BYTES, bytes);
+                pos += Short.BYTES + bytes.length;
+            }
+        }
+        int records = (int) align8(pos);
+        int symbols = records + rows.count * RECORD_SIZE;
+        int tokens = symbols + symbolSlots * Integer.BYTES;
+        int pool = tokens + tokenSlots * Integer.BYTES;
+
+        out.putInt(0, MAGIC);
+        out.putInt(4, VERSION);
+        out.putInt(H_COUNT, rows.count);
+        out.putInt(H_SYMBOL_SLOTS, symbolSlots);
+        out.putInt(H_TOKEN_SLOTS, tokenSlots);
+        out.putInt(H_RECORDS, records);
+        out.putInt(H_SYMBOLS, symbols);
+        out.putInt(H_TOKENS, tokens);
+        out.putInt(H_POOL, pool);
+        out.putInt(H_DICT, dict);
+        out.putLong(H_BUILT_AT, builtAt.toEpochMilli());
+
+        for (int i = 0; i < rows.count; i++) {
+            int r = records + i * RECORD_SIZE;
+            out.putLong(r + R_TOKEN, rows.tokens[i]);
+            out.putInt(r + R_SYMBOL_OFF, rows.symbolOffsets[i]);
+            out.putShort(r + R_SYMBOL_LEN, (short) rows.symbolLengths[i]);
+            out.put(r + R_EXCHANGE, rows.exchangeIds[i]);
+            out.put(r + R_SEGMENT, rows.segmentIds[i]);
+            out.put(r + R_TYPE, rows.typeIds[i]);
+            out.putShort(r + R_NAME_LEN, (short) rows.nameLengths[i]);
+            out.putInt(r + R_NAME_OFF, rows.nameOffsets[i]);
+            out.putInt(r + R_LOT_SIZE, rows.lotSizes[i]);
+            out.putInt(r + R_TICK, rows.ticks[i]);
+            out.putLong(r + R_STRIKE, rows.strikes[i]);
+            out.putInt(r + R_EXPIRY, rows.expiries[i]);
+
+            // First row wins on duplicate keys; Kite keys are unique per exchange in practice
+            byte[] symbol = Arrays.copyOfRange(rows.pool, rows.symbolOffsets[i],
+                    rows.symbolOffsets[i] + rows.symbolLengths[i]);
+            insert(out, symbols, symbolSlots - 1, symbolHash(rows.exchangeIds[i], symbol), i);
+            insert(out, tokens, tokenSlots - 1, mix(rows.tokens[i]), i);
+        }
+        out.put(pool, rows.pool, 0, rows.poolSize);
+    }
+
+    private static void insert(ByteBuffer out, int table, int mask, int hash, int recordIndex) {
+        int slot = hash & mask;
+        while (out.getInt(table + slot * Integer.BYTES) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        out.putInt(table + slot * Integer.BYTES, recordIndex + 1);
+    }
+
+    /** Parsed CSV held in primitive columns until it is encoded. */
+    private static final class Rows {
+        final List<String> exchanges = new ArrayList<>();
+        final List<String> segments = new ArrayList<>();
+        final List<String> types = new ArrayList<>();
+
+        int count;
+        long[] tokens = new long[1024];
+        int[] symbolOffsets = new int[1024];
+        int[] symbolLengths = new int[1024];
+        int[] nameOffsets = new int[1024];
+        int[] nameLengths = new int[1024];
+        byte[] exchangeIds = new byte[1024];
+        byte[] segmentIds = new byte[1024];
+        byte[] typeIds = new byte[1024];
+        int[] lotSizes = new int[1024];
+        int[] ticks = new int[1024];
+        long[] strikes = new long[1024];
+        int[] expiries = new int[1024];
+        byte[] pool = new byte[16 * 1024];
+        int poolSize;
+
+        static Rows parse(Reader csv) throws IOException {
+            Rows rows = new Rows();
+            BufferedReader reader = csv instanceof BufferedReader b ? b : new BufferedReader(csv, 64 * 1024);
+            String header = reader.readLine();
+            if (header == null) return rows;
+            KiteInstrumentCsv columns = KiteInstrumentCsv.fromHeader(header);
+
+            String[] fields = new String[columns.width()];
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) continue;
+                if (KiteInstrumentCsv.split(line, fields) < columns.width()) continue;
+                rows.add(columns, fields);
+            }
+            return rows;
+        }
+
+        private void add(KiteInstrumentCsv c, String[] f) {
+            long token;
+            try {
+                token = Long.parseLong(f[c.token()]);
+            } catch (NumberFormatException e) {
+                return; // malformed row — skip, the rest of the dump is still usable
+            }
+            String symbol = f[c.tradingsymbol()];
+            if (symbol.isEmpty()) return;
+
+            grow();
+            int i = count++;
+            tokens[i] = token;
+            symbolOffsets[i] = poolSize;
+            symbolLengths[i] = append(symbol.getBytes(StandardCharsets.ISO_8859_1));
+            nameOffsets[i] = poolSize;
+            nameLengths[i] = append(f[c.name()].getBytes(StandardCharsets.UTF_8));
+            exchangeIds[i] = dictId(exchanges, f[c.exchange()]);
+            segmentIds[i] = dictId(segments, f[c.segment()]);
+            typeIds[i] = dictId(types, f[c.instrumentType()]);
+            lotSizes[i] = parseInt(f[c.lotSize()]);
+            ticks[i] = (int) scaled(f[c.tickSize()]);
+            strikes[i] = scaled(f[c.strike()]);
+            expiries[i] = parseExpiry(f[c.expiry()]);
+        }
+
+        private int append(byte[] bytes) {
+            int len = Math.min(bytes.length, Short.MAX_VALUE);
+            if (poolSize + len > pool.length) {
+                pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + len));
+            }
+            System.arraycopy(bytes, 0, pool, poolSize, len);
+            poolSize += len;
+            return len;
+        }
+
+        private void grow() {
+            if (count < tokens.length) return;
+            int n = tokens.length * 2;
+            tokens = Arrays.copyOf(tokens, n);
+            symbolOffsets = Arrays.copyOf(symbolOffsets, n);
+            symbolLengths = Arrays.copyOf(symbolLengths, n);
+            nameOffsets = Arrays.copyOf(nameOffsets, n);
+            nameLengths = Arrays.copyOf(nameLengths, n);
+            exchangeIds = Arrays.copyOf(exchangeIds, n);
+            segmentIds = Arrays.copyOf(segmentIds, n);
+            typeIds = Arrays.copyOf(typeIds, n);
+            lotSizes = Arrays.copyOf(lotSizes, n);
+            ticks = Arrays.copyOf(ticks, n);
+            strikes = Arrays.copyOf(strikes, n);
+            expiries = Arrays.copyOf(expiries, n);
+        }
+
+        private static byte dictId(List<String> dict, String value) {
+            int id = dict.indexOf(value);
+            if (id < 0) {
+                if (dict.size() == Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many distinct values for a one-byte dictionary: " + value);
+                }
+                dict.add(value);
+                id = dict.size() - 1;
+            }
+            return (byte) id;
+        }
+
+        private static int parseInt(String value) {
+            try {
+                return value.isEmpty() ? 0 : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        private static int parseExpiry(String value) {
+            try {
+                return value.isEmpty() ? NO_EXPIRY : (int) LocalDate.parse(value).toEpochDay();
+            } catch (DateTimeParseException e) {
+                return NO_EXPIRY;
+            }
+        }
+
+        private static long scaled(String value) {
+            try {
+                return value.isEmpty() ? 0
+                        : new BigDecimal(value).movePointRight(PRICE_SCALE).setScale(0, RoundingMode.HALF_UP)
+                                .longValueExact();
+            } catch (ArithmeticException | NumberFormatException e) {
+                return 0;
+            }
+        }
+    }
+}
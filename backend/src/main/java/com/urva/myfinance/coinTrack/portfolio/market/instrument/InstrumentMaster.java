@@ -0,0 +1,214 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+
+/**
+ * Owns the current {@link InstrumentIndex}: downloads Kite's instruments dump each morning
+ * before the open, builds a new index file beside the old one, and swaps it in atomically.
+ *
+ * - The CSV is streamed to disk, never buffered in memory (it is several MB, well past the
+ *   WebClient in-memory limit), then parsed line by line into the index.
+ * - The finished file is renamed into place and mapped; readers holding the previous index
+ *   keep using it until they next call {@link #index()}.
+ * - On startup the newest index on disk is mapped immediately; if it was built before today
+ *   (IST) a rebuild follows on a background thread, so a slow download doesn't hold up
+ *   startup. Until it lands, readers see the mapped (or empty) index.
+ * - A dump that is empty or less than half the size of the current one is rejected, keeping
+ *   yesterday's index rather than serving a truncated one.
+ */
+@Service
+public class InstrumentMaster {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentMaster.class);
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+    private static final Duration DOWNLOAD_TIMEOUT = Duration.ofMinutes(2);
+    private static final String INDEX_GLOB = "instruments-*.idx";
+
+    private final BrokerAccountRepository brokerAccountRepository;
+    private final EncryptionUtil encryptionUtil;
+    private final WebClient webClient;
+    private final boolean enabled;
+    private final String url;
+    private final Path dir;
+    private final Counter rebuilt;
+    private final Counter rejected;
+
+    private volatile InstrumentIndex index = InstrumentIndex.empty();
+
+    public InstrumentMaster(BrokerAccountRepository brokerAccountRepository,
+                            EncryptionUtil encryptionUtil,
+                            WebClient.Builder brokerWebClientBuilder,
+                            MeterRegistry meterRegistry,
+                            @Value("${kite.instruments.enabled:true}") boolean enabled,
+                            @Value("${kite.instruments.url:https://api.kite.trade/instruments}") String url,
+                            @Value("${kite.instruments.dir:${java.io.tmpdir}/cointrack-instruments}") Path dir) {
+        this.brokerAccountRepository = brokerAccountRepository;
+        this.encryptionUtil = encryptionUtil;
+        this.webClient = brokerWebClientBuilder.build();
+        this.enabled = enabled;
+        this.url = url;
+        this.dir = dir;
+        this.rebuilt = Counter.builder("kite.instruments.rebuild").tag("outcome", "success").register(meterRegistry);
+        this.rejected = Counter.builder("kite.instruments.rebuild").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("kite.instruments.loaded", this, m -> m.index.size()).register(meterRegistry);
+    }
+
+    /** The current index; never null (empty until the first build or load). */
+    public InstrumentIndex index() {
+        return index;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) return;
+        try {
+            Path newest = newestIndexFile();
+            if (newest != null) {
+                index = InstrumentIndex.open(newest);
+                log.info("Instrument master mapped from {} ({} instruments)", newest, index.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not map the instrument index on disk: {}", e.getMessage());
+        }
+        if (!builtToday(index)) {
+            Thread.ofVirtual().name("instrument-master-refresh").start(this::refresh);
+        }
+    }
+
+    /** Kite publishes the day's dump around 08:30 IST; rebuild before the 09:15 open. */
+    @Scheduled(cron = "${kite.instruments.refresh-cron:0 40 8 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void refresh() {
+        if (!enabled) return;
+        Path csv = dir.resolve("instruments-" + System.currentTimeMillis() + ".csv.part");
+        try {
+            Files.createDirectories(dir);
+            download(csv);
+            rebuild(csv);
+        } catch (Exception e) {
+            rejected.increment();
+            log.warn("Instrument master refresh failed, keeping the index built at {}: {}",
+                    index.builtAt(), e.getMessage());
+        } finally {
+            deleteQuietly(csv);
+        }
+    }
+
+    /**
+     * Builds an index from a CSV on disk and swaps it in. Package-private so tests can feed a
+     * fixture instead of the live download.
+     */
+    synchronized void rebuild(Path csv) throws IOException {
+        Files.createDirectories(dir);
+        Instant now = Instant.now();
+        Path part = dir.resolve("instruments-" + now.toEpochMilli() + ".idx.part");
+        Path target = dir.resolve("instruments-" + now.toEpochMilli() + ".idx");
+        int count;
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            count = InstrumentIndex.write(reader, part, now);
+        }
+
+        int current = index.size();
+        if (count == 0 || count < current / 2) {
+            deleteQuietly(part);
+            throw new IOException("instrument dump has " + count + " rows (current index has " + current + ")");
+        }
+
+        Files.move(part, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        index = InstrumentIndex.open(target);
+        rebuilt.increment();
+        log.info("Instrument master rebuilt: {} instruments → {}", count, target);
+
+        // Unlinking a mapped file is safe: the old mapping lives until the last reader drops it
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, INDEX_GLOB)) {
+            for (Path file : files) {
+                if (!file.equals(target)) deleteQuietly(file);
+            }
+        }
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    private void download(Path target) {
+        BrokerAccount account = findKiteAccount();
+        Flux<DataBuffer> body = webClient.get()
+                .uri(url)
+                .headers(h -> {
+                    h.set("X-Kite-Version", "3");
+                    if (account != null) {
+                        h.set("Authorization", "token " + account.getZerodhaApiKey() + ":"
+                                + encryptionUtil.decryptSafe(account.getZerodhaAccessToken()));
+                    }
+                })
+                .retrieve()
+                .bodyToFlux(DataBuffer.class);
+        DataBufferUtils.write(body, target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE).block(DOWNLOAD_TIMEOUT);
+    }
+
+    /** Same rule as the ticker and LTP paths; the dump is also served without credentials. */
+    private BrokerAccount findKiteAccount() {
+        return brokerAccountRepository.findByBroker(Broker.ZERODHA).stream()
+                .filter(a -> Boolean.TRUE.equals(a.getIsActive()) && !a.isTokenExpired())
+                .filter(a -> a.getZerodhaAccessToken() != null && a.getZerodhaApiKey() != null)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Path newestIndexFile() throws IOException {
+        if (!Files.isDirectory(dir)) return null;
+        Path newest = null;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, INDEX_GLOB)) {
+            for (Path file : files) {
+                if (newest == null || file.getFileName().toString().compareTo(newest.getFileName().toString()) > 0) {
+                    newest = file;
+                }
+            }
+        }
+        return newest;
+    }
+
+    private static boolean builtToday(InstrumentIndex index) {
+        return index.size() > 0
+                && LocalDate.ofInstant(index.builtAt(), INDIA_ZONE).equals(LocalDate.now(INDIA_ZONE));
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+/**
+ * Column positions in Kite's instruments dump, resolved from its header row:
+ * instrument_token,exchange_token,tradingsymbol,name,last_price,expiry,strike,tick_size,lot_size,instrument_type,segment,exchange
+ */
+record KiteInstrumentCsv(int token, int tradingsymbol, int name, int expiry, int strike, int tickSize,
+                         int lotSize, int instrumentType, int segment, int exchange) {
+
+    static KiteInstrumentCsv fromHeader(String header) {
+        String[] names = header.split(",", -1);
+        return new KiteInstrumentCsv(
+                column(names, "instrument_token"), column(names, "tradingsymbol"), column(names, "name"),
+                column(names, "expiry"), column(names, "strike"), column(names, "tick_size"),
+                column(names, "lot_size"), column(names, "instrument_type"), column(names, "segment"),
+                column(names, "exchange"));
+    }
+
+    /** Number of leading fields a row must have to cover every column used. */
+    int width() {
+        int max = 0;
+        for (int c : new int[] { token, tradingsymbol, name, expiry, strike, tickSize, lotSize, instrumentType,
+                segment, exchange }) {
+            max = Math.max(max, c);
+        }
+        return max + 1;
+    }
+
+    /**
+     * Splits one CSV line into {@code fields} (extra columns are dropped), honouring double
+     * quotes — Kite quotes the name column. Returns the number of fields seen.
+     */
+    static int split(String line, String[] fields) {
+        int n = 0;
+        int i = 0;
+        int len = line.length();
+        StringBuilder quoted = null;
+        while (i <= len) {
+            String value;
+            if (i < len && line.charAt(i) == '"') {
+                if (quoted == null) quoted = new StringBuilder();
+                quoted.setLength(0);
+                i++;
+                while (i < len) {
+                    char ch = line.charAt(i++);
+                    if (ch == '"') {
+                        if (i < len && line.charAt(i) == '"') {
+                            quoted.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        quoted.append(ch);
+                    }
+                }
+                value = quoted.toString();
+                int comma = line.indexOf(',', i);
+                i = comma < 0 ? len + 1 : comma + 1;
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? len : comma;
+                value = line.substring(i, end);
+                i = end + 1;
+            }
+            if (n < fields.length) fields[n] = value.trim();
+            n++;
+        }
+        return n;
+    }
+
+    private static int column(String[] header, String name) {
+        for (int i = 0; i < header.length; i++) {
+            if (header[i].trim().equalsIgnoreCase(name)) return i;
+        }
+        throw new IllegalArgumentException("Kite instruments CSV has no '" + name + "' column");
+    }
+}
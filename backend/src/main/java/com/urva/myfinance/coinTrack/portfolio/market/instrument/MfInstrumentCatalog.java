@@ -0,0 +1,196 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.broker.service.ZerodhaLiveDataService;
+import com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentDTO;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Kite's MF instrument list, downloaded at most once per trading day (IST) and shared by all
+ * users, indexed by ISIN and tradingsymbol.
+ *
+ * - The first request of the day loads it, using the caller's Zerodha account if connected,
+ *   otherwise any active one; concurrent callers wait for that single load.
+ * - If a load fails, the previous day's list keeps being served and the load is retried after
+ *   {@code mf.instruments.retry-interval}.
+ * - Listings filter and page over the in-memory snapshot; an ISIN lookup is one map probe.
+ */
+@Service
+public class MfInstrumentCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(MfInstrumentCatalog.class);
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+
+    /** Cached list for one day. Immutable once published. */
+    record Snapshot(LocalDate day, LocalDateTime loadedAt, List<MfInstrumentDTO> instruments,
+                    String[] searchKeys, Map<String, MfInstrumentDTO> byIsin,
+                    Map<String, MfInstrumentDTO> bySymbol) {
+
+        static final Snapshot EMPTY = new Snapshot(LocalDate.MIN, null, List.of(), new String[0], Map.of(), Map.of());
+
+        static Snapshot of(LocalDate day, List<MfInstrumentDTO> instruments) {
+            String[] searchKeys = new String[instruments.size()];
+            Map<String, MfInstrumentDTO> byIsin = new HashMap<>(instruments.size() * 2);
+            Map<String, MfInstrumentDTO> bySymbol = new HashMap<>(instruments.size() * 2);
+            for (int i = 0; i < instruments.size(); i++) {
+                MfInstrumentDTO dto = instruments.get(i);
+                searchKeys[i] = lower(dto.getName()) + '\u0000' + lower(dto.getTradingSymbol());
+                if (dto.getIsin() != null) byIsin.putIfAbsent(upper(dto.getIsin()), dto);
+                if (dto.getTradingSymbol() != null) bySymbol.putIfAbsent(upper(dto.getTradingSymbol()), dto);
+            }
+            return new Snapshot(day, LocalDateTime.now(), Collections.unmodifiableList(instruments), searchKeys,
+                    byIsin, bySymbol);
+        }
+    }
+
+    /** One page of matches plus the total count; size is null when every match was returned. */
+    public record Result(List<MfInstrumentDTO> data, long total, int page, Integer size,
+                         LocalDateTime loadedAt) {
+    }
+
+    private final ZerodhaLiveDataService zerodhaLiveDataService;
+    private final BrokerAccountRepository brokerAccountRepository;
+    private final Duration retryInterval;
+    private final Counter loaded;
+    private final Counter failed;
+    private final Object loadLock = new Object();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile Instant lastFailure = Instant.MIN;
+
+    public MfInstrumentCatalog(ZerodhaLiveDataService zerodhaLiveDataService,
+                               BrokerAccountRepository brokerAccountRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${mf.instruments.retry-interval:5m}") Duration retryInterval) {
+        this.zerodhaLiveDataService = zerodhaLiveDataService;
+        this.brokerAccountRepository = brokerAccountRepository;
+        this.retryInterval = retryInterval;
+        this.loaded = Counter.builder("mf.instruments.refresh").tag("outcome", "success").register(meterRegistry);
+        this.failed = Counter.builder("mf.instruments.refresh").tag("outcome", "failure").register(meterRegistry);
+        Gauge.builder("mf.instruments.loaded", this, c -> c.snapshot.instruments().size()).register(meterRegistry);
+    }
+
+    public Result query(String userId, MfInstrumentQuery query) {
+        return query(current(userId, LocalDate.now(INDIA_ZONE)), query);
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    Snapshot current(String userId, LocalDate today) {
+        Snapshot current = snapshot;
+        if (current.day().equals(today) || recentlyFailed()) return current;
+        synchronized (loadLock) {
+            current = snapshot;
+            if (current.day().equals(today) || recentlyFailed()) return current;
+            BrokerAccount account = findAccount(userId);
+            if (account == null) {
+                log.debug("No connected Zerodha account to load MF instruments with");
+                return current;
+            }
+            try {
+                List<MfInstrumentDTO> instruments = zerodhaLiveDataService.fetchMfInstruments(account);
+                if (instruments.isEmpty()) throw new IllegalStateException("empty MF instrument list");
+                snapshot = Snapshot.of(today, instruments);
+                loaded.increment();
+                log.info("MF instrument catalog loaded: {} schemes", instruments.size());
+            } catch (RuntimeException e) {
+                lastFailure = Instant.now();
+                failed.increment();
+                log.warn("MF instrument catalog load failed, serving {} cached schemes: {}",
+                        current.instruments().size(), e.getMessage());
+            }
+            return snapshot;
+        }
+    }
+
+    static Result query(Snapshot snapshot, MfInstrumentQuery query) {
+        List<MfInstrumentDTO> matches;
+        if (!blank(query.isin())) {
+            String key = upper(query.isin().trim());
+            MfInstrumentDTO dto = snapshot.byIsin().get(key);
+            if (dto == null) dto = snapshot.bySymbol().get(key);
+            matches = dto != null && matchesFilters(dto, query) ? List.of(dto) : List.of();
+        } else if (blank(query.search()) && blank(query.amc()) && blank(query.plan()) && blank(query.schemeType())) {
+            matches = snapshot.instruments();
+        } else {
+            String search = blank(query.search()) ? null : lower(query.search().trim());
+            matches = new ArrayList<>();
+            List<MfInstrumentDTO> instruments = snapshot.instruments();
+            for (int i = 0; i < instruments.size(); i++) {
+                if (search != null && !snapshot.searchKeys()[i].contains(search)) continue;
+                if (matchesFilters(instruments.get(i), query)) matches.add(instruments.get(i));
+            }
+        }
+
+        if (query.size() == null) {
+            return new Result(matches, matches.size(), 0, null, snapshot.loadedAt());
+        }
+        int size = Math.min(Math.max(query.size(), 1), MfInstrumentQuery.MAX_PAGE_SIZE);
+        int page = Math.max(query.page(), 0);
+        long from = (long) page * size;
+        List<MfInstrumentDTO> data = from >= matches.size() ? List.of()
+                : matches.subList((int) from, (int) Math.min(from + size, matches.size()));
+        return new Result(data, matches.size(), page, size, snapshot.loadedAt());
+    }
+
+    private static boolean matchesFilters(MfInstrumentDTO dto, MfInstrumentQuery query) {
+        return equalsIgnoreCase(query.amc(), dto.getAmc())
+                && equalsIgnoreCase(query.plan(), dto.getPlan())
+                && equalsIgnoreCase(query.schemeType(), dto.getSchemeType());
+    }
+
+    private static boolean equalsIgnoreCase(String filter, String value) {
+        return blank(filter) || filter.trim().equalsIgnoreCase(value);
+    }
+
+    private boolean recentlyFailed() {
+        return lastFailure.isAfter(Instant.now().minus(retryInterval));
+    }
+
+    /** The caller's own connected Zerodha account first; the list is the same for everyone. */
+    private BrokerAccount findAccount(String userId) {
+        if (userId != null) {
+            for (BrokerAccount account : brokerAccountRepository.findByUserId(userId)) {
+                if (account.getBroker() == Broker.ZERODHA && account.hasValidToken()) return account;
+            }
+        }
+        return brokerAccountRepository.findByBroker(Broker.ZERODHA).stream()
+                .filter(a -> Boolean.TRUE.equals(a.getIsActive()) && a.hasValidToken())
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static String lower(String s) {
+        return s == null ? "" : s.toLowerCase(Locale.ROOT);
+    }
+
+    private static String upper(String s) {
+        return s.toUpperCase(Locale.ROOT);
+    }
+}
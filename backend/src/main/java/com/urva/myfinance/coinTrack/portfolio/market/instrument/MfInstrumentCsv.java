@@ -0,0 +1,252 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentDTO;
+
+/**
+ * Streaming parser for Kite's MF instruments dump:
+ * tradingsymbol,amc,name,purchase_allowed,redemption_allowed,minimum_purchase_amount,...,last_price,last_price_date
+ *
+ * Reads the body through a fixed char buffer, one row at a time, so memory is one row plus the
+ * DTOs handed to the sink. Columns are resolved once from the header; rows are split with a
+ * quote-aware scanner into a reused field array (no regex, no per-row map). Low-cardinality
+ * values (AMC, plan, scheme type, ...) share one String instance per distinct value.
+ *
+ * Columns the DTO doesn't model are kept in {@code raw}; it is null when there are none.
+ */
+public final class MfInstrumentCsv {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder(64);
+    private final Map<String, String> shared = new HashMap<>();
+    private int pos;
+    private int limit;
+
+    private MfInstrumentCsv(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** Parses every data row into {@code sink}; returns the number of instruments. */
+    public static int parse(Reader reader, Consumer<MfInstrumentDTO> sink) throws IOException {
+        return new MfInstrumentCsv(reader).run(sink);
+    }
+
+    private int run(Consumer<MfInstrumentDTO> sink) throws IOException {
+        String[] header = new String[32];
+        int width;
+        while ((width = readRow(header)) == 0) {
+            // skip blank lines before the header
+        }
+        if (width < 0) return 0;
+        width = Math.min(width, header.length);
+        Columns columns = new Columns(header, width);
+
+        String[] fields = new String[width];
+        int count = 0;
+        int n;
+        while ((n = readRow(fields)) >= 0) {
+            if (n == 0 || fields[0] == null || fields[0].isEmpty()) continue;
+            sink.accept(columns.toDto(fields, Math.min(n, width), this));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Reads one record into {@code fields}, honouring double quotes (quoted fields may contain
+     * commas, doubled quotes and line breaks). Returns the number of fields, 0 for a blank line,
+     * -1 at end of input. Fields beyond {@code fields.length} are dropped.
+     */
+    private int readRow(String[] fields) throws IOException {
+        int n = 0;
+        int c = read();
+        if (c < 0) return -1;
+        if (c == '\n') return 0;
+        if (c == '\r') {
+            if (peek() == '\n') pos++;
+            return 0;
+        }
+        while (true) {
+            field.setLength(0);
+            if (c == '"') {
+                while (true) {
+                    c = read();
+                    if (c < 0) break;
+                    if (c == '"') {
+                        if (peek() == '"') {
+                            pos++;
+                            field.append('"');
+                        } else {
+                            c = read();
+                            break;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                }
+            }
+            while (c >= 0 && c != ',' && c != '\n' && c != '\r') {
+                field.append((char) c);
+                c = read();
+            }
+            if (n < fields.length) fields[n] = trimmed();
+            n++;
+            if (c == ',') {
+                c = read();
+                continue;
+            }
+            if (c == '\r' && peek() == '\n') pos++;
+            return n;
+        }
+    }
+
+    private String trimmed() {
+        int start = 0;
+        int end = field.length();
+        while (start < end && field.charAt(start) <= ' ') start++;
+        while (end > start && field.charAt(end - 1) <= ' ') end--;
+        return start == end ? "" : field.substring(start, end);
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) return false;
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    private String share(String value) {
+        if (value == null || value.isEmpty()) return value;
+        String existing = shared.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    /** Header positions; -1 for columns absent from this dump. */
+    private static final class Columns {
+        private final String[] names;
+        private final int tradingSymbol;
+        private final int amc;
+        private final int name;
+        private final int purchaseAllowed;
+        private final int redemptionAllowed;
+        private final int minimumPurchaseAmount;
+        private final int purchaseAmountMultiplier;
+        private final int minimumAdditionalPurchaseAmount;
+        private final int minimumRedemptionQuantity;
+        private final int redemptionQuantityMultiplier;
+        private final int dividendType;
+        private final int schemeType;
+        private final int plan;
+        private final int settlementType;
+        private final int lastPrice;
+        private final int lastPriceDate;
+        private final int isin;
+        private final boolean[] modelled;
+
+        Columns(String[] header, int width) {
+            this.names = Arrays.copyOf(header, width);
+            this.modelled = new boolean[width];
+            this.tradingSymbol = column("tradingsymbol");
+            this.amc = column("amc");
+            this.name = column("name");
+            this.purchaseAllowed = column("purchase_allowed");
+            this.redemptionAllowed = column("redemption_allowed");
+            this.minimumPurchaseAmount = column("minimum_purchase_amount");
+            this.purchaseAmountMultiplier = column("purchase_amount_multiplier");
+            this.minimumAdditionalPurchaseAmount = column("minimum_additional_purchase_amount");
+            this.minimumRedemptionQuantity = column("minimum_redemption_quantity");
+            this.redemptionQuantityMultiplier = column("redemption_quantity_multiplier");
+            this.dividendType = column("dividend_type");
+            this.schemeType = column("scheme_type");
+            this.plan = column("plan");
+            this.settlementType = column("settlement_type");
+            this.lastPrice = column("last_price");
+            this.lastPriceDate = column("last_price_date");
+            this.isin = column("isin");
+            if (tradingSymbol < 0) {
+                throw new IllegalArgumentException("Kite MF instruments CSV has no 'tradingsymbol' column");
+            }
+        }
+
+        MfInstrumentDTO toDto(String[] fields, int n, MfInstrumentCsv csv) {
+            MfInstrumentDTO dto = new MfInstrumentDTO();
+            String symbol = get(fields, n, tradingSymbol);
+            dto.setTradingSymbol(symbol);
+            dto.setName(get(fields, n, name));
+            String amcName = csv.share(get(fields, n, amc));
+            dto.setAmc(amcName);
+            dto.setFundHouse(amcName);
+            // Kite's MF tradingsymbol is the scheme's ISIN; prefer an explicit column if one appears
+            String isinValue = get(fields, n, isin);
+            dto.setIsin(isinValue != null && !isinValue.isEmpty() ? isinValue : symbol);
+            dto.setSchemeType(csv.share(get(fields, n, schemeType)));
+            dto.setPlan(csv.share(get(fields, n, plan)));
+            dto.setDividendType(csv.share(get(fields, n, dividendType)));
+            dto.setSettlementType(csv.share(get(fields, n, settlementType)));
+            dto.setLastPriceDate(csv.share(get(fields, n, lastPriceDate)));
+            dto.setPurchaseAllowed("1".equals(get(fields, n, purchaseAllowed)));
+            dto.setRedemptionAllowed("1".equals(get(fields, n, redemptionAllowed)));
+            dto.setMinimumPurchaseAmount(decimal(get(fields, n, minimumPurchaseAmount)));
+            dto.setPurchaseAmountMultiplier(decimal(get(fields, n, purchaseAmountMultiplier)));
+            dto.setMinimumAdditionalPurchaseAmount(decimal(get(fields, n, minimumAdditionalPurchaseAmount)));
+            dto.setMinimumRedemptionQuantity(decimal(get(fields, n, minimumRedemptionQuantity)));
+            dto.setRedemptionQuantityMultiplier(decimal(get(fields, n, redemptionQuantityMultiplier)));
+            dto.setLastPrice(decimal(get(fields, n, lastPrice)));
+
+            Map<String, Object> raw = null;
+            for (int i = 0; i < n; i++) {
+                if (modelled[i] || names[i] == null || names[i].isEmpty()) continue;
+                if (raw == null) raw = new LinkedHashMap<>();
+                raw.put(names[i], fields[i]);
+            }
+            dto.setRaw(raw);
+            return dto;
+        }
+
+        private int column(String wanted) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i] != null && names[i].equalsIgnoreCase(wanted)) {
+                    modelled[i] = true;
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static String get(String[] fields, int n, int column) {
+            return column >= 0 && column < n ? fields[column] : null;
+        }
+
+        /** Same leniency as the old parser: blank or malformed numbers read as zero. */
+        private static BigDecimal decimal(String value) {
+            if (value == null || value.isEmpty() || "null".equalsIgnoreCase(value)) return BigDecimal.ZERO;
+            try {
+                return new BigDecimal(value);
+            } catch (NumberFormatException e) {
+                return BigDecimal.ZERO;
+            }
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+/**
+ * Filters for the MF instruments listing. Null or blank filters match everything; text filters
+ * are case-insensitive. A null {@code size} returns every match (the original unpaged contract).
+ *
+ * @param search     substring of the scheme name or tradingsymbol
+ * @param isin       exact ISIN (or Kite MF tradingsymbol, which is the ISIN)
+ * @param amc        exact AMC name
+ * @param plan       e.g. "direct", "regular"
+ * @param schemeType e.g. "equity", "debt"
+ * @param page       0-based page, used with size
+ * @param size       page size, capped at {@link #MAX_PAGE_SIZE}
+ */
+public record MfInstrumentQuery(String search, String isin, String amc, String plan, String schemeType,
+                                int page, Integer size) {
+
+    public static final int MAX_PAGE_SIZE = 500;
+
+    public static MfInstrumentQuery all() {
+        return new MfInstrumentQuery(null, null, null, null, null, 0, null);
+    }
+}
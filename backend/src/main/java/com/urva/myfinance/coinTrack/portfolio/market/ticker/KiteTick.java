@@ -0,0 +1,99 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import java.math.BigDecimal;
+
+/**
+ * Mutable, reusable view of ONE decoded Kite ticker packet.
+ *
+ * The decoder owns a single instance per connection and overwrites it for every packet,
+ * so handlers must copy what they need before returning — never keep a reference.
+ *
+ * Prices are kept as the raw integers from the wire plus a decimal scale
+ * (paise → scale 2, BCD → 4, CDS → 7), so the BigDecimal accessors are exact.
+ */
+public final class KiteTick {
+
+    public enum Mode { LTP, QUOTE, FULL }
+
+    long instrumentToken;
+    Mode mode;
+    boolean index;
+    int scale;
+
+    int lastPrice;
+    int open;
+    int high;
+    int low;
+    int close;
+    long volume;
+    /** Exchange timestamp (epoch seconds), 0 if the packet does not carry one. */
+    long exchangeTimestamp;
+
+    public long instrumentToken() {
+        return instrumentToken;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    public boolean isIndex() {
+        return index;
+    }
+
+    /** True when the packet carried open/high/low/close (everything except LTP mode). */
+    public boolean hasOhlc() {
+        return mode != Mode.LTP;
+    }
+
+    public BigDecimal lastPrice() {
+        return price(lastPrice);
+    }
+
+    public BigDecimal open() {
+        return hasOhlc() ? price(open) : null;
+    }
+
+    public BigDecimal high() {
+        return hasOhlc() ? price(high) : null;
+    }
+
+    public BigDecimal low() {
+        return hasOhlc() ? price(low) : null;
+    }
+
+    /** Previous trading day's close. */
+    public BigDecimal close() {
+        return hasOhlc() ? price(close) : null;
+    }
+
+    public long volume() {
+        return volume;
+    }
+
+    public long exchangeTimestamp() {
+        return exchangeTimestamp;
+    }
+
+    public int rawLastPrice() {
+        return lastPrice;
+    }
+
+    public int scale() {
+        return scale;
+    }
+
+    private BigDecimal price(int raw) {
+        return BigDecimal.valueOf(raw, scale);
+    }
+
+    void reset() {
+        instrumentToken = 0;
+        mode = null;
+        index = false;
+        scale = 2;
+        lastPrice = open = high = low = close = 0;
+        volume = 0;
+        exchangeTimestamp = 0;
+    }
+}
@@ -0,0 +1,130 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decodes Kite ticker binary messages directly from the receive buffer.
+ *
+ * Wire format (big-endian):
+ *   [int16 packetCount] then packetCount × ([int16 length][length bytes])
+ * A 1-byte message is a heartbeat.
+ *
+ * Packet length identifies the layout:
+ *   8   LTP          token, ltp
+ *   28  index quote  token, ltp, high, low, open, close, change
+ *   32  index full   … + exchange timestamp
+ *   44  quote        token, ltp, lastQty, avgPrice, volume, buyQty, sellQty, open, high, low, close
+ *   184 full         quote + lastTradeTime, oi, oiHigh, oiLow, exchange timestamp, 5-level depth
+ *
+ * Uses absolute reads only — the caller's buffer position/limit are left untouched and nothing
+ * is allocated per field. Each packet is written into the supplied {@link KiteTick} and handed
+ * to the handler before the next one overwrites it.
+ */
+public final class KiteTickDecoder {
+
+    private static final Logger log = LoggerFactory.getLogger(KiteTickDecoder.class);
+
+    /** Segment is the low byte of the instrument token. */
+    private static final int SEGMENT_CDS = 3;
+    private static final int SEGMENT_BCD = 6;
+    private static final int SEGMENT_INDICES = 9;
+
+    private static final int LEN_LTP = 8;
+    private static final int LEN_INDEX_QUOTE = 28;
+    private static final int LEN_INDEX_FULL = 32;
+    private static final int LEN_QUOTE = 44;
+    private static final int LEN_FULL = 184;
+
+    @FunctionalInterface
+    public interface TickHandler {
+        void onTick(KiteTick tick);
+    }
+
+    private KiteTickDecoder() {}
+
+    /**
+     * Decodes every packet in {@code buffer[position, limit)}.
+     *
+     * @return number of ticks delivered to the handler (0 for heartbeats)
+     */
+    public static int decode(ByteBuffer buffer, KiteTick scratch, TickHandler handler) {
+        int base = buffer.position();
+        int end = buffer.limit();
+        if (end - base < 2) {
+            return 0; // heartbeat
+        }
+
+        ByteOrder original = buffer.order();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            int packets = buffer.getShort(base) & 0xFFFF;
+            int offset = base + 2;
+            int delivered = 0;
+
+            for (int i = 0; i < packets; i++) {
+                if (offset + 2 > end) {
+                    log.warn("Truncated Kite ticker message: expected {} packets, got {}", packets, i);
+                    break;
+                }
+                int length = buffer.getShort(offset) & 0xFFFF;
+                offset += 2;
+                if (offset + length > end) {
+                    log.warn("Truncated Kite ticker packet: length={} remaining={}", length, end - offset);
+                    break;
+                }
+                if (decodePacket(buffer, offset, length, scratch)) {
+                    handler.onTick(scratch);
+                    delivered++;
+                }
+                offset += length;
+            }
+            return delivered;
+        } finally {
+            buffer.order(original);
+        }
+    }
+
+    private static boolean decodePacket(ByteBuffer buf, int at, int length, KiteTick tick) {
+        tick.reset();
+        tick.instrumentToken = buf.getInt(at) & 0xFFFFFFFFL;
+        int segment = (int) (tick.instrumentToken & 0xFF);
+        tick.scale = segment == SEGMENT_CDS ? 7 : segment == SEGMENT_BCD ? 4 : 2;
+        tick.index = segment == SEGMENT_INDICES;
+        tick.lastPrice = buf.getInt(at + 4);
+
+        switch (length) {
+            case LEN_LTP -> tick.mode = KiteTick.Mode.LTP;
+            case LEN_INDEX_QUOTE, LEN_INDEX_FULL -> {
+                tick.mode = length == LEN_INDEX_FULL ? KiteTick.Mode.FULL : KiteTick.Mode.QUOTE;
+                tick.index = true;
+                tick.high = buf.getInt(at + 8);
+                tick.low = buf.getInt(at + 12);
+                tick.open = buf.getInt(at + 16);
+                tick.close = buf.getInt(at + 20);
+                if (length == LEN_INDEX_FULL) {
+                    tick.exchangeTimestamp = buf.getInt(at + 28) & 0xFFFFFFFFL;
+                }
+            }
+            case LEN_QUOTE, LEN_FULL -> {
+                tick.mode = length == LEN_FULL ? KiteTick.Mode.FULL : KiteTick.Mode.QUOTE;
+                tick.volume = buf.getInt(at + 16) & 0xFFFFFFFFL;
+                tick.open = buf.getInt(at + 28);
+                tick.high = buf.getInt(at + 32);
+                tick.low = buf.getInt(at + 36);
+                tick.close = buf.getInt(at + 40);
+                if (length == LEN_FULL) {
+                    tick.exchangeTimestamp = buf.getInt(at + 60) & 0xFFFFFFFFL;
+                }
+            }
+            default -> {
+                log.debug("Skipping Kite ticker packet of unknown length {}", length);
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,225 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.ReactorNettyWebSocketClient;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.WebsocketClientSpec;
+import reactor.util.retry.Retry;
+
+/**
+ * One long-lived Kite ticker WebSocket connection.
+ *
+ * - Reconnects forever with exponential backoff (1s → 30s); the backoff resets after a
+ *   connection delivers data.
+ * - Keeps the desired token set; on every (re)connect it re-sends subscribe + mode, and while
+ *   connected {@link #subscribe} only sends the diff.
+ * - Binary frames are decoded in place by {@link KiteTickDecoder} on the Netty event-loop thread,
+ *   reusing a single {@link KiteTick}. The handler must be fast and must not block.
+ */
+public class KiteTickerClient {
+
+    private static final Logger log = LoggerFactory.getLogger(KiteTickerClient.class);
+
+    /** Kite allows up to 3000 instruments per connection; full-mode frames can exceed Netty's 64 KB default. */
+    private static final int MAX_FRAME_BYTES = 1024 * 1024;
+    private static final Duration MIN_BACKOFF = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+    private static final String MODE = "quote";
+
+    private final URI uri;
+    private final KiteTickDecoder.TickHandler handler;
+    private final WebSocketClient webSocketClient;
+
+    private final KiteTick scratch = new KiteTick();
+    private ByteBuffer copyBuffer = ByteBuffer.allocate(64 * 1024);
+
+    private final AtomicLong ticksReceived = new AtomicLong();
+    private volatile long lastMessageAtMs;
+    private volatile boolean connected;
+
+    // Guarded by this
+    private Set<Long> desired = Set.of();
+    private Set<Long> live = Set.of();
+    private Sinks.Many<String> control;
+    private Disposable connection;
+
+    public KiteTickerClient(URI uri, KiteTickDecoder.TickHandler handler) {
+        this.uri = uri;
+        this.handler = handler;
+        this.webSocketClient = new ReactorNettyWebSocketClient(HttpClient.create(),
+                () -> WebsocketClientSpec.builder().maxFramePayloadLength(MAX_FRAME_BYTES));
+    }
+
+    public synchronized void start() {
+        if (connection != null && !connection.isDisposed()) return;
+
+        connection = Mono.defer(() -> webSocketClient.execute(uri, this::handleSession))
+                .doOnError(e -> log.warn("Kite ticker connection failed: {}", e.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, MIN_BACKOFF).maxBackoff(MAX_BACKOFF).transientErrors(true))
+                .repeatWhen(completed -> completed.delayElements(MIN_BACKOFF))
+                .subscribe();
+        log.info("Kite ticker started");
+    }
+
+    public synchronized void stop() {
+        if (connection != null) {
+            connection.dispose();
+            connection = null;
+        }
+        if (control != null) {
+            control.tryEmitComplete();
+            control = null;
+        }
+        live = Set.of();
+        connected = false;
+        log.info("Kite ticker stopped");
+    }
+
+    /**
+     * Replaces the subscribed token set. Sends only the diff when connected; otherwise the
+     * full set is sent on the next connect.
+     */
+    public synchronized void subscribe(Collection<Long> tokens) {
+        desired = Set.copyOf(tokens);
+        if (control == null) return;
+
+        Set<Long> added = new HashSet<>(desired);
+        added.removeAll(live);
+        Set<Long> removed = new HashSet<>(live);
+        removed.removeAll(desired);
+
+        if (!removed.isEmpty()) {
+            control.tryEmitNext(command("unsubscribe", removed));
+        }
+        if (!added.isEmpty()) {
+            control.tryEmitNext(command("subscribe", added));
+            control.tryEmitNext(modeCommand(added));
+        }
+        live = desired;
+    }
+
+    public boolean isRunning() {
+        Disposable c = connection;
+        return c != null && !c.isDisposed();
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    public long ticksReceived() {
+        return ticksReceived.get();
+    }
+
+    public long lastMessageAtMs() {
+        return lastMessageAtMs;
+    }
+
+    public synchronized Set<Long> subscribedTokens() {
+        return desired;
+    }
+
+    // ── Session ─────────────────────────────────────────────────
+
+    private Mono<Void> handleSession(WebSocketSession session) {
+        Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        synchronized (this) {
+            control = sink;
+            live = Set.of();
+            connected = true;
+            subscribe(desired);
+        }
+        log.info("Kite ticker connected, subscribing {} instruments", live.size());
+
+        Mono<Void> outbound = session.send(sink.asFlux().map(session::textMessage));
+        Mono<Void> inbound = session.receive()
+                .doOnNext(this::onMessage)
+                .then()
+                .doFinally(signal -> {
+                    synchronized (this) {
+                        if (control == sink) {
+                            control = null;
+                            live = Set.of();
+                            connected = false;
+                        }
+                    }
+                    sink.tryEmitComplete();
+                    log.info("Kite ticker disconnected ({})", signal);
+                });
+        return Mono.when(outbound, inbound);
+    }
+
+    private void onMessage(WebSocketMessage message) {
+        lastMessageAtMs = System.currentTimeMillis();
+        if (message.getType() != WebSocketMessage.Type.BINARY) {
+            if (message.getType() == WebSocketMessage.Type.TEXT) {
+                log.debug("Kite ticker text message: {}", message.getPayloadAsText());
+            }
+            return;
+        }
+
+        DataBuffer payload = message.getPayload();
+        int length = payload.readableByteCount();
+        try (DataBuffer.ByteBufferIterator buffers = payload.readableByteBuffers()) {
+            ByteBuffer first = buffers.next();
+            if (!buffers.hasNext() && first.remaining() == length) {
+                // Fast path: single contiguous Netty buffer — decode in place.
+                ticksReceived.addAndGet(KiteTickDecoder.decode(first, scratch, handler));
+                return;
+            }
+        }
+
+        // Composite frame: gather into a reused heap buffer, then decode.
+        if (copyBuffer.capacity() < length) {
+            copyBuffer = ByteBuffer.allocate(Math.max(length, copyBuffer.capacity() * 2));
+        }
+        copyBuffer.clear();
+        payload.toByteBuffer(payload.readPosition(), copyBuffer, 0, length);
+        copyBuffer.limit(length);
+        ticksReceived.addAndGet(KiteTickDecoder.decode(copyBuffer, scratch, handler));
+    }
+
+    // ── Control messages ────────────────────────────────────────
+
+    private static String command(String action, Collection<Long> tokens) {
+        StringBuilder sb = new StringBuilder(32 + tokens.size() * 10);
+        sb.append("{\"a\":\"").append(action).append("\",\"v\":");
+        appendTokens(sb, tokens);
+        return sb.append('}').toString();
+    }
+
+    private static String modeCommand(Collection<Long> tokens) {
+        StringBuilder sb = new StringBuilder(48 + tokens.size() * 10);
+        sb.append("{\"a\":\"mode\",\"v\":[\"").append(MODE).append("\",");
+        appendTokens(sb, tokens);
+        return sb.append("]}").toString();
+    }
+
+    private static void appendTokens(StringBuilder sb, Collection<Long> tokens) {
+        sb.append('[');
+        boolean first = true;
+        for (Long token : tokens) {
+            if (!first) sb.append(',');
+            sb.append(token);
+            first = false;
+        }
+        sb.append(']');
+    }
+}
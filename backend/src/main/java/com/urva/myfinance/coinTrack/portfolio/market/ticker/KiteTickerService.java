@@ -0,0 +1,243 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import java.net.URI;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+import com.urva.myfinance.coinTrack.common.util.MarketHoursUtil;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentIndex;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentMaster;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Keeps ONE shared Kite ticker connection subscribed to the union of every instrument held
+ * or traded by any user, and writes each tick straight into {@link MarketPriceCache}.
+ *
+ * During market hours this makes the L1 cache the hot path: getPrices() is served from
+ * ticks and the REST LTP call in MarketDataServiceImpl only runs for symbols the ticker
+ * doesn't cover (non-Zerodha instruments, ticker down, no eligible account).
+ *
+ * Reconciled once a minute:
+ * - Market closed → connection is closed (Kite sends nothing useful off-hours).
+ * - Credentials: first active Zerodha account with a live token, same rule as the LTP path.
+ *   A re-login (new token) restarts the connection.
+ * - Universe: canonical holdings + positions carrying an instrument token, plus those from
+ *   other brokers whose symbol the Kite instrument master resolves to a token. Only the diff
+ *   is sent to Kite, so users connecting/disconnecting don't churn the socket.
+ */
+@Service
+public class KiteTickerService {
+
+    private static final Logger log = LoggerFactory.getLogger(KiteTickerService.class);
+
+    /** Kite's per-connection instrument limit. */
+    static final int MAX_INSTRUMENTS = 3000;
+
+    private final BrokerAccountRepository brokerAccountRepository;
+    private final CanonicalHoldingRepository holdingRepository;
+    private final CanonicalPositionRepository positionRepository;
+    private final EncryptionUtil encryptionUtil;
+    private final MarketPriceCache priceCache;
+    private final InstrumentMaster instrumentMaster;
+    private final boolean enabled;
+    private final String tickerUrl;
+
+    // token → canonical symbol; swapped atomically on reconcile, read on the event-loop thread
+    private volatile Map<Long, String> symbolsByToken = Map.of();
+
+    // Guarded by this
+    private KiteTickerClient client;
+    private String clientCredentialKey;
+
+    public KiteTickerService(BrokerAccountRepository brokerAccountRepository,
+                             CanonicalHoldingRepository holdingRepository,
+                             CanonicalPositionRepository positionRepository,
+                             EncryptionUtil encryptionUtil,
+                             MarketPriceCache priceCache,
+                             InstrumentMaster instrumentMaster,
+                             @Value("${kite.ticker.enabled:true}") boolean enabled,
+                             @Value("${kite.ticker.url:wss://ws.kite.trade}") String tickerUrl) {
+        this.brokerAccountRepository = brokerAccountRepository;
+        this.holdingRepository = holdingRepository;
+        this.positionRepository = positionRepository;
+        this.encryptionUtil = encryptionUtil;
+        this.priceCache = priceCache;
+        this.instrumentMaster = instrumentMaster;
+        this.enabled = enabled;
+        this.tickerUrl = tickerUrl;
+    }
+
+    @Scheduled(fixedDelay = 60_000, initialDelay = 30_000)
+    public void scheduledReconcile() {
+        if (!enabled) return;
+        try {
+            reconcile(MarketHoursUtil.isMarketOpen());
+        } catch (Exception e) {
+            log.warn("Kite ticker reconcile failed: {}", e.getMessage());
+        }
+    }
+
+    synchronized void reconcile(boolean marketOpen) {
+        if (!marketOpen) {
+            stopClient();
+            return;
+        }
+
+        BrokerAccount account = findTickerAccount();
+        if (account == null) {
+            log.debug("No Zerodha account eligible for the ticker; prices stay on REST LTP");
+            stopClient();
+            return;
+        }
+
+        Map<Long, String> universe = loadUniverse();
+        symbolsByToken = universe;
+        if (universe.isEmpty()) {
+            stopClient();
+            return;
+        }
+
+        String credentialKey = account.getId() + ":" + account.getZerodhaAccessToken();
+        if (client != null && !credentialKey.equals(clientCredentialKey)) {
+            log.info("Kite ticker credentials changed, reconnecting");
+            stopClient();
+        }
+        if (client == null) {
+            client = createClient(account);
+            clientCredentialKey = credentialKey;
+            client.subscribe(universe.keySet());
+            client.start();
+        } else {
+            client.subscribe(universe.keySet());
+        }
+    }
+
+    /**
+     * Copies the tick into the price cache. Runs on the Netty event loop — no blocking calls.
+     */
+    void onTick(KiteTick tick) {
+        String symbol = symbolsByToken.get(tick.instrumentToken());
+        if (symbol == null) return;
+
+        priceCache.put(MarketPrice.builder()
+                .symbol(symbol)
+                .currentPrice(tick.lastPrice())
+                .previousClose(tick.close())
+                .open(tick.open())
+                .high(tick.high())
+                .low(tick.low())
+                .updatedAt(LocalDateTime.now())
+                .build());
+    }
+
+    public synchronized boolean isConnected() {
+        return client != null && client.isConnected();
+    }
+
+    public synchronized int subscribedCount() {
+        return client != null ? client.subscribedTokens().size() : 0;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        stopClient();
+    }
+
+    KiteTickerClient createClient(BrokerAccount account) {
+        String accessToken = encryptionUtil.decryptSafe(account.getZerodhaAccessToken());
+        URI uri = UriComponentsBuilder.fromUriString(tickerUrl)
+                .queryParam("api_key", account.getZerodhaApiKey())
+                .queryParam("access_token", accessToken)
+                .build()
+                .encode()
+                .toUri();
+        return new KiteTickerClient(uri, this::onTick);
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    private void stopClient() {
+        if (client != null) {
+            client.stop();
+            client = null;
+            clientCredentialKey = null;
+        }
+    }
+
+    /**
+     * Adds holdings/positions without a Kite token whose canonical symbol the instrument master
+     * lists, ignoring a series suffix it doesn't. Ticks are keyed by the stored symbol.
+     */
+    private void resolveUntokenized(Map<Long, String> universe) {
+        InstrumentIndex instruments = instrumentMaster.index();
+        if (instruments.size() == 0) return;
+        for (CanonicalHolding h : holdingRepository.findAllWithoutInstrumentToken()) {
+            addResolved(universe, instruments, h.getSymbol());
+        }
+        for (CanonicalPosition p : positionRepository.findAllWithoutInstrumentToken()) {
+            addResolved(universe, instruments, p.getSymbol());
+        }
+    }
+
+    private static void addResolved(Map<Long, String> universe, InstrumentIndex instruments, String symbol) {
+        int i = instruments.indexOfListed(symbol);
+        if (i >= 0) {
+            universe.putIfAbsent(instruments.token(i), symbol);
+        }
+    }
+
+    private BrokerAccount findTickerAccount() {
+        return brokerAccountRepository.findByBroker(Broker.ZERODHA).stream()
+                .filter(a -> Boolean.TRUE.equals(a.getIsActive()) && !a.isTokenExpired())
+                .filter(a -> a.getZerodhaAccessToken() != null && a.getZerodhaApiKey() != null)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Map<Long, String> loadUniverse() {
+        List<CanonicalHolding> holdings = holdingRepository.findAllWithInstrumentToken();
+        List<CanonicalPosition> positions = positionRepository.findAllWithInstrumentToken();
+
+        Map<Long, String> universe = new HashMap<>();
+        for (CanonicalHolding h : holdings) {
+            universe.putIfAbsent(h.getInstrumentToken(), h.getSymbol());
+        }
+        for (CanonicalPosition p : positions) {
+            universe.putIfAbsent(p.getInstrumentToken(), p.getSymbol());
+        }
+        resolveUntokenized(universe);
+        universe.remove(null);
+        universe.values().removeIf(Objects::isNull);
+
+        if (universe.size() > MAX_INSTRUMENTS) {
+            log.warn("Kite ticker universe has {} instruments, capping at {}; the rest stay on REST LTP",
+                    universe.size(), MAX_INSTRUMENTS);
+            return universe.entrySet().stream()
+                    .limit(MAX_INSTRUMENTS)
+                    .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+        }
+        return Map.copyOf(universe);
+    }
+}
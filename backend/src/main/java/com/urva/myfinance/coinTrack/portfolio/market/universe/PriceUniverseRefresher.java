@@ -0,0 +1,159 @@
+package com.urva.myfinance.coinTrack.portfolio.market.universe;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.common.util.MarketHoursUtil;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.repository.MarketPriceRepository;
+import com.urva.myfinance.coinTrack.portfolio.sync.cluster.SyncClusterMembership;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Refreshes the prices of every symbol in the {@link SymbolUniverse} into {@link MarketPriceCache},
+ * so the price reads behind user requests are served from memory instead of calling the broker.
+ *
+ * - Cadence: {@code market.universe.open-interval} while the market is open, otherwise
+ *   {@code market.universe.closed-interval}. Both stay below the L1 TTL (15s / 5 min), so a
+ *   universe symbol never expires between passes.
+ * - Symbols whose cached price is younger than half the cadence are skipped; during market hours
+ *   those are the ones the Kite ticker already streams.
+ * - The rest go out in full 200-symbol quote batches: n due symbols cost ceil(n / 200) calls
+ *   per pass, independent of how many users hold them.
+ * - In a cluster the universe is sharded on the sync ring ({@link SyncClusterMembership}): each
+ *   node quotes only the symbols it owns, and the quotes land in the shared Mongo price cache
+ *   as well as L1. Due symbols owned by other nodes are read back from Mongo in the same pass,
+ *   so the cluster quotes each symbol once per cadence rather than once per node.
+ */
+@Component
+public class PriceUniverseRefresher {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceUniverseRefresher.class);
+
+    /** Kite's per-call instrument limit for /quote/ltp and /quote/ohlc. */
+    static final int BATCH_SIZE = 200;
+
+    private final SymbolUniverse universe;
+    private final MarketDataService marketDataService;
+    private final MarketPriceCache priceCache;
+    private final MarketPriceRepository priceRepository;
+    private final SyncClusterMembership membership;
+    private final Duration openInterval;
+    private final Duration closedInterval;
+    private final Counter batches;
+    private final Counter refreshed;
+    private final Counter skipped;
+    private final Counter shared;
+    private final Timer passTimer;
+
+    private volatile long lastPassAt;
+
+    public PriceUniverseRefresher(SymbolUniverse universe,
+                                  MarketDataService marketDataService,
+                                  MarketPriceCache priceCache,
+                                  MarketPriceRepository priceRepository,
+                                  SyncClusterMembership membership,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${market.universe.open-interval:10s}") Duration openInterval,
+                                  @Value("${market.universe.closed-interval:4m}") Duration closedInterval) {
+        this.universe = universe;
+        this.marketDataService = marketDataService;
+        this.priceCache = priceCache;
+        this.priceRepository = priceRepository;
+        this.membership = membership;
+        this.openInterval = openInterval;
+        this.closedInterval = closedInterval;
+        this.batches = Counter.builder("market.universe.batches").register(meterRegistry);
+        this.refreshed = Counter.builder("market.universe.refreshed").register(meterRegistry);
+        this.skipped = Counter.builder("market.universe.skipped").register(meterRegistry);
+        this.shared = Counter.builder("market.universe.shared").register(meterRegistry);
+        this.passTimer = Timer.builder("market.universe.pass").register(meterRegistry);
+    }
+
+    /** Ticks often; {@link #refresh} decides whether a pass is due for the current session. */
+    @Scheduled(fixedDelay = 2_000, initialDelay = 15_000)
+    public void scheduledRefresh() {
+        if (!universe.isEnabled()) return;
+        try {
+            refresh(MarketHoursUtil.isMarketOpen(), System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Price universe refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /** Runs one pass when the cadence for this session has elapsed; returns the symbols fetched. */
+    int refresh(boolean marketOpen, long nowMillis) {
+        Duration interval = marketOpen ? openInterval : closedInterval;
+        if (nowMillis - lastPassAt < interval.toMillis()) return 0;
+        lastPassAt = nowMillis;
+
+        long started = System.nanoTime();
+        List<String> due = new ArrayList<>();
+        List<String> othersDue = new ArrayList<>();
+        for (String symbol : dueSymbols(universe.symbols(), interval.dividedBy(2))) {
+            // The ring hashes any key; symbols spread across nodes like users do
+            (membership.owns(symbol) ? due : othersDue).add(symbol);
+        }
+        int fetched = 0;
+        for (int from = 0; from < due.size(); from += BATCH_SIZE) {
+            List<String> batch = due.subList(from, Math.min(from + BATCH_SIZE, due.size()));
+            fetched += marketDataService.refreshPrices(batch).size();
+            batches.increment();
+        }
+        refreshed.increment(fetched);
+        int read = readShared(othersDue);
+        passTimer.record(Duration.ofNanos(System.nanoTime() - started));
+        // Readers trust the universe for three cadences; a stalled refresher hands fetching back to them
+        universe.markRefreshed(interval.multipliedBy(3));
+
+        if (!due.isEmpty() || !othersDue.isEmpty()) {
+            log.debug("Price universe pass: {} due, {} fetched in {} batches; {} of {} read from other nodes",
+                    due.size(), fetched, (due.size() + BATCH_SIZE - 1) / BATCH_SIZE, read, othersDue.size());
+        }
+        return fetched;
+    }
+
+    /** Loads other nodes' symbols from the shared Mongo price cache into L1; returns how many were found. */
+    private int readShared(List<String> symbols) {
+        int read = 0;
+        for (int from = 0; from < symbols.size(); from += BATCH_SIZE) {
+            List<MarketPrice> prices = priceRepository.findBySymbolIn(
+                    symbols.subList(from, Math.min(from + BATCH_SIZE, symbols.size())));
+            priceCache.putAll(prices);
+            read += prices.size();
+        }
+        shared.increment(read);
+        return read;
+    }
+
+    /** Universe symbols with no cached price, or one older than {@code freshFor}. */
+    List<String> dueSymbols(List<String> symbols, Duration freshFor) {
+        if (symbols.isEmpty()) return Collections.emptyList();
+        Map<String, MarketPrice> cached = priceCache.getAllPresent(symbols);
+        LocalDateTime freshAfter = LocalDateTime.now().minus(freshFor);
+        List<String> due = new ArrayList<>(symbols.size());
+        for (String symbol : symbols) {
+            MarketPrice price = cached.get(symbol);
+            if (price == null || price.getUpdatedAt() == null || price.getUpdatedAt().isBefore(freshAfter)) {
+                due.add(symbol);
+            }
+        }
+        skipped.increment(symbols.size() - due.size());
+        return due;
+    }
+}
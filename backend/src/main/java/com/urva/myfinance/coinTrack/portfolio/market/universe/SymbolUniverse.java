@@ -0,0 +1,163 @@
+package com.urva.myfinance.coinTrack.portfolio.market.universe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The union of symbols held or traded by any user, ref-counted by the number of users holding
+ * each one. {@link PriceUniverseRefresher} keeps these prices warm so user reads never go out.
+ *
+ * - A sync replaces that user's symbol set: newly held symbols are added, symbols no user holds
+ *   any more drop out.
+ * - A full rebuild runs at startup and every {@code market.universe.reconcile-interval}, picking
+ *   up syncs run by other instances and users deleted outside the sync path.
+ */
+@Component
+public class SymbolUniverse {
+
+    private static final Logger log = LoggerFactory.getLogger(SymbolUniverse.class);
+
+    private final CanonicalHoldingRepository holdingRepository;
+    private final CanonicalPositionRepository positionRepository;
+    private final boolean enabled;
+
+    // Guarded by this; refCounts is also read lock-free by contains()/symbols()
+    private final Map<String, Set<String>> symbolsByUser = new HashMap<>();
+    private final Map<String, Integer> refCounts = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+    private volatile long servingUntil;
+
+    public SymbolUniverse(CanonicalHoldingRepository holdingRepository,
+                          CanonicalPositionRepository positionRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${market.universe.enabled:true}") boolean enabled) {
+        this.holdingRepository = holdingRepository;
+        this.positionRepository = positionRepository;
+        this.enabled = enabled;
+        Gauge.builder("market.universe.symbols", refCounts, Map::size).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** True when the symbol is held by at least one user. */
+    public boolean contains(String symbol) {
+        return refCounts.containsKey(symbol);
+    }
+
+    /** Snapshot of every symbol in the universe. */
+    public List<String> symbols() {
+        return new ArrayList<>(refCounts.keySet());
+    }
+
+    /** Number of users holding the symbol; 0 when it isn't in the universe. */
+    public int refCount(String symbol) {
+        return refCounts.getOrDefault(symbol, 0);
+    }
+
+    /**
+     * True while the universe is loaded and the refresher's last pass is still within its promise.
+     * Otherwise (startup, refresher stalled) price reads go back to fetching their own misses.
+     */
+    public boolean isServing() {
+        return enabled && loaded && System.currentTimeMillis() < servingUntil;
+    }
+
+    /** Called by the refresher after each pass: it will pass again well within {@code validFor}. */
+    void markRefreshed(Duration validFor) {
+        servingUntil = System.currentTimeMillis() + validFor.toMillis();
+    }
+
+    /** Re-reads one user's holdings and positions after a sync. Never throws. */
+    public void refreshUser(String userId) {
+        if (!enabled || userId == null) return;
+        try {
+            Set<String> symbols = new HashSet<>();
+            holdingRepository.findSymbolsByUserId(userId).forEach(h -> addSymbol(symbols, h.getSymbol()));
+            positionRepository.findSymbolsByUserId(userId).forEach(p -> addSymbol(symbols, p.getSymbol()));
+            setUserSymbols(userId, symbols);
+        } catch (Exception e) {
+            log.warn("Symbol universe update failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /** Replaces the user's symbols, moving ref counts by the difference only. */
+    synchronized void setUserSymbols(String userId, Set<String> symbols) {
+        Set<String> previous = symbols.isEmpty() ? symbolsByUser.remove(userId) : symbolsByUser.put(userId, symbols);
+        if (previous == null) previous = Set.of();
+        for (String symbol : symbols) {
+            if (!previous.contains(symbol)) refCounts.merge(symbol, 1, Integer::sum);
+        }
+        for (String symbol : previous) {
+            if (!symbols.contains(symbol)) {
+                refCounts.computeIfPresent(symbol, (s, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${market.universe.reconcile-interval:5m}",
+            initialDelayString = "${market.universe.reconcile-interval:5m}")
+    public void rebuild() {
+        if (!enabled) return;
+        try {
+            Map<String, Set<String>> byUser = new HashMap<>();
+            for (CanonicalHolding h : holdingRepository.findAllUserSymbols()) {
+                collect(byUser, h.getUserId(), h.getSymbol());
+            }
+            for (CanonicalPosition p : positionRepository.findAllUserSymbols()) {
+                collect(byUser, p.getUserId(), p.getSymbol());
+            }
+            replaceAll(byUser);
+            loaded = true;
+            log.debug("Symbol universe rebuilt: {} symbols across {} users", refCounts.size(), byUser.size());
+        } catch (Exception e) {
+            log.warn("Symbol universe rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    synchronized void replaceAll(Map<String, Set<String>> byUser) {
+        for (String userId : new ArrayList<>(symbolsByUser.keySet())) {
+            if (!byUser.containsKey(userId)) setUserSymbols(userId, Set.of());
+        }
+        byUser.forEach(this::setUserSymbols);
+    }
+
+    private static void collect(Map<String, Set<String>> byUser, String userId, String symbol) {
+        if (userId == null) return;
+        addSymbol(byUser.computeIfAbsent(userId, u -> new HashSet<>()), symbol);
+    }
+
+    private static void addSymbol(Collection<String> symbols, String symbol) {
+        if (symbol != null && !symbol.isBlank()) symbols.add(symbol);
+    }
+}
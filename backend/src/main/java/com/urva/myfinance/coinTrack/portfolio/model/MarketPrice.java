@@ -27,6 +27,13 @@ public class MarketPrice {
 
     private BigDecimal previousClose;
 
+    /** Day OHLC — populated by the live ticker and the /quote/ohlc batch; null on canonical fallbacks. */
+    private BigDecimal open;
+
+    private BigDecimal high;
+
+    private BigDecimal low;
+
     @SuppressWarnings("removal")
     @Indexed(name = "price_ttl_index", expireAfterSeconds = 15)
     private LocalDateTime updatedAt;
@@ -0,0 +1,44 @@
+package com.urva.myfinance.coinTrack.portfolio.model;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Materialized portfolio summary, one document per user (id = userId).
+ *
+ * syncVersion is bumped by every completed sync, on whichever node ran it.
+ * materializedSyncVersion is the syncVersion the stored summary was built from, so
+ * {@code materializedSyncVersion < syncVersion} means the summary predates the latest sync.
+ * pricedAt is when the stored summary's prices were fetched; reprices stay in memory, so it
+ * only moves on a full reload.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "portfolio_summaries")
+public class PortfolioSummarySnapshot {
+    @Id
+    private String id;
+
+    private long syncVersion;
+
+    private long materializedSyncVersion;
+
+    private Long version;
+
+    private LocalDateTime asOf;
+
+    private LocalDateTime pricedAt;
+
+    private PortfolioSummaryResponse summary;
+}
@@ -0,0 +1,65 @@
+package com.urva.myfinance.coinTrack.portfolio.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * End-of-day portfolio values for one user and one calendar year (id = "userId:year").
+ *
+ * Each series is stored column-wise: {@code days} (epoch days), {@code value} and
+ * {@code invested} (both in paise) are delta-encoded zig-zag varints, see
+ * {@code portfolio.history.DeltaCodec}. A year of daily points is a few hundred bytes per
+ * series; P&L is value - invested and is not stored.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "portfolio_value_series")
+@CompoundIndex(name = "idx_value_series_user_year", def = "{'userId': 1, 'year': 1}", unique = true)
+public class PortfolioValueSeries {
+    @Id
+    private String id;
+
+    private String userId;
+
+    private int year;
+
+    /** Whole portfolio. */
+    private Series total;
+
+    /** One series per held symbol; a symbol's series stops on the day it is no longer held. */
+    private List<Series> holdings;
+
+    private LocalDateTime updatedAt;
+
+    public static String idFor(String userId, int year) {
+        return userId + ":" + year;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Series {
+        /** Null for the total. */
+        private String symbol;
+
+        private int points;
+
+        private byte[] days;
+
+        private byte[] value;
+
+        private byte[] invested;
+    }
+}
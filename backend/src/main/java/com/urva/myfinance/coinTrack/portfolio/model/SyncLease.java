@@ -0,0 +1,37 @@
+package com.urva.myfinance.coinTrack.portfolio.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cluster-wide sync lock, one document per lock name ("user:{id}", "account:{id}").
+ *
+ * A lease is free once expiresAt has passed; the holder's heartbeat keeps pushing it forward.
+ * fencingToken is drawn from a cluster-wide sequence on every acquisition, so it only grows,
+ * and a holder that stalled past expiry can tell it has been superseded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "sync_leases")
+public class SyncLease {
+    @Id
+    private String id;
+
+    /** Node id of the current (or last) holder. */
+    private String owner;
+
+    private long fencingToken;
+
+    private Instant acquiredAt;
+
+    private Instant expiresAt;
+}
@@ -37,4 +37,13 @@ public class SyncLog {
     private String message;
 
     private Long durationMs;
+
+    /** Canonical rows written by this sync's bulk upsert; null when nothing was persisted. */
+    private Integer rowsInserted;
+
+    private Integer rowsModified;
+
+    private Integer rowsUnchanged;
+
+    private Integer rowsRemoved;
 }
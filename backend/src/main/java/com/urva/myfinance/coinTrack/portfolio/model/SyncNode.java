@@ -0,0 +1,34 @@
+package com.urva.myfinance.coinTrack.portfolio.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Live application instance taking part in sync sharding.
+ * Each node upserts its own document on every heartbeat; TTL index on expiresAt removes
+ * nodes that stopped heartbeating.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "sync_nodes")
+public class SyncNode {
+    @Id
+    private String id;
+
+    private Instant startedAt;
+
+    private Instant heartbeatAt;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
@@ -0,0 +1,33 @@
+package com.urva.myfinance.coinTrack.portfolio.model;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Last portfolio API hit for a user, as seen by any instance.
+ * Nodes publish their local hits every scheduler tick so the node that owns a user in the
+ * sharded sweep knows they are active even when their requests land elsewhere. TTL index on
+ * expiresAt drops users once they leave the warm window.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "user_activity")
+public class UserActivity {
+    @Id
+    private String id;
+
+    private Instant lastSeenAt;
+
+    @Indexed(expireAfter = "0s")
+    private Instant expiresAt;
+}
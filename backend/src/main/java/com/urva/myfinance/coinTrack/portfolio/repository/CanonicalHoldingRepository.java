@@ -3,8 +3,10 @@ package com.urva.myfinance.coinTrack.portfolio.repository;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,6 +15,8 @@ public interface CanonicalHoldingRepository extends MongoRepository<CanonicalHol
 
     List<CanonicalHolding> findByUserId(String userId);
 
+    List<CanonicalHolding> findByUserIdIn(Collection<String> userIds);
+
     List<CanonicalHolding> findByUserIdAndBrokerType(String userId, Broker brokerType);
 
     Optional<CanonicalHolding> findByUserIdAndBrokerAccountIdAndIsin(String userId, String brokerAccountId, String isin);
@@ -21,5 +25,21 @@ public interface CanonicalHoldingRepository extends MongoRepository<CanonicalHol
 
     List<CanonicalHolding> findBySymbolIn(List<String> symbols);
 
+    /** Projection of (symbol, instrumentToken) for every holding that carries a Kite token. */
+    @Query(value = "{ 'instrumentToken': { $ne: null } }", fields = "{ 'symbol': 1, 'instrumentToken': 1 }")
+    List<CanonicalHolding> findAllWithInstrumentToken();
+
+    /** Projection of symbol for every holding without a Kite token (Angel One, Upstox); resolved via the instrument master. */
+    @Query(value = "{ 'instrumentToken': null }", fields = "{ 'symbol': 1 }")
+    List<CanonicalHolding> findAllWithoutInstrumentToken();
+
+    /** Projection of (userId, symbol) for every holding; seeds the shared price-refresh universe. */
+    @Query(value = "{}", fields = "{ 'userId': 1, 'symbol': 1 }")
+    List<CanonicalHolding> findAllUserSymbols();
+
+    /** Projection of symbol for one user's holdings. */
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'symbol': 1 }")
+    List<CanonicalHolding> findSymbolsByUserId(String userId);
+
     void deleteByUserIdAndBrokerType(String userId, Broker brokerType);
 }
@@ -4,8 +4,10 @@ import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.broker.core.canonical.InstrumentType;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,5 +21,26 @@ public interface CanonicalPositionRepository extends MongoRepository<CanonicalPo
     Optional<CanonicalPosition> findByUserIdAndBrokerAccountIdAndSymbolAndInstrumentType(
         String userId, String brokerAccountId, String symbol, InstrumentType instrumentType);
 
+    /** Projection of (symbol, instrumentToken) for every position that carries a Kite token. */
+    @Query(value = "{ 'instrumentToken': { $ne: null } }", fields = "{ 'symbol': 1, 'instrumentToken': 1 }")
+    List<CanonicalPosition> findAllWithInstrumentToken();
+
+    /** Projection of symbol for every position without a Kite token (Angel One, Upstox); resolved via the instrument master. */
+    @Query(value = "{ 'instrumentToken': null }", fields = "{ 'symbol': 1 }")
+    List<CanonicalPosition> findAllWithoutInstrumentToken();
+
+    /** Projection of (userId, symbol) for every position; seeds the shared price-refresh universe. */
+    @Query(value = "{}", fields = "{ 'userId': 1, 'symbol': 1 }")
+    List<CanonicalPosition> findAllUserSymbols();
+
+    /** Projection of symbol for one user's positions. */
+    @Query(value = "{ 'userId': ?0 }", fields = "{ 'symbol': 1 }")
+    List<CanonicalPosition> findSymbolsByUserId(String userId);
+
+    /** Projection of (userId, quantity) for the given users' futures and options positions. */
+    @Query(value = "{ 'userId': { $in: ?0 }, 'instrumentType': { $in: ['FUTURES', 'OPTIONS'] } }",
+            fields = "{ 'userId': 1, 'quantity': 1 }")
+    List<CanonicalPosition> findDerivativesByUserIdIn(Collection<String> userIds);
+
     void deleteByUserIdAndBrokerType(String userId, Broker brokerType);
 }
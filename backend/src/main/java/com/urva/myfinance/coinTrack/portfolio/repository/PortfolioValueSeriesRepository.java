@@ -0,0 +1,17 @@
+package com.urva.myfinance.coinTrack.portfolio.repository;
+
+import java.util.List;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioValueSeries;
+
+@Repository
+public interface PortfolioValueSeriesRepository extends MongoRepository<PortfolioValueSeries, String> {
+
+    /** Year documents in [fromYear, toYear], oldest first. */
+    @Query(value = "{ 'userId': ?0, 'year': { $gte: ?1, $lte: ?2 } }", sort = "{ 'year': 1 }")
+    List<PortfolioValueSeries> findYears(String userId, int fromYear, int toYear);
+}
@@ -1,126 +1,132 @@
 package com.urva.myfinance.coinTrack.portfolio.scheduler;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
-import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.common.util.MarketHoursUtil;
+import com.urva.myfinance.coinTrack.portfolio.scheduler.SyncPriorityPlanner.SyncCandidate;
 import com.urva.myfinance.coinTrack.portfolio.sync.PortfolioSyncService;
 import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
 
+/**
+ * Adaptive portfolio sync.
+ *
+ * Replaces the fixed sweeps (every account every 5 minutes in market hours, every stale
+ * account every 15 minutes off hours). Each tick ranks the users this node owns who have
+ * recently used the portfolio API on any node (see {@link UserActivityTracker}; the score is
+ * {@link SyncPriorityPlanner}'s) and syncs at most the tick's budget, best first, through the same paced, sharded sweep as a manual global sync
+ * ({@link PortfolioSyncService#syncUsers}):
+ *
+ * - market hours: {@code portfolio.sync.adaptive.budget} users per tick
+ * - off hours: {@code portfolio.sync.adaptive.off-hours-budget} users per tick
+ *
+ * Idle users are not synced in the background at all. When one comes back, their first
+ * portfolio request triggers an async sync if their data is stale; that request is served
+ * from the cached canonical rows, and the next poll sees fresh data.
+ */
 @Component
 @EnableScheduling
 public class PortfolioSyncScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(PortfolioSyncScheduler.class);
-    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
-    private static final long OFF_HOURS_STALE_MINUTES = 30;
 
     private final PortfolioSyncService portfolioSyncService;
     private final SyncSafetyService syncSafetyService;
-    private final BrokerAccountRepository brokerAccountRepository;
+    private final SyncPriorityPlanner planner;
+    private final UserActivityTracker activityTracker;
+    private final int marketBudget;
+    private final int offHoursBudget;
+    private final Set<String> lazySyncsInFlight = ConcurrentHashMap.newKeySet();
 
     @Autowired
     public PortfolioSyncScheduler(PortfolioSyncService portfolioSyncService,
             SyncSafetyService syncSafetyService,
-            BrokerAccountRepository brokerAccountRepository) {
+            SyncPriorityPlanner planner,
+            UserActivityTracker activityTracker,
+            @Value("${portfolio.sync.adaptive.budget:200}") int marketBudget,
+            @Value("${portfolio.sync.adaptive.off-hours-budget:50}") int offHoursBudget) {
         this.portfolioSyncService = portfolioSyncService;
         this.syncSafetyService = syncSafetyService;
-        this.brokerAccountRepository = brokerAccountRepository;
+        this.planner = planner;
+        this.activityTracker = activityTracker;
+        this.marketBudget = marketBudget;
+        this.offHoursBudget = offHoursBudget;
     }
 
     /**
-     * CRON 1: MARKET HOURS SYNC
-     * Runs every 5 minutes during market hours (09:00 - 15:59 approx, logic
-     * tightened in service).
-     * The Cron expression is slightly wider (9-15) than strict market hours
-     * (9:15-15:30),
-     * but syncAllActiveAccounts() calls syncSafetyService.isMarketOpen() internally
-     * to enforce exact times.
+     * One scheduling round. Runs under the global sync lock, so it never overlaps a manual
+     * global sweep; weekends are skipped like the old crons.
      */
-    @Scheduled(cron = "0 */5 9-15 * * MON-FRI", zone = "Asia/Kolkata")
-    public void marketHoursSync() {
-        logger.info("Triggering Market Hours Sync...");
-        // syncAllActiveAccounts handles Global Lock and strict Market Hours check
-        // internally.
-        portfolioSyncService.syncAllActiveAccounts();
-    }
-
-    /**
-     * CRON 2: OFF-HOURS SYNC
-     * Runs every 15 minutes.
-     * Skips if market is OPEN.
-     * Only syncs if data is older than 30 minutes.
-     */
-    @Scheduled(cron = "0 */15 * * * MON-FRI", zone = "Asia/Kolkata")
-    public void offHoursSync() {
-        logger.info("Triggering Off-Hours Sync attempt...");
+    @Scheduled(fixedDelayString = "${portfolio.sync.adaptive.interval:60s}",
+            initialDelayString = "${portfolio.sync.adaptive.interval:60s}")
+    public void tick() {
+        activityTracker.shareWithCluster();
+        activityTracker.evictIdle();
+        // Plan only this node's share, so the budget is not spent on users other nodes sync
+        Set<String> warmUsers = activityTracker.warmUsers().stream()
+                .filter(syncSafetyService::ownsUser)
+                .collect(Collectors.toSet());
+        if (warmUsers.isEmpty()) return;
 
         if (!syncSafetyService.tryGlobalSyncLock()) {
-            logger.warn("Skipped Off-Hours Sync: Global sync already running.");
+            logger.debug("Skipped adaptive sync tick: global sync already running.");
             return;
         }
 
         try {
-            if (syncSafetyService.isMarketOpen()) {
-                logger.info("Skipped Off-Hours Sync: Market is OPEN (controlled by Market Hours Cron).");
-                return;
-            }
-
-            logger.info("Executing Off-Hours Sync (Stale Check > {} mins)", OFF_HOURS_STALE_MINUTES);
-
-            int page = 0;
-            int size = 100;
-            Page<BrokerAccount> accountPage;
-
-            do {
-                accountPage = brokerAccountRepository.findByIsActiveTrue(PageRequest.of(page, size));
-                for (BrokerAccount account : accountPage.getContent()) {
-                    try {
-                        if (shouldSyncOffHours(account)) {
-                            // Individual account sync (handles account lock internally)
-                            portfolioSyncService.syncBrokerAccount(account);
-                        }
-                    } catch (Exception e) {
-                        logger.error("Error in Off-Hours sync for account {}: {}", account.getId(), e.getMessage());
-                    }
+            boolean marketOpen = syncSafetyService.isMarketOpen();
+            if (!marketOpen && !MarketHoursUtil.isTradingDay()) return;
+
+            int budget = marketOpen ? marketBudget : offHoursBudget;
+            List<SyncCandidate> plan = planner.plan(warmUsers, marketOpen, budget);
+            if (plan.isEmpty()) return;
+
+            logger.info("Adaptive sync: {} of {} owned warm users queued (budget {}, market {})",
+                    plan.size(), warmUsers.size(), budget, marketOpen ? "open" : "closed");
+            if (logger.isDebugEnabled()) {
+                for (SyncCandidate candidate : plan) {
+                    logger.debug("Queued user {} (score {}, {} min stale, active={}, F&O={}, health={})",
+                            candidate.userId(), String.format("%.1f", candidate.score()),
+                            candidate.staleMinutes(), candidate.active(), candidate.openDerivatives(),
+                            candidate.health());
                 }
-                page++;
-            } while (accountPage.hasNext());
-
+            }
+            portfolioSyncService.syncUsers(plan.stream().map(SyncCandidate::userId).toList());
         } finally {
             syncSafetyService.releaseGlobalSyncLock();
         }
     }
 
-    private boolean shouldSyncOffHours(BrokerAccount account) {
-        // Skip orphan/stale accounts (no credentials or token expired) — they can't sync
-        // successfully and only generate noise.
-        if (!account.hasCredentials() || account.isTokenExpired()) {
-            return false;
-        }
-        LocalDateTime lastSync = account.getLastSuccessfulSync();
-        if (lastSync == null) {
-            return true; // Never synced, so sync it.
-        }
-
-        long minutesSinceLastSync = Duration.between(lastSync, LocalDateTime.now(INDIA_ZONE)).toMinutes();
-        if (minutesSinceLastSync > OFF_HOURS_STALE_MINUTES) {
-            return true;
-        }
-
-        // logger.debug("Skipped account {} off-hours sync (Synced {} mins ago)",
-        // account.getId(), minutesSinceLastSync);
-        return false;
+    /**
+     * Called on every portfolio read. Records the hit, and if the user was idle (so the
+     * scheduler has not been keeping them fresh) and their data is stale, starts a sync in
+     * the background. Never blocks the request.
+     */
+    public void onPortfolioRequest(String userId) {
+        if (activityTracker.touch(userId) != null) return;
+        if (!lazySyncsInFlight.add(userId)) return;
+
+        Thread.ofVirtual().name("lazy-sync-" + userId).start(() -> {
+            try {
+                if (planner.isStale(userId, syncSafetyService.isMarketOpen())) {
+                    logger.debug("User {} returned with stale data; syncing on demand", userId);
+                    portfolioSyncService.syncUser(userId);
+                }
+            } catch (Exception e) {
+                logger.error("Error during on-demand sync for user {}: {}", userId, e.getMessage());
+            } finally {
+                lazySyncsInFlight.remove(userId);
+            }
+        });
     }
 }
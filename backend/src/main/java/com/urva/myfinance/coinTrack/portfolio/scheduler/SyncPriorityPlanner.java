@@ -0,0 +1,182 @@
+package com.urva.myfinance.coinTrack.portfolio.scheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.circuit.BrokerCircuitBreaker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.portfolio.aggregation.CompletedFetch.Dataset;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+/**
+ * Ranks users for the adaptive sync scheduler.
+ *
+ * score = staleness × (activity + volatility) × health
+ *
+ * - staleness: minutes since the user's oldest account last synced, capped at
+ *   {@code MAX_STALENESS_MINUTES}. Users fresher than the min-staleness for the current
+ *   session (market hours / off hours) are not queued at all.
+ * - activity: {@code ACTIVE_WEIGHT} if the user hit the portfolio API within the active
+ *   window, {@code WARM_WEIGHT} if only within the warm window. Idle users are never
+ *   passed in — they sync lazily on their next request.
+ * - volatility: {@code DERIVATIVES_WEIGHT} during market hours when the user has an open
+ *   futures or options position.
+ * - health: share of the user's brokers whose circuit is not open (half-open counts half).
+ *   A user whose every broker is open is skipped; the sync would only serve cached data.
+ */
+@Component
+public class SyncPriorityPlanner {
+
+    private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+    static final long MAX_STALENESS_MINUTES = 120;
+    static final double ACTIVE_WEIGHT = 3.0;
+    static final double WARM_WEIGHT = 1.0;
+    static final double DERIVATIVES_WEIGHT = 2.0;
+
+    private final BrokerAccountRepository brokerAccountRepository;
+    private final CanonicalPositionRepository positionRepository;
+    private final BrokerCircuitBreaker circuitBreaker;
+    private final UserActivityTracker activityTracker;
+    private final Clock clock;
+    private final Duration activeWindow;
+    private final Duration marketMinStaleness;
+    private final Duration offHoursMinStaleness;
+
+    @Autowired
+    public SyncPriorityPlanner(BrokerAccountRepository brokerAccountRepository,
+            CanonicalPositionRepository positionRepository,
+            BrokerCircuitBreaker circuitBreaker,
+            UserActivityTracker activityTracker,
+            @Value("${portfolio.sync.adaptive.active-window:5m}") Duration activeWindow,
+            @Value("${portfolio.sync.adaptive.min-staleness:3m}") Duration marketMinStaleness,
+            @Value("${portfolio.sync.adaptive.off-hours-min-staleness:30m}") Duration offHoursMinStaleness) {
+        this(brokerAccountRepository, positionRepository, circuitBreaker, activityTracker, Clock.systemUTC(),
+                activeWindow, marketMinStaleness, offHoursMinStaleness);
+    }
+
+    SyncPriorityPlanner(BrokerAccountRepository brokerAccountRepository,
+            CanonicalPositionRepository positionRepository,
+            BrokerCircuitBreaker circuitBreaker,
+            UserActivityTracker activityTracker,
+            Clock clock,
+            Duration activeWindow,
+            Duration marketMinStaleness,
+            Duration offHoursMinStaleness) {
+        this.brokerAccountRepository = brokerAccountRepository;
+        this.positionRepository = positionRepository;
+        this.circuitBreaker = circuitBreaker;
+        this.activityTracker = activityTracker;
+        this.clock = clock;
+        this.activeWindow = activeWindow;
+        this.marketMinStaleness = marketMinStaleness;
+        this.offHoursMinStaleness = offHoursMinStaleness;
+    }
+
+    /** One queued user and why it ranked where it did. */
+    public record SyncCandidate(String userId, double score, long staleMinutes,
+                                boolean active, boolean openDerivatives, double health) {
+    }
+
+    /**
+     * The {@code budget} highest-scoring users among {@code users}, best first.
+     */
+    public List<SyncCandidate> plan(Collection<String> users, boolean marketOpen, int budget) {
+        if (users.isEmpty() || budget <= 0) return List.of();
+
+        Map<String, List<BrokerAccount>> accountsByUser = syncableAccounts(users);
+        if (accountsByUser.isEmpty()) return List.of();
+
+        Set<String> withDerivatives = marketOpen ? usersWithOpenDerivatives(accountsByUser.keySet()) : Set.of();
+        Duration minStaleness = marketOpen ? marketMinStaleness : offHoursMinStaleness;
+        Instant now = clock.instant();
+
+        PriorityQueue<SyncCandidate> queue = new PriorityQueue<>(
+                Comparator.comparingDouble(SyncCandidate::score).reversed());
+        accountsByUser.forEach((userId, accounts) -> {
+            long staleMinutes = staleMinutes(accounts);
+            if (staleMinutes < minStaleness.toMinutes()) return;
+
+            double health = health(accounts);
+            if (health == 0.0) return;
+
+            Instant seen = activityTracker.lastSeen(userId);
+            boolean active = seen != null && Duration.between(seen, now).compareTo(activeWindow) <= 0;
+            boolean derivatives = withDerivatives.contains(userId);
+            double score = Math.min(staleMinutes, MAX_STALENESS_MINUTES)
+                    * ((active ? ACTIVE_WEIGHT : WARM_WEIGHT) + (derivatives ? DERIVATIVES_WEIGHT : 0.0))
+                    * health;
+            queue.add(new SyncCandidate(userId, score, staleMinutes, active, derivatives, health));
+        });
+
+        List<SyncCandidate> plan = new ArrayList<>(Math.min(budget, queue.size()));
+        while (plan.size() < budget && !queue.isEmpty()) {
+            plan.add(queue.poll());
+        }
+        return plan;
+    }
+
+    /**
+     * Whether a user's data is old enough to sync on demand. Used for idle users coming back,
+     * who the scheduler has not been keeping fresh.
+     */
+    public boolean isStale(String userId, boolean marketOpen) {
+        List<BrokerAccount> accounts = syncableAccounts(List.of(userId)).get(userId);
+        if (accounts == null) return false;
+        Duration minStaleness = marketOpen ? marketMinStaleness : offHoursMinStaleness;
+        return staleMinutes(accounts) >= minStaleness.toMinutes();
+    }
+
+    private Map<String, List<BrokerAccount>> syncableAccounts(Collection<String> users) {
+        return brokerAccountRepository.findByUserIdInAndIsActiveTrue(users).stream()
+                .filter(a -> a.hasCredentials() && !a.isTokenExpired())
+                .collect(Collectors.groupingBy(BrokerAccount::getUserId));
+    }
+
+    private Set<String> usersWithOpenDerivatives(Collection<String> users) {
+        return positionRepository.findDerivativesByUserIdIn(users).stream()
+                .filter(p -> p.getQuantity() != null && p.getQuantity().signum() != 0)
+                .map(CanonicalPosition::getUserId)
+                .collect(Collectors.toSet());
+    }
+
+    /** Minutes since the least recently synced account; a never-synced account counts as maximally stale. */
+    private long staleMinutes(List<BrokerAccount> accounts) {
+        LocalDateTime now = LocalDateTime.now(clock.withZone(INDIA_ZONE));
+        long stalest = 0;
+        for (BrokerAccount account : accounts) {
+            LocalDateTime last = account.getLastSuccessfulSync();
+            long minutes = last == null ? MAX_STALENESS_MINUTES : Duration.between(last, now).toMinutes();
+            stalest = Math.max(stalest, minutes);
+        }
+        return stalest;
+    }
+
+    private double health(List<BrokerAccount> accounts) {
+        double healthy = 0.0;
+        for (BrokerAccount account : accounts) {
+            healthy += switch (circuitBreaker.state(account.getBroker(), Dataset.HOLDINGS.name())) {
+                case CLOSED -> 1.0;
+                case HALF_OPEN -> 0.5;
+                case OPEN -> 0.0;
+            };
+        }
+        return healthy / accounts.size();
+    }
+}
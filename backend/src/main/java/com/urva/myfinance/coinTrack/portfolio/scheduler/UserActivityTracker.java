@@ -0,0 +1,139 @@
+package com.urva.myfinance.coinTrack.portfolio.scheduler;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.portfolio.model.UserActivity;
+
+/**
+ * Last portfolio API hit per user, kept in memory and shared across instances.
+ *
+ * The adaptive scheduler only spends its sync budget on users seen within the warm window;
+ * everyone else is idle and gets synced lazily when they next open the dashboard. Entries
+ * older than the warm window are dropped on each scheduler tick, so the map holds at most
+ * the users active in the last {@code portfolio.sync.adaptive.warm-window}.
+ *
+ * A user's requests can land on any instance, but only the node that owns them in the
+ * sharded sweep syncs them. {@link #shareWithCluster()} runs once per scheduler tick: it
+ * publishes the hits recorded here since the last tick to {@code user_activity} and merges in
+ * the hits other nodes published, so the owner sees the activity at most one tick late.
+ * Requests never wait on Mongo.
+ */
+@Component
+public class UserActivityTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserActivityTracker.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Clock clock;
+    private final Duration warmWindow;
+    private final Map<String, Instant> lastSeen = new ConcurrentHashMap<>();
+    private final Set<String> unpublished = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public UserActivityTracker(MongoTemplate mongoTemplate,
+            @Value("${portfolio.sync.adaptive.warm-window:30m}") Duration warmWindow) {
+        this(mongoTemplate, Clock.systemUTC(), warmWindow);
+    }
+
+    UserActivityTracker(MongoTemplate mongoTemplate, Clock clock, Duration warmWindow) {
+        this.mongoTemplate = mongoTemplate;
+        this.clock = clock;
+        this.warmWindow = warmWindow;
+    }
+
+    /**
+     * Records a portfolio API hit.
+     *
+     * @return when the user was last seen (on any node, as of the last tick) before this hit,
+     *         or null if they were idle
+     */
+    public Instant touch(String userId) {
+        Instant now = clock.instant();
+        Instant previous = lastSeen.put(userId, now);
+        unpublished.add(userId);
+        return previous != null && isWarm(previous, now) ? previous : null;
+    }
+
+    /** Last hit within the warm window, or null. */
+    public Instant lastSeen(String userId) {
+        Instant seen = lastSeen.get(userId);
+        return seen != null && isWarm(seen, clock.instant()) ? seen : null;
+    }
+
+    /** Users seen within the warm window. */
+    public Set<String> warmUsers() {
+        Instant now = clock.instant();
+        return lastSeen.entrySet().stream()
+                .filter(e -> isWarm(e.getValue(), now))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /** Drops users who have gone idle. */
+    public void evictIdle() {
+        Instant now = clock.instant();
+        lastSeen.values().removeIf(seen -> !isWarm(seen, now));
+    }
+
+    /**
+     * Publishes hits recorded here since the last call, then merges in the warm users every
+     * node has published. On failure the hits stay queued for the next call.
+     */
+    public void shareWithCluster() {
+        List<String> batch = new ArrayList<>(unpublished);
+        try {
+            if (!batch.isEmpty()) {
+                unpublished.removeAll(batch);
+                BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, UserActivity.class);
+                int queued = 0;
+                for (String userId : batch) {
+                    Instant seen = lastSeen.get(userId);
+                    if (seen == null) continue;
+                    // max: a node publishing late must not move another node's newer hit back
+                    ops.upsert(Query.query(Criteria.where("_id").is(userId)),
+                            new Update().max("lastSeenAt", seen).max("expiresAt", seen.plus(warmWindow)));
+                    queued++;
+                }
+                // Every hit in the batch may have been evicted since; Mongo rejects an empty bulk
+                if (queued > 0) ops.execute();
+            }
+
+            List<UserActivity> clusterWarm = mongoTemplate.find(
+                    Query.query(Criteria.where("expiresAt").gt(clock.instant())), UserActivity.class);
+            for (UserActivity activity : clusterWarm) {
+                lastSeen.merge(activity.getId(), activity.getLastSeenAt(),
+                        (local, remote) -> remote.isAfter(local) ? remote : local);
+            }
+        } catch (Exception e) {
+            unpublished.addAll(batch);
+            logger.warn("Could not share user activity with the cluster: {}", e.getMessage());
+        }
+    }
+
+    int size() {
+        return lastSeen.size();
+    }
+
+    private boolean isWarm(Instant seen, Instant now) {
+        return Duration.between(seen, now).compareTo(warmWindow) <= 0;
+    }
+}
@@ -5,6 +5,12 @@ import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
 public interface PortfolioSummaryService {
         PortfolioSummaryResponse getPortfolioSummary(String userId);
 
+        /** Version of the user's summary if already materialized on this instance, else null. No DB access. */
+        Long getSummaryVersion(String userId);
+
+        /** Changes whenever the user's canonical rows or their prices may have changed (last sync + price epoch). */
+        long getPortfolioEpoch(String userId);
+
         // Updated return types to include metadata (source, timestamp)
         com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO> getOrders(
                         String userId);
@@ -28,6 +34,6 @@ public interface PortfolioSummaryService {
         com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfSipDTO> getMfSips(
                         String userId);
 
-        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentDTO> getMfInstruments(
-                        String userId);
+        com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentListResponse getMfInstruments(String userId,
+                        com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentQuery query);
 }
@@ -0,0 +1,180 @@
+package com.urva.myfinance.coinTrack.portfolio.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Live broker reads behind the pass-through endpoints (orders, trades, MF).
+ *
+ * - Every account's fetch starts at once on a virtual thread; the caller waits for each up to
+ *   its broker's timeout, so latency is the slowest broker rather than the sum of all.
+ * - Results are cached per (user, broker account, dataset) for {@code portfolio.passthrough.cache-ttl}.
+ *   Concurrent requests for the same key share one in-flight call; failures are not cached.
+ * - A broker that fails or times out is left out and named in the result. A timed-out call
+ *   keeps running and fills the cache for the next request.
+ *
+ * Cached lists are shared between callers and must be treated as read-only.
+ */
+@Component
+public class BrokerPassThroughFetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerPassThroughFetcher.class);
+    private static final long MAX_ENTRIES = 20_000;
+
+    public enum Dataset {
+        ORDERS,
+        TRADES,
+        MF_HOLDINGS,
+        MF_ORDERS,
+        MF_SIPS
+    }
+
+    private record Key(String userId, String accountId, Dataset dataset) {}
+
+    private record Loaded(List<?> data, LocalDateTime fetchedAt) {}
+
+    /** Merged rows of every broker that answered in time. fetchedAt is the oldest of their fetches. */
+    public record Fetched<T>(List<T> data, List<String> unavailableBrokers, LocalDateTime fetchedAt) {
+        public boolean partial() {
+            return !unavailableBrokers.isEmpty();
+        }
+    }
+
+    /** Fetches started for a set of accounts; {@link #await()} collects them. */
+    public final class Pending<T> {
+        private final List<BrokerAccount> accounts;
+        private final List<CompletableFuture<Loaded>> futures;
+        private final Dataset dataset;
+        private final long startedAt;
+
+        private Pending(List<BrokerAccount> accounts, List<CompletableFuture<Loaded>> futures, Dataset dataset) {
+            this.accounts = accounts;
+            this.futures = futures;
+            this.dataset = dataset;
+            this.startedAt = System.nanoTime();
+        }
+
+        @SuppressWarnings("unchecked")
+        public Fetched<T> await() {
+            List<T> data = new ArrayList<>();
+            List<String> unavailable = new ArrayList<>();
+            LocalDateTime fetchedAt = LocalDateTime.now();
+            for (int i = 0; i < futures.size(); i++) {
+                Broker broker = accounts.get(i).getBroker();
+                long remaining = timeoutFor(broker).toNanos() - (System.nanoTime() - startedAt);
+                try {
+                    Loaded loaded = futures.get(i).get(Math.max(remaining, 0), TimeUnit.NANOSECONDS);
+                    data.addAll((List<T>) loaded.data());
+                    if (loaded.fetchedAt().isBefore(fetchedAt)) fetchedAt = loaded.fetchedAt();
+                } catch (TimeoutException e) {
+                    unavailable.add(broker.name());
+                    meterRegistry.counter("portfolio.passthrough.unavailable", "dataset", dataset.name(),
+                            "reason", "timeout").increment();
+                    log.warn("{} {} timed out after {}s; serving the other brokers", broker, dataset,
+                            timeoutFor(broker).toSeconds());
+                } catch (ExecutionException e) {
+                    unavailable.add(broker.name());
+                    meterRegistry.counter("portfolio.passthrough.unavailable", "dataset", dataset.name(),
+                            "reason", "error").increment();
+                    log.warn("Failed to fetch {} from {}: {}", dataset, broker, e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    unavailable.add(broker.name());
+                }
+            }
+            return new Fetched<>(data, unavailable, fetchedAt);
+        }
+    }
+
+    private final AsyncCache<Key, Loaded> cache;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Broker, Duration> timeouts = new EnumMap<>(Broker.class);
+    private final MeterRegistry meterRegistry;
+
+    public BrokerPassThroughFetcher(MeterRegistry meterRegistry,
+                                    @Value("${portfolio.passthrough.cache-ttl:20s}") Duration cacheTtl,
+                                    @Value("${portfolio.passthrough.timeout.zerodha:8s}") Duration zerodhaTimeout,
+                                    @Value("${portfolio.passthrough.timeout.upstox:8s}") Duration upstoxTimeout,
+                                    @Value("${portfolio.passthrough.timeout.angelone:10s}") Duration angelOneTimeout) {
+        this.meterRegistry = meterRegistry;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(MAX_ENTRIES)
+                .expireAfterWrite(cacheTtl)
+                .buildAsync();
+        this.timeouts.put(Broker.ZERODHA, zerodhaTimeout);
+        this.timeouts.put(Broker.UPSTOX, upstoxTimeout);
+        this.timeouts.put(Broker.ANGELONE, angelOneTimeout);
+    }
+
+    /** Starts (or joins) every account's fetch without waiting. */
+    public <T> Pending<T> start(String userId, List<BrokerAccount> accounts, Dataset dataset,
+                                Function<BrokerAccount, List<T>> loader) {
+        List<CompletableFuture<Loaded>> futures = new ArrayList<>(accounts.size());
+        for (BrokerAccount account : accounts) {
+            Key key = new Key(userId, account.getId(), dataset);
+            AtomicReference<CompletableFuture<Loaded>> started = new AtomicReference<>();
+            Function<Key, CompletableFuture<Loaded>> startLoad = k -> {
+                CompletableFuture<Loaded> load = CompletableFuture.supplyAsync(() -> load(account, dataset, loader), executor);
+                started.set(load);
+                return load;
+            };
+            CompletableFuture<Loaded> future = cache.get(key, (k, ignored) -> startLoad.apply(k));
+            if (future != started.get() && future.isCompletedExceptionally()) {
+                // An earlier call's failure that Caffeine has not dropped yet: evict it and load
+                // once more. A failure of the load this call started is reported as is.
+                cache.asMap().remove(key, future);
+                future = cache.get(key, (k, ignored) -> startLoad.apply(k));
+            }
+            futures.add(future);
+        }
+        return new Pending<>(accounts, futures, dataset);
+    }
+
+    public <T> Fetched<T> fetch(String userId, List<BrokerAccount> accounts, Dataset dataset,
+                                Function<BrokerAccount, List<T>> loader) {
+        return start(userId, accounts, dataset, loader).await();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> Loaded load(BrokerAccount account, Dataset dataset, Function<BrokerAccount, List<T>> loader) {
+        meterRegistry.counter("portfolio.passthrough.loads", "dataset", dataset.name()).increment();
+        List<T> rows = loader.apply(account);
+        return new Loaded(rows != null ? Collections.unmodifiableList(new ArrayList<>(rows)) : List.of(),
+                LocalDateTime.now());
+    }
+
+    private Duration timeoutFor(Broker broker) {
+        return timeouts.getOrDefault(broker, Duration.ofSeconds(8));
+    }
+}
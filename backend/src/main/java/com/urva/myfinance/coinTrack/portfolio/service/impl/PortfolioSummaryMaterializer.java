@@ -0,0 +1,495 @@
+package com.urva.myfinance.coinTrack.portfolio.service.impl;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryHoldingDTO;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryPositionDTO;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioSummarySnapshot;
+import com.urva.myfinance.coinTrack.portfolio.model.SyncLog;
+import com.urva.myfinance.coinTrack.portfolio.model.SyncStatus;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.SyncLogRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-user materialized portfolio summary. Reads are a map lookup; the work happens when
+ * the inputs change:
+ *
+ * - Sync completed → full reload: canonical rows + latest SyncLog + prices, and the result is
+ *   written to {@code portfolio_summaries}. Done by the refresh job, not the sync thread.
+ * - Price of a held symbol moved ({@link MarketPriceCache} change listener, i.e. ticks) or the
+ *   view's prices are older than the L1 price TTL → reprice: holdings are re-enriched from the
+ *   rows kept in memory; positions, sync time and the rest are reused. No Mongo reads.
+ *
+ * Each view carries a version that only moves when the content changes, and the asOf time that
+ * version was computed. Alongside it, an input epoch moves whenever the view's rows may have
+ * changed (sync) or it was repriced — the version of anything derived from the same rows and
+ * prices, such as net positions. Both are readable without Mongo for conditional GETs.
+ * Views idle for {@code portfolio.summary.idle-eviction} are dropped.
+ *
+ * Other instances: every sync bumps the document's syncVersion; the reconcile job compares it
+ * with the resident views and reloads the ones another node synced. A cold read serves the
+ * stored summary when it is as new as the latest sync and its prices are within the L1 price
+ * TTL, and reloads it in the background; otherwise it recomputes before answering. Reprices are
+ * not written back, so a stored summary's prices are those of its last full reload.
+ *
+ * Summary listeners are told about every newly computed summary (reload or reprice) on the
+ * refresh thread, or on the reading thread for a first load.
+ *
+ * Returned responses are shared between callers and must be treated as read-only.
+ */
+@Component
+public class PortfolioSummaryMaterializer {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioSummaryMaterializer.class);
+    private static final long STALE_PRICE_SECONDS = 60;
+    private static final int RECONCILE_BATCH = 500;
+
+    private final CanonicalHoldingRepository holdingRepository;
+    private final CanonicalPositionRepository positionRepository;
+    private final SyncLogRepository syncLogRepository;
+    private final MarketDataService marketDataService;
+    private final HoldingEnricher holdingEnricher;
+    private final PositionEnricher positionEnricher;
+    private final PortfolioTotalsCalculator totalsCalculator;
+    private final MongoTemplate mongoTemplate;
+    private final Duration idleEviction;
+
+    private final Map<String, View> views = new ConcurrentHashMap<>();
+    // symbol → users whose resident view holds it; drives tick-triggered repricing
+    private final Map<String, Set<String>> watchersBySymbol = new ConcurrentHashMap<>();
+    private final Set<String> reloadPending = ConcurrentHashMap.newKeySet();
+    private final Set<String> repricePending = ConcurrentHashMap.newKeySet();
+    private final List<BiConsumer<String, PortfolioSummaryResponse>> summaryListeners = new CopyOnWriteArrayList<>();
+
+    private final Counter fullLoads;
+    private final Counter reprices;
+
+    public PortfolioSummaryMaterializer(CanonicalHoldingRepository holdingRepository,
+                                        CanonicalPositionRepository positionRepository,
+                                        SyncLogRepository syncLogRepository,
+                                        MarketDataService marketDataService,
+                                        HoldingEnricher holdingEnricher,
+                                        PositionEnricher positionEnricher,
+                                        PortfolioTotalsCalculator totalsCalculator,
+                                        MarketPriceCache priceCache,
+                                        MongoTemplate mongoTemplate,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${portfolio.summary.idle-eviction:30m}") Duration idleEviction) {
+        this.holdingRepository = holdingRepository;
+        this.positionRepository = positionRepository;
+        this.syncLogRepository = syncLogRepository;
+        this.marketDataService = marketDataService;
+        this.holdingEnricher = holdingEnricher;
+        this.positionEnricher = positionEnricher;
+        this.totalsCalculator = totalsCalculator;
+        this.mongoTemplate = mongoTemplate;
+        this.idleEviction = idleEviction;
+        this.fullLoads = Counter.builder("portfolio.summary.recompute").tag("kind", "full").register(meterRegistry);
+        this.reprices = Counter.builder("portfolio.summary.recompute").tag("kind", "reprice").register(meterRegistry);
+        Gauge.builder("portfolio.summary.views", views, Map::size).register(meterRegistry);
+        priceCache.addChangeListener(this::onPriceChanged);
+    }
+
+    /**
+     * One user's materialized view. Immutable apart from epoch and lastReadAt; replaced as a whole.
+     * holdings is null while the view is only backed by the stored snapshot. symbols are the
+     * holdings' symbols (priced here); watched adds the positions' symbols.
+     */
+    private static final class View {
+        final List<CanonicalHolding> holdings;
+        final Set<String> symbols;
+        final Set<String> watched;
+        final long syncVersion;
+        final PortfolioSummaryResponse response;
+        final long pricedAt;
+        volatile long epoch;
+        volatile long lastReadAt;
+
+        View(List<CanonicalHolding> holdings, Set<String> symbols, Set<String> watched, long syncVersion,
+             PortfolioSummaryResponse response, long pricedAt, long epoch, long lastReadAt) {
+            this.holdings = holdings;
+            this.symbols = symbols;
+            this.watched = watched;
+            this.syncVersion = syncVersion;
+            this.response = response;
+            this.pricedAt = pricedAt;
+            this.epoch = epoch;
+            this.lastReadAt = lastReadAt;
+        }
+    }
+
+    /** The user's current summary. Computes it only if this node holds no view yet. */
+    public PortfolioSummaryResponse get(String userId) {
+        View view = views.get(userId);
+        if (view == null) {
+            view = materialize(userId);
+        }
+        view.lastReadAt = System.currentTimeMillis();
+        return view.response;
+    }
+
+    /**
+     * Version of the resident summary, or null if this node holds none. Memory only.
+     * Counts as a read, so a client polling with conditional GETs keeps its view resident.
+     */
+    public Long summaryVersion(String userId) {
+        View view = views.get(userId);
+        if (view == null) return null;
+        view.lastReadAt = System.currentTimeMillis();
+        return view.response.getVersion();
+    }
+
+    /**
+     * Input epoch of the user's view (see class doc), materializing the view first if needed.
+     * Memory only once the view is resident.
+     */
+    public long inputEpoch(String userId) {
+        View view = views.get(userId);
+        if (view == null) {
+            get(userId);
+            view = views.get(userId);
+        }
+        return view != null ? view.epoch : stamp(0L);
+    }
+
+    /** Registers a callback receiving (userId, summary) for every summary computed here. Must not block. */
+    public void addSummaryListener(BiConsumer<String, PortfolioSummaryResponse> listener) {
+        summaryListeners.add(listener);
+    }
+
+    /**
+     * Called by the sync service after a sync for {@code userId} completed and was logged.
+     * Signals every node (syncVersion) and schedules the local reload; never throws.
+     */
+    public void onSyncCompleted(String userId) {
+        try {
+            mongoTemplate.upsert(byId(userId), new Update().inc("syncVersion", 1), PortfolioSummarySnapshot.class);
+        } catch (Exception e) {
+            log.warn("Could not bump summary sync version for user {}: {}", userId, e.getMessage());
+        }
+        View view = views.get(userId);
+        if (view != null) {
+            // Rows changed now; the reload follows within a refresh interval
+            view.epoch = stamp(view.epoch);
+            reloadPending.add(userId);
+        }
+    }
+
+    /** Price change listener. Runs on the ticker's event loop: only marks views dirty. */
+    void onPriceChanged(String symbol) {
+        Set<String> watchers = watchersBySymbol.get(symbol);
+        if (watchers != null) {
+            repricePending.addAll(watchers);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.summary.refresh-interval:2s}")
+    public void refresh() {
+        Set<String> reloaded = drain(reloadPending);
+        for (String userId : reloaded) {
+            if (views.containsKey(userId)) {
+                reload(userId);
+            }
+        }
+
+        Set<String> toReprice = drain(repricePending);
+        long expiredBefore = System.currentTimeMillis() - MarketPriceCache.currentTtl().toMillis();
+        views.forEach((userId, view) -> {
+            if (view.pricedAt < expiredBefore) toReprice.add(userId);
+        });
+        toReprice.removeAll(reloaded);
+        for (String userId : toReprice) {
+            View view = views.get(userId);
+            if (view == null) continue;
+            if (view.holdings == null) {
+                reload(userId);
+            } else {
+                reprice(userId, view);
+            }
+        }
+    }
+
+    /** Picks up syncs run by other nodes and drops views nobody has read for a while. */
+    @Scheduled(fixedDelayString = "${portfolio.summary.reconcile-interval:15s}")
+    public void reconcile() {
+        long idleBefore = System.currentTimeMillis() - idleEviction.toMillis();
+        views.forEach((userId, view) -> {
+            if (view.lastReadAt < idleBefore && views.remove(userId, view)) {
+                unwatch(userId, view.watched);
+            }
+        });
+
+        List<String> resident = new ArrayList<>(views.keySet());
+        for (int from = 0; from < resident.size(); from += RECONCILE_BATCH) {
+            List<String> batch = resident.subList(from, Math.min(from + RECONCILE_BATCH, resident.size()));
+            Query query = Query.query(Criteria.where("_id").in(batch));
+            query.fields().include("syncVersion");
+            try {
+                for (PortfolioSummarySnapshot snapshot : mongoTemplate.find(query, PortfolioSummarySnapshot.class)) {
+                    View view = views.get(snapshot.getId());
+                    if (view != null && snapshot.getSyncVersion() > view.syncVersion) {
+                        reloadPending.add(snapshot.getId());
+                    }
+                }
+            } catch (Exception e) {
+                log.warn("Summary reconcile failed: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    // ── Internal ────────────────────────────────────────────────
+
+    private View materialize(String userId) {
+        PortfolioSummarySnapshot snapshot = findSnapshot(userId);
+        if (snapshot != null && snapshot.getSummary() != null
+                && snapshot.getMaterializedSyncVersion() == snapshot.getSyncVersion()
+                && pricedWithinTtl(snapshot)) {
+            // Current as of the latest sync, prices recent; they catch up on the next refresh
+            View fromSnapshot = new View(null, Set.of(), Set.of(), snapshot.getSyncVersion(), snapshot.getSummary(),
+                    0L, stamp(0L), System.currentTimeMillis());
+            View existing = views.putIfAbsent(userId, fromSnapshot);
+            if (existing != null) return existing;
+            reloadPending.add(userId);
+            return fromSnapshot;
+        }
+        View loaded = load(userId, snapshot, null);
+        View existing = views.putIfAbsent(userId, loaded);
+        if (existing != null) return existing;
+        watch(userId, loaded.watched);
+        publish(userId, loaded.response);
+        return loaded;
+    }
+
+    private void reload(String userId) {
+        try {
+            View previous = views.get(userId);
+            View loaded = load(userId, findSnapshot(userId), previous);
+            install(userId, previous, loaded);
+        } catch (Exception e) {
+            log.warn("Summary reload failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void reprice(String userId, View view) {
+        try {
+            Map<String, MarketPrice> priceMap = marketDataService.getPrices(new ArrayList<>(view.symbols));
+            PortfolioSummaryResponse response = build(view.holdings, priceMap,
+                    view.response.getPositionsList(), view.response.isContainsDerivatives(),
+                    view.response.getLastAnySync());
+            response = versioned(response, view.response);
+            reprices.increment();
+            install(userId, view, new View(view.holdings, view.symbols, view.watched, view.syncVersion, response,
+                    System.currentTimeMillis(), stamp(view.epoch), view.lastReadAt));
+        } catch (Exception e) {
+            log.warn("Summary reprice failed for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /** Full recompute from Mongo; persists the result as the user's summary document. */
+    private View load(String userId, PortfolioSummarySnapshot snapshot, View previous) {
+        long syncVersion = snapshot != null ? snapshot.getSyncVersion() : 0L;
+
+        List<CanonicalHolding> holdings = holdingRepository.findByUserId(userId);
+        List<CanonicalPosition> positions = positionRepository.findByUserId(userId);
+
+        Set<String> symbols = new HashSet<>();
+        holdings.forEach(h -> symbols.add(h.getSymbol()));
+        Set<String> watched = new HashSet<>(symbols);
+        positions.forEach(p -> watched.add(p.getSymbol()));
+        watched.remove(null);
+        Map<String, MarketPrice> priceMap = marketDataService.getPrices(new ArrayList<>(symbols));
+
+        List<SummaryPositionDTO> enrichedPositions = new ArrayList<>(positionEnricher.enrich(positions));
+        enrichedPositions.sort((a, b) -> b.getCurrentValue().compareTo(a.getCurrentValue()));
+        boolean containsDerivatives = positionEnricher.containsDerivatives(positions);
+
+        PortfolioSummaryResponse response = build(holdings, priceMap, enrichedPositions, containsDerivatives,
+                getLatestSyncTime(userId));
+        PortfolioSummaryResponse baseline = previous != null ? previous.response
+                : snapshot != null ? snapshot.getSummary() : null;
+        response = versioned(response, baseline);
+        fullLoads.increment();
+
+        persist(userId, syncVersion, response, LocalDateTime.now());
+        long lastReadAt = previous != null ? previous.lastReadAt : System.currentTimeMillis();
+        long epoch = stamp(previous != null ? previous.epoch : 0L);
+        return new View(holdings, Collections.unmodifiableSet(symbols), Collections.unmodifiableSet(watched),
+                syncVersion, response, System.currentTimeMillis(), epoch, lastReadAt);
+    }
+
+    private PortfolioSummaryResponse build(List<CanonicalHolding> holdings, Map<String, MarketPrice> priceMap,
+                                           List<SummaryPositionDTO> positions, boolean containsDerivatives,
+                                           LocalDateTime latestSync) {
+        boolean hasStalePrices = priceMap.values().stream()
+                .anyMatch(mp -> mp.getUpdatedAt() != null
+                        && Duration.between(mp.getUpdatedAt(), LocalDateTime.now()).getSeconds() > STALE_PRICE_SECONDS);
+
+        List<SummaryHoldingDTO> enrichedHoldings = holdingEnricher.enrich(holdings, priceMap);
+        PortfolioTotalsCalculator.PortfolioTotals totals = totalsCalculator.calculate(enrichedHoldings);
+
+        // Sort by value DESC (wrap in mutable list since enrich() may return unmodifiable lists)
+        enrichedHoldings = new ArrayList<>(enrichedHoldings);
+        enrichedHoldings.sort((a, b) -> b.getCurrentValue().compareTo(a.getCurrentValue()));
+
+        return PortfolioSummaryResponse.builder()
+                .totalCurrentValue(totals.totalCurrentValue())
+                .totalInvestedValue(totals.totalInvestedValue())
+                .totalUnrealizedPL(totals.totalUnrealizedPL())
+                .totalUnrealizedPLPercent(totals.totalUnrealizedPLPercent())
+                .totalDayGain(totals.totalDayGain())
+                .totalDayGainPercent(totals.totalDayGainPercent())
+                .previousDayTotalValue(totals.previousDayTotal())
+                .lastHoldingsSync(latestSync)
+                .lastPositionsSync(latestSync)
+                .lastAnySync(latestSync)
+                .holdingsList(enrichedHoldings)
+                .positionsList(positions)
+                .type("CUSTOM_AGGREGATE")
+                .source(Collections.singletonList("ZERODHA"))
+                .containsDerivatives(containsDerivatives)
+                .dayGainPercentApplicable(true)
+                .hasStalePrices(hasStalePrices)
+                .build();
+    }
+
+    /**
+     * Keeps the previous version when nothing but the metadata differs; otherwise stamps a new one.
+     */
+    private static PortfolioSummaryResponse versioned(PortfolioSummaryResponse fresh, PortfolioSummaryResponse previous) {
+        if (previous != null && previous.getVersion() != null) {
+            fresh.setVersion(previous.getVersion());
+            fresh.setAsOf(previous.getAsOf());
+            if (fresh.equals(previous)) return previous;
+        }
+        fresh.setVersion(stamp(previous != null && previous.getVersion() != null ? previous.getVersion() : 0L));
+        fresh.setAsOf(LocalDateTime.now());
+        return fresh;
+    }
+
+    /** Next value after {@code previous}: wall-clock millis, so values keep increasing across restarts. */
+    private static long stamp(long previous) {
+        return Math.max(previous + 1, System.currentTimeMillis());
+    }
+
+    private void install(String userId, View previous, View next) {
+        boolean replaced = previous == null ? views.putIfAbsent(userId, next) == null : views.replace(userId, previous, next);
+        if (!replaced) return; // evicted or replaced meanwhile
+        if (previous != null && !previous.watched.equals(next.watched)) {
+            Set<String> dropped = new HashSet<>(previous.watched);
+            dropped.removeAll(next.watched);
+            unwatch(userId, dropped);
+        }
+        watch(userId, next.watched);
+        publish(userId, next.response);
+    }
+
+    private void publish(String userId, PortfolioSummaryResponse response) {
+        for (BiConsumer<String, PortfolioSummaryResponse> listener : summaryListeners) {
+            try {
+                listener.accept(userId, response);
+            } catch (Exception e) {
+                log.warn("Summary listener failed for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    private void watch(String userId, Set<String> symbols) {
+        for (String symbol : symbols) {
+            watchersBySymbol.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    private void unwatch(String userId, Set<String> symbols) {
+        for (String symbol : symbols) {
+            watchersBySymbol.computeIfPresent(symbol, (s, users) -> {
+                users.remove(userId);
+                return users.isEmpty() ? null : users;
+            });
+        }
+    }
+
+    private void persist(String userId, long syncVersion, PortfolioSummaryResponse response, LocalDateTime pricedAt) {
+        try {
+            mongoTemplate.upsert(byId(userId), new Update()
+                    .set("summary", response)
+                    .set("version", response.getVersion())
+                    .set("asOf", response.getAsOf())
+                    .set("pricedAt", pricedAt)
+                    .set("materializedSyncVersion", syncVersion), PortfolioSummarySnapshot.class);
+        } catch (Exception e) {
+            log.warn("Could not store summary for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    /** Whether the stored summary's prices are no older than a cached price may be. */
+    private static boolean pricedWithinTtl(PortfolioSummarySnapshot snapshot) {
+        return snapshot.getPricedAt() != null
+                && !snapshot.getPricedAt().isBefore(LocalDateTime.now().minus(MarketPriceCache.currentTtl()));
+    }
+
+    private PortfolioSummarySnapshot findSnapshot(String userId) {
+        try {
+            return mongoTemplate.findById(userId, PortfolioSummarySnapshot.class);
+        } catch (Exception e) {
+            log.warn("Could not read stored summary for user {}: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private LocalDateTime getLatestSyncTime(String userId) {
+        Optional<SyncLog> lastLog = syncLogRepository.findFirstByUserIdAndStatusOrderByTimestampDesc(userId,
+                SyncStatus.SUCCESS);
+        return lastLog.map(SyncLog::getTimestamp).orElse(null);
+    }
+
+    private static Query byId(String userId) {
+        return Query.query(Criteria.where("_id").is(userId));
+    }
+
+    private static Set<String> drain(Set<String> pending) {
+        Set<String> drained = new HashSet<>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    int residentViews() {
+        return views.size();
+    }
+}
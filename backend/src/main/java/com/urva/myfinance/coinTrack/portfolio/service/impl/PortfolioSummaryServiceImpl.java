@@ -3,11 +3,9 @@ package com.urva.myfinance.coinTrack.portfolio.service.impl;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -15,138 +13,77 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
-import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
 import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
-import com.urva.myfinance.coinTrack.portfolio.dto.SummaryHoldingDTO;
-import com.urva.myfinance.coinTrack.portfolio.dto.SummaryPositionDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse;
-import com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentDTO;
+import com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentListResponse;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.MfSipDTO;
-import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
-import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
-import com.urva.myfinance.coinTrack.portfolio.model.SyncLog;
-import com.urva.myfinance.coinTrack.portfolio.model.SyncStatus;
-import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
-import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
-import com.urva.myfinance.coinTrack.portfolio.repository.SyncLogRepository;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentCatalog;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentQuery;
 import com.urva.myfinance.coinTrack.portfolio.service.PortfolioSummaryService;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.BrokerPassThroughFetcher.Dataset;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.BrokerPassThroughFetcher.Fetched;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.BrokerPassThroughFetcher.Pending;
 
 /**
- * Orchestrator — delegates to HoldingEnricher, PositionEnricher, PortfolioTotalsCalculator.
- * Reduced from 953 lines to ~120 lines of orchestration + MF pass-through methods.
+ * Orchestrator — the summary is served from PortfolioSummaryMaterializer (which delegates to
+ * HoldingEnricher, PositionEnricher, PortfolioTotalsCalculator); the rest are pass-through methods.
  *
  * Changed: Extracted P&L computation into HoldingEnricher, PositionEnricher, PortfolioTotalsCalculator.
  * Added hasStalePrices flag to response.
+ * Summary is a materialized per-user view, recomputed on sync and price changes instead of per request.
+ * Orders, trades and MF reads go through BrokerPassThroughFetcher: all brokers in parallel,
+ * per-broker timeouts, short-lived per-user cache; brokers that did not answer are reported.
+ * MF instruments come from the shared daily MfInstrumentCatalog.
  */
 @Service
 public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
 
     private static final Logger log = LoggerFactory.getLogger(PortfolioSummaryServiceImpl.class);
 
-    private final CanonicalHoldingRepository holdingRepository;
-    private final CanonicalPositionRepository positionRepository;
-    private final SyncLogRepository syncLogRepository;
-    private final MarketDataService marketDataService;
-    private final HoldingEnricher holdingEnricher;
-    private final PositionEnricher positionEnricher;
-    private final PortfolioTotalsCalculator totalsCalculator;
+    private final PortfolioSummaryMaterializer summaryMaterializer;
     private final com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository brokerAccountRepository;
     private final com.urva.myfinance.coinTrack.broker.service.ZerodhaLiveDataService zerodhaLiveDataService;
     private final com.urva.myfinance.coinTrack.broker.adapters.upstox.UpstoxBrokerAdapter upstoxBrokerAdapter;
     private final com.urva.myfinance.coinTrack.broker.adapters.angelone.AngelOneBrokerAdapter angelOneBrokerAdapter;
     private final com.urva.myfinance.coinTrack.portfolio.repository.CanonicalFundsRepository canonicalFundsRepository;
     private final com.urva.myfinance.coinTrack.portfolio.repository.CanonicalMfOrderRepository canonicalMfOrderRepository;
+    private final BrokerPassThroughFetcher passThroughFetcher;
+    private final MfInstrumentCatalog mfInstrumentCatalog;
 
     @Autowired
-    public PortfolioSummaryServiceImpl(CanonicalHoldingRepository holdingRepository,
-            CanonicalPositionRepository positionRepository,
-            SyncLogRepository syncLogRepository,
-            MarketDataService marketDataService,
-            HoldingEnricher holdingEnricher,
-            PositionEnricher positionEnricher,
-            PortfolioTotalsCalculator totalsCalculator,
+    public PortfolioSummaryServiceImpl(PortfolioSummaryMaterializer summaryMaterializer,
             com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository brokerAccountRepository,
             com.urva.myfinance.coinTrack.broker.service.ZerodhaLiveDataService zerodhaLiveDataService,
             com.urva.myfinance.coinTrack.broker.adapters.upstox.UpstoxBrokerAdapter upstoxBrokerAdapter,
             com.urva.myfinance.coinTrack.broker.adapters.angelone.AngelOneBrokerAdapter angelOneBrokerAdapter,
             com.urva.myfinance.coinTrack.portfolio.repository.CanonicalFundsRepository canonicalFundsRepository,
-            com.urva.myfinance.coinTrack.portfolio.repository.CanonicalMfOrderRepository canonicalMfOrderRepository) {
-        this.holdingRepository = holdingRepository;
-        this.positionRepository = positionRepository;
-        this.syncLogRepository = syncLogRepository;
-        this.marketDataService = marketDataService;
-        this.holdingEnricher = holdingEnricher;
-        this.positionEnricher = positionEnricher;
-        this.totalsCalculator = totalsCalculator;
+            com.urva.myfinance.coinTrack.portfolio.repository.CanonicalMfOrderRepository canonicalMfOrderRepository,
+            BrokerPassThroughFetcher passThroughFetcher,
+            MfInstrumentCatalog mfInstrumentCatalog) {
+        this.summaryMaterializer = summaryMaterializer;
         this.brokerAccountRepository = brokerAccountRepository;
         this.zerodhaLiveDataService = zerodhaLiveDataService;
         this.upstoxBrokerAdapter = upstoxBrokerAdapter;
         this.angelOneBrokerAdapter = angelOneBrokerAdapter;
         this.canonicalFundsRepository = canonicalFundsRepository;
         this.canonicalMfOrderRepository = canonicalMfOrderRepository;
+        this.passThroughFetcher = passThroughFetcher;
+        this.mfInstrumentCatalog = mfInstrumentCatalog;
     }
 
     @Override
     public PortfolioSummaryResponse getPortfolioSummary(String userId) {
-        // 1. Load from MongoDB
-        List<CanonicalHolding> holdings = holdingRepository.findByUserId(userId);
-        List<CanonicalPosition> positions = positionRepository.findByUserId(userId);
-
-        // 2. Collect symbols for batch market data
-        Set<String> allSymbols = new HashSet<>();
-        holdings.forEach(h -> allSymbols.add(h.getSymbol()));
-
-        // 3. Batch fetch market prices (real Zerodha LTP now, not stub)
-        Map<String, MarketPrice> priceMap = marketDataService.getPrices(new ArrayList<>(allSymbols));
-
-        // 4. Detect stale prices
-        boolean hasStalePrices = priceMap.values().stream()
-                .anyMatch(mp -> mp.getUpdatedAt() != null
-                        && java.time.Duration.between(mp.getUpdatedAt(), LocalDateTime.now()).getSeconds() > 60);
-
-        // 5. Enrich holdings + compute totals
-        List<SummaryHoldingDTO> enrichedHoldings = holdingEnricher.enrich(holdings, priceMap);
-        PortfolioTotalsCalculator.PortfolioTotals totals = totalsCalculator.calculate(enrichedHoldings);
-
-        // 6. Enrich positions (separate from totals)
-        List<SummaryPositionDTO> enrichedPositions = positionEnricher.enrich(positions);
-        boolean containsDerivatives = positionEnricher.containsDerivatives(positions);
-
-        // 7. Sort by value DESC (wrap in mutable list since enrich() may return unmodifiable lists)
-        enrichedHoldings = new java.util.ArrayList<>(enrichedHoldings);
-        enrichedHoldings.sort((a, b) -> b.getCurrentValue().compareTo(a.getCurrentValue()));
-        enrichedPositions = new java.util.ArrayList<>(enrichedPositions);
-        enrichedPositions.sort((a, b) -> b.getCurrentValue().compareTo(a.getCurrentValue()));
-
-        // 8. Sync timestamp
-        LocalDateTime latestSync = getLatestSyncTime(userId);
-
-        return PortfolioSummaryResponse.builder()
-                .totalCurrentValue(totals.totalCurrentValue())
-                .totalInvestedValue(totals.totalInvestedValue())
-                .totalUnrealizedPL(totals.totalUnrealizedPL())
-                .totalUnrealizedPLPercent(totals.totalUnrealizedPLPercent())
-                .totalDayGain(totals.totalDayGain())
-                .totalDayGainPercent(totals.totalDayGainPercent())
-                .previousDayTotalValue(totals.previousDayTotal())
-                .lastHoldingsSync(latestSync)
-                .lastPositionsSync(latestSync)
-                .lastAnySync(latestSync)
-                .holdingsList(enrichedHoldings)
-                .positionsList(enrichedPositions)
-                .type("CUSTOM_AGGREGATE")
-                .source(Collections.singletonList("ZERODHA"))
-                .containsDerivatives(containsDerivatives)
-                .dayGainPercentApplicable(true)
-                .hasStalePrices(hasStalePrices)
-                .build();
+        return summaryMaterializer.get(userId);
     }
 
-    private LocalDateTime getLatestSyncTime(String userId) {
-        Optional<SyncLog> lastLog = syncLogRepository.findFirstByUserIdAndStatusOrderByTimestampDesc(userId,
-                SyncStatus.SUCCESS);
-        return lastLog.map(SyncLog::getTimestamp).orElse(null);
+    @Override
+    public Long getSummaryVersion(String userId) {
+        return summaryMaterializer.summaryVersion(userId);
+    }
+
+    @Override
+    public long getPortfolioEpoch(String userId) {
+        return summaryMaterializer.inputEpoch(userId);
     }
 
     // ════════════════════════════════════════════════════════════════
@@ -157,61 +94,25 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
     @Override
     public com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO> getOrders(
             String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO> allOrders = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (!account.hasValidToken()) continue;
-            try {
-                if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA) {
-                    allOrders.addAll(zerodhaLiveDataService.fetchOrders(account));
-                } else if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.UPSTOX) {
-                    allOrders.addAll(upstoxBrokerAdapter.fetchOrders(account));
-                } else if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ANGELONE) {
-                    allOrders.addAll(angelOneBrokerAdapter.fetchOrders(account));
-                }
-            } catch (Exception e) {
-                log.warn("Failed to fetch orders for {}: {}", account.getBroker(), e.getMessage());
-            }
-        }
-
-        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO> response = new com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<>();
-        response.setData(allOrders);
-        response.setLastSyncedAt(syncTime);
-        response.setSource("LIVE");
-        return response;
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO> orders = passThroughFetcher.fetch(userId,
+                connectedAccounts(userId), Dataset.ORDERS, account -> switch (account.getBroker()) {
+                    case ZERODHA -> zerodhaLiveDataService.fetchOrders(account);
+                    case UPSTOX -> upstoxBrokerAdapter.fetchOrders(account);
+                    case ANGELONE -> angelOneBrokerAdapter.fetchOrders(account);
+                });
+        return listResponse(orders.data(), orders);
     }
 
     @Override
     public com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO> getTrades(
             String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO> allTrades = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (!account.hasValidToken()) continue;
-            try {
-                if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA) {
-                    allTrades.addAll(zerodhaLiveDataService.fetchTrades(account));
-                } else if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.UPSTOX) {
-                    allTrades.addAll(upstoxBrokerAdapter.fetchTrades(account));
-                } else if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ANGELONE) {
-                    allTrades.addAll(angelOneBrokerAdapter.fetchTrades(account));
-                }
-            } catch (Exception e) {
-                log.warn("Failed to fetch trades for {}: {}", account.getBroker(), e.getMessage());
-            }
-        }
-
-        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO> response = new com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<>();
-        response.setData(allTrades);
-        response.setLastSyncedAt(syncTime);
-        response.setSource("LIVE");
-        return response;
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO> trades = passThroughFetcher.fetch(userId,
+                connectedAccounts(userId), Dataset.TRADES, account -> switch (account.getBroker()) {
+                    case ZERODHA -> zerodhaLiveDataService.fetchTrades(account);
+                    case UPSTOX -> upstoxBrokerAdapter.fetchTrades(account);
+                    case ANGELONE -> angelOneBrokerAdapter.fetchTrades(account);
+                });
+        return listResponse(trades.data(), trades);
     }
 
     @Override
@@ -279,76 +180,18 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
     @Override
     public com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> getMutualFunds(
             String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> allMf = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA
-                    && account.hasValidToken()) {
-                try {
-                    allMf.addAll(zerodhaLiveDataService.fetchMfHoldings(account));
-                } catch (Exception e) {
-                    log.warn("Failed to fetch MF holdings: {}", e.getMessage());
-                }
-            }
-        }
-
-        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> response = new com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<>();
-        response.setData(allMf);
-        response.setLastSyncedAt(syncTime);
-        response.setSource("LIVE");
-        return response;
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> holdings = passThroughFetcher.fetch(userId,
+                connectedZerodhaAccounts(userId), Dataset.MF_HOLDINGS, zerodhaLiveDataService::fetchMfHoldings);
+        return listResponse(holdings.data(), holdings);
     }
 
     @Override
     public com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> getMfOrders(
             String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> allOrders = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA
-                    && account.hasValidToken()) {
-                try {
-                    List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> orders = zerodhaLiveDataService
-                            .fetchMfOrders(account);
-                    for (com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO order : orders) {
-                        try {
-                            var canonicalOrder = com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfOrder.builder()
-                                    .userId(userId)
-                                    .brokerAccountId(account.getId())
-                                    .brokerType(account.getBroker())
-                                    .orderId(order.getOrderId())
-                                    .fund(order.getFund())
-                                    .tradingSymbol(order.getTradingSymbol())
-                                    .transactionType(order.getTransactionType())
-                                    .amount(order.getAmount())
-                                    .status(order.getStatus())
-                                    .executedQuantity(order.getExecutedQuantity())
-                                    .executedNav(order.getExecutedNav())
-                                    .folio(order.getFolio())
-                                    .lastSyncedAt(java.time.Instant.now())
-                                    .build();
-
-                            canonicalMfOrderRepository.findByUserIdAndBrokerAccountIdAndOrderId(
-                                    userId, account.getId(), order.getOrderId())
-                                    .ifPresent(existing -> canonicalOrder.setId(existing.getId()));
-                            canonicalMfOrderRepository.save(canonicalOrder);
-                        } catch (Exception persistenceEx) {
-                            log.warn("Failed to persist canonical MF order: {}", persistenceEx.getMessage());
-                        }
-                        allOrders.add(order);
-                    }
-                } catch (Exception e) {
-                    log.warn("Failed to fetch MF orders: {}", e.getMessage());
-                }
-            }
-        }
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> orders = startMfOrders(userId,
+                connectedZerodhaAccounts(userId)).await();
 
+        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> allOrders = new ArrayList<>(orders.data());
         allOrders.sort(java.util.Comparator.comparing(
                 com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO::getExecutionDate,
                 java.util.Comparator.nullsLast(java.util.Comparator.reverseOrder()))
@@ -356,11 +199,46 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
                         com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO::getOrderTimestamp,
                         java.util.Comparator.nullsLast(java.util.Comparator.reverseOrder())));
 
-        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> response = new com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<>();
-        response.setData(allOrders);
-        response.setLastSyncedAt(syncTime);
-        response.setSource("LIVE");
-        return response;
+        return listResponse(allOrders, orders);
+    }
+
+    /**
+     * MF orders for the SIP, timeline and orders views. Each live fetch also upserts the orders
+     * as canonical rows; cached reads don't repeat the writes.
+     */
+    private Pending<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> startMfOrders(String userId,
+            List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts) {
+        return passThroughFetcher.start(userId, accounts, Dataset.MF_ORDERS, account -> {
+            List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> orders = zerodhaLiveDataService
+                    .fetchMfOrders(account);
+            for (com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO order : orders) {
+                try {
+                    var canonicalOrder = com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfOrder.builder()
+                            .userId(userId)
+                            .brokerAccountId(account.getId())
+                            .brokerType(account.getBroker())
+                            .orderId(order.getOrderId())
+                            .fund(order.getFund())
+                            .tradingSymbol(order.getTradingSymbol())
+                            .transactionType(order.getTransactionType())
+                            .amount(order.getAmount())
+                            .status(order.getStatus())
+                            .executedQuantity(order.getExecutedQuantity())
+                            .executedNav(order.getExecutedNav())
+                            .folio(order.getFolio())
+                            .lastSyncedAt(java.time.Instant.now())
+                            .build();
+
+                    canonicalMfOrderRepository.findByUserIdAndBrokerAccountIdAndOrderId(
+                            userId, account.getId(), order.getOrderId())
+                            .ifPresent(existing -> canonicalOrder.setId(existing.getId()));
+                    canonicalMfOrderRepository.save(canonicalOrder);
+                } catch (Exception persistenceEx) {
+                    log.warn("Failed to persist canonical MF order: {}", persistenceEx.getMessage());
+                }
+            }
+            return orders;
+        });
     }
 
     @Override
@@ -387,23 +265,15 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
 
     @Override
     public KiteListResponse<MfSipDTO> getMfSips(String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<MfSipDTO> allSips = new ArrayList<>();
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> allOrders = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA
-                    && account.hasValidToken()) {
-                try {
-                    allSips.addAll(zerodhaLiveDataService.fetchMfSips(account));
-                    allOrders.addAll(zerodhaLiveDataService.fetchMfOrders(account));
-                } catch (Exception e) {
-                    log.warn("Failed to fetch MF SIPs: {}", e.getMessage());
-                }
-            }
-        }
+        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = connectedZerodhaAccounts(userId);
+        Pending<MfSipDTO> pendingSips = passThroughFetcher.start(userId, accounts, Dataset.MF_SIPS,
+                zerodhaLiveDataService::fetchMfSips);
+        Pending<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> pendingOrders = startMfOrders(userId,
+                accounts);
+        Fetched<MfSipDTO> fetchedSips = pendingSips.await();
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> fetchedOrders = pendingOrders.await();
+        List<MfSipDTO> cachedSips = fetchedSips.data();
+        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> allOrders = fetchedOrders.data();
 
         // Link orders to SIPs by instruction_id
         Map<String, List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO>> ordersBySipId = allOrders
@@ -412,7 +282,8 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
                 .collect(java.util.stream.Collectors.groupingBy(o -> o.getRaw().get("instruction_id").toString()));
 
         Set<String> linkedSipIds = new HashSet<>();
-        for (MfSipDTO sip : allSips) {
+        List<MfSipDTO> allSips = new ArrayList<>(cachedSips.size());
+        for (MfSipDTO sip : cachedSips) {
             List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> executions = ordersBySipId
                     .getOrDefault(sip.getSipId(), new ArrayList<>());
             executions.sort((o1, o2) -> {
@@ -422,7 +293,8 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
                 if (t2 == null) return 1;
                 return t1.compareTo(t2);
             });
-            sip.setExecutions(executions);
+            // Cached SIPs are shared between requests; link executions on this request's copy
+            allSips.add(sip.toBuilder().executions(executions).build());
             if (!executions.isEmpty()) linkedSipIds.add(sip.getSipId());
         }
 
@@ -433,62 +305,44 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
             }
         });
 
-        KiteListResponse<MfSipDTO> response = new KiteListResponse<>();
-        response.setData(allSips);
+        KiteListResponse<MfSipDTO> response = listResponse(allSips, fetchedSips, fetchedOrders);
         response.setUnlinkedSipOrders(unlinkedOrders);
-        response.setLastSyncedAt(syncTime);
-        response.setSource("LIVE");
         return response;
     }
 
     @Override
-    public KiteListResponse<MfInstrumentDTO> getMfInstruments(String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<MfInstrumentDTO> allInstruments = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA
-                    && account.hasValidToken()) {
-                try {
-                    allInstruments.addAll(zerodhaLiveDataService.fetchMfInstruments(account));
-                    if (!allInstruments.isEmpty()) break;
-                } catch (Exception e) {
-                    log.warn("Failed to fetch MF instruments: {}", e.getMessage());
-                }
-            }
+    public MfInstrumentListResponse getMfInstruments(String userId, MfInstrumentQuery query) {
+        MfInstrumentCatalog.Result result = mfInstrumentCatalog.query(userId, query);
+        MfInstrumentListResponse response = new MfInstrumentListResponse();
+        response.setData(result.data());
+        response.setLastSyncedAt(result.loadedAt());
+        response.setSource("CACHE");
+        if (result.size() != null) {
+            response.setPage(result.page());
+            response.setSize(result.size());
+            response.setTotalElements(result.total());
+            response.setTotalPages((int) ((result.total() + result.size() - 1) / result.size()));
         }
-
-        KiteListResponse<MfInstrumentDTO> response = new KiteListResponse<>();
-        response.setData(allInstruments);
-        response.setLastSyncedAt(syncTime);
-        response.setSource("LIVE");
         return response;
     }
 
     @Override
     public com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfTimelineEvent> getMfTimeline(
             String userId) {
-        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = brokerAccountRepository
-                .findByUserId(userId);
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> allOrders = new ArrayList<>();
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfSipDTO> allSips = new ArrayList<>();
-        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> allHoldings = new ArrayList<>();
-        LocalDateTime syncTime = LocalDateTime.now();
-
-        for (com.urva.myfinance.coinTrack.broker.model.BrokerAccount account : accounts) {
-            if (account.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA
-                    && account.hasValidToken()) {
-                try {
-                    allOrders.addAll(zerodhaLiveDataService.fetchMfOrders(account));
-                    allSips.addAll(zerodhaLiveDataService.fetchMfSips(account));
-                    allHoldings.addAll(zerodhaLiveDataService.fetchMfHoldings(account));
-                } catch (Exception e) {
-                    log.warn("Error fetching timeline data: {}", e.getMessage());
-                }
-            }
-        }
+        // Same cache entries as the orders, SIPs and holdings tabs
+        List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> accounts = connectedZerodhaAccounts(userId);
+        Pending<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> pendingOrders = startMfOrders(userId,
+                accounts);
+        Pending<MfSipDTO> pendingSips = passThroughFetcher.start(userId, accounts, Dataset.MF_SIPS,
+                zerodhaLiveDataService::fetchMfSips);
+        Pending<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> pendingHoldings = passThroughFetcher
+                .start(userId, accounts, Dataset.MF_HOLDINGS, zerodhaLiveDataService::fetchMfHoldings);
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> orders = pendingOrders.await();
+        Fetched<MfSipDTO> sips = pendingSips.await();
+        Fetched<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> holdings = pendingHoldings.await();
+        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundOrderDTO> allOrders = orders.data();
+        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfSipDTO> allSips = sips.data();
+        List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MutualFundDTO> allHoldings = holdings.data();
 
         List<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfTimelineEvent> events = new ArrayList<>();
         Map<String, com.urva.myfinance.coinTrack.portfolio.dto.kite.MfSipDTO> sipMap = allSips.stream()
@@ -692,10 +546,45 @@ public class PortfolioSummaryServiceImpl implements PortfolioSummaryService {
             return d2.compareTo(d1);
         });
 
-        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfTimelineEvent> response = new com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<>();
-        response.setData(events);
-        response.setLastSyncedAt(syncTime);
+        com.urva.myfinance.coinTrack.portfolio.dto.kite.KiteListResponse<com.urva.myfinance.coinTrack.portfolio.dto.kite.MfTimelineEvent> response = listResponse(
+                events, orders, sips, holdings);
         response.setSource("ZERODHA");
         return response;
     }
+
+    // ── Pass-through helpers ────────────────────────────────────
+
+    private List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> connectedAccounts(String userId) {
+        return brokerAccountRepository.findByUserId(userId).stream()
+                .filter(com.urva.myfinance.coinTrack.broker.model.BrokerAccount::hasValidToken)
+                .toList();
+    }
+
+    private List<com.urva.myfinance.coinTrack.broker.model.BrokerAccount> connectedZerodhaAccounts(String userId) {
+        return connectedAccounts(userId).stream()
+                .filter(a -> a.getBroker() == com.urva.myfinance.coinTrack.broker.model.Broker.ZERODHA)
+                .toList();
+    }
+
+    /**
+     * LIVE list response built from one or more fetches: lastSyncedAt is the oldest fetch, and
+     * brokers missing from any of them are reported as unavailable.
+     */
+    private static <T> KiteListResponse<T> listResponse(List<T> data, Fetched<?>... fetches) {
+        KiteListResponse<T> response = new KiteListResponse<>();
+        response.setData(data);
+        response.setSource("LIVE");
+        LocalDateTime fetchedAt = null;
+        Set<String> unavailable = new java.util.LinkedHashSet<>();
+        for (Fetched<?> fetched : fetches) {
+            if (fetchedAt == null || fetched.fetchedAt().isBefore(fetchedAt)) fetchedAt = fetched.fetchedAt();
+            unavailable.addAll(fetched.unavailableBrokers());
+        }
+        response.setLastSyncedAt(fetchedAt);
+        if (!unavailable.isEmpty()) {
+            response.setPartial(true);
+            response.setUnavailableBrokers(new ArrayList<>(unavailable));
+        }
+        return response;
+    }
 }
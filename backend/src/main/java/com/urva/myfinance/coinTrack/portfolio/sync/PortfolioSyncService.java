@@ -11,6 +11,12 @@ public interface PortfolioSyncService {
 
     void syncAllActiveAccounts();
 
+    /**
+     * Syncs {@code userIds} in the given order through the paced, sharded sweep, skipping users
+     * another node owns. The caller must hold the global sync lock.
+     */
+    void syncUsers(java.util.List<String> userIds);
+
     com.urva.myfinance.coinTrack.portfolio.dto.ManualRefreshResponse triggerManualRefreshForUser(String userId);
 
     SyncLog runFullSyncForAccount(BrokerAccount account);
@@ -1,5 +1,7 @@
 package com.urva.myfinance.coinTrack.portfolio.sync;
 
+import java.util.OptionalLong;
+
 public interface SyncSafetyService {
     boolean tryGlobalSyncLock();
 
@@ -10,4 +12,23 @@ public interface SyncSafetyService {
     boolean tryAccountLock(String accountId);
 
     void releaseAccountLock(String accountId);
+
+    /** Fencing check: this node still holds the account's lock and nobody has taken it over. */
+    boolean isAccountLockCurrent(String accountId);
+
+    /** Fencing token of this node's lease on the account, to stamp on writes; empty once lost. */
+    OptionalLong accountLockToken(String accountId);
+
+    boolean tryUserLock(String userId);
+
+    void releaseUserLock(String userId);
+
+    /** Fencing check: this node still holds the user's lock and nobody has taken it over. */
+    boolean isUserLockCurrent(String userId);
+
+    /** Fencing token of this node's lease on the user, to stamp on writes; empty once lost. */
+    OptionalLong userLockToken(String userId);
+
+    /** Whether this instance is responsible for the user in the sharded global sweep. */
+    boolean ownsUser(String userId);
 }
@@ -0,0 +1,44 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.cluster;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drives cluster membership and lease renewal. Registers the node as soon as the app is
+ * ready, then every {@code portfolio.sync.cluster.heartbeat-interval} — which must stay well
+ * under the lease TTL, so one missed beat does not cost a lease.
+ */
+@Component
+public class SyncClusterHeartbeat {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncClusterHeartbeat.class);
+
+    private final SyncClusterMembership membership;
+    private final SyncLeaseManager leaseManager;
+
+    public SyncClusterHeartbeat(SyncClusterMembership membership, SyncLeaseManager leaseManager) {
+        this.membership = membership;
+        this.leaseManager = leaseManager;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void join() {
+        beat();
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.sync.cluster.heartbeat-interval:10s}",
+            initialDelayString = "${portfolio.sync.cluster.heartbeat-interval:10s}")
+    public void beat() {
+        try {
+            leaseManager.renewHeld();
+            membership.heartbeat();
+        } catch (Exception e) {
+            // Leases simply run out if Mongo stays unreachable; other nodes then take over
+            logger.warn("Sync cluster heartbeat failed: {}", e.getMessage());
+        }
+    }
+}
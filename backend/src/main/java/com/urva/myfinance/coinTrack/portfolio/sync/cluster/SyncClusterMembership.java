@@ -0,0 +1,151 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.cluster;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.portfolio.model.SyncNode;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Which live instance is responsible for which user.
+ *
+ * Every instance heartbeats a {@link SyncNode} document; the live set is every node whose
+ * heartbeat has not expired. Users are assigned with a consistent-hash ring of
+ * {@code VIRTUAL_NODES} points per instance, so all instances agree on the owner of a user
+ * without talking to each other, and a node joining or leaving only moves the users on its
+ * own arcs.
+ *
+ * Until the first heartbeat the ring holds only this node, so a single instance owns
+ * everything — the same behaviour as before clustering.
+ */
+@Component
+public class SyncClusterMembership {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncClusterMembership.class);
+    static final int VIRTUAL_NODES = 64;
+
+    private final MongoTemplate mongoTemplate;
+    private final String nodeId;
+    private final Duration nodeTtl;
+    private final Instant startedAt = Instant.now();
+    private volatile NavigableMap<Long, String> ring;
+    private volatile List<String> liveNodes;
+
+    public SyncClusterMembership(MongoTemplate mongoTemplate,
+                                 @Value("${portfolio.sync.cluster.node-id:}") String nodeId,
+                                 @Value("${portfolio.sync.cluster.lease-ttl:30s}") Duration nodeTtl) {
+        this.mongoTemplate = mongoTemplate;
+        this.nodeId = nodeId == null || nodeId.isBlank() ? defaultNodeId() : nodeId;
+        this.nodeTtl = nodeTtl;
+        this.liveNodes = List.of(this.nodeId);
+        this.ring = buildRing(this.liveNodes);
+        logger.info("Sync cluster node id: {}", this.nodeId);
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /** Live nodes as of the last heartbeat, sorted. */
+    public List<String> liveNodes() {
+        return liveNodes;
+    }
+
+    /** Whether this node owns {@code userId} in the sharded sweep. */
+    public boolean owns(String userId) {
+        return nodeId.equals(ownerOf(userId));
+    }
+
+    public String ownerOf(String userId) {
+        NavigableMap<Long, String> current = ring;
+        Map.Entry<Long, String> point = current.ceilingEntry(hash(userId));
+        return (point != null ? point : current.firstEntry()).getValue();
+    }
+
+    /**
+     * Refreshes this node's registration and rebuilds the ring from the live set.
+     * Called by {@link SyncClusterHeartbeat}.
+     */
+    public void heartbeat() {
+        Instant now = Instant.now();
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(nodeId)),
+                new Update().set("heartbeatAt", now)
+                        .set("expiresAt", now.plus(nodeTtl))
+                        .setOnInsert("startedAt", startedAt),
+                SyncNode.class);
+
+        List<String> live = mongoTemplate.find(
+                        Query.query(Criteria.where("expiresAt").gt(now)), SyncNode.class).stream()
+                .map(SyncNode::getId)
+                .sorted()
+                .toList();
+        if (!live.equals(liveNodes)) {
+            logger.info("Sync cluster membership changed: {} -> {}", liveNodes, live);
+            ring = buildRing(live);
+            liveNodes = live;
+        }
+    }
+
+    /** Deregisters on shutdown so the remaining nodes pick up this node's users at once. */
+    @PreDestroy
+    public void leave() {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(nodeId)), SyncNode.class);
+        } catch (Exception e) {
+            logger.debug("Could not deregister sync node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    private static NavigableMap<Long, String> buildRing(List<String> nodes) {
+        NavigableMap<Long, String> points = new TreeMap<>();
+        for (String node : nodes) {
+            for (int i = 0; i < VIRTUAL_NODES; i++) {
+                points.put(hash(node + "#" + i), node);
+            }
+        }
+        return points;
+    }
+
+    /** First 8 bytes of MD5: stable across JVMs, unlike anything seeded per process. */
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long h = 0;
+            for (int i = 0; i < 8; i++) {
+                h = (h << 8) | (digest[i] & 0xFF);
+            }
+            return h;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 not available", e);
+        }
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "node";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+}
@@ -0,0 +1,140 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.cluster;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.portfolio.model.SyncLease;
+
+/**
+ * Mongo-backed leases with fencing tokens for cluster-wide sync locks.
+ *
+ * - Acquire is one findAndModify upsert matching the lease only if it is absent or expired.
+ *   A live lease makes the upsert collide on _id (DuplicateKeyException), which means "held".
+ *   Every acquisition takes a new fencingToken from one cluster-wide sequence, so tokens of
+ *   all leases (user and account alike) are ordered by acquisition. Writers stamp the token
+ *   on what they write and Mongo refuses writes carrying an older one (CanonicalBulkWriter).
+ * - Held leases are renewed by {@link SyncClusterHeartbeat} every heartbeat interval, so a
+ *   sync longer than the TTL keeps its lock; a node that dies loses it after one TTL.
+ * - Renew, release and {@link #isCurrent} all match on (owner, fencingToken). A holder that
+ *   stalled past expiry and was superseded therefore fails them and must not write.
+ *
+ * Locks are not re-entrant: a second acquire of a name this node already holds fails, the
+ * same as the in-memory account locks this replaces.
+ */
+@Component
+public class SyncLeaseManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncLeaseManager.class);
+    private static final String SEQUENCE_COLLECTION = "sync_lease_sequence";
+    private static final String SEQUENCE_ID = "fencingToken";
+
+    private final MongoTemplate mongoTemplate;
+    private final String nodeId;
+    private final Duration ttl;
+    private final Map<String, Lease> held = new ConcurrentHashMap<>();
+
+    public SyncLeaseManager(MongoTemplate mongoTemplate,
+                            SyncClusterMembership membership,
+                            @Value("${portfolio.sync.cluster.lease-ttl:30s}") Duration ttl) {
+        this.mongoTemplate = mongoTemplate;
+        this.nodeId = membership.nodeId();
+        this.ttl = ttl;
+    }
+
+    /** A lease this node holds. */
+    public record Lease(String name, long fencingToken, Instant expiresAt) {
+    }
+
+    public Optional<Lease> tryAcquire(String name) {
+        if (held.containsKey(name)) return Optional.empty();
+
+        Instant now = Instant.now();
+        Query freeLease = Query.query(Criteria.where("_id").is(name).and("expiresAt").lte(now));
+        Update take = new Update()
+                .set("owner", nodeId)
+                .set("acquiredAt", now)
+                .set("expiresAt", now.plus(ttl))
+                .set("fencingToken", nextFencingToken());
+        SyncLease doc;
+        try {
+            doc = mongoTemplate.findAndModify(freeLease, take,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), SyncLease.class);
+        } catch (DuplicateKeyException e) {
+            return Optional.empty();
+        }
+        if (doc == null) return Optional.empty();
+
+        Lease lease = new Lease(name, doc.getFencingToken(), doc.getExpiresAt());
+        if (held.putIfAbsent(name, lease) != null) {
+            // Another thread of this node won the same name between our check and the upsert
+            release(lease);
+            return Optional.empty();
+        }
+        return Optional.of(lease);
+    }
+
+    private long nextFencingToken() {
+        Document sequence = mongoTemplate.findAndModify(Query.query(Criteria.where("_id").is(SEQUENCE_ID)),
+                new Update().inc("value", 1L), FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, SEQUENCE_COLLECTION);
+        return sequence.get("value", Number.class).longValue();
+    }
+
+    public void release(String name) {
+        Lease lease = held.remove(name);
+        if (lease != null) release(lease);
+    }
+
+    private void release(Lease lease) {
+        mongoTemplate.updateFirst(owned(lease), new Update().set("expiresAt", Instant.EPOCH), SyncLease.class);
+    }
+
+    /**
+     * Fencing check: true only if this node still holds {@code name} with the same token and
+     * the lease has not expired. Call before writing results produced under the lock.
+     */
+    public boolean isCurrent(String name) {
+        Lease lease = held.get(name);
+        if (lease == null) return false;
+        return mongoTemplate.exists(owned(lease).addCriteria(Criteria.where("expiresAt").gt(Instant.now())),
+                SyncLease.class);
+    }
+
+    /** Pushes every held lease's expiry forward; drops the ones another node has taken over. */
+    public void renewHeld() {
+        Instant expiresAt = Instant.now().plus(ttl);
+        held.forEach((name, lease) -> {
+            boolean renewed = mongoTemplate.updateFirst(owned(lease),
+                    new Update().set("expiresAt", expiresAt), SyncLease.class).getModifiedCount() == 1;
+            if (!renewed) {
+                logger.warn("Lost sync lease {} (token {}); another node holds it now", name, lease.fencingToken());
+                held.remove(name, lease);
+            }
+        });
+    }
+
+    public Optional<Lease> held(String name) {
+        return Optional.ofNullable(held.get(name));
+    }
+
+    private Query owned(Lease lease) {
+        return Query.query(Criteria.where("_id").is(lease.name())
+                .and("owner").is(nodeId)
+                .and("fencingToken").is(lease.fencingToken()));
+    }
+}
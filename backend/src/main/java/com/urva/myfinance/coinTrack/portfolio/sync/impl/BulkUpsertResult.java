@@ -0,0 +1,29 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+/**
+ * Outcome of syncing one or more canonical collections.
+ *
+ * @param inserted  rows that did not exist and were created by the upsert
+ * @param modified  existing rows whose content actually changed
+ * @param unchanged rows skipped by the content hash, or matched by key but already identical
+ * @param removed   rows deleted because an authoritative fetch no longer returned them
+ */
+public record BulkUpsertResult(int inserted, int modified, int unchanged, int removed) {
+
+    public static final BulkUpsertResult EMPTY = new BulkUpsertResult(0, 0, 0, 0);
+
+    public BulkUpsertResult plus(BulkUpsertResult other) {
+        return new BulkUpsertResult(inserted + other.inserted, modified + other.modified,
+                unchanged + other.unchanged, removed + other.removed);
+    }
+
+    /** Documents actually touched in Mongo. */
+    public int written() {
+        return inserted + modified + removed;
+    }
+
+    @Override
+    public String toString() {
+        return inserted + " inserted, " + modified + " modified, " + unchanged + " unchanged, " + removed + " removed";
+    }
+}
@@ -0,0 +1,146 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+
+/**
+ * Writes ONE user's canonical rows with at most one unordered bulk operation per collection
+ * instead of a find + save round-trip per row.
+ *
+ * {@link CanonicalChangeDetector} runs first, so only rows whose content hash changed are
+ * sent, and rows that vanished from an authoritative fetch are removed in the same bulk.
+ * A sync where nothing moved issues no writes at all.
+ *
+ * Each changed row becomes {@code updateOne(filter = unique key, $set = all fields, upsert = true)}.
+ * The filters mirror the compound unique indexes on the canonical models, so every upsert
+ * is a single index seek and concurrent syncs can never create duplicates:
+ *   holdings    idx_holding_unique     (userId, brokerAccountId, isin)
+ *   positions   idx_position_unique    (userId, brokerAccountId, symbol, instrumentType)
+ *   funds       idx_funds_unique       (userId, brokerAccountId)
+ *   MF holdings idx_mf_holding_unique  (userId, brokerAccountId, isin)
+ *
+ * Unordered: one bad row does not stop the rest of the batch. A failure still surfaces as a
+ * BulkOperationException after the other writes have been applied.
+ *
+ * Fencing: every write carries the fencing token of the sync lease it was produced under and
+ * stamps it on the row ({@value #FENCE_FIELD}). Upserts and removes only match rows stamped with
+ * the same or an older token, so a node whose lease was taken over between its fencing check and
+ * this write cannot overwrite what the new holder wrote: its upsert falls through to an insert
+ * that collides on the unique index, and its removes match nothing. See {@link #fencedOut}.
+ * Rows the new holder left unchanged keep their older token and are not protected this way.
+ */
+@Component
+public class CanonicalBulkWriter {
+
+    static final List<String> HOLDING_KEY = List.of("brokerAccountId", "isin");
+    static final List<String> POSITION_KEY = List.of("brokerAccountId", "symbol", "instrumentType");
+    static final List<String> FUNDS_KEY = List.of("brokerAccountId");
+    static final List<String> MF_HOLDING_KEY = List.of("brokerAccountId", "isin");
+    static final String FENCE_FIELD = "syncFence";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final CanonicalChangeDetector changeDetector;
+
+    public CanonicalBulkWriter(MongoTemplate mongoTemplate, CanonicalChangeDetector changeDetector) {
+        this.mongoTemplate = mongoTemplate;
+        this.changeDetector = changeDetector;
+    }
+
+    /**
+     * @param removableAccountIds accounts whose holdings fetch was authoritative; their rows
+     *                            missing from {@code holdings} are deleted
+     * @param fencingToken        token of the sync lease the rows were fetched under
+     */
+    public BulkUpsertResult syncHoldings(String userId, Collection<CanonicalHolding> holdings,
+                                         Set<String> removableAccountIds, long fencingToken) {
+        return sync(CanonicalHolding.class, HOLDING_KEY, userId, holdings, removableAccountIds, fencingToken);
+    }
+
+    public BulkUpsertResult syncPositions(String userId, Collection<CanonicalPosition> positions,
+                                          Set<String> removableAccountIds, long fencingToken) {
+        return sync(CanonicalPosition.class, POSITION_KEY, userId, positions, removableAccountIds, fencingToken);
+    }
+
+    /** Funds are one row per account and never removed here. */
+    public BulkUpsertResult syncFunds(String userId, Collection<CanonicalFunds> funds, long fencingToken) {
+        return sync(CanonicalFunds.class, FUNDS_KEY, userId, funds, Set.of(), fencingToken);
+    }
+
+    public BulkUpsertResult syncMfHoldings(String userId, Collection<CanonicalMfHolding> mfHoldings,
+                                           Set<String> removableAccountIds, long fencingToken) {
+        return sync(CanonicalMfHolding.class, MF_HOLDING_KEY, userId, mfHoldings, removableAccountIds, fencingToken);
+    }
+
+    /**
+     * Whether a bulk failed only because a newer lease holder had already written the rows,
+     * i.e. every error is a unique-key collision from a fenced-off upsert.
+     */
+    public static boolean fencedOut(BulkOperationException e) {
+        return !e.getErrors().isEmpty()
+                && e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+    }
+
+    private BulkUpsertResult sync(Class<?> type, List<String> keyFields, String userId,
+                                  Collection<?> rows, Set<String> removableAccountIds, long fencingToken) {
+        if (rows.isEmpty() && removableAccountIds.isEmpty()) return BulkUpsertResult.EMPTY;
+
+        CanonicalDelta delta = changeDetector.detect(type, keyFields, userId, rows, removableAccountIds);
+        if (!delta.hasWrites()) {
+            return new BulkUpsertResult(0, 0, delta.unchanged(), 0);
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, type);
+        for (Document document : delta.changed()) {
+            bulkOps.upsert(keyFilter(userId, keyFields, document).addCriteria(notNewerThan(fencingToken)),
+                    setAll(document).set(FENCE_FIELD, fencingToken));
+        }
+        if (!delta.vanishedIds().isEmpty()) {
+            bulkOps.remove(new Query(Criteria.where("_id").in(delta.vanishedIds())).addCriteria(notNewerThan(fencingToken)));
+        }
+
+        BulkWriteResult result = bulkOps.execute();
+        // A changed hash that still matched byte-for-byte on the server counts as unchanged
+        int matchedNotModified = Math.max(0, result.getMatchedCount() - result.getModifiedCount());
+        return new BulkUpsertResult(result.getUpserts().size(), result.getModifiedCount(),
+                delta.unchanged() + matchedNotModified, result.getDeletedCount());
+    }
+
+    private static Query keyFilter(String userId, List<String> keyFields, Document document) {
+        Criteria criteria = Criteria.where("userId").is(userId);
+        for (String field : keyFields) {
+            criteria = criteria.and(field).is(document.get(field));
+        }
+        return new Query(criteria);
+    }
+
+    /** Rows never fenced (written before fencing) or fenced by this token or an older one. */
+    private static Criteria notNewerThan(long fencingToken) {
+        return new Criteria().orOperator(
+                Criteria.where(FENCE_FIELD).exists(false),
+                Criteria.where(FENCE_FIELD).lte(fencingToken));
+    }
+
+    /** Full-document $set; _id is never included, so existing rows keep theirs. */
+    private static Update setAll(Document document) {
+        Update update = new Update();
+        document.forEach(update::set);
+        return update;
+    }
+}
@@ -0,0 +1,127 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import com.urva.myfinance.coinTrack.common.util.HashUtil;
+
+/**
+ * Change-detection stage between aggregation and the bulk write.
+ *
+ * For one user and one canonical collection it:
+ * 1. converts each fetched row to its stored document form and hashes the broker-sourced
+ *    content (everything except _id, _class, lastSyncedAt and the hash itself);
+ * 2. loads the user's existing rows as (key, contentHash) projections — one query;
+ * 3. keeps only rows that are new or whose hash differs;
+ * 4. lists existing rows that vanished from a fetch that was authoritative for their
+ *    broker account ({@code removableAccountIds}).
+ *
+ * Rows of accounts not in {@code removableAccountIds} (stale broker, failed or timed-out
+ * fetch) are never reported as vanished.
+ */
+@Component
+public class CanonicalChangeDetector {
+
+    static final String HASH_FIELD = "contentHash";
+    private static final String ACCOUNT_FIELD = "brokerAccountId";
+    private static final Set<String> VOLATILE_FIELDS = Set.of("_id", "_class", "lastSyncedAt", HASH_FIELD);
+
+    private final MongoTemplate mongoTemplate;
+
+    public CanonicalChangeDetector(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * @param keyFields fields that, together with userId, form the collection's unique key
+     */
+    public CanonicalDelta detect(Class<?> type, List<String> keyFields, String userId,
+                                 Collection<?> rows, Set<String> removableAccountIds) {
+        // Last row wins on duplicate keys, same as sequential upserts would
+        Map<String, Document> incoming = new LinkedHashMap<>();
+        for (Object row : rows) {
+            Document document = toDocument(row);
+            incoming.put(key(document, keyFields), document);
+        }
+
+        Map<String, Document> existing = loadExisting(type, keyFields, userId);
+
+        List<Document> changed = new ArrayList<>();
+        int unchanged = 0;
+        for (Map.Entry<String, Document> entry : incoming.entrySet()) {
+            Document current = existing.get(entry.getKey());
+            Document document = entry.getValue();
+            if (current != null && document.getString(HASH_FIELD).equals(current.getString(HASH_FIELD))) {
+                unchanged++;
+            } else {
+                changed.add(document);
+            }
+        }
+
+        List<Object> vanishedIds = new ArrayList<>();
+        if (!removableAccountIds.isEmpty()) {
+            for (Map.Entry<String, Document> entry : existing.entrySet()) {
+                Document current = entry.getValue();
+                if (!incoming.containsKey(entry.getKey())
+                        && removableAccountIds.contains(current.getString(ACCOUNT_FIELD))) {
+                    vanishedIds.add(current.get("_id"));
+                }
+            }
+        }
+
+        return new CanonicalDelta(changed, vanishedIds, unchanged);
+    }
+
+    /**
+     * Stored form of the row (same converter as repository.save()) with _id dropped and
+     * contentHash filled in.
+     */
+    Document toDocument(Object row) {
+        Document document = new Document();
+        mongoTemplate.getConverter().write(row, document);
+        document.remove("_id");
+        document.put(HASH_FIELD, contentHash(document));
+        return document;
+    }
+
+    static String contentHash(Document document) {
+        Document content = new Document();
+        document.forEach((field, value) -> {
+            if (!VOLATILE_FIELDS.contains(field)) content.put(field, value);
+        });
+        return HashUtil.sha256(content.toJson());
+    }
+
+    static String key(Document document, List<String> keyFields) {
+        StringBuilder key = new StringBuilder();
+        for (String field : keyFields) {
+            Object value = document.get(field);
+            key.append(value != null ? value : "").append('\u0001');
+        }
+        return key.toString();
+    }
+
+    private Map<String, Document> loadExisting(Class<?> type, List<String> keyFields, String userId) {
+        Query query = new Query(Criteria.where("userId").is(userId));
+        keyFields.forEach(query.fields()::include);
+        query.fields().include(ACCOUNT_FIELD).include(HASH_FIELD);
+
+        List<Document> documents = mongoTemplate.find(query, Document.class, mongoTemplate.getCollectionName(type));
+        Map<String, Document> existing = new HashMap<>(documents.size() * 2);
+        for (Document document : documents) {
+            existing.put(key(document, keyFields), document);
+        }
+        return existing;
+    }
+}
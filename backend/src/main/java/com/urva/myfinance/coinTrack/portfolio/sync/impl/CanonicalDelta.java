@@ -0,0 +1,19 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import java.util.List;
+
+import org.bson.Document;
+
+/**
+ * Output of {@link CanonicalChangeDetector} for one collection.
+ *
+ * @param changed    stored-form documents (no _id, contentHash set) that are new or differ
+ * @param vanishedIds _ids of rows an authoritative fetch no longer returned
+ * @param unchanged  rows skipped because their content hash matched
+ */
+public record CanonicalDelta(List<Document> changed, List<Object> vanishedIds, int unchanged) {
+
+    public boolean hasWrites() {
+        return !changed.isEmpty() || !vanishedIds.isEmpty();
+    }
+}
@@ -6,6 +6,8 @@ import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -14,26 +16,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
-import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
-import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfHolding;
-import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor.EndpointClass;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
 import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
 import com.urva.myfinance.coinTrack.portfolio.aggregation.AggregatedPortfolio;
+import com.urva.myfinance.coinTrack.portfolio.aggregation.CompletedFetch.Dataset;
 import com.urva.myfinance.coinTrack.portfolio.aggregation.PortfolioAggregationService;
 import com.urva.myfinance.coinTrack.portfolio.dto.ManualRefreshResponse;
 import com.urva.myfinance.coinTrack.portfolio.model.SyncLog;
 import com.urva.myfinance.coinTrack.portfolio.model.SyncStatus;
-import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalFundsRepository;
-import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
-import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalMfHoldingRepository;
-import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
 import com.urva.myfinance.coinTrack.portfolio.repository.SyncLogRepository;
+import com.urva.myfinance.coinTrack.portfolio.market.universe.SymbolUniverse;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.PortfolioSummaryMaterializer;
 import com.urva.myfinance.coinTrack.portfolio.sync.PortfolioSyncService;
 import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
 
@@ -42,33 +43,38 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
 
     private static final Logger logger = LoggerFactory.getLogger(PortfolioSyncServiceImpl.class);
     private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
+    /** Portfolio calls one account costs per sync: holdings, positions, funds, MF holdings. */
+    private static final int PORTFOLIO_CALLS_PER_SYNC = 4;
 
     private final BrokerAccountRepository brokerAccountRepository;
-    private final CanonicalHoldingRepository holdingRepository;
-    private final CanonicalPositionRepository positionRepository;
-    private final CanonicalFundsRepository fundsRepository;
-    private final CanonicalMfHoldingRepository mfHoldingRepository;
     private final SyncLogRepository syncLogRepository;
     private final PortfolioAggregationService aggregationService;
     private final SyncSafetyService syncSafetyService;
+    private final CanonicalBulkWriter bulkWriter;
+    private final BrokerRateGovernor rateGovernor;
+    private final SyncSweepRunner sweepRunner;
+    private final PortfolioSummaryMaterializer summaryMaterializer;
+    private final SymbolUniverse symbolUniverse;
 
     @Autowired
     public PortfolioSyncServiceImpl(BrokerAccountRepository brokerAccountRepository,
-            CanonicalHoldingRepository holdingRepository,
-            CanonicalPositionRepository positionRepository,
-            CanonicalFundsRepository fundsRepository,
-            CanonicalMfHoldingRepository mfHoldingRepository,
             SyncLogRepository syncLogRepository,
             PortfolioAggregationService aggregationService,
-            SyncSafetyService syncSafetyService) {
+            SyncSafetyService syncSafetyService,
+            CanonicalBulkWriter bulkWriter,
+            BrokerRateGovernor rateGovernor,
+            SyncSweepRunner sweepRunner,
+            PortfolioSummaryMaterializer summaryMaterializer,
+            SymbolUniverse symbolUniverse) {
         this.brokerAccountRepository = brokerAccountRepository;
-        this.holdingRepository = holdingRepository;
-        this.positionRepository = positionRepository;
-        this.fundsRepository = fundsRepository;
-        this.mfHoldingRepository = mfHoldingRepository;
         this.syncLogRepository = syncLogRepository;
         this.aggregationService = aggregationService;
         this.syncSafetyService = syncSafetyService;
+        this.bulkWriter = bulkWriter;
+        this.rateGovernor = rateGovernor;
+        this.sweepRunner = sweepRunner;
+        this.summaryMaterializer = summaryMaterializer;
+        this.symbolUniverse = symbolUniverse;
     }
 
     @Override
@@ -77,28 +83,57 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
         List<BrokerAccount> accounts = brokerAccountRepository.findByUserId(userId);
         if (accounts.isEmpty()) return;
 
-        // Delegate to aggregation service for parallel multi-broker fetch
-        AggregatedPortfolio result = aggregationService.aggregateForUser(userId);
+        // Cluster-wide: only one node (and one thread) syncs a user at a time
+        if (!syncSafetyService.tryUserLock(userId)) {
+            logger.debug("Sync already running for user {}. Skipping.", userId);
+            return;
+        }
 
-        // Persist canonical models
-        persistAggregatedData(userId, result);
+        try {
+            // Delegate to aggregation service for parallel multi-broker fetch
+            AggregatedPortfolio result = aggregationService.aggregateForUser(userId);
 
-        // Update sync timestamps on accounts
-        LocalDateTime now = LocalDateTime.now(INDIA_ZONE);
-        for (BrokerAccount account : accounts) {
-            if (Boolean.TRUE.equals(account.getIsActive()) && !result.staleBrokers().contains(account.getBroker())) {
-                account.setLastSuccessfulSync(now);
-                brokerAccountRepository.save(account);
+            // Fencing: if this node stalled past the lease, another node may have synced
+            // (and written) since. Our results are older than theirs, so drop them. The lease
+            // can still lapse between this check and the write, so the write carries the
+            // token too and Mongo refuses it once a newer holder has written.
+            OptionalLong fence = syncSafetyService.userLockToken(userId);
+            if (fence.isEmpty() || !syncSafetyService.isUserLockCurrent(userId)) {
+                logger.warn("Lost sync lease for user {} during fetch; discarding results", userId);
+                return;
             }
-        }
 
-        // Create sync log
-        SyncStatus status = result.syncErrors().isEmpty() ? SyncStatus.SUCCESS : SyncStatus.PARTIAL_FAILURE;
-        String message = result.syncErrors().isEmpty() ? "Sync complete"
-                : "Sync completed with errors: " + result.syncErrors().stream()
-                    .map(e -> e.brokerType() + ": " + e.humanMessage())
-                    .collect(Collectors.joining("; "));
-        createLog(userId, null, status, message, 0L);
+            // Persist canonical models
+            BulkUpsertResult written;
+            try {
+                written = persistAggregatedData(userId, result, fence.getAsLong());
+            } catch (BulkOperationException e) {
+                if (!CanonicalBulkWriter.fencedOut(e)) throw e;
+                logger.warn("Sync lease for user {} was taken over during the write; stopped", userId);
+                return;
+            }
+
+            // Update sync timestamps on accounts
+            LocalDateTime now = LocalDateTime.now(INDIA_ZONE);
+            for (BrokerAccount account : accounts) {
+                if (Boolean.TRUE.equals(account.getIsActive()) && !result.staleBrokers().contains(account.getBroker())) {
+                    account.setLastSuccessfulSync(now);
+                    brokerAccountRepository.save(account);
+                }
+            }
+
+            // Create sync log
+            SyncStatus status = result.syncErrors().isEmpty() ? SyncStatus.SUCCESS : SyncStatus.PARTIAL_FAILURE;
+            String message = result.syncErrors().isEmpty() ? "Sync complete"
+                    : "Sync completed with errors: " + result.syncErrors().stream()
+                        .map(e -> e.brokerType() + ": " + e.humanMessage())
+                        .collect(Collectors.joining("; "));
+            createLog(userId, null, status, message, 0L, written);
+            summaryMaterializer.onSyncCompleted(userId);
+            symbolUniverse.refreshUser(userId);
+        } finally {
+            syncSafetyService.releaseUserLock(userId);
+        }
     }
 
     @Override
@@ -120,39 +155,102 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
                 return;
             }
 
-            // Collect unique user IDs from active accounts and sync per-user
+            // Sync every user with active accounts, concurrently. Pages are ordered by user, so a
+            // user's accounts arrive together (possibly across a page boundary) and the user is
+            // submitted once with all of them. The sweep joins every user before returning, so
+            // the global lock covers them all.
             int page = 0;
             int size = 100;
+            Sort byUser = Sort.by("userId", "id");
             Set<String> syncedUsers = new java.util.HashSet<>();
+            String currentUser = null;
+            List<BrokerAccount> currentAccounts = new ArrayList<>();
             Page<BrokerAccount> accountPage;
 
-            do {
-                accountPage = brokerAccountRepository.findByIsActiveTrue(PageRequest.of(page, size));
-                for (BrokerAccount account : accountPage.getContent()) {
-                    // Skip accounts whose tokens are locally expired or have no credentials.
-                    // Without this, the scheduler hands off to aggregateForUser which then
-                    // logs "No active broker accounts for user X" every cycle for stale
-                    // test/orphan accounts. Filter at the source so we don't even try.
-                    if (!account.hasCredentials() || account.isTokenExpired()) {
-                        continue;
-                    }
-                    String userId = account.getUserId();
-                    if (syncedUsers.add(userId)) {
-                        try {
-                            syncUser(userId);
-                        } catch (Exception e) {
-                            logger.error("Critical error syncing user {}: {}", userId, e.getMessage());
+            try (SyncSweepRunner.Sweep sweep = sweepRunner.open()) {
+                do {
+                    accountPage = brokerAccountRepository.findByIsActiveTrue(PageRequest.of(page, size, byUser));
+                    for (BrokerAccount account : accountPage.getContent()) {
+                        // Skip accounts whose tokens are locally expired or have no credentials.
+                        // Without this, the scheduler hands off to aggregateForUser which then
+                        // logs "No active broker accounts for user X" every cycle for stale
+                        // test/orphan accounts. Filter at the source so we don't even try.
+                        if (!account.hasCredentials() || account.isTokenExpired()) {
+                            continue;
+                        }
+                        if (!Objects.equals(account.getUserId(), currentUser)) {
+                            if (!submitOnce(sweep, syncedUsers, currentUser, currentAccounts)) return;
+                            currentUser = account.getUserId();
+                            currentAccounts = new ArrayList<>();
                         }
+                        currentAccounts.add(account);
                     }
-                }
-                page++;
-            } while (accountPage.hasNext());
+                    page++;
+                } while (accountPage.hasNext());
+                submitOnce(sweep, syncedUsers, currentUser, currentAccounts);
+            }
 
         } finally {
             syncSafetyService.releaseGlobalSyncLock();
         }
     }
 
+    @Override
+    public void syncUsers(List<String> userIds) {
+        if (userIds.isEmpty()) return;
+
+        Map<String, List<BrokerAccount>> syncableByUser = brokerAccountRepository.findByUserIdInAndIsActiveTrue(userIds)
+                .stream()
+                .filter(account -> account.hasCredentials() && !account.isTokenExpired())
+                .collect(Collectors.groupingBy(BrokerAccount::getUserId));
+
+        try (SyncSweepRunner.Sweep sweep = sweepRunner.open()) {
+            for (String userId : userIds) {
+                List<BrokerAccount> accounts = syncableByUser.get(userId);
+                if (accounts == null) continue;
+                if (!submitPaced(sweep, userId, accounts)) {
+                    logger.warn("Sync sweep interrupted before user {}", userId);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Submits a user of the global sweep with all of their accounts, at most once per cycle
+     * (a concurrent account insert can shift a user onto the next page as well).
+     *
+     * @return false if the sweeping thread was interrupted
+     */
+    private boolean submitOnce(SyncSweepRunner.Sweep sweep, Set<String> submitted, String userId,
+                               List<BrokerAccount> accounts) {
+        if (userId == null || !submitted.add(userId)) return true;
+        if (submitPaced(sweep, userId, accounts)) return true;
+        logger.warn("Global sync interrupted; {} users submitted", submitted.size());
+        return false;
+    }
+
+    /**
+     * Hands one user to the sweep, unless another node owns them. Waits first until each of
+     * {@code accounts} has a sync's worth of portfolio budget, so a sweep does not burst through
+     * the budget that the accounts' interactive requests also use.
+     *
+     * @return false if the sweeping thread was interrupted
+     */
+    private boolean submitPaced(SyncSweepRunner.Sweep sweep, String userId, List<BrokerAccount> accounts) {
+        // Sharded across live instances: each node sweeps only its own users
+        if (!syncSafetyService.ownsUser(userId)) return true;
+
+        for (BrokerAccount account : accounts) {
+            if (!rateGovernor.awaitHeadroom(account.getBroker(), BrokerRateGovernor.credentialOf(account),
+                    EndpointClass.PORTFOLIO, PORTFOLIO_CALLS_PER_SYNC)) {
+                logger.debug("{} portfolio budget still short; syncing user {} anyway",
+                        account.getBroker(), userId);
+            }
+        }
+        return sweep.submit(userId, () -> syncUser(userId));
+    }
+
     @Override
     @Transactional
     public SyncLog runFullSyncForAccount(BrokerAccount account) {
@@ -225,8 +323,25 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
             // Delegate to aggregation service
             AggregatedPortfolio result = aggregationService.aggregateForUser(userId);
 
+            // Fencing: another node took the account over while we were fetching. As in
+            // syncUser, the write itself carries the token as well
+            OptionalLong fence = syncSafetyService.accountLockToken(account.getId());
+            if (fence.isEmpty() || !syncSafetyService.isAccountLockCurrent(account.getId())) {
+                logger.warn("Lost sync lease for account {} during fetch; discarding results", account.getId());
+                long duration = Duration.between(startTime, LocalDateTime.now(INDIA_ZONE)).toMillis();
+                return createLog(userId, broker, SyncStatus.FAILURE, "Sync lease lost; results discarded", duration);
+            }
+
             // Persist
-            persistAggregatedData(userId, result);
+            BulkUpsertResult written;
+            try {
+                written = persistAggregatedData(userId, result, fence.getAsLong());
+            } catch (BulkOperationException e) {
+                if (!CanonicalBulkWriter.fencedOut(e)) throw e;
+                logger.warn("Sync lease for account {} was taken over during the write; stopped", account.getId());
+                long duration = Duration.between(startTime, LocalDateTime.now(INDIA_ZONE)).toMillis();
+                return createLog(userId, broker, SyncStatus.FAILURE, "Sync lease lost; write refused", duration);
+            }
 
             // Determine status
             boolean hasErrors = !result.syncErrors().isEmpty();
@@ -244,7 +359,10 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
                     .collect(Collectors.joining("; "))
                 : "Sync complete";
 
-            return createLog(userId, broker, status, message, duration);
+            SyncLog log = createLog(userId, broker, status, message, duration, written);
+            summaryMaterializer.onSyncCompleted(userId);
+            symbolUniverse.refreshUser(userId);
+            return log;
 
         } catch (Exception e) {
             logger.error("Sync failed for user {} broker {}: {}", userId, broker, e.getMessage());
@@ -255,46 +373,37 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
 
     /**
      * Persists aggregated canonical data to MongoDB.
-     * Upserts by compound unique keys as defined in canonical model indexes.
+     * Rows are content-hashed and only new/changed ones are written, in one unordered bulk
+     * operation per collection keyed on the canonical models' compound unique indexes.
+     * Holdings, positions and MF holdings the broker stopped returning are removed — but only
+     * for accounts whose fetch of that dataset succeeded and whose broker is not stale.
+     * Every write is fenced with {@code fencingToken}, the token of the lease held for the sync.
      */
-    private void persistAggregatedData(String userId, AggregatedPortfolio result) {
-        // Persist holdings — upsert by (userId, brokerAccountId, isin)
-        for (CanonicalHolding h : result.holdings()) {
-            h.setUserId(userId);
-            holdingRepository.findByUserIdAndBrokerAccountIdAndIsin(userId, h.getBrokerAccountId(), h.getIsin())
-                .ifPresent(existing -> h.setId(existing.getId()));
-            holdingRepository.save(h);
-        }
-
-        // Persist positions — upsert by (userId, brokerAccountId, symbol, instrumentType)
-        for (CanonicalPosition p : result.positions()) {
-            p.setUserId(userId);
-            positionRepository.findByUserIdAndBrokerAccountIdAndSymbolAndInstrumentType(
-                userId, p.getBrokerAccountId(), p.getSymbol(), p.getInstrumentType())
-                .ifPresent(existing -> p.setId(existing.getId()));
-            positionRepository.save(p);
-        }
-
-        // Persist funds — upsert by (userId, brokerAccountId)
-        for (Map.Entry<Broker, CanonicalFunds> entry : result.funds().entrySet()) {
-            CanonicalFunds f = entry.getValue();
-            f.setUserId(userId);
-            fundsRepository.findByUserIdAndBrokerAccountId(userId, f.getBrokerAccountId())
-                .ifPresent(existing -> f.setId(existing.getId()));
-            fundsRepository.save(f);
-        }
+    private BulkUpsertResult persistAggregatedData(String userId, AggregatedPortfolio result, long fencingToken) {
+        result.holdings().forEach(h -> h.setUserId(userId));
+        result.positions().forEach(p -> p.setUserId(userId));
+        result.funds().values().forEach(f -> f.setUserId(userId));
+        result.mfHoldings().forEach(mf -> mf.setUserId(userId));
+
+        BulkUpsertResult written = bulkWriter.syncHoldings(userId, result.holdings(),
+                    result.reconcilableAccountIds(Dataset.HOLDINGS), fencingToken)
+                .plus(bulkWriter.syncPositions(userId, result.positions(),
+                    result.reconcilableAccountIds(Dataset.POSITIONS), fencingToken))
+                .plus(bulkWriter.syncFunds(userId, result.funds().values(), fencingToken))
+                .plus(bulkWriter.syncMfHoldings(userId, result.mfHoldings(),
+                    result.reconcilableAccountIds(Dataset.MF_HOLDINGS), fencingToken));
+
+        logger.debug("Persisted canonical data for user {}: {}", userId, written);
+        return written;
+    }
 
-        // Persist MF holdings — upsert by (userId, brokerAccountId, isin)
-        for (CanonicalMfHolding mf : result.mfHoldings()) {
-            mf.setUserId(userId);
-            mfHoldingRepository.findByUserIdAndBrokerAccountIdAndIsin(userId, mf.getBrokerAccountId(), mf.getIsin())
-                .ifPresent(existing -> mf.setId(existing.getId()));
-            mfHoldingRepository.save(mf);
-        }
+    private SyncLog createLog(String userId, Broker broker, SyncStatus status, String message, Long duration) {
+        return createLog(userId, broker, status, message, duration, null);
     }
 
     @SuppressWarnings("null")
-    private SyncLog createLog(String userId, Broker broker, SyncStatus status, String message, Long duration) {
+    private SyncLog createLog(String userId, Broker broker, SyncStatus status, String message, Long duration,
+            BulkUpsertResult written) {
         SyncLog log = SyncLog.builder()
                 .userId(userId)
                 .broker(broker)
@@ -302,6 +411,10 @@ public class PortfolioSyncServiceImpl implements PortfolioSyncService {
                 .message(message)
                 .durationMs(duration)
                 .timestamp(LocalDateTime.now(INDIA_ZONE))
+                .rowsInserted(written != null ? written.inserted() : null)
+                .rowsModified(written != null ? written.modified() : null)
+                .rowsUnchanged(written != null ? written.unchanged() : null)
+                .rowsRemoved(written != null ? written.removed() : null)
                 .build();
         return syncLogRepository.save(log);
     }
@@ -6,7 +6,7 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.OptionalLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.springframework.stereotype.Service;
@@ -14,24 +14,40 @@ import org.springframework.stereotype.Service;
 import com.urva.myfinance.coinTrack.portfolio.model.SyncCooldown;
 import com.urva.myfinance.coinTrack.portfolio.repository.SyncCooldownRepository;
 import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
+import com.urva.myfinance.coinTrack.portfolio.sync.cluster.SyncClusterMembership;
+import com.urva.myfinance.coinTrack.portfolio.sync.cluster.SyncLeaseManager;
 
 /**
- * Sync safety with MongoDB-backed cooldowns + in-memory locks.
+ * Sync safety with MongoDB-backed cooldowns, leases and user sharding.
  * Changed: 5-min cooldown replaced from ConcurrentHashMap → MongoDB SyncCooldown with TTL.
  * Now survives restarts and works across multiple instances.
+ * Changed: account locks moved from ConcurrentHashMap → Mongo leases with fencing tokens
+ * (SyncLeaseManager), and users get leases too, so two instances never sync the same
+ * account or user at once.
+ *
+ * The global lock stays in-JVM on purpose: it only stops this node's sweeps overlapping.
+ * Across nodes the sweep is split by {@link #ownsUser}, so every instance sweeps its own
+ * shard instead of one instance sweeping everything.
  */
 @Service
 public class SyncSafetyServiceImpl implements SyncSafetyService {
 
     private static final ZoneId INDIA_ZONE = ZoneId.of("Asia/Kolkata");
     private static final Duration COOLDOWN_DURATION = Duration.ofMinutes(5);
+    private static final String ACCOUNT_LEASE = "account:";
+    private static final String USER_LEASE = "user:";
 
     private final SyncCooldownRepository cooldownRepository;
+    private final SyncLeaseManager leaseManager;
+    private final SyncClusterMembership membership;
     private final ReentrantLock globalLock = new ReentrantLock();
-    private final ConcurrentHashMap<String, Boolean> accountLocks = new ConcurrentHashMap<>();
 
-    public SyncSafetyServiceImpl(SyncCooldownRepository cooldownRepository) {
+    public SyncSafetyServiceImpl(SyncCooldownRepository cooldownRepository,
+            SyncLeaseManager leaseManager,
+            SyncClusterMembership membership) {
         this.cooldownRepository = cooldownRepository;
+        this.leaseManager = leaseManager;
+        this.membership = membership;
     }
 
     @Override
@@ -53,12 +69,53 @@ public class SyncSafetyServiceImpl implements SyncSafetyService {
 
     @Override
     public boolean tryAccountLock(String accountId) {
-        return accountLocks.putIfAbsent(accountId, Boolean.TRUE) == null;
+        return leaseManager.tryAcquire(ACCOUNT_LEASE + accountId).isPresent();
     }
 
     @Override
     public void releaseAccountLock(String accountId) {
-        accountLocks.remove(accountId);
+        leaseManager.release(ACCOUNT_LEASE + accountId);
+    }
+
+    @Override
+    public boolean isAccountLockCurrent(String accountId) {
+        return leaseManager.isCurrent(ACCOUNT_LEASE + accountId);
+    }
+
+    @Override
+    public OptionalLong accountLockToken(String accountId) {
+        return fencingToken(ACCOUNT_LEASE + accountId);
+    }
+
+    @Override
+    public boolean tryUserLock(String userId) {
+        return leaseManager.tryAcquire(USER_LEASE + userId).isPresent();
+    }
+
+    @Override
+    public void releaseUserLock(String userId) {
+        leaseManager.release(USER_LEASE + userId);
+    }
+
+    @Override
+    public boolean isUserLockCurrent(String userId) {
+        return leaseManager.isCurrent(USER_LEASE + userId);
+    }
+
+    @Override
+    public OptionalLong userLockToken(String userId) {
+        return fencingToken(USER_LEASE + userId);
+    }
+
+    private OptionalLong fencingToken(String leaseName) {
+        return leaseManager.held(leaseName)
+                .map(lease -> OptionalLong.of(lease.fencingToken()))
+                .orElse(OptionalLong.empty());
+    }
+
+    @Override
+    public boolean ownsUser(String userId) {
+        return membership.owns(userId);
     }
 
     /** MongoDB-backed: check if user's 5-min cooldown has expired. */
@@ -0,0 +1,215 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Bounded, structured fan-out for the global sync sweep.
+ *
+ * A sweep is a scope: {@link #open()} starts it, {@link Sweep#submit} forks one user sync
+ * onto its own virtual thread, and {@link Sweep#close()} joins every fork before returning.
+ * No user sync outlives the sweep, so the caller's global lock still covers all of them.
+ *
+ * - At most {@code portfolio.sync.sweep.parallelism} users sync at once; submit blocks until
+ *   a slot frees, so the caller pages through accounts only as fast as users finish.
+ * - A user still running after {@code portfolio.sync.sweep.user-timeout} is interrupted and
+ *   counted as timed out, and its slot is handed to the next user at once, so a sync stuck in
+ *   a call that ignores interrupts doesn't hold the rest of the page back. Until it exits, that
+ *   straggler runs on top of the parallelism limit; close() still waits for it.
+ * - A failing user is logged and counted; it never aborts the sweep.
+ *
+ * Metrics: portfolio.sync.sweep.duration, portfolio.sync.user.latency (tag {@code outcome},
+ * p50/p95/p99 published). Each sweep also logs its throughput and latency percentiles.
+ */
+@Component
+public class SyncSweepRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SyncSweepRunner.class);
+
+    private final int parallelism;
+    private final Duration userTimeout;
+    private final Timer sweepTimer;
+    private final Timer userSuccess;
+    private final Timer userFailure;
+    private final Timer userTimedOut;
+    private final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("sync-sweep-watchdog").daemon().factory());
+
+    public SyncSweepRunner(MeterRegistry meterRegistry,
+                           @Value("${portfolio.sync.sweep.parallelism:16}") int parallelism,
+                           @Value("${portfolio.sync.sweep.user-timeout:60s}") Duration userTimeout) {
+        this.parallelism = Math.max(1, parallelism);
+        this.userTimeout = userTimeout;
+        this.sweepTimer = Timer.builder("portfolio.sync.sweep.duration")
+                .description("Wall time of one global portfolio sync sweep")
+                .register(meterRegistry);
+        this.userSuccess = userTimer(meterRegistry, "success");
+        this.userFailure = userTimer(meterRegistry, "failure");
+        this.userTimedOut = userTimer(meterRegistry, "timeout");
+    }
+
+    private static Timer userTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("portfolio.sync.user.latency")
+                .tag("outcome", outcome)
+                .description("Time to sync one user during the global sweep")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    public Sweep open() {
+        return new Sweep();
+    }
+
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /** Outcome of one sweep, as logged when it closes. */
+    public record SweepStats(int users, int failed, int timedOut, long durationMs,
+                             double usersPerSecond, long p50Ms, long p95Ms, long p99Ms) {
+    }
+
+    /** One sweep's scope. Not thread-safe: submit and close from the sweeping thread only. */
+    public final class Sweep implements AutoCloseable {
+
+        private final long startNanos = System.nanoTime();
+        private final Semaphore slots = new Semaphore(parallelism);
+        private final ExecutorService threads = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("sync-sweep-", 0).factory());
+        private final List<Future<?>> forks = new ArrayList<>();
+        private final List<Long> latenciesMs = new ArrayList<>();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicInteger timedOut = new AtomicInteger();
+        private SweepStats stats;
+
+        private Sweep() {
+        }
+
+        /**
+         * Forks {@code task} for {@code userId}, blocking while {@code parallelism} users are
+         * already in flight. Returns false if the sweeping thread was interrupted while waiting.
+         */
+        public boolean submit(String userId, Runnable task) {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            // Released by whichever comes first: the user finishing, or the watchdog cancelling it
+            AtomicBoolean slotHeld = new AtomicBoolean(true);
+            Runnable releaseSlot = () -> {
+                if (slotHeld.compareAndSet(true, false)) slots.release();
+            };
+            Future<?> fork = threads.submit(() -> runUser(userId, task, releaseSlot));
+            forks.add(fork);
+            watchdog.schedule(() -> {
+                if (fork.cancel(true)) {
+                    releaseSlot.run();
+                    timedOut.incrementAndGet();
+                    logger.warn("Sync for user {} exceeded {}s; interrupted", userId, userTimeout.toSeconds());
+                }
+            }, userTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        }
+
+        private void runUser(String userId, Runnable task, Runnable releaseSlot) {
+            long start = System.nanoTime();
+            Timer outcome = userSuccess;
+            try {
+                task.run();
+            } catch (Exception e) {
+                outcome = Thread.currentThread().isInterrupted() ? userTimedOut : userFailure;
+                if (outcome == userFailure) {
+                    failed.incrementAndGet();
+                    logger.error("Critical error syncing user {}: {}", userId, e.getMessage());
+                }
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                outcome.record(elapsed, TimeUnit.NANOSECONDS);
+                synchronized (latenciesMs) {
+                    latenciesMs.add(TimeUnit.NANOSECONDS.toMillis(elapsed));
+                }
+                releaseSlot.run();
+            }
+        }
+
+        /** Stats of the closed sweep; null while it is still open. */
+        public SweepStats stats() {
+            return stats;
+        }
+
+        /** Joins every fork, then records and logs the sweep's stats. */
+        @Override
+        public void close() {
+            for (Future<?> fork : forks) {
+                try {
+                    fork.get();
+                } catch (CancellationException | ExecutionException e) {
+                    // Counted by the watchdog or runUser
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    threads.shutdownNow();
+                    break;
+                }
+            }
+            threads.close();
+
+            long durationNanos = System.nanoTime() - startNanos;
+            sweepTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+            stats = summarize(durationNanos);
+            if (stats.users() > 0) {
+                logger.info("Sync sweep: {} users in {} ms ({} users/s, parallelism {}), "
+                        + "latency p50={} ms p95={} ms p99={} ms, {} failed, {} timed out",
+                        stats.users(), stats.durationMs(), String.format("%.1f", stats.usersPerSecond()),
+                        parallelism, stats.p50Ms(), stats.p95Ms(), stats.p99Ms(),
+                        stats.failed(), stats.timedOut());
+            }
+        }
+
+        private SweepStats summarize(long durationNanos) {
+            long[] sorted;
+            synchronized (latenciesMs) {
+                sorted = latenciesMs.stream().mapToLong(Long::longValue).toArray();
+            }
+            Arrays.sort(sorted);
+            long durationMs = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            double perSecond = durationNanos > 0 ? forks.size() * 1e9 / durationNanos : 0.0;
+            return new SweepStats(forks.size(), failed.get(), timedOut.get(), durationMs, perSecond,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99));
+        }
+    }
+
+    /** Nearest-rank percentile of an ascending array; 0 when empty. */
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+}
@@ -10,6 +10,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.urva.myfinance.coinTrack.portfolio.dto.FnoDetailsDTO;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentIndex;
 import com.urva.myfinance.coinTrack.portfolio.model.enums.FnoInstrumentType;
 import com.urva.myfinance.coinTrack.portfolio.model.enums.OptionType;
 
@@ -36,18 +37,70 @@ public class FnoUtils {
     // BANKNIFTY24JAN48000CE)
     private static final Pattern OPT_PATTERN = Pattern.compile("^([A-Z]+)(\\d{2})([A-Z]{3})(\\d+(?:\\.\\d+)?)(CE|PE)$");
 
+    /**
+     * Exact F&O metadata from the Kite instrument master — lot size, strike, expiry and
+     * underlying as the exchange lists them. Looks up by instrument token when known, else by
+     * canonical "EXCHANGE:SYMBOL" (a bare tradingsymbol is tried on NFO). Returns null when the
+     * master doesn't list the contract or it isn't a future/option; callers then fall back to
+     * {@link #parseSymbol}.
+     */
+    public static FnoDetailsDTO fromInstrumentMaster(InstrumentIndex index, String symbol, Long instrumentToken) {
+        if (index == null || index.size() == 0)
+            return null;
+
+        int i = instrumentToken != null ? index.indexOfToken(instrumentToken) : -1;
+        if (i < 0 && symbol != null) {
+            i = symbol.indexOf(':') > 0 ? index.indexOfCanonical(symbol) : index.indexOf("NFO", symbol);
+        }
+        if (i < 0)
+            return null;
+
+        String type = index.instrumentType(i);
+        FnoInstrumentType instrType;
+        OptionType optionType = null;
+        switch (type) {
+            case "FUT" -> instrType = FnoInstrumentType.FUTURE;
+            case "CE" -> {
+                instrType = FnoInstrumentType.OPTION;
+                optionType = OptionType.CALL;
+            }
+            case "PE" -> {
+                instrType = FnoInstrumentType.OPTION;
+                optionType = OptionType.PUT;
+            }
+            default -> {
+                return null;
+            }
+        }
+
+        int lotSize = Math.max(1, index.lotSize(i));
+        String underlying = index.name(i);
+        return FnoDetailsDTO.builder()
+                .symbol(symbol != null ? symbol : index.canonicalSymbol(i))
+                .underlyingSymbol(underlying.isEmpty() ? index.tradingsymbol(i) : underlying)
+                .instrumentType(instrType)
+                .optionType(optionType)
+                .strikePrice(index.strike(i))
+                .expiryDate(index.expiry(i))
+                .lotSize(lotSize)
+                .contractMultiplier(BigDecimal.valueOf(lotSize))
+                .build();
+    }
+
     public static FnoDetailsDTO parseSymbol(String symbol) {
         if (symbol == null)
             return null;
 
-        String underlying = symbol; // Default
+        // Canonical symbols carry the exchange ("NFO:NIFTY24JANFUT"); the patterns match the contract
+        String contract = symbol.substring(symbol.indexOf(':') + 1);
+        String underlying = contract; // Default
         FnoInstrumentType instrType = FnoInstrumentType.FUTURE; // Default fallback
         OptionType optionType = null;
         BigDecimal strike = null;
         LocalDate expiryDate = null;
 
         // Try Future Pattern
-        Matcher futMatcher = FUT_PATTERN.matcher(symbol);
+        Matcher futMatcher = FUT_PATTERN.matcher(contract);
         if (futMatcher.matches()) {
             underlying = futMatcher.group(1);
             String yy = futMatcher.group(2);
@@ -56,7 +109,7 @@ public class FnoUtils {
             expiryDate = calculateExpiry(yy, mon);
         } else {
             // Try Option Pattern
-            Matcher optMatcher = OPT_PATTERN.matcher(symbol);
+            Matcher optMatcher = OPT_PATTERN.matcher(contract);
             if (optMatcher.matches()) {
                 underlying = optMatcher.group(1);
                 String yy = optMatcher.group(2);
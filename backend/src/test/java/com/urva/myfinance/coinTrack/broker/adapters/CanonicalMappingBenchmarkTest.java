@@ -0,0 +1,167 @@
+package com.urva.myfinance.coinTrack.broker.adapters;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.mapper.AngelOneHoldingMapper;
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.mapper.AngelOnePositionMapper;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.mapper.UpstoxHoldingMapper;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.mapper.UpstoxPositionMapper;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.mapper.ZerodhaHoldingMapper;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.mapper.ZerodhaPositionMapper;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.normalization.NormalizerCaches;
+import com.urva.myfinance.coinTrack.loadtest.simulator.PortfolioShape;
+import com.urva.myfinance.coinTrack.loadtest.simulator.SyntheticPortfolio;
+
+/**
+ * Raw-to-canonical mapping of 10k-row holdings and positions payloads, per broker.
+ *
+ * The baseline is the former adapter code, a stream calling toCanonical row by row, with the
+ * normalizer caches cleared before every payload so each row resolves and interns its symbol
+ * from scratch. The bulk path is toCanonicalList, as the adapters now call it, against caches
+ * already holding the universe, as they do once a few accounts have synced. Timings are only
+ * logged; the assertions check that both paths agree and that repeated symbols and ISINs come
+ * back as one shared instance.
+ *
+ * Run with {@code -Dloadtest=true}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@DisplayName("Canonical mapping benchmark: 10k rows per broker")
+class CanonicalMappingBenchmarkTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanonicalMappingBenchmarkTest.class);
+    private static final String USER_ID = "bench";
+    private static final int ROWS = 10_000;
+    private static final int ROUNDS = 5;
+
+    private static SyntheticPortfolio portfolio;
+
+    private final ZerodhaHoldingMapper zerodhaHoldings = new ZerodhaHoldingMapper();
+    private final ZerodhaPositionMapper zerodhaPositions = new ZerodhaPositionMapper();
+    private final UpstoxHoldingMapper upstoxHoldings = new UpstoxHoldingMapper();
+    private final UpstoxPositionMapper upstoxPositions = new UpstoxPositionMapper();
+    private final AngelOneHoldingMapper angelOneHoldings = new AngelOneHoldingMapper();
+    private final AngelOnePositionMapper angelOnePositions = new AngelOnePositionMapper();
+
+    @BeforeAll
+    static void generate() {
+        portfolio = new SyntheticPortfolio(new PortfolioShape(ROWS, ROWS, 0, 2 * ROWS), 42L);
+    }
+
+    /**
+     * Times both paths over ROUNDS after one warm-up each, the baseline on cold caches and the
+     * bulk path on warm ones; returns the last bulk result.
+     */
+    private static <T> List<T> time(String label, Supplier<List<T>> perRow, Supplier<List<T>> bulk) {
+        NormalizerCaches.clear();
+        List<T> perRowResult = perRow.get();
+        List<T> bulkResult = bulk.get();
+
+        long perRowNanos = 0;
+        long bulkNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            NormalizerCaches.clear();
+            long start = System.nanoTime();
+            perRowResult = perRow.get();
+            perRowNanos += System.nanoTime() - start;
+
+            start = System.nanoTime();
+            bulkResult = bulk.get();
+            bulkNanos += System.nanoTime() - start;
+        }
+
+        logger.info("{} {} rows x {} rounds: per-row cold {} ms/payload, bulk warm {} ms/payload ({} rows/ms)",
+                label, ROWS, ROUNDS,
+                String.format("%.2f", perRowNanos / 1e6 / ROUNDS), String.format("%.2f", bulkNanos / 1e6 / ROUNDS),
+                String.format("%.0f", ROWS * ROUNDS / (bulkNanos / 1e6)));
+
+        assertEquals(ROWS, perRowResult.size());
+        assertEquals(perRowResult.size(), bulkResult.size());
+        return bulkResult;
+    }
+
+    private static void assertHoldingsShared(List<CanonicalHolding> first, List<CanonicalHolding> second) {
+        for (int i = 0; i < first.size(); i++) {
+            CanonicalHolding a = first.get(i);
+            CanonicalHolding b = second.get(i);
+            assertSame(a.getSymbol(), b.getSymbol(), "symbol row " + i);
+            assertSame(a.getIsin(), b.getIsin(), "isin row " + i);
+            assertEquals(a.getCurrentPrice(), b.getCurrentPrice(), "price row " + i);
+            assertEquals(a.getUnrealizedPnL(), b.getUnrealizedPnL(), "pnl row " + i);
+            assertSame(first.get(0).getLastSyncedAt(), a.getLastSyncedAt(), "one sync time per batch");
+        }
+    }
+
+    private static void assertPositionsShared(List<CanonicalPosition> first, List<CanonicalPosition> second) {
+        for (int i = 0; i < first.size(); i++) {
+            CanonicalPosition a = first.get(i);
+            CanonicalPosition b = second.get(i);
+            assertSame(a.getSymbol(), b.getSymbol(), "symbol row " + i);
+            assertEquals(a.getLastPrice(), b.getLastPrice(), "price row " + i);
+            assertEquals(a.getQuantity(), b.getQuantity(), "quantity row " + i);
+            assertSame(first.get(0).getLastSyncedAt(), a.getLastSyncedAt(), "one sync time per batch");
+        }
+    }
+
+    @Test
+    @DisplayName("Zerodha: bulk and per-row mapping agree and share symbol instances")
+    void zerodha() {
+        var holdings = portfolio.zerodhaHoldings();
+        var positions = portfolio.zerodhaPositions();
+
+        List<CanonicalHolding> mappedHoldings = time("Zerodha holdings",
+                () -> holdings.stream().map(raw -> zerodhaHoldings.toCanonical(raw, USER_ID, USER_ID)).toList(),
+                () -> zerodhaHoldings.toCanonicalList(holdings, USER_ID, USER_ID));
+        List<CanonicalPosition> mappedPositions = time("Zerodha positions",
+                () -> positions.stream().map(raw -> zerodhaPositions.toCanonical(raw, USER_ID, USER_ID)).toList(),
+                () -> zerodhaPositions.toCanonicalList(positions, USER_ID, USER_ID));
+
+        assertHoldingsShared(mappedHoldings, zerodhaHoldings.toCanonicalList(portfolio.zerodhaHoldings(), USER_ID, USER_ID));
+        assertPositionsShared(mappedPositions, zerodhaPositions.toCanonicalList(portfolio.zerodhaPositions(), USER_ID, USER_ID));
+    }
+
+    @Test
+    @DisplayName("Upstox: bulk and per-row mapping agree and share symbol instances")
+    void upstox() {
+        var holdings = portfolio.upstoxHoldings();
+        var positions = portfolio.upstoxPositions();
+
+        List<CanonicalHolding> mappedHoldings = time("Upstox holdings",
+                () -> holdings.stream().map(raw -> upstoxHoldings.toCanonical(raw, USER_ID, USER_ID)).toList(),
+                () -> upstoxHoldings.toCanonicalList(holdings, USER_ID, USER_ID));
+        List<CanonicalPosition> mappedPositions = time("Upstox positions",
+                () -> positions.stream().map(raw -> upstoxPositions.toCanonical(raw, USER_ID, USER_ID)).toList(),
+                () -> upstoxPositions.toCanonicalList(positions, USER_ID, USER_ID));
+
+        assertHoldingsShared(mappedHoldings, upstoxHoldings.toCanonicalList(portfolio.upstoxHoldings(), USER_ID, USER_ID));
+        assertPositionsShared(mappedPositions, upstoxPositions.toCanonicalList(portfolio.upstoxPositions(), USER_ID, USER_ID));
+    }
+
+    @Test
+    @DisplayName("Angel One: bulk and per-row mapping agree and share symbol instances")
+    void angelOne() {
+        var holdings = portfolio.angelOneHoldings();
+        var positions = portfolio.angelOnePositions();
+
+        List<CanonicalHolding> mappedHoldings = time("Angel One holdings",
+                () -> holdings.stream().map(raw -> angelOneHoldings.toCanonical(raw, USER_ID, USER_ID)).toList(),
+                () -> angelOneHoldings.toCanonicalList(holdings, USER_ID, USER_ID));
+        List<CanonicalPosition> mappedPositions = time("Angel One positions",
+                () -> positions.stream().map(raw -> angelOnePositions.toCanonical(raw, USER_ID, USER_ID)).toList(),
+                () -> angelOnePositions.toCanonicalList(positions, USER_ID, USER_ID));
+
+        assertHoldingsShared(mappedHoldings, angelOneHoldings.toCanonicalList(portfolio.angelOneHoldings(), USER_ID, USER_ID));
+        assertPositionsShared(mappedPositions, angelOnePositions.toCanonicalList(portfolio.angelOnePositions(), USER_ID, USER_ID));
+    }
+}
@@ -0,0 +1,153 @@
+package com.urva.myfinance.coinTrack.broker.core.circuit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.broker.core.circuit.BrokerCircuitBreaker.State;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerAuthException;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerCircuitOpenException;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+@DisplayName("BrokerCircuitBreaker")
+class BrokerCircuitBreakerTest {
+
+    private static final Duration OPEN_FOR = Duration.ofMillis(150);
+
+    private SimpleMeterRegistry registry;
+    private BrokerCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // window 4, decide after 4 calls, 50% failures or 50% slow (>= 50ms) opens, 2 probes
+        breaker = newBreaker(false);
+    }
+
+    private BrokerCircuitBreaker newBreaker(boolean perEndpoint) {
+        return new BrokerCircuitBreaker(registry, perEndpoint, 50, 50, Duration.ofMillis(50), 4, 4, OPEN_FOR, 2);
+    }
+
+    private Mono<String> call(Mono<String> source) {
+        return breaker.protect(Broker.ZERODHA, "HOLDINGS", source);
+    }
+
+    private void succeed(int times) {
+        for (int i = 0; i < times; i++) call(Mono.just("ok")).block();
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertThrows(BrokerApiDownException.class,
+                    () -> call(Mono.error(new BrokerApiDownException("503", Broker.ZERODHA))).block());
+        }
+    }
+
+    private void tripOpen() {
+        succeed(2);
+        fail(2);
+        assertEquals(State.OPEN, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+    }
+
+    @Test
+    @DisplayName("opens at the failure-rate threshold and then rejects without subscribing")
+    void opensOnFailureRate() {
+        succeed(2);
+        fail(1);
+        assertEquals(State.CLOSED, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+        fail(1);
+        assertEquals(State.OPEN, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+
+        AtomicInteger subscribed = new AtomicInteger();
+        assertThrows(BrokerCircuitOpenException.class,
+                () -> call(Mono.fromCallable(() -> "x").doOnSubscribe(s -> subscribed.incrementAndGet())).block());
+        assertEquals(0, subscribed.get());
+        assertEquals(1.0, registry.get("broker.circuit.rejected").tag("broker", "ZERODHA").counter().count());
+        assertEquals(1.0, registry.get("broker.circuit.state").tag("broker", "ZERODHA").gauge().value());
+    }
+
+    @Test
+    @DisplayName("slow successes open the circuit too")
+    void opensOnSlowCalls() {
+        succeed(2);
+        call(Mono.just("slow").delayElement(Duration.ofMillis(60))).block();
+        call(Mono.just("slow").delayElement(Duration.ofMillis(60))).block();
+
+        assertEquals(State.OPEN, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+    }
+
+    @Test
+    @DisplayName("timeouts count as failures; auth errors do not")
+    void classifiesErrors() {
+        for (int i = 0; i < 4; i++) {
+            assertThrows(BrokerAuthException.class,
+                    () -> call(Mono.error(new BrokerAuthException("expired", Broker.ZERODHA))).block());
+        }
+        assertEquals(State.CLOSED, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(RuntimeException.class, () -> call(Mono.error(new TimeoutException())).block());
+        }
+        assertEquals(State.OPEN, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+    }
+
+    @Test
+    @DisplayName("half-open admits only the probe share; successful probes close the circuit")
+    void halfOpenProbesClose() {
+        tripOpen();
+        await().pollDelay(OPEN_FOR).atMost(Duration.ofSeconds(1)).until(() -> true);
+
+        Sinks.One<String> probe1 = Sinks.one();
+        Sinks.One<String> probe2 = Sinks.one();
+        var first = call(probe1.asMono()).toFuture();
+        var second = call(probe2.asMono()).toFuture();
+        assertEquals(State.HALF_OPEN, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+
+        assertThrows(BrokerCircuitOpenException.class, () -> call(Mono.just("third")).block());
+
+        probe1.tryEmitValue("ok");
+        probe2.tryEmitValue("ok");
+        assertEquals("ok", first.join());
+        assertEquals("ok", second.join());
+        assertEquals(State.CLOSED, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+        succeed(1);
+    }
+
+    @Test
+    @DisplayName("a failed probe re-opens the circuit")
+    void failedProbeReopens() {
+        tripOpen();
+        await().pollDelay(OPEN_FOR).atMost(Duration.ofSeconds(1)).until(() -> true);
+
+        fail(1);
+
+        assertEquals(State.OPEN, breaker.state(Broker.ZERODHA, "HOLDINGS"));
+        assertThrows(BrokerCircuitOpenException.class, () -> call(Mono.just("x")).block());
+    }
+
+    @Test
+    @DisplayName("per-endpoint mode isolates datasets; default mode shares one breaker per broker")
+    void endpointScope() {
+        tripOpen();
+        assertEquals(State.OPEN, breaker.state(Broker.ZERODHA, "FUNDS"));
+        assertEquals(State.CLOSED, breaker.state(Broker.UPSTOX, "HOLDINGS"));
+
+        breaker = newBreaker(true);
+        tripOpen();
+        assertEquals(State.CLOSED, breaker.state(Broker.ZERODHA, "FUNDS"));
+        assertThat(breaker.protect(Broker.ZERODHA, "FUNDS", Mono.just("ok")).block()).isEqualTo("ok");
+    }
+}
@@ -0,0 +1,146 @@
+package com.urva.myfinance.coinTrack.broker.core.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.netty.buffer.UnpooledByteBufAllocator;
+import reactor.core.publisher.Flux;
+
+@DisplayName("BrokerEnvelopeDecoder")
+class BrokerEnvelopeDecoderTest {
+
+    record Row(String tradingsymbol, int quantity) {}
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final BrokerEnvelopeDecoder decoder = new BrokerEnvelopeDecoder(objectMapper);
+    private final NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT);
+    private final List<DataBuffer> issued = new ArrayList<>();
+
+    private static final BrokerEnvelopeDecoder.EnvelopeCheck SUCCESS = header -> {
+        if (!"success".equals(header.get("status"))) {
+            throw new IllegalStateException("non-success: " + header.get("message"));
+        }
+    };
+
+    /** Splits the JSON into tiny chunks so tokens straddle buffer boundaries. */
+    private Flux<DataBuffer> chunked(String json, int chunkSize) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            DataBuffer buffer = bufferFactory.allocateBuffer(chunkSize);
+            buffer.write(bytes, i, Math.min(chunkSize, bytes.length - i));
+            chunks.add(buffer);
+        }
+        issued.addAll(chunks);
+        return Flux.fromIterable(chunks);
+    }
+
+    private void assertAllReleased() {
+        issued.forEach(buffer -> assertEquals(0,
+                NettyDataBufferFactory.toByteBuf(buffer).refCnt(), "buffer not released"));
+    }
+
+    @Test
+    @DisplayName("streams each element of data[] across chunk boundaries")
+    void streamsArray() {
+        String json = """
+                {"status":"success","data":[
+                  {"tradingsymbol":"RELIANCE","quantity":10,"extra":{"nested":[1,2,{"x":"]"}]}},
+                  {"tradingsymbol":"INFY","quantity":5},
+                  {"tradingsymbol":"TCS","quantity":0}
+                ]}""";
+
+        List<Row> rows = decoder.decode(chunked(json, 7), Row.class, SUCCESS, "data").collectList().block();
+
+        assertThat(rows).containsExactly(new Row("RELIANCE", 10), new Row("INFY", 5), new Row("TCS", 0));
+        assertAllReleased();
+    }
+
+    @Test
+    @DisplayName("follows a nested path and ignores sibling arrays (Kite positions: data.net)")
+    void nestedPath() {
+        String json = """
+                {"status":"success","data":{"day":[{"tradingsymbol":"DAY","quantity":1}],
+                 "net":[{"tradingsymbol":"NIFTYFUT","quantity":50}],
+                 "meta":{"net":[{"tradingsymbol":"WRONG","quantity":0}]}}}""";
+
+        List<Row> rows = decoder.decode(chunked(json, 5), Row.class, SUCCESS, "data", "net").collectList().block();
+
+        assertThat(rows).containsExactly(new Row("NIFTYFUT", 50));
+    }
+
+    @Test
+    @DisplayName("object payload is emitted once; null or missing payload emits nothing")
+    void objectAndNullPayloads() {
+        @SuppressWarnings("rawtypes")
+        List<Map> funds = decoder.decode(chunked("{\"status\":\"success\",\"data\":{\"equity\":{\"net\":1500.5}}}", 4),
+                Map.class, SUCCESS, "data").collectList().block();
+        assertEquals(1, funds.size());
+        assertEquals(Map.of("net", 1500.5), funds.get(0).get("equity"));
+
+        assertThat(decoder.decode(chunked("{\"status\":\"success\",\"data\":null}", 3), Row.class, SUCCESS, "data")
+                .collectList().block()).isEmpty();
+        assertThat(decoder.decode(chunked("{\"status\":\"success\"}", 3), Row.class, SUCCESS, "data")
+                .collectList().block()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("error envelope fails before any record is emitted")
+    void errorEnvelope() {
+        String json = "{\"status\":\"error\",\"message\":\"Invalid token\",\"data\":[{\"tradingsymbol\":\"X\",\"quantity\":1}]}";
+        List<Row> seen = new ArrayList<>();
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> decoder.decode(chunked(json, 8), Row.class, SUCCESS, "data").doOnNext(seen::add).blockLast());
+
+        assertThat(ex.getMessage()).contains("Invalid token");
+        assertThat(seen).isEmpty();
+        assertAllReleased();
+    }
+
+    @Test
+    @DisplayName("status arriving after the payload is still checked at end of input")
+    void trailingStatus() {
+        String json = "{\"data\":[{\"tradingsymbol\":\"X\",\"quantity\":1}],\"status\":\"error\"}";
+
+        assertThrows(IllegalStateException.class,
+                () -> decoder.decode(chunked(json, 6), Row.class, SUCCESS, "data").collectList().block());
+    }
+
+    @Test
+    @DisplayName("SmartAPI boolean status and errorcode reach the check as text")
+    void smartApiHeader() {
+        AtomicReference<Map<String, String>> header = new AtomicReference<>();
+        String json = "{\"status\":true,\"message\":\"SUCCESS\",\"errorcode\":\"\",\"data\":[]}";
+
+        decoder.decode(chunked(json, 9), Row.class, header::set, "data").collectList().block();
+
+        assertEquals("true", header.get().get("status"));
+        assertEquals("", header.get().get("errorcode"));
+        assertEquals("SUCCESS", header.get().get("message"));
+    }
+
+    @Test
+    @DisplayName("truncated body fails instead of silently returning a partial list")
+    void truncatedBody() {
+        String json = "{\"status\":\"success\",\"data\":[{\"tradingsymbol\":\"X\",\"quantity\":1},{\"tradingsym";
+
+        assertThrows(RuntimeException.class,
+                () -> decoder.decode(chunked(json, 10), Row.class, SUCCESS, "data").collectList().block());
+    }
+}
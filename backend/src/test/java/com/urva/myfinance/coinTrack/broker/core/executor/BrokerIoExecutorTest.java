@@ -0,0 +1,129 @@
+package com.urva.myfinance.coinTrack.broker.core.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("BrokerIoExecutor")
+class BrokerIoExecutorTest {
+
+    private SimpleMeterRegistry registry;
+    private BrokerIoExecutor executor;
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        executor = new BrokerIoExecutor(registry, 2, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    /** Fills both concurrency slots, then parks {@code waiting} more calls behind them. */
+    private List<CompletableFuture<String>> saturate(Broker broker, int waiting) {
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        calls.add(blockingCall(broker));
+        calls.add(blockingCall(broker));
+        await().atMost(Duration.ofSeconds(2)).until(() -> executor.activeCount(broker) == 2);
+        for (int i = 0; i < waiting; i++) calls.add(blockingCall(broker));
+        return calls;
+    }
+
+    private CompletableFuture<String> blockingCall(Broker broker) {
+        return executor.supply(broker, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Thread.currentThread().getName();
+        });
+    }
+
+    @Test
+    @DisplayName("runs on a named virtual thread, not the common pool")
+    void runsOnVirtualThread() {
+        CompletableFuture<Boolean> virtual = executor.supply(Broker.ZERODHA, () -> Thread.currentThread().isVirtual());
+        CompletableFuture<String> name = executor.supply(Broker.ZERODHA, () -> Thread.currentThread().getName());
+
+        assertTrue(virtual.join());
+        assertThat(name.join()).startsWith("broker-io-zerodha-");
+    }
+
+    @Test
+    @DisplayName("caps concurrency per broker and reports queue depth / active gauges")
+    void capsConcurrency() {
+        List<CompletableFuture<String>> calls = saturate(Broker.ZERODHA, 3);
+
+        await().atMost(Duration.ofSeconds(2)).until(() -> executor.queueDepth(Broker.ZERODHA) == 3);
+        assertEquals(2, executor.activeCount(Broker.ZERODHA));
+        assertEquals(3, executor.queueDepth(Broker.ZERODHA));
+        assertEquals(2.0, registry.get("broker.io.active").tag("broker", "ZERODHA").gauge().value());
+        assertEquals(3.0, registry.get("broker.io.queue.depth").tag("broker", "ZERODHA").gauge().value());
+
+        release.countDown();
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+        await().atMost(Duration.ofSeconds(2)).until(() -> executor.activeCount(Broker.ZERODHA) == 0);
+        assertEquals(0, executor.queueDepth(Broker.ZERODHA));
+    }
+
+    @Test
+    @DisplayName("full queue fails fast with BrokerRateLimitException and counts the rejection")
+    void rejectsWhenQueueFull() {
+        saturate(Broker.UPSTOX, 3);
+
+        CompletableFuture<String> overflow = blockingCall(Broker.UPSTOX);
+
+        CompletionException ex = assertThrows(CompletionException.class, overflow::join);
+        assertInstanceOf(BrokerRateLimitException.class, ex.getCause());
+        assertEquals(Broker.UPSTOX, ((BrokerRateLimitException) ex.getCause()).getBroker());
+        assertEquals(1.0, registry.get("broker.io.rejected").tag("broker", "UPSTOX").counter().count());
+    }
+
+    @Test
+    @DisplayName("a saturated broker does not delay the others")
+    void brokersAreIsolated() {
+        saturate(Broker.ZERODHA, 3);
+
+        AtomicInteger ran = new AtomicInteger();
+        executor.supply(Broker.ANGELONE, ran::incrementAndGet).orTimeout(1, TimeUnit.SECONDS).join();
+
+        assertEquals(1, ran.get());
+        assertEquals(3, executor.queueDepth(Broker.ZERODHA));
+    }
+
+    @Test
+    @DisplayName("supplier exceptions propagate through the future")
+    void propagatesFailures() {
+        CompletableFuture<String> failed = executor.supply(Broker.ANGELONE, () -> {
+            throw new IllegalStateException("boom");
+        });
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+        await().atMost(Duration.ofSeconds(2)).until(() -> executor.activeCount(Broker.ANGELONE) == 0);
+    }
+}
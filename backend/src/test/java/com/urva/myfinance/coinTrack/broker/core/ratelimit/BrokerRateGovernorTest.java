@@ -0,0 +1,166 @@
+package com.urva.myfinance.coinTrack.broker.core.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerRateLimitException;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor.EndpointClass;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Mono;
+
+@DisplayName("BrokerRateGovernor")
+class BrokerRateGovernorTest {
+
+    private SimpleMeterRegistry registry;
+    private BrokerRateGovernor governor;
+
+    @BeforeEach
+    void setUp() {
+        BrokerRateLimitProperties properties = new BrokerRateLimitProperties();
+        properties.setMaxWait(Duration.ofMillis(500));
+        properties.setZerodha(new BrokerRateLimitProperties.Limits(5, 10, 10));
+        registry = new SimpleMeterRegistry();
+        governor = new BrokerRateGovernor(properties, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        governor.shutdown();
+    }
+
+    private static final String KEY = "api-key-1";
+
+    private void drain(Broker broker, EndpointClass endpointClass, int permits) {
+        for (int i = 0; i < permits; i++) {
+            governor.acquire(broker, KEY, endpointClass).block();
+        }
+    }
+
+    @Test
+    @DisplayName("classifies broker paths into quote / orders / portfolio budgets")
+    void classifiesPaths() {
+        assertEquals(EndpointClass.QUOTE, BrokerRateGovernor.classify(Broker.ZERODHA, "/quote/ltp"));
+        assertEquals(EndpointClass.ORDERS, BrokerRateGovernor.classify(Broker.ZERODHA, "/mf/orders"));
+        assertEquals(EndpointClass.PORTFOLIO, BrokerRateGovernor.classify(Broker.ZERODHA, "/mf/holdings"));
+        assertEquals(EndpointClass.QUOTE, BrokerRateGovernor.classify(Broker.UPSTOX, "/v2/market-quote/ltp"));
+        assertEquals(EndpointClass.ORDERS, BrokerRateGovernor.classify(Broker.UPSTOX, "/v2/order/retrieve-all"));
+        assertEquals(EndpointClass.PORTFOLIO,
+                BrokerRateGovernor.classify(Broker.ANGELONE, "/rest/secure/angelbroking/order/v1/getPosition"));
+        assertEquals(EndpointClass.ORDERS,
+                BrokerRateGovernor.classify(Broker.ANGELONE, "/rest/secure/angelbroking/order/v1/getOrderBook"));
+        assertEquals(Broker.ANGELONE, BrokerRateGovernor.brokerForHost(URI.create("https://apiconnect.angelbroking.com/x")));
+        assertNull(BrokerRateGovernor.brokerForHost(URI.create("https://www.amfiindia.com/nav")));
+    }
+
+    @Test
+    @DisplayName("over budget, callers wait for the refill instead of failing")
+    void waitsForRefill() {
+        drain(Broker.ZERODHA, EndpointClass.QUOTE, 5);
+
+        long start = System.nanoTime();
+        governor.acquire(Broker.ZERODHA, KEY, EndpointClass.QUOTE).block();
+        long waitedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertThat(waitedMs).isBetween(150L, 450L);
+        assertEquals(6, registry.get("broker.rate.permit.wait")
+                .tags("broker", "ZERODHA", "endpoint", "QUOTE").timer().count());
+    }
+
+    @Test
+    @DisplayName("a wait longer than the deadline fails with BrokerRateLimitException and consumes nothing")
+    void deadlineExceeded() {
+        drain(Broker.ZERODHA, EndpointClass.QUOTE, 5);
+
+        BrokerRateLimitException ex = assertThrows(BrokerRateLimitException.class,
+                () -> governor.acquire(Broker.ZERODHA, KEY, EndpointClass.QUOTE, Duration.ofMillis(50)).block());
+
+        assertEquals(Broker.ZERODHA, ex.getBroker());
+        assertEquals(1.0, registry.get("broker.rate.denied")
+                .tags("broker", "ZERODHA", "endpoint", "QUOTE").counter().count());
+        assertThat(governor.availablePermits(Broker.ZERODHA, KEY, EndpointClass.QUOTE)).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    @DisplayName("budgets are independent per broker and endpoint class")
+    void budgetsIsolated() {
+        drain(Broker.ZERODHA, EndpointClass.QUOTE, 5);
+
+        assertEquals(10, governor.availablePermits(Broker.ZERODHA, KEY, EndpointClass.PORTFOLIO));
+        assertTimeout(Duration.ofMillis(100),
+                () -> governor.acquire(Broker.UPSTOX, KEY, EndpointClass.QUOTE).block());
+    }
+
+    @Test
+    @DisplayName("each API credential has its own budget")
+    void budgetsPerCredential() {
+        drain(Broker.ZERODHA, EndpointClass.PORTFOLIO, 10);
+
+        assertEquals(10, governor.availablePermits(Broker.ZERODHA, "api-key-2", EndpointClass.PORTFOLIO));
+        assertTimeout(Duration.ofMillis(100),
+                () -> governor.acquire(Broker.ZERODHA, "api-key-2", EndpointClass.PORTFOLIO).block());
+    }
+
+    @Test
+    @DisplayName("requests are keyed by the Kite API key, SmartAPI private key or Upstox token")
+    void credentialFromHeaders() {
+        HttpHeaders kite = new HttpHeaders();
+        kite.set(HttpHeaders.AUTHORIZATION, "token kitekey:secret-token");
+        HttpHeaders smartApi = new HttpHeaders();
+        smartApi.set("X-PrivateKey", "angelkey");
+        HttpHeaders upstox = new HttpHeaders();
+        upstox.setBearerAuth("upstox-token");
+
+        assertEquals("kitekey", BrokerRateGovernor.credentialOf(Broker.ZERODHA, kite));
+        assertEquals("angelkey", BrokerRateGovernor.credentialOf(Broker.ANGELONE, smartApi));
+        String upstoxKey = BrokerRateGovernor.credentialOf(Broker.UPSTOX, upstox);
+        assertNotEquals(BrokerRateGovernor.SHARED, upstoxKey);
+        assertFalse(upstoxKey.contains("upstox-token"));
+        assertEquals(BrokerRateGovernor.SHARED, BrokerRateGovernor.credentialOf(Broker.ZERODHA, new HttpHeaders()));
+    }
+
+    @Test
+    @DisplayName("awaitHeadroom paces without consuming, and gives up at max-wait")
+    void awaitHeadroom() {
+        drain(Broker.ZERODHA, EndpointClass.PORTFOLIO, 10);
+
+        assertTrue(governor.awaitHeadroom(Broker.ZERODHA, KEY, EndpointClass.PORTFOLIO, 3));
+        assertThat(governor.availablePermits(Broker.ZERODHA, KEY, EndpointClass.PORTFOLIO)).isGreaterThanOrEqualTo(3);
+
+        drain(Broker.ANGELONE, EndpointClass.ORDERS, 1);
+        governor.acquire(Broker.ANGELONE, KEY, EndpointClass.ORDERS, Duration.ofSeconds(2)).subscribe();
+        assertFalse(governor.awaitHeadroom(Broker.ANGELONE, KEY, EndpointClass.ORDERS, 1));
+    }
+
+    @Test
+    @DisplayName("WebClient filter takes a permit for broker hosts only")
+    void filterGatesBrokerHosts() {
+        ExchangeFunction ok = request -> Mono.just(ClientResponse.create(HttpStatus.OK).build());
+
+        governor.filter().filter(ClientRequest.create(HttpMethod.GET,
+                URI.create("https://api.kite.trade/portfolio/holdings"))
+                .header(HttpHeaders.AUTHORIZATION, "token " + KEY + ":secret").build(), ok).block();
+        governor.filter().filter(ClientRequest.create(HttpMethod.GET,
+                URI.create("https://www.amfiindia.com/spages/NAVAll.txt")).build(), ok).block();
+
+        assertEquals(1, registry.get("broker.rate.permit.wait")
+                .tags("broker", "ZERODHA", "endpoint", "PORTFOLIO").timer().count());
+        assertEquals(1, registry.find("broker.rate.permit.wait").timers().stream()
+                .mapToLong(t -> t.count()).sum());
+    }
+}
@@ -0,0 +1,135 @@
+package com.urva.myfinance.coinTrack.broker.core.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("BrokerSessionCache")
+class BrokerSessionCacheTest {
+
+    @Mock private EncryptionUtil encryptionUtil;
+
+    private SimpleMeterRegistry registry;
+    private BrokerSessionCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new BrokerSessionCache(encryptionUtil, registry);
+        when(encryptionUtil.decryptSafe(anyString())).thenAnswer(inv -> "plain-" + inv.getArgument(0));
+    }
+
+    private static BrokerAccount zerodha(String encryptedToken, LocalDateTime expiresAt) {
+        return BrokerAccount.builder().id("acc-z").broker(Broker.ZERODHA).zerodhaApiKey("key")
+                .zerodhaAccessToken(encryptedToken).zerodhaTokenExpiresAt(expiresAt).build();
+    }
+
+    @Test
+    @DisplayName("decrypts once per token; later reads are hits, even from a reloaded account")
+    void decryptsOnce() {
+        LocalDateTime expiry = LocalDateTime.now().plusHours(6);
+
+        assertEquals("plain-enc1", cache.accessToken(zerodha("enc1", expiry)));
+        assertEquals("plain-enc1", cache.accessToken(zerodha("enc1", expiry)));
+        assertEquals("key:plain-enc1", cache.session(zerodha("enc1", expiry)).accessToken());
+
+        verify(encryptionUtil, times(1)).decryptSafe("enc1");
+        assertEquals(2, registry.counter("broker.session.cache", "outcome", "hit").count());
+    }
+
+    @Test
+    @DisplayName("a new token or a moved expiry forces a fresh decrypt")
+    void tokenVersionChange() {
+        LocalDateTime expiry = LocalDateTime.now().plusHours(6);
+        cache.accessToken(zerodha("enc1", expiry));
+
+        assertEquals("plain-enc2", cache.accessToken(zerodha("enc2", expiry)));
+        cache.accessToken(zerodha("enc2", expiry.minusHours(1)));
+
+        verify(encryptionUtil, times(1)).decryptSafe("enc1");
+        verify(encryptionUtil, times(2)).decryptSafe("enc2");
+    }
+
+    @Test
+    @DisplayName("a cleared token returns null and drops the entry")
+    void clearedToken() {
+        cache.accessToken(zerodha("enc1", LocalDateTime.now().plusHours(6)));
+
+        assertNull(cache.accessToken(zerodha(null, LocalDateTime.now())));
+        assertNull(cache.session(zerodha(null, LocalDateTime.now())));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("a token past its expiry is not reused, and its session reports expired")
+    void expired() {
+        BrokerAccount expired = zerodha("enc1", LocalDateTime.now().minusMinutes(1));
+
+        BrokerSession session = cache.session(expired);
+        cache.accessToken(expired);
+
+        assertTrue(session.isExpired());
+        verify(encryptionUtil, times(2)).decryptSafe("enc1");
+    }
+
+    @Test
+    @DisplayName("evicted entries have their decrypted characters wiped")
+    void wipesOnRemoval() {
+        BrokerSessionCache.Entry entry = new BrokerSessionCache.Entry("enc", null, "secret".toCharArray(),
+                Instant.now().plusSeconds(60));
+
+        entry.wipe();
+
+        assertNull(entry.token());
+    }
+
+    @Test
+    @DisplayName("non-Zerodha accounts use the generic token fields, without an apiKey prefix")
+    void upstox() {
+        BrokerAccount upstox = BrokerAccount.builder().id("acc-u").broker(Broker.UPSTOX)
+                .accessToken("enc-u").tokenExpiresAt(LocalDateTime.now().plusHours(6)).build();
+
+        BrokerSession session = cache.session(upstox);
+
+        assertEquals("plain-enc-u", session.accessToken());
+        assertEquals(Broker.UPSTOX, session.brokerType());
+    }
+
+    @Test
+    @DisplayName("AngelOne accounts use the encrypted JWT and its own expiry")
+    void angelOne() {
+        LocalDateTime expiry = LocalDateTime.now().plusHours(6);
+        BrokerAccount angel = BrokerAccount.builder().id("acc-a").broker(Broker.ANGELONE)
+                .encryptedAngelOneJwtToken("enc-jwt").angelOneTokenExpiresAt(expiry)
+                .accessToken("enc-generic").build();
+
+        assertEquals("plain-enc-jwt", cache.accessToken(angel));
+        assertEquals("plain-enc-jwt", cache.accessToken(angel));
+        assertEquals(expiry.atZone(ZoneId.of("Asia/Kolkata")).toInstant(),
+                cache.session(angel).expiresAt());
+
+        verify(encryptionUtil, times(1)).decryptSafe("enc-jwt");
+        verify(encryptionUtil, never()).decryptSafe("enc-generic");
+    }
+}
@@ -0,0 +1,15 @@
+package com.urva.myfinance.coinTrack.broker.normalization;
+
+/**
+ * Test access to the normalizers' static caches, for benchmarks that need a cold baseline in
+ * which every row resolves its symbol from scratch.
+ */
+public final class NormalizerCaches {
+
+    private NormalizerCaches() {}
+
+    public static void clear() {
+        SymbolNormalizer.clearMemo();
+        SymbolDictionary.clear();
+    }
+}
@@ -0,0 +1,34 @@
+package com.urva.myfinance.coinTrack.broker.normalization;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class SymbolDictionaryTest {
+
+    @Test
+    @DisplayName("equal strings intern to the first instance seen")
+    void intern_EqualStrings_SameInstance() {
+        String first = new String("NSE:SYMDICT1");
+        String second = new String("NSE:SYMDICT1");
+
+        assertSame(first, SymbolDictionary.intern(first));
+        assertSame(first, SymbolDictionary.intern(second));
+    }
+
+    @Test
+    @DisplayName("null passes through")
+    void intern_Null_ReturnsNull() {
+        assertNull(SymbolDictionary.intern(null));
+    }
+
+    @Test
+    @DisplayName("pool stays within its bound")
+    void intern_StaysBounded() {
+        for (int i = 0; i < SymbolDictionary.MAX_ENTRIES + 10; i++) {
+            SymbolDictionary.intern("BOUND" + i);
+        }
+        assertTrue(SymbolDictionary.size() <= SymbolDictionary.MAX_ENTRIES);
+    }
+}
@@ -121,4 +121,20 @@ class SymbolNormalizerTest {
         String result = SymbolNormalizer.normalize("  RELIANCE  ", Broker.ANGELONE, "NSE");
         assertEquals("NSE:RELIANCE", result);
     }
+
+    @Test
+    @DisplayName("18. Repeated symbols come back as one shared instance")
+    void normalize_Repeated_SharedInstance() {
+        String first = SymbolNormalizer.normalize(new String("TCS-EQ"), Broker.ZERODHA, new String("NSE"));
+        String second = SymbolNormalizer.normalize(new String("TCS-EQ"), Broker.ZERODHA, new String("NSE"));
+        assertEquals("NSE:TCS", first);
+        assertSame(first, second);
+    }
+
+    @Test
+    @DisplayName("19. Angel One series suffix is kept as sent, independent of the instrument master")
+    void normalize_AngelOneSeries_Kept() {
+        assertEquals("NSE:SBIN-EQ", SymbolNormalizer.normalize("SBIN-EQ", Broker.ANGELONE, "NSE"));
+        assertEquals("NSE:IDEA-BE", SymbolNormalizer.normalize("IDEA-BE", Broker.ZERODHA, "NSE"));
+    }
 }
@@ -0,0 +1,59 @@
+package com.urva.myfinance.coinTrack.common.http;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients.HostRoutingConnector;
+
+@DisplayName("OutboundHttpClients")
+class OutboundHttpClientsTest {
+
+    private OutboundHttpClients clients;
+    private HostRoutingConnector connector;
+
+    @BeforeEach
+    void setUp() {
+        clients = new OutboundHttpClients(new OutboundHttpProperties());
+        connector = (HostRoutingConnector) clients.connector();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.close();
+    }
+
+    @Test
+    @DisplayName("requests to the same host share a pool; different hosts get different pools")
+    void routesByHost() {
+        assertSame(connector.route(URI.create("https://api.kite.trade/quote/ltp")),
+                connector.route(URI.create("https://API.KITE.TRADE/portfolio/holdings")));
+        assertNotSame(connector.route(URI.create("https://api.kite.trade/quote/ltp")),
+                connector.route(URI.create("https://api.upstox.com/v2/portfolio/long-term-holdings")));
+    }
+
+    @Test
+    @DisplayName("hosts outside the table, and relative URIs, use the fallback pool")
+    void fallback() {
+        assertSame(connector.route(URI.create("https://kite.zerodha.com/connect/login")),
+                connector.route(URI.create("/relative")));
+        assertNotSame(connector.route(URI.create("https://kite.zerodha.com/connect/login")),
+                connector.route(URI.create("https://api.kite.trade/")));
+    }
+
+    @Test
+    @DisplayName("every upstream has its own client and pool settings")
+    void everyUpstreamConfigured() {
+        OutboundHttpProperties properties = new OutboundHttpProperties();
+        for (Upstream upstream : Upstream.values()) {
+            assertNotNull(clients.httpClient(upstream), upstream.name());
+            assertTrue(properties.poolFor(upstream).getMaxConnections() > 0, upstream.name());
+            assertEquals(upstream.isBroker(), properties.poolFor(upstream).getWarmupConnections() > 0, upstream.name());
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.urva.myfinance.coinTrack.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs one operation repeatedly from a fixed number of concurrent callers (virtual threads)
+ * and reports throughput and latency percentiles.
+ *
+ * Each caller runs {@code iterationsPerCaller} times back to back (closed loop), so the
+ * measured throughput is what the system sustains at that concurrency. Failures (exceptions or
+ * failed assertions) are counted, and their latency is recorded like successes.
+ */
+public final class LoadDriver {
+
+    @FunctionalInterface
+    public interface Operation {
+        void run(int caller, int iteration) throws Exception;
+    }
+
+    private LoadDriver() {
+    }
+
+    public static LoadReport run(String name, int callers, int iterationsPerCaller, Operation operation)
+            throws InterruptedException {
+        long[][] latencies = new long[callers][iterationsPerCaller];
+        AtomicInteger failures = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(callers);
+
+        long started = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < callers; c++) {
+                int caller = c;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < iterationsPerCaller; i++) {
+                        long t0 = System.nanoTime();
+                        try {
+                            operation.run(caller, i);
+                        } catch (Exception | AssertionError e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[caller][i] = System.nanoTime() - t0;
+                    }
+                }));
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+        for (Future<?> future : futures) {
+            if (!future.isDone()) throw new InterruptedException("Load run " + name + " did not finish");
+        }
+
+        long[] all = Arrays.stream(latencies).flatMapToLong(Arrays::stream).sorted().toArray();
+        return new LoadReport(name, all.length, failures.get(), elapsed,
+                percentile(all, 50), percentile(all, 95), percentile(all, 99),
+                Duration.ofNanos(all.length > 0 ? all[all.length - 1] : 0));
+    }
+
+    /** Nearest-rank percentile of sorted nanosecond samples. */
+    static Duration percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return Duration.ZERO;
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return Duration.ofNanos(sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))]);
+    }
+
+    public record LoadReport(String name, int operations, int failures, Duration elapsed,
+                             Duration p50, Duration p95, Duration p99, Duration max) {
+
+        public double throughputPerSecond() {
+            return elapsed.isZero() ? 0 : operations * 1_000_000_000.0 / elapsed.toNanos();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-28s ops=%6d failed=%5d  %8.1f ops/s  p50=%6.1fms p95=%6.1fms p99=%6.1fms max=%6.1fms",
+                    name, operations, failures, throughputPerSecond(),
+                    millis(p50), millis(p95), millis(p99), millis(max));
+        }
+
+        private static double millis(Duration d) {
+            return d.toNanos() / 1_000_000.0;
+        }
+    }
+}
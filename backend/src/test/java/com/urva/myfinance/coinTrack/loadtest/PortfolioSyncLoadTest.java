@@ -0,0 +1,233 @@
+package com.urva.myfinance.coinTrack.loadtest;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+import com.urva.myfinance.coinTrack.loadtest.LoadDriver.LoadReport;
+import com.urva.myfinance.coinTrack.loadtest.simulator.BrokerSimulator;
+import com.urva.myfinance.coinTrack.loadtest.simulator.BrokerSimulator.Profile;
+import com.urva.myfinance.coinTrack.loadtest.simulator.LatencyModel;
+import com.urva.myfinance.coinTrack.loadtest.simulator.PortfolioShape;
+import com.urva.myfinance.coinTrack.portfolio.scheduler.PortfolioSyncScheduler;
+import com.urva.myfinance.coinTrack.portfolio.scheduler.UserActivityTracker;
+import com.urva.myfinance.coinTrack.portfolio.sync.PortfolioSyncService;
+import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
+import com.urva.myfinance.coinTrack.user.model.User;
+import com.urva.myfinance.coinTrack.user.repository.UserRepository;
+
+/**
+ * Load harness: the full application against embedded MongoDB, with every broker call served by
+ * {@link BrokerSimulator} instead of Kite, Upstox or SmartAPI.
+ *
+ * Seeds {@code loadtest.users} users (every user on Zerodha, every 2nd also on Upstox, every 3rd
+ * also on AngelOne), then measures the adaptive scheduler's sweep, concurrent per-user syncs and the portfolio
+ * read endpoints, printing throughput and latency percentiles for each. Broker latency follows a
+ * log-normal curve with a small share of 503s and 429s, so retry, circuit breaker and stale-data
+ * paths are exercised too.
+ *
+ * Skipped unless {@code -Dloadtest=true}; run it before and after a change to the broker or
+ * portfolio layers and compare the reports:
+ *
+ *   mvn test -Dtest=PortfolioSyncLoadTest -Dloadtest=true -Dloadtest.users=500
+ *
+ * Rate budgets stay at the application defaults. Each seeded account has its own API key, as
+ * in production, so the governor paces every account against its own budget; the simulator's
+ * per-second caps stand in for the brokers' overall capacity.
+ */
+@SpringBootTest(properties = {
+        "portfolio.sync.adaptive.interval=1h",
+        "portfolio.sync.adaptive.budget=100000",
+        "outbound.http.warmup-cron=-"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+@DisplayName("Load: portfolio sync and reads against the broker simulator")
+class PortfolioSyncLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PortfolioSyncLoadTest.class);
+    private static final int USERS = Integer.getInteger("loadtest.users", 200);
+    private static final int CALLERS = Integer.getInteger("loadtest.callers", 32);
+    private static final String USER_PREFIX = "load-user-";
+    private static final List<String> READ_ENDPOINTS = List.of(
+            "/api/portfolio/summary", "/api/portfolio/holdings", "/api/portfolio/positions",
+            "/api/portfolio/orders", "/api/portfolio/funds");
+
+    @TestConfiguration
+    static class SimulatorConfig {
+
+        @Bean
+        BrokerSimulator brokerSimulator() {
+            Profile typical = Profile.healthy()
+                    .withLatency(LatencyModel.logNormal(Duration.ofMillis(60), Duration.ofMillis(600)))
+                    .withErrorRate(0.01)
+                    .withThrottleRate(0.005);
+            return new BrokerSimulator(PortfolioShape.typical())
+                    .profile(Broker.ZERODHA, typical.withMaxRequestsPerSecond(400))
+                    .profile(Broker.UPSTOX, typical.withMaxRequestsPerSecond(400))
+                    .profile(Broker.ANGELONE, typical
+                            .withLatency(LatencyModel.logNormal(Duration.ofMillis(120), Duration.ofMillis(1200)))
+                            .withMaxRequestsPerSecond(200));
+        }
+
+        @Bean
+        @Primary
+        WebClient.Builder simulatedBrokerWebClientBuilder(BrokerSimulator simulator, BrokerRateGovernor rateGovernor) {
+            return WebClient.builder()
+                    .clientConnector(simulator)
+                    .filter(rateGovernor.filter())
+                    .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(2 * 1024 * 1024));
+        }
+    }
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private MongoTemplate mongoTemplate;
+    @Autowired private UserRepository userRepository;
+    @Autowired private EncryptionUtil encryptionUtil;
+    @Autowired private PortfolioSyncService portfolioSyncService;
+    @Autowired private BrokerSimulator simulator;
+    @Autowired private PortfolioSyncScheduler syncScheduler;
+    @Autowired private UserActivityTracker activityTracker;
+
+    @MockitoSpyBean
+    private SyncSafetyService syncSafetyService;
+
+    @BeforeAll
+    void seed() {
+        mongoTemplate.remove(new Query(), BrokerAccount.class);
+        mongoTemplate.remove(new Query(), CanonicalHolding.class);
+        mongoTemplate.remove(new Query(), CanonicalPosition.class);
+        mongoTemplate.remove(new Query(), User.class);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(8);
+        for (int i = 0; i < USERS; i++) {
+            User user = userRepository.save(User.builder()
+                    .username(USER_PREFIX + i)
+                    .email(USER_PREFIX + i + "@example.com")
+                    .build());
+            mongoTemplate.insert(BrokerAccount.builder()
+                    .userId(user.getId()).broker(Broker.ZERODHA).isActive(true)
+                    .zerodhaApiKey("simkey-" + i)
+                    .zerodhaAccessToken(encryptionUtil.encrypt("kite-" + i))
+                    .zerodhaTokenExpiresAt(expiresAt)
+                    .build());
+            if (i % 2 == 0) {
+                mongoTemplate.insert(BrokerAccount.builder()
+                        .userId(user.getId()).broker(Broker.UPSTOX).isActive(true)
+                        .upstoxApiKey("simkey-" + i)
+                        .encryptedUpstoxApiSecret(encryptionUtil.encrypt("secret"))
+                        .accessToken(encryptionUtil.encrypt("upstox-" + i))
+                        .tokenExpiresAt(expiresAt)
+                        .build());
+            }
+            if (i % 3 == 0) {
+                String jwt = encryptionUtil.encrypt("smartapi-" + i);
+                mongoTemplate.insert(BrokerAccount.builder()
+                        .userId(user.getId()).broker(Broker.ANGELONE).isActive(true)
+                        .angelOneApiKey("simkey-" + i)
+                        .angelOneClientCode("SIM" + i)
+                        .encryptedAngelOnePassword(encryptionUtil.encrypt("1234"))
+                        .encryptedAngelOneTotpSecret(encryptionUtil.encrypt("JBSWY3DPEHPK3PXP"))
+                        .encryptedAngelOneJwtToken(jwt)
+                        .angelOneTokenExpiresAt(expiresAt)
+                        .accessToken(jwt)
+                        .tokenExpiresAt(expiresAt)
+                        .build());
+            }
+        }
+    }
+
+    @BeforeEach
+    void marketOpen() {
+        doReturn(true).when(syncSafetyService).isMarketOpen();
+    }
+
+    @Test
+    @Order(1)
+    @DisplayName("adaptive sweep: scheduler tick over every seeded user")
+    void adaptiveSweep() throws InterruptedException {
+        // Every user has just opened the dashboard, so every one is warm and stale
+        userRepository.findAll().forEach(u -> activityTracker.touch(u.getId()));
+
+        LoadReport report = LoadDriver.run("PortfolioSyncScheduler.tick", 1, 3,
+                (caller, iteration) -> syncScheduler.tick());
+
+        print(report);
+        assertEquals(0, report.failures());
+        assertTrue(mongoTemplate.count(new Query(), CanonicalHolding.class) > 0, "sweep persisted holdings");
+    }
+
+    @Test
+    @Order(2)
+    @DisplayName("concurrent per-user syncs")
+    void concurrentUserSyncs() throws InterruptedException {
+        List<String> userIds = userRepository.findAll().stream().map(User::getId).toList();
+        int perCaller = Math.max(1, userIds.size() / CALLERS);
+
+        LoadReport report = LoadDriver.run("syncUser", CALLERS, perCaller,
+                (caller, iteration) -> portfolioSyncService.syncUser(
+                        userIds.get((caller * perCaller + iteration) % userIds.size())));
+
+        print(report);
+        assertEquals(0, report.failures());
+    }
+
+    @Test
+    @Order(3)
+    @DisplayName("portfolio read endpoints")
+    void readEndpoints() throws InterruptedException {
+        for (String endpoint : READ_ENDPOINTS) {
+            LoadReport report = LoadDriver.run("GET " + endpoint, CALLERS, Math.max(1, USERS / CALLERS) * 4,
+                    (caller, iteration) -> mockMvc.perform(get(endpoint)
+                                    .with(user(USER_PREFIX + ((caller * 31 + iteration) % USERS))))
+                            .andExpect(status().isOk()));
+
+            print(report);
+            assertEquals(0, report.failures(), endpoint);
+        }
+    }
+
+    private void print(LoadReport report) {
+        logger.info("{}", report);
+        logger.info("  broker requests: {}", simulator.requestCounts());
+    }
+}
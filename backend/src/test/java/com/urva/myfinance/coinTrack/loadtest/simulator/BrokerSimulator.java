@@ -0,0 +1,338 @@
+package com.urva.myfinance.coinTrack.loadtest.simulator;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ClientHttpResponse;
+import org.springframework.mock.http.client.reactive.MockClientHttpRequest;
+import org.springframework.mock.http.client.reactive.MockClientHttpResponse;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * In-process Kite, Upstox and SmartAPI, plugged into a WebClient as its connector.
+ *
+ * Serves holdings, positions, funds, orders / trades and LTP for every account, generated as a
+ * {@link SyntheticPortfolio} seeded by the request's Authorization header, so each token has its
+ * own stable book of {@link PortfolioShape} size. Per broker, a {@link Profile} adds response
+ * latency, random 5xx errors, random 429s and a hard requests-per-second cap (over the cap,
+ * 429 like the real APIs). No sockets are opened, so results measure the application, not the
+ * loopback stack.
+ *
+ * Portfolio bodies are serialized once per account and endpoint; quote bodies per request.
+ */
+public final class BrokerSimulator implements ClientHttpConnector {
+
+    private static final String KITE_HOST = "api.kite.trade";
+    private static final String UPSTOX_HOST = "api.upstox.com";
+    private static final String SMARTAPI_HOST = "apiconnect.angelbroking.com";
+    private static final String SMARTAPI_SECURE = "/rest/secure/angelbroking";
+
+    private final PortfolioShape shape;
+    private final Map<Broker, Profile> profiles = new EnumMap<>(Broker.class);
+    private final Map<Broker, RateWindow> rateWindows = new EnumMap<>(Broker.class);
+    private final ObjectMapper objectMapper;
+    private final Map<String, SyntheticPortfolio> portfolios = new ConcurrentHashMap<>();
+    private final Map<String, String> bodies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+
+    public BrokerSimulator(PortfolioShape shape) {
+        this.shape = shape;
+        this.objectMapper = new ObjectMapper().findAndRegisterModules()
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        for (Broker broker : Broker.values()) {
+            profiles.put(broker, Profile.healthy());
+            rateWindows.put(broker, new RateWindow());
+        }
+    }
+
+    public BrokerSimulator profile(Broker broker, Profile profile) {
+        profiles.put(broker, profile);
+        return this;
+    }
+
+    /** Requests served, keyed "BROKER status", e.g. "ZERODHA 200" or "UPSTOX 429". */
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        requests.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                .forEach(e -> counts.put(e.getKey(), e.getValue().sum()));
+        return counts;
+    }
+
+    public long requestCount(Broker broker, int status) {
+        LongAdder adder = requests.get(broker + " " + status);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Override
+    public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+            Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+        MockClientHttpRequest request = new MockClientHttpRequest(method, uri);
+        return requestCallback.apply(request)
+                .then(Mono.defer(() -> {
+                    Broker broker = brokerFor(uri.getHost());
+                    Mono<ClientHttpResponse> response = broker == null
+                            ? Mono.just(json(HttpStatus.NOT_FOUND, "{\"status\":\"error\",\"message\":\"unknown host\"}"))
+                            : handle(broker, request);
+                    Duration latency = broker == null ? Duration.ZERO
+                            : profiles.get(broker).latency().next(ThreadLocalRandom.current());
+                    return latency.isZero() ? response : Mono.delay(latency).then(response);
+                }));
+    }
+
+    private static Broker brokerFor(String host) {
+        if (KITE_HOST.equals(host)) return Broker.ZERODHA;
+        if (UPSTOX_HOST.equals(host)) return Broker.UPSTOX;
+        if (SMARTAPI_HOST.equals(host)) return Broker.ANGELONE;
+        return null;
+    }
+
+    private Mono<ClientHttpResponse> handle(Broker broker, MockClientHttpRequest request) {
+        Profile profile = profiles.get(broker);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        if (rateWindows.get(broker).overLimit(profile.maxRequestsPerSecond())
+                || random.nextDouble() < profile.throttleRate()) {
+            return Mono.just(count(broker, json(HttpStatus.TOO_MANY_REQUESTS, errorBody(broker, "Too many requests"))));
+        }
+        if (random.nextDouble() < profile.errorRate()) {
+            return Mono.just(count(broker, json(HttpStatus.SERVICE_UNAVAILABLE, errorBody(broker, "Service unavailable"))));
+        }
+
+        String auth = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (auth == null || auth.isBlank()) {
+            return Mono.just(count(broker, json(HttpStatus.FORBIDDEN, errorBody(broker, "Missing access token"))));
+        }
+        SyntheticPortfolio portfolio = portfolios.computeIfAbsent(auth,
+                a -> new SyntheticPortfolio(shape, a.hashCode()));
+
+        String path = request.getURI().getPath();
+        Mono<String> body = switch (broker) {
+            case ZERODHA -> kite(path, request.getURI(), auth, portfolio);
+            case UPSTOX -> upstox(path, request.getURI(), auth, portfolio);
+            case ANGELONE -> smartApi(path, request, auth, portfolio);
+        };
+        return body
+                .map(b -> count(broker, json(HttpStatus.OK, b)))
+                .switchIfEmpty(Mono.fromSupplier(
+                        () -> count(broker, json(HttpStatus.NOT_FOUND, errorBody(broker, "Route not found")))));
+    }
+
+    // ── Kite ────────────────────────────────────────────────────
+
+    private Mono<String> kite(String path, URI uri, String auth, SyntheticPortfolio p) {
+        return switch (path) {
+            case "/portfolio/holdings" -> cached(auth, path, () -> kiteEnvelope(p.zerodhaHoldings()));
+            case "/portfolio/positions" -> cached(auth, path,
+                    () -> kiteEnvelope(Map.of("net", p.zerodhaPositions(), "day", List.of())));
+            case "/user/margins" -> cached(auth, path, () -> kiteEnvelope(p.zerodhaFunds()));
+            case "/orders" -> cached(auth, path, () -> kiteEnvelope(p.zerodhaOrders()));
+            case "/trades", "/mf/holdings", "/mf/orders", "/mf/sips" -> Mono.just(kiteEnvelope(List.of()));
+            case "/quote/ltp", "/quote/ohlc" -> Mono.fromSupplier(() -> kiteEnvelope(kiteQuotes(uri, path.endsWith("ohlc"))));
+            default -> Mono.empty();
+        };
+    }
+
+    private static Map<String, Object> kiteQuotes(URI uri, boolean ohlc) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        List<String> keys = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getOrDefault("i", List.of());
+        for (String key : keys) {
+            int index = SyntheticPortfolio.indexOf(key);
+            if (index < 0) continue;
+            Map<String, Object> quote = new LinkedHashMap<>();
+            quote.put("instrument_token", SyntheticPortfolio.instrumentToken(index));
+            quote.put("last_price", SyntheticPortfolio.lastPrice(index));
+            if (ohlc) {
+                double close = SyntheticPortfolio.closePrice(index);
+                quote.put("ohlc", Map.of("open", close, "high", SyntheticPortfolio.lastPrice(index),
+                        "low", close, "close", close));
+            }
+            data.put(key, quote);
+        }
+        return data;
+    }
+
+    private String kiteEnvelope(Object data) {
+        return write(Map.of("status", "success", "data", data));
+    }
+
+    // ── Upstox ──────────────────────────────────────────────────
+
+    private Mono<String> upstox(String path, URI uri, String auth, SyntheticPortfolio p) {
+        return switch (path) {
+            case "/v2/portfolio/long-term-holdings" -> cached(auth, path, () -> upstoxEnvelope(p.upstoxHoldings()));
+            case "/v2/portfolio/short-term-positions" -> cached(auth, path, () -> upstoxEnvelope(p.upstoxPositions()));
+            case "/v2/user/get-funds-and-margin" -> cached(auth, path, () -> upstoxEnvelope(p.upstoxFunds()));
+            case "/v2/order/retrieve-all" -> cached(auth, path, () -> upstoxEnvelope(p.upstoxOrders()));
+            case "/v2/order/trades/get-trades-for-day" -> Mono.just(upstoxEnvelope(List.of()));
+            case "/v2/market-quote/ltp" -> Mono.fromSupplier(() -> upstoxEnvelope(upstoxQuotes(uri)));
+            default -> Mono.empty();
+        };
+    }
+
+    private static Map<String, Object> upstoxQuotes(URI uri) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        String keys = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("instrument_key");
+        if (keys == null) return data;
+        for (String key : keys.split(",")) {
+            int index = SyntheticPortfolio.indexOfIsin(key.substring(key.indexOf('|') + 1));
+            if (index < 0) continue;
+            data.put(key.replace('|', ':'), Map.of(
+                    "instrument_token", key,
+                    "last_price", SyntheticPortfolio.lastPrice(index)));
+        }
+        return data;
+    }
+
+    private String upstoxEnvelope(Object data) {
+        return write(Map.of("status", "success", "data", data));
+    }
+
+    // ── SmartAPI ────────────────────────────────────────────────
+
+    private Mono<String> smartApi(String path, MockClientHttpRequest request, String auth, SyntheticPortfolio p) {
+        if (!path.startsWith(SMARTAPI_SECURE)) return Mono.empty();
+        return switch (path.substring(SMARTAPI_SECURE.length())) {
+            case "/portfolio/v1/getHolding" -> cached(auth, path, () -> smartApiEnvelope(p.angelOneHoldings()));
+            case "/order/v1/getPosition" -> cached(auth, path, () -> smartApiEnvelope(p.angelOnePositions()));
+            case "/user/v1/getRMS" -> cached(auth, path, () -> smartApiEnvelope(p.angelOneFunds()));
+            case "/order/v1/getOrderBook" -> cached(auth, path, () -> smartApiEnvelope(p.angelOneOrders()));
+            case "/order/v1/getTradeBook" -> Mono.just(smartApiEnvelope(List.of()));
+            case "/order/v1/getLtpData" -> request.getBodyAsString().map(this::smartApiQuote);
+            default -> Mono.empty();
+        };
+    }
+
+    private String smartApiQuote(String requestBody) {
+        try {
+            JsonNode req = objectMapper.readTree(requestBody);
+            String tradingSymbol = req.path("tradingsymbol").asText("");
+            int index = SyntheticPortfolio.indexOf(tradingSymbol);
+            if (index < 0) return smartApiEnvelope(null);
+            return smartApiEnvelope(Map.of(
+                    "exchange", req.path("exchange").asText("NSE"),
+                    "tradingsymbol", tradingSymbol,
+                    "symboltoken", String.valueOf(SyntheticPortfolio.instrumentToken(index)),
+                    "ltp", SyntheticPortfolio.lastPrice(index),
+                    "close", SyntheticPortfolio.closePrice(index)));
+        } catch (JsonProcessingException e) {
+            return write(Map.of("status", false, "message", "Invalid request", "errorcode", "AB1018"));
+        }
+    }
+
+    private String smartApiEnvelope(Object data) {
+        Map<String, Object> envelope = new LinkedHashMap<>();
+        envelope.put("status", true);
+        envelope.put("message", "SUCCESS");
+        envelope.put("errorcode", "");
+        envelope.put("data", data);
+        return write(envelope);
+    }
+
+    // ── Plumbing ────────────────────────────────────────────────
+
+    private Mono<String> cached(String auth, String path, Supplier<String> body) {
+        return Mono.fromSupplier(() -> bodies.computeIfAbsent(auth + " " + path, k -> body.get()));
+    }
+
+    private String errorBody(Broker broker, String message) {
+        return switch (broker) {
+            case ZERODHA -> write(Map.of("status", "error", "message", message, "error_type", "NetworkException"));
+            case UPSTOX -> write(Map.of("status", "error",
+                    "errors", List.of(Map.of("errorCode", "UDAPI10005", "message", message))));
+            case ANGELONE -> write(Map.of("status", false, "message", message, "errorcode", "AB1004"));
+        };
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize simulated response", e);
+        }
+    }
+
+    private ClientHttpResponse count(Broker broker, MockClientHttpResponse response) {
+        requests.computeIfAbsent(broker + " " + response.getStatusCode().value(), k -> new LongAdder()).increment();
+        return response;
+    }
+
+    private static MockClientHttpResponse json(HttpStatus status, String body) {
+        MockClientHttpResponse response = new MockClientHttpResponse(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        response.setBody(body, StandardCharsets.UTF_8);
+        return response;
+    }
+
+    /**
+     * Fault and latency settings for one simulated broker.
+     *
+     * @param latency              response latency distribution
+     * @param errorRate            share of requests answered 503
+     * @param throttleRate         share of requests answered 429 regardless of rate
+     * @param maxRequestsPerSecond requests per wall-clock second before 429s start; 0 = unlimited
+     */
+    public record Profile(LatencyModel latency, double errorRate, double throttleRate, int maxRequestsPerSecond) {
+
+        public static Profile healthy() {
+            return new Profile(LatencyModel.none(), 0, 0, 0);
+        }
+
+        public Profile withLatency(LatencyModel latency) {
+            return new Profile(latency, errorRate, throttleRate, maxRequestsPerSecond);
+        }
+
+        public Profile withErrorRate(double errorRate) {
+            return new Profile(latency, errorRate, throttleRate, maxRequestsPerSecond);
+        }
+
+        public Profile withThrottleRate(double throttleRate) {
+            return new Profile(latency, errorRate, throttleRate, maxRequestsPerSecond);
+        }
+
+        public Profile withMaxRequestsPerSecond(int maxRequestsPerSecond) {
+            return new Profile(latency, errorRate, throttleRate, maxRequestsPerSecond);
+        }
+    }
+
+    /** Fixed one-second window counter, as the brokers' own limiters behave. */
+    private static final class RateWindow {
+        private final AtomicLong second = new AtomicLong();
+        private final AtomicInteger count = new AtomicInteger();
+
+        boolean overLimit(int perSecond) {
+            if (perSecond <= 0) return false;
+            long now = System.currentTimeMillis() / 1000;
+            long current = second.get();
+            if (now != current && second.compareAndSet(current, now)) {
+                count.set(0);
+            }
+            return count.incrementAndGet() > perSecond;
+        }
+    }
+}
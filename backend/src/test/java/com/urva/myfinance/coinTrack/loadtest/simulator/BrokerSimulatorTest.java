@@ -0,0 +1,154 @@
+package com.urva.myfinance.coinTrack.loadtest.simulator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOnePositionRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaPositionRaw;
+import com.urva.myfinance.coinTrack.broker.core.codec.BrokerEnvelopeDecoder;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+
+@DisplayName("BrokerSimulator")
+class BrokerSimulatorTest {
+
+    private static final PortfolioShape SHAPE = new PortfolioShape(40, 6, 3, 500);
+
+    private final BrokerEnvelopeDecoder decoder = new BrokerEnvelopeDecoder(new ObjectMapper());
+
+    private static WebClient client(BrokerSimulator simulator) {
+        return WebClient.builder().clientConnector(simulator).build();
+    }
+
+    private static <T> List<T> decode(BrokerEnvelopeDecoder decoder, WebClient client, String url, String auth,
+                                      Class<T> type, String... path) {
+        return decoder.decode(client.get().uri(url).header("Authorization", auth).retrieve()
+                .bodyToFlux(DataBuffer.class), type, header -> { }, path).collectList().block();
+    }
+
+    private static int status(WebClient client, String url) {
+        return client.get().uri(url).header("Authorization", "token k:t")
+                .exchangeToMono(r -> r.releaseBody().thenReturn(r.statusCode()))
+                .map(HttpStatusCode::value)
+                .block();
+    }
+
+    @Test
+    @DisplayName("serves each broker's portfolio in the adapters' own raw models")
+    void servesAdapterWireFormat() {
+        WebClient client = client(new BrokerSimulator(SHAPE));
+
+        List<ZerodhaHoldingRaw> kite = decode(decoder, client, "https://api.kite.trade/portfolio/holdings",
+                "token k:a", ZerodhaHoldingRaw.class, "data");
+        List<ZerodhaPositionRaw> kitePositions = decode(decoder, client, "https://api.kite.trade/portfolio/positions",
+                "token k:a", ZerodhaPositionRaw.class, "data", "net");
+        List<UpstoxHoldingRaw> upstox = decode(decoder, client, "https://api.upstox.com/v2/portfolio/long-term-holdings",
+                "Bearer u", UpstoxHoldingRaw.class, "data");
+        List<AngelOnePositionRaw> angel = decode(decoder, client,
+                "https://apiconnect.angelbroking.com/rest/secure/angelbroking/order/v1/getPosition",
+                "Bearer a", AngelOnePositionRaw.class, "data");
+
+        assertEquals(40, kite.size());
+        assertTrue(kite.get(0).getTradingsymbol().startsWith("SIM"));
+        assertEquals(SyntheticPortfolio.lastPrice(SyntheticPortfolio.indexOf(kite.get(0).getTradingsymbol())),
+                kite.get(0).getLast_price());
+        assertEquals(6, kitePositions.size());
+        assertEquals(40, upstox.size());
+        assertEquals(6, angel.size());
+        assertNotNull(angel.get(0).getNetqty());
+    }
+
+    @Test
+    @DisplayName("the same token always gets the same book; another token gets a different one")
+    void stablePerToken() {
+        WebClient client = client(new BrokerSimulator(SHAPE));
+        String url = "https://api.kite.trade/portfolio/holdings";
+
+        List<String> first = decode(decoder, client, url, "token k:a", ZerodhaHoldingRaw.class, "data")
+                .stream().map(ZerodhaHoldingRaw::getTradingsymbol).toList();
+        List<String> again = decode(decoder, client, url, "token k:a", ZerodhaHoldingRaw.class, "data")
+                .stream().map(ZerodhaHoldingRaw::getTradingsymbol).toList();
+        List<String> other = decode(decoder, client, url, "token k:b", ZerodhaHoldingRaw.class, "data")
+                .stream().map(ZerodhaHoldingRaw::getTradingsymbol).toList();
+
+        assertEquals(first, again);
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    @DisplayName("quotes are priced consistently with the holdings")
+    void quotes() {
+        JsonNode body = client(new BrokerSimulator(SHAPE)).get()
+                .uri("https://api.kite.trade/quote/ohlc?i=NSE:SIM0042&i=NSE:OTHER")
+                .header("Authorization", "token k:a")
+                .retrieve().bodyToMono(JsonNode.class).block();
+
+        assertEquals(SyntheticPortfolio.lastPrice(42), body.path("data").path("NSE:SIM0042").path("last_price").asDouble());
+        assertTrue(body.path("data").path("NSE:SIM0042").has("ohlc"));
+        assertFalse(body.path("data").has("NSE:OTHER"));
+    }
+
+    @Test
+    @DisplayName("injects 503s, 429s and a per-second cap per broker")
+    void faultInjection() {
+        BrokerSimulator simulator = new BrokerSimulator(SHAPE)
+                .profile(Broker.ZERODHA, BrokerSimulator.Profile.healthy().withErrorRate(1.0))
+                .profile(Broker.UPSTOX, BrokerSimulator.Profile.healthy().withThrottleRate(1.0))
+                .profile(Broker.ANGELONE, BrokerSimulator.Profile.healthy().withMaxRequestsPerSecond(1_000_000));
+        WebClient client = client(simulator);
+
+        assertEquals(503, status(client, "https://api.kite.trade/portfolio/holdings"));
+        assertEquals(429, status(client, "https://api.upstox.com/v2/portfolio/long-term-holdings"));
+        assertEquals(404, status(client, "https://apiconnect.angelbroking.com/rest/secure/angelbroking/nope"));
+        assertEquals(1, simulator.requestCount(Broker.UPSTOX, 429));
+
+        BrokerSimulator capped = new BrokerSimulator(SHAPE)
+                .profile(Broker.ZERODHA, BrokerSimulator.Profile.healthy().withMaxRequestsPerSecond(2));
+        WebClient cappedClient = client(capped);
+        int throttled = 0;
+        for (int i = 0; i < 5; i++) {
+            if (status(cappedClient, "https://api.kite.trade/user/margins") == 429) throttled++;
+        }
+        assertTrue(throttled >= 2, "requests past the cap within one second are throttled");
+    }
+
+    @Test
+    @DisplayName("applies the configured latency before responding")
+    void latency() {
+        BrokerSimulator simulator = new BrokerSimulator(SHAPE)
+                .profile(Broker.ZERODHA, BrokerSimulator.Profile.healthy()
+                        .withLatency(LatencyModel.fixed(Duration.ofMillis(80))));
+
+        long started = System.nanoTime();
+        assertEquals(200, status(client(simulator), "https://api.kite.trade/user/margins"));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).toMillis() >= 80);
+    }
+
+    @Test
+    @DisplayName("log-normal latency is centred on the median with a long tail")
+    void logNormal() {
+        LatencyModel model = LatencyModel.logNormal(Duration.ofMillis(50), Duration.ofMillis(500));
+        long[] samples = new long[20_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = model.next(ThreadLocalRandom.current()).toMillis();
+        }
+        Arrays.sort(samples);
+
+        assertEquals(50, samples[samples.length / 2], 8);
+        assertEquals(500, samples[(int) (samples.length * 0.99)], 120);
+    }
+}
@@ -0,0 +1,38 @@
+package com.urva.myfinance.coinTrack.loadtest.simulator;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** Response latency distribution of a simulated broker. */
+@FunctionalInterface
+public interface LatencyModel {
+
+    /** z-score of the 99th percentile of a standard normal distribution. */
+    double Z_99 = 2.3263;
+
+    Duration next(ThreadLocalRandom random);
+
+    static LatencyModel none() {
+        return random -> Duration.ZERO;
+    }
+
+    static LatencyModel fixed(Duration latency) {
+        return random -> latency;
+    }
+
+    static LatencyModel uniform(Duration min, Duration max) {
+        long minNanos = min.toNanos();
+        long spread = Math.max(1L, max.toNanos() - minNanos);
+        return random -> Duration.ofNanos(minNanos + random.nextLong(spread));
+    }
+
+    /**
+     * Log-normal latency with the given median and 99th percentile: mostly fast, with the long
+     * right tail real broker APIs show around the open.
+     */
+    static LatencyModel logNormal(Duration median, Duration p99) {
+        double mu = Math.log(median.toNanos());
+        double sigma = Math.log((double) p99.toNanos() / median.toNanos()) / Z_99;
+        return random -> Duration.ofNanos((long) Math.exp(mu + sigma * random.nextGaussian()));
+    }
+}
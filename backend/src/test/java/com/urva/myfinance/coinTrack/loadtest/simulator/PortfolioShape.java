@@ -0,0 +1,21 @@
+package com.urva.myfinance.coinTrack.loadtest.simulator;
+
+/**
+ * Size of every synthetic account the simulator serves.
+ *
+ * @param holdings     equity holdings per account
+ * @param positions    open net positions per account
+ * @param orders       orders in today's order book
+ * @param universeSize distinct symbols the rows are drawn from; smaller values mean more
+ *                     overlap between users, as on a real platform
+ */
+public record PortfolioShape(int holdings, int positions, int orders, int universeSize) {
+
+    public static PortfolioShape typical() {
+        return new PortfolioShape(25, 5, 10, 2_000);
+    }
+
+    public static PortfolioShape large() {
+        return new PortfolioShape(500, 50, 100, 5_000);
+    }
+}
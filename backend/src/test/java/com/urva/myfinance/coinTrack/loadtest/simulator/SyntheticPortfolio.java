@@ -0,0 +1,428 @@
+package com.urva.myfinance.coinTrack.loadtest.simulator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOneFundsRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOneHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOneOrderRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.angelone.raw.AngelOnePositionRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxFundsRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxOrderRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.upstox.raw.UpstoxPositionRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaFundsRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaHoldingRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaOrderRaw;
+import com.urva.myfinance.coinTrack.broker.adapters.zerodha.raw.ZerodhaPositionRaw;
+
+/**
+ * One synthetic account, generated deterministically from a seed (the simulator uses the
+ * request's Authorization header, so every account token gets its own stable book).
+ *
+ * Rows are built as the adapters' own raw models, so the JSON the simulator serves always
+ * matches the field names the adapters bind. Symbols are {@code SIM0000..}, priced by
+ * {@link #lastPrice(int)}, the same value the simulated quote endpoints return.
+ */
+public final class SyntheticPortfolio {
+
+    private final PortfolioShape shape;
+    private final int[] holdingSymbols;
+    private final int[] positionSymbols;
+    private final int[] quantities;
+
+    public SyntheticPortfolio(PortfolioShape shape, long seed) {
+        this.shape = shape;
+        Random random = new Random(seed);
+        List<Integer> universe = new ArrayList<>(IntStream.range(0, shape.universeSize()).boxed().toList());
+        Collections.shuffle(universe, random);
+        int holdings = Math.min(shape.holdings(), universe.size());
+        int positions = Math.min(shape.positions(), universe.size());
+        this.holdingSymbols = universe.subList(0, holdings).stream().mapToInt(Integer::intValue).toArray();
+        this.positionSymbols = universe.subList(universe.size() - positions, universe.size()).stream()
+                .mapToInt(Integer::intValue).toArray();
+        this.quantities = IntStream.range(0, Math.max(holdings, positions)).map(i -> 1 + random.nextInt(500)).toArray();
+    }
+
+    public static String symbol(int index) {
+        return String.format("SIM%04d", index);
+    }
+
+    /**
+     * A well-formed Indian equity ISIN for a synthetic symbol: "INES" + the index in five digits,
+     * security type "01" and the ISIN check digit, e.g. {@code INES00042015}.
+     */
+    public static String isin(int index) {
+        String body = String.format("INES%05d01", index);
+        return body + isinCheckDigit(body);
+    }
+
+    /** Index of an ISIN built by {@link #isin(int)}, or -1. */
+    public static int indexOfIsin(String isin) {
+        if (isin == null || isin.length() != 12 || !isin.startsWith("INES")) return -1;
+        try {
+            return Integer.parseInt(isin.substring(4, 9));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Luhn over the ISIN's characters as digits (A = 10 … Z = 35). */
+    private static int isinCheckDigit(String body) {
+        StringBuilder digits = new StringBuilder();
+        for (char c : body.toCharArray()) {
+            digits.append(Character.digit(c, 36));
+        }
+        int sum = 0;
+        for (int i = digits.length() - 1, n = 0; i >= 0; i--, n++) {
+            int d = digits.charAt(i) - '0';
+            if (n % 2 == 0) {
+                d *= 2;
+                if (d > 9) d -= 9;
+            }
+            sum += d;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    public static long instrumentToken(int index) {
+        return 100_000L + index;
+    }
+
+    /** Index of a SIMxxxx symbol (any exchange prefix or -EQ suffix stripped), or -1. */
+    public static int indexOf(String symbol) {
+        String s = symbol.substring(symbol.indexOf(':') + 1);
+        s = s.substring(s.indexOf('|') + 1);
+        if (s.endsWith("-EQ")) s = s.substring(0, s.length() - 3);
+        if (!s.startsWith("SIM")) return -1;
+        try {
+            return Integer.parseInt(s.substring(3));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static double lastPrice(int index) {
+        return 50 + (index * 7919L % 5000) / 2.0;
+    }
+
+    public static double closePrice(int index) {
+        return Math.round(lastPrice(index) * 0.99 * 100) / 100.0;
+    }
+
+    private static double averagePrice(int index) {
+        return Math.round(lastPrice(index) * 0.9 * 100) / 100.0;
+    }
+
+    // ── Zerodha ─────────────────────────────────────────────────
+
+    public List<ZerodhaHoldingRaw> zerodhaHoldings() {
+        List<ZerodhaHoldingRaw> rows = new ArrayList<>(holdingSymbols.length);
+        for (int i = 0; i < holdingSymbols.length; i++) {
+            int s = holdingSymbols[i];
+            int qty = quantities[i];
+            ZerodhaHoldingRaw raw = new ZerodhaHoldingRaw();
+            raw.setTradingsymbol(symbol(s));
+            raw.setExchange("NSE");
+            raw.setInstrument_token(instrumentToken(s));
+            raw.setIsin(isin(s));
+            raw.setProduct("CNC");
+            raw.setQuantity(qty);
+            raw.setT1_quantity(0);
+            raw.setAverage_price(averagePrice(s));
+            raw.setLast_price(lastPrice(s));
+            raw.setClose_price(closePrice(s));
+            raw.setPnl((lastPrice(s) - averagePrice(s)) * qty);
+            raw.setDay_change(lastPrice(s) - closePrice(s));
+            raw.setDay_change_percentage((lastPrice(s) - closePrice(s)) / closePrice(s) * 100);
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    public List<ZerodhaPositionRaw> zerodhaPositions() {
+        List<ZerodhaPositionRaw> rows = new ArrayList<>(positionSymbols.length);
+        for (int i = 0; i < positionSymbols.length; i++) {
+            int s = positionSymbols[i];
+            int qty = quantities[i];
+            ZerodhaPositionRaw raw = new ZerodhaPositionRaw();
+            raw.setTradingsymbol(symbol(s));
+            raw.setExchange("NSE");
+            raw.setInstrument_token(instrumentToken(s));
+            raw.setProduct("MIS");
+            raw.setQuantity(qty);
+            raw.setOvernight_quantity(0);
+            raw.setMultiplier(1);
+            raw.setAverage_price(averagePrice(s));
+            raw.setLast_price(lastPrice(s));
+            raw.setClose_price(closePrice(s));
+            raw.setPnl((lastPrice(s) - averagePrice(s)) * qty);
+            raw.setUnrealised((lastPrice(s) - averagePrice(s)) * qty);
+            raw.setRealised(0.0);
+            raw.setM2m((lastPrice(s) - averagePrice(s)) * qty);
+            raw.setValue(-averagePrice(s) * qty);
+            raw.setBuy_quantity(qty);
+            raw.setBuy_price(averagePrice(s));
+            raw.setSell_quantity(0);
+            raw.setSell_price(0.0);
+            raw.setDay_buy_quantity(qty);
+            raw.setDay_sell_quantity(0);
+            raw.setDay_buy_value(averagePrice(s) * qty);
+            raw.setDay_sell_value(0.0);
+            raw.setInstrument_type("EQ");
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    public ZerodhaFundsRaw zerodhaFunds() {
+        ZerodhaFundsRaw.Available available = new ZerodhaFundsRaw.Available();
+        available.setCash(new BigDecimal("250000.00"));
+        available.setCollateral(BigDecimal.ZERO);
+        available.setIntradayPayin(BigDecimal.ZERO);
+        available.setOpeningBalance(new BigDecimal("250000.00"));
+        available.setLiveBalance(new BigDecimal("240000.00"));
+        ZerodhaFundsRaw.Utilised utilised = new ZerodhaFundsRaw.Utilised();
+        utilised.setDebits(new BigDecimal("10000.00"));
+        utilised.setExposure(BigDecimal.ZERO);
+        utilised.setSpan(BigDecimal.ZERO);
+        utilised.setOptionPremium(BigDecimal.ZERO);
+        ZerodhaFundsRaw.SegmentFundsDTO equity = new ZerodhaFundsRaw.SegmentFundsDTO();
+        equity.setEnabled(true);
+        equity.setNet(new BigDecimal("240000.00"));
+        equity.setAvailable(available);
+        equity.setUtilised(utilised);
+        ZerodhaFundsRaw funds = new ZerodhaFundsRaw();
+        funds.setEquity(equity);
+        return funds;
+    }
+
+    public List<ZerodhaOrderRaw> zerodhaOrders() {
+        List<ZerodhaOrderRaw> rows = new ArrayList<>(shape.orders());
+        LocalDateTime at = LocalDate.now().atTime(9, 20);
+        for (int i = 0; i < shape.orders() && holdingSymbols.length > 0; i++) {
+            int s = holdingSymbols[i % holdingSymbols.length];
+            ZerodhaOrderRaw raw = new ZerodhaOrderRaw();
+            raw.setOrderId("Z" + (1_000_000 + i));
+            raw.setStatus("COMPLETE");
+            raw.setOrderTimestamp(at.plusSeconds(i));
+            raw.setExchange("NSE");
+            raw.setTradingsymbol(symbol(s));
+            raw.setInstrumentToken(String.valueOf(instrumentToken(s)));
+            raw.setTransactionType("BUY");
+            raw.setOrderType("LIMIT");
+            raw.setValidity("DAY");
+            raw.setProduct("CNC");
+            raw.setPrice(BigDecimal.valueOf(lastPrice(s)));
+            raw.setAveragePrice(BigDecimal.valueOf(lastPrice(s)));
+            raw.setQuantity(1);
+            raw.setFilledQuantity(1);
+            raw.setPendingQuantity(0);
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    // ── Upstox ──────────────────────────────────────────────────
+
+    public List<UpstoxHoldingRaw> upstoxHoldings() {
+        List<UpstoxHoldingRaw> rows = new ArrayList<>(holdingSymbols.length);
+        for (int i = 0; i < holdingSymbols.length; i++) {
+            int s = holdingSymbols[i];
+            int qty = quantities[i];
+            UpstoxHoldingRaw raw = new UpstoxHoldingRaw();
+            raw.setIsin(isin(s));
+            raw.setTradingSymbol(symbol(s));
+            raw.setCompanyName("Simulated " + symbol(s));
+            raw.setExchange("NSE");
+            raw.setInstrumentToken("NSE_EQ|" + isin(s));
+            raw.setProduct("D");
+            raw.setQuantity(qty);
+            raw.setT1Quantity(0);
+            raw.setAveragePrice((float) averagePrice(s));
+            raw.setLastPrice((float) lastPrice(s));
+            raw.setClosePrice((float) closePrice(s));
+            raw.setPnl((float) ((lastPrice(s) - averagePrice(s)) * qty));
+            raw.setDayChange((float) (lastPrice(s) - closePrice(s)));
+            raw.setDayChangePercentage((float) ((lastPrice(s) - closePrice(s)) / closePrice(s) * 100));
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    public List<UpstoxPositionRaw> upstoxPositions() {
+        List<UpstoxPositionRaw> rows = new ArrayList<>(positionSymbols.length);
+        for (int i = 0; i < positionSymbols.length; i++) {
+            int s = positionSymbols[i];
+            int qty = quantities[i];
+            UpstoxPositionRaw raw = new UpstoxPositionRaw();
+            raw.setTradingSymbol(symbol(s));
+            raw.setExchange("NSE");
+            raw.setInstrumentToken("NSE_EQ|" + isin(s));
+            raw.setProduct("I");
+            raw.setQuantity(qty);
+            raw.setOvernightQuantity(0);
+            raw.setMultiplier(1);
+            raw.setInstrumentType("EQ");
+            raw.setAveragePrice((float) averagePrice(s));
+            raw.setLastPrice((float) lastPrice(s));
+            raw.setClosePrice((float) closePrice(s));
+            raw.setBuyPrice((float) averagePrice(s));
+            raw.setSellPrice(0f);
+            raw.setBuyQuantity(qty);
+            raw.setSellQuantity(0);
+            raw.setRealised(0f);
+            raw.setUnrealised((float) ((lastPrice(s) - averagePrice(s)) * qty));
+            raw.setPnl((float) ((lastPrice(s) - averagePrice(s)) * qty));
+            raw.setDayBuyValue((float) (averagePrice(s) * qty));
+            raw.setDaySellValue(0f);
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    public UpstoxFundsRaw upstoxFunds() {
+        UpstoxFundsRaw.EquityFunds equity = new UpstoxFundsRaw.EquityFunds();
+        equity.setAvailableMargin(240000f);
+        equity.setUsedMargin(10000f);
+        equity.setCollateral(0f);
+        equity.setPayinAmount(0f);
+        equity.setSpanMargin(0f);
+        equity.setExposureMargin(0f);
+        equity.setAdhocFunds(0f);
+        equity.setPayout(0f);
+        UpstoxFundsRaw funds = new UpstoxFundsRaw();
+        funds.setEquity(equity);
+        return funds;
+    }
+
+    public List<UpstoxOrderRaw> upstoxOrders() {
+        List<UpstoxOrderRaw> rows = new ArrayList<>(shape.orders());
+        for (int i = 0; i < shape.orders() && holdingSymbols.length > 0; i++) {
+            int s = holdingSymbols[i % holdingSymbols.length];
+            UpstoxOrderRaw raw = new UpstoxOrderRaw();
+            raw.setOrderId("U" + (1_000_000 + i));
+            raw.setStatus("complete");
+            raw.setOrderTimestamp(LocalDate.now() + " 09:20:00");
+            raw.setExchange("NSE");
+            raw.setTradingSymbol(symbol(s));
+            raw.setInstrumentToken("NSE_EQ|" + isin(s));
+            raw.setTransactionType("BUY");
+            raw.setOrderType("LIMIT");
+            raw.setValidity("DAY");
+            raw.setProduct("D");
+            raw.setPrice((float) lastPrice(s));
+            raw.setAveragePrice((float) lastPrice(s));
+            raw.setQuantity(1);
+            raw.setFilledQuantity(1);
+            raw.setPendingQuantity(0);
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    // ── AngelOne (SmartAPI sends most numbers as strings) ────────
+
+    public List<AngelOneHoldingRaw> angelOneHoldings() {
+        List<AngelOneHoldingRaw> rows = new ArrayList<>(holdingSymbols.length);
+        for (int i = 0; i < holdingSymbols.length; i++) {
+            int s = holdingSymbols[i];
+            int qty = quantities[i];
+            AngelOneHoldingRaw raw = new AngelOneHoldingRaw();
+            raw.setTradingsymbol(symbol(s) + "-EQ");
+            raw.setSymbolname(symbol(s));
+            raw.setExchange("NSE");
+            raw.setIsin(isin(s));
+            raw.setSymboltoken(String.valueOf(instrumentToken(s)));
+            raw.setProduct("DELIVERY");
+            raw.setQuantity(qty);
+            raw.setT1quantity(0);
+            raw.setAverageprice(averagePrice(s));
+            raw.setLtp(lastPrice(s));
+            raw.setClose(closePrice(s));
+            raw.setProfitandloss((lastPrice(s) - averagePrice(s)) * qty);
+            raw.setPnlpercentage((lastPrice(s) - averagePrice(s)) / averagePrice(s) * 100);
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    public List<AngelOnePositionRaw> angelOnePositions() {
+        List<AngelOnePositionRaw> rows = new ArrayList<>(positionSymbols.length);
+        for (int i = 0; i < positionSymbols.length; i++) {
+            int s = positionSymbols[i];
+            int qty = quantities[i];
+            double pnl = (lastPrice(s) - averagePrice(s)) * qty;
+            AngelOnePositionRaw raw = new AngelOnePositionRaw();
+            raw.setTradingsymbol(symbol(s) + "-EQ");
+            raw.setExchange("NSE");
+            raw.setSymboltoken(String.valueOf(instrumentToken(s)));
+            raw.setProducttype("INTRADAY");
+            raw.setInstrumenttype("");
+            raw.setNetqty(String.valueOf(qty));
+            raw.setBuyavgprice(String.valueOf(averagePrice(s)));
+            raw.setSellavgprice("0");
+            raw.setAvgPrice(String.valueOf(averagePrice(s)));
+            raw.setBuqty(String.valueOf(qty));
+            raw.setSellqty("0");
+            raw.setBuyamt(String.valueOf(averagePrice(s) * qty));
+            raw.setSellamt("0");
+            raw.setLtp(String.valueOf(lastPrice(s)));
+            raw.setClose(String.valueOf(closePrice(s)));
+            raw.setRealisedprofitloss("0");
+            raw.setUnrealisedprofitloss(String.valueOf(pnl));
+            raw.setTotalprofitloss(String.valueOf(pnl));
+            raw.setMultiplier("1");
+            raw.setLotsize("1");
+            rows.add(raw);
+        }
+        return rows;
+    }
+
+    public AngelOneFundsRaw angelOneFunds() {
+        AngelOneFundsRaw funds = new AngelOneFundsRaw();
+        funds.setAvailablecash("250000.00");
+        funds.setUtiliseddebits("10000.00");
+        funds.setNet("240000.00");
+        funds.setCollateral("0");
+        funds.setUtilisedamount("10000.00");
+        funds.setM2munrealized("0");
+        funds.setM2mrealized("0");
+        funds.setUtilisedpayout("0");
+        return funds;
+    }
+
+    public List<AngelOneOrderRaw> angelOneOrders() {
+        List<AngelOneOrderRaw> rows = new ArrayList<>(shape.orders());
+        for (int i = 0; i < shape.orders() && holdingSymbols.length > 0; i++) {
+            int s = holdingSymbols[i % holdingSymbols.length];
+            AngelOneOrderRaw raw = new AngelOneOrderRaw();
+            raw.setOrderid("A" + (1_000_000 + i));
+            raw.setUniqueorderid("sim-" + i);
+            raw.setStatus("complete");
+            raw.setOrderstatus("complete");
+            raw.setVariety("NORMAL");
+            raw.setOrdertype("LIMIT");
+            raw.setProducttype("DELIVERY");
+            raw.setDuration("DAY");
+            raw.setTransactiontype("BUY");
+            raw.setExchange("NSE");
+            raw.setTradingsymbol(symbol(s) + "-EQ");
+            raw.setSymboltoken(String.valueOf(instrumentToken(s)));
+            raw.setInstrumenttype("");
+            raw.setPrice(String.valueOf(lastPrice(s)));
+            raw.setAverageprice(String.valueOf(lastPrice(s)));
+            raw.setQuantity("1");
+            raw.setFilledshares("1");
+            raw.setUnfilledshares("0");
+            rows.add(raw);
+        }
+        return rows;
+    }
+}
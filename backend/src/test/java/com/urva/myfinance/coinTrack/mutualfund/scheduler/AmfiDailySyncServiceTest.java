@@ -17,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
 import com.urva.myfinance.coinTrack.mutualfund.model.MutualFundLtp;
 import com.urva.myfinance.coinTrack.mutualfund.repository.MutualFundLtpRepository;
 
@@ -30,6 +31,9 @@ class AmfiDailySyncServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private OutboundHttpClients outboundHttpClients;
+
     @InjectMocks
     private AmfiDailySyncService service;
 
@@ -20,6 +20,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestTemplate;
 
+import com.urva.myfinance.coinTrack.common.http.OutboundHttpClients;
 import com.urva.myfinance.coinTrack.mutualfund.model.MutualFundNavCache;
 import com.urva.myfinance.coinTrack.mutualfund.repository.MutualFundNavCacheRepository;
 
@@ -33,6 +34,9 @@ class MfNavServiceTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private OutboundHttpClients outboundHttpClients;
+
     @InjectMocks
     private MfNavService mfNavService;
 
@@ -0,0 +1,213 @@
+package com.urva.myfinance.coinTrack.portfolio.aggregation;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapability;
+import com.urva.myfinance.coinTrack.broker.core.capability.BrokerCapabilityChecker;
+import com.urva.myfinance.coinTrack.broker.core.circuit.BrokerCircuitBreaker;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerApiDownException;
+import com.urva.myfinance.coinTrack.broker.core.exception.BrokerAuthException;
+import com.urva.myfinance.coinTrack.broker.core.port.BrokerAdapter;
+import com.urva.myfinance.coinTrack.broker.core.port.ReactiveBrokerAdapter;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSessionCache;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.registry.BrokerAdapterRegistry;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+import com.urva.myfinance.coinTrack.portfolio.aggregation.CompletedFetch.Dataset;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PortfolioAggregationService")
+class PortfolioAggregationServiceTest {
+
+    private static final String USER = "user-1";
+    private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+    @Mock private BrokerAdapterRegistry adapterRegistry;
+    @Mock private BrokerCapabilityChecker capabilityChecker;
+    @Mock private BrokerAccountRepository brokerAccountRepository;
+    @Mock private EncryptionUtil encryptionUtil;
+    @Mock private ReactiveBrokerAdapter zerodha;
+    @Mock private BrokerAdapter upstox;
+
+    private final BrokerCircuitBreaker circuitBreaker = new BrokerCircuitBreaker(new SimpleMeterRegistry(),
+            false, 50, 80, Duration.ofSeconds(10), 4, 2, Duration.ofMinutes(1), 1);
+    private PortfolioAggregationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new PortfolioAggregationService(adapterRegistry, capabilityChecker,
+                brokerAccountRepository, new BrokerSessionCache(encryptionUtil, new SimpleMeterRegistry()), circuitBreaker, TIMEOUT, TIMEOUT, TIMEOUT,
+                Duration.ofSeconds(5));
+
+        when(encryptionUtil.decryptSafe(any())).thenReturn("token");
+        when(zerodha.getBrokerType()).thenReturn(Broker.ZERODHA);
+        when(upstox.getBrokerType()).thenReturn(Broker.UPSTOX);
+        when(adapterRegistry.hasAdapter(any())).thenReturn(true);
+        when(adapterRegistry.getAdapter(Broker.ZERODHA)).thenReturn(zerodha);
+        when(adapterRegistry.getAdapter(Broker.UPSTOX)).thenReturn(upstox);
+        when(capabilityChecker.supports(any(), any())).thenAnswer(inv ->
+                inv.getArgument(1) != BrokerCapability.MF_HOLDINGS);
+
+        when(zerodha.streamHoldings(any())).thenReturn(Flux.just(holding("INFY")));
+        when(zerodha.streamPositions(any())).thenReturn(Flux.empty());
+        when(zerodha.loadFunds(any())).thenReturn(Mono.just(new CanonicalFunds()));
+    }
+
+    private static CanonicalHolding holding(String symbol) {
+        return CanonicalHolding.builder().symbol(symbol).build();
+    }
+
+    private static BrokerAccount zerodhaAccount() {
+        return BrokerAccount.builder()
+                .id("acc-z").userId(USER).broker(Broker.ZERODHA).isActive(true)
+                .zerodhaApiKey("key").zerodhaAccessToken("enc")
+                .zerodhaTokenExpiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+
+    private static BrokerAccount upstoxAccount() {
+        return BrokerAccount.builder()
+                .id("acc-u").userId(USER).broker(Broker.UPSTOX).isActive(true)
+                .upstoxApiKey("key").encryptedUpstoxApiSecret("secret").accessToken("token")
+                .tokenExpiresAt(LocalDateTime.now().plusDays(1))
+                .build();
+    }
+
+    @Test
+    @DisplayName("streams reactive datasets and records each completed fetch")
+    void reactiveFetchesComplete() {
+        when(brokerAccountRepository.findByUserId(USER)).thenReturn(List.of(zerodhaAccount()));
+
+        AggregatedPortfolio result = service.aggregateForUser(USER);
+
+        assertThat(result.holdings()).extracting(CanonicalHolding::getSymbol).containsExactly("INFY");
+        assertTrue(result.funds().containsKey(Broker.ZERODHA));
+        assertThat(result.completedFetches()).containsExactlyInAnyOrder(
+                new CompletedFetch(Broker.ZERODHA, "acc-z", Dataset.HOLDINGS),
+                new CompletedFetch(Broker.ZERODHA, "acc-z", Dataset.POSITIONS),
+                new CompletedFetch(Broker.ZERODHA, "acc-z", Dataset.FUNDS));
+        assertThat(result.syncErrors()).isEmpty();
+        verify(zerodha, never()).fetchHoldings(any());
+    }
+
+    @Test
+    @DisplayName("a hung dataset times out as API_DOWN and marks the broker stale without losing the others")
+    void hungFetchTimesOut() {
+        when(brokerAccountRepository.findByUserId(USER)).thenReturn(List.of(zerodhaAccount()));
+        when(zerodha.streamPositions(any())).thenReturn(Flux.never());
+
+        AggregatedPortfolio result = service.aggregate(USER).block(Duration.ofSeconds(5));
+
+        assertThat(result.holdings()).hasSize(1);
+        assertThat(result.staleBrokers()).containsExactly(Broker.ZERODHA);
+        assertThat(result.syncErrors()).singleElement()
+                .extracting(BrokerSyncError::errorType).isEqualTo(BrokerSyncError.SyncErrorType.API_DOWN);
+        assertThat(result.completedFetches())
+                .doesNotContain(new CompletedFetch(Broker.ZERODHA, "acc-z", Dataset.POSITIONS));
+    }
+
+    @Test
+    @DisplayName("past the sync deadline the blocking facade returns what arrived, with the slow broker stale")
+    void deadlineReturnsPartialResult() {
+        Duration perBroker = Duration.ofSeconds(10);
+        service = new PortfolioAggregationService(adapterRegistry, capabilityChecker,
+                brokerAccountRepository, new BrokerSessionCache(encryptionUtil, new SimpleMeterRegistry()),
+                circuitBreaker, perBroker, perBroker, perBroker, TIMEOUT);
+        when(brokerAccountRepository.findByUserId(USER)).thenReturn(List.of(zerodhaAccount()));
+        when(zerodha.streamPositions(any())).thenReturn(Flux.never());
+
+        AggregatedPortfolio result = service.aggregateForUser(USER);
+
+        assertThat(result.holdings()).extracting(CanonicalHolding::getSymbol).containsExactly("INFY");
+        assertThat(result.staleBrokers()).containsExactly(Broker.ZERODHA);
+        assertThat(result.syncErrors()).singleElement()
+                .extracting(BrokerSyncError::errorType).isEqualTo(BrokerSyncError.SyncErrorType.API_DOWN);
+        assertThat(result.completedFetches())
+                .contains(new CompletedFetch(Broker.ZERODHA, "acc-z", Dataset.HOLDINGS))
+                .doesNotContain(new CompletedFetch(Broker.ZERODHA, "acc-z", Dataset.POSITIONS));
+    }
+
+    @Test
+    @DisplayName("adapters without the reactive port are bridged from their futures")
+    void futureAdaptersBridged() {
+        when(brokerAccountRepository.findByUserId(USER)).thenReturn(List.of(zerodhaAccount(), upstoxAccount()));
+        when(upstox.fetchHoldings(any())).thenReturn(CompletableFuture.completedFuture(List.of(holding("TCS"))));
+        when(upstox.fetchPositions(any())).thenReturn(CompletableFuture.completedFuture(
+                List.of(CanonicalPosition.builder().symbol("NIFTY").build())));
+        when(upstox.fetchFunds(any())).thenReturn(CompletableFuture.completedFuture(new CanonicalFunds()));
+
+        AggregatedPortfolio result = service.aggregateForUser(USER);
+
+        assertThat(result.holdings()).extracting(CanonicalHolding::getSymbol).containsExactlyInAnyOrder("INFY", "TCS");
+        assertThat(result.positions()).hasSize(1);
+        assertThat(result.reconcilableAccountIds(Dataset.HOLDINGS)).containsExactlyInAnyOrder("acc-z", "acc-u");
+    }
+
+    @Test
+    @DisplayName("once the broker's circuit opens, later syncs fall back without calling it")
+    void openCircuitShortCircuits() {
+        AtomicInteger calls = new AtomicInteger();
+        BrokerApiDownException down = new BrokerApiDownException("502", Broker.ZERODHA);
+        when(brokerAccountRepository.findByUserId(USER)).thenReturn(List.of(zerodhaAccount()));
+        when(zerodha.streamHoldings(any())).thenReturn(Flux.defer(() -> {
+            calls.incrementAndGet();
+            return Flux.error(down);
+        }));
+        when(zerodha.streamPositions(any())).thenReturn(Flux.error(down));
+        when(zerodha.loadFunds(any())).thenReturn(Mono.error(down));
+
+        service.aggregateForUser(USER);
+        AggregatedPortfolio result = service.aggregateForUser(USER);
+
+        assertEquals(1, calls.get());
+        assertThat(result.staleBrokers()).containsExactly(Broker.ZERODHA);
+        assertThat(result.syncErrors()).extracting(BrokerSyncError::errorType)
+                .containsOnly(BrokerSyncError.SyncErrorType.API_DOWN);
+        assertEquals(BrokerCircuitBreaker.State.OPEN, circuitBreaker.state(Broker.ZERODHA, "HOLDINGS"));
+    }
+
+    @Test
+    @DisplayName("an auth failure deactivates the account")
+    void authFailureDeactivatesAccount() {
+        BrokerAccount account = zerodhaAccount();
+        when(brokerAccountRepository.findByUserId(USER)).thenReturn(List.of(account));
+        when(brokerAccountRepository.findById("acc-z")).thenReturn(Optional.of(account));
+        when(zerodha.loadFunds(any())).thenReturn(Mono.error(new BrokerAuthException("expired", Broker.ZERODHA)));
+
+        AggregatedPortfolio result = service.aggregateForUser(USER);
+
+        assertThat(result.syncErrors()).singleElement()
+                .extracting(BrokerSyncError::errorType).isEqualTo(BrokerSyncError.SyncErrorType.AUTH_EXPIRED);
+        assertFalse(account.getIsActive());
+        verify(brokerAccountRepository).save(account);
+    }
+}
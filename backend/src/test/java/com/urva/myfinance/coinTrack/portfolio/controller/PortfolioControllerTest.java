@@ -0,0 +1,157 @@
+package com.urva.myfinance.coinTrack.portfolio.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioHistoryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryHoldingDTO;
+import com.urva.myfinance.coinTrack.portfolio.history.HistoryRange;
+import com.urva.myfinance.coinTrack.portfolio.history.PortfolioHistoryService;
+import com.urva.myfinance.coinTrack.portfolio.intraday.IntradayPnlTracker;
+import com.urva.myfinance.coinTrack.portfolio.scheduler.PortfolioSyncScheduler;
+import com.urva.myfinance.coinTrack.portfolio.service.NetPositionService;
+import com.urva.myfinance.coinTrack.portfolio.service.PortfolioSummaryService;
+import com.urva.myfinance.coinTrack.security.model.UserPrincipal;
+import com.urva.myfinance.coinTrack.user.model.User;
+import com.urva.myfinance.coinTrack.user.repository.UserRepository;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PortfolioController - conditional GET")
+class PortfolioControllerTest {
+
+    @Mock private PortfolioSummaryService portfolioSummaryService;
+    @Mock private NetPositionService netPositionService;
+    @Mock private UserRepository userRepository;
+    @Mock private PortfolioSyncScheduler syncScheduler;
+    @Mock private PortfolioHistoryService historyService;
+    @Mock private IntradayPnlTracker intradayPnlTracker;
+
+    @InjectMocks
+    private PortfolioController controller;
+
+    private UsernamePasswordAuthenticationToken principal;
+
+    @BeforeEach
+    void setUp() {
+        UserPrincipal user = new UserPrincipal("u1", "testuser", "test@example.com");
+        principal = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
+        when(portfolioSummaryService.getSummaryVersion("u1")).thenReturn(100L);
+        when(portfolioSummaryService.getPortfolioSummary("u1")).thenReturn(PortfolioSummaryResponse.builder()
+                .version(100L)
+                .holdingsList(List.of(SummaryHoldingDTO.builder().symbol("NSE:INFY").type("HOLDING").build()))
+                .build());
+        when(portfolioSummaryService.getPortfolioEpoch("u1")).thenReturn(7L);
+        when(netPositionService.mergeHoldingsAndPositions("u1")).thenReturn(List.of());
+    }
+
+    @Test
+    @DisplayName("summary: first poll → 200 with strong ETag; user id taken from the JWT principal")
+    void summaryReturnsEtag() {
+        ResponseEntity<?> response = controller.getPortfolioSummary(principal, null);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"s100\"", response.getHeaders().getETag());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    @DisplayName("summary: matching If-None-Match → 304 without building the summary")
+    void summaryNotModified() {
+        ResponseEntity<?> response = controller.getPortfolioSummary(principal, "\"s100\"");
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        assertEquals("\"s100\"", response.getHeaders().getETag());
+        verify(portfolioSummaryService, never()).getPortfolioSummary(any());
+        verify(syncScheduler).onPortfolioRequest("u1");
+    }
+
+    @Test
+    @DisplayName("summary: stale tag, weak copies and lists are compared correctly")
+    void summaryTagMatching() {
+        assertEquals(HttpStatus.OK, controller.getPortfolioSummary(principal, "\"s99\"").getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                controller.getPortfolioSummary(principal, "\"s99\", W/\"s100\"").getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getPortfolioSummary(principal, "*").getStatusCode());
+    }
+
+    @Test
+    @DisplayName("summary: not materialized yet → computed and tagged with its version")
+    void summaryColdView() {
+        when(portfolioSummaryService.getSummaryVersion("u1")).thenReturn(null);
+
+        ResponseEntity<?> response = controller.getPortfolioSummary(principal, "\"s100\"");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"s100\"", response.getHeaders().getETag());
+    }
+
+    @Test
+    @DisplayName("holdings: tag differs from the summary's and short-circuits the same way")
+    void holdingsEtag() {
+        ResponseEntity<?> first = controller.getHoldings(principal, null);
+        assertEquals("\"h100\"", first.getHeaders().getETag());
+
+        ResponseEntity<?> second = controller.getHoldings(principal, "\"h100\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        verify(portfolioSummaryService, times(1)).getPortfolioSummary("u1");
+    }
+
+    @Test
+    @DisplayName("positions: tagged with the portfolio epoch; 304 skips the merge")
+    void positionsEtag() {
+        ResponseEntity<?> first = controller.getPositions(principal, null);
+        assertEquals("\"p7\"", first.getHeaders().getETag());
+
+        ResponseEntity<?> second = controller.getPositions(principal, "\"p7\"");
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        verify(netPositionService, times(1)).mergeHoldingsAndPositions("u1");
+
+        when(portfolioSummaryService.getPortfolioEpoch("u1")).thenReturn(8L);
+        assertEquals(HttpStatus.OK, controller.getPositions(principal, "\"p7\"").getStatusCode());
+    }
+
+    @Test
+    @DisplayName("principal without a user id falls back to the username lookup")
+    void fallbackToUsernameLookup() {
+        UsernamePasswordAuthenticationToken legacy = new UsernamePasswordAuthenticationToken("testuser", null);
+        when(userRepository.findByUsername("testuser")).thenReturn(User.builder().id("u1").username("testuser").build());
+
+        assertEquals(HttpStatus.OK, controller.getPortfolioSummary(legacy, null).getStatusCode());
+
+        when(userRepository.findByUsername("testuser")).thenReturn(null);
+        assertEquals(HttpStatus.UNAUTHORIZED, controller.getPortfolioSummary(legacy, null).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("history: range code parsed case-insensitively; unknown range → 400")
+    void historyRange() {
+        when(historyService.getHistory("u1", HistoryRange.ONE_YEAR, null))
+                .thenReturn(PortfolioHistoryResponse.builder().range("1Y").points(List.of()).build());
+
+        assertEquals(HttpStatus.OK, controller.getHistory(principal, "1y", null).getStatusCode());
+        verify(historyService).getHistory("u1", HistoryRange.ONE_YEAR, null);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getHistory(principal, "2D", null).getStatusCode());
+        verifyNoMoreInteractions(historyService);
+    }
+}
@@ -0,0 +1,211 @@
+package com.urva.myfinance.coinTrack.portfolio.fno.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.canonical.InstrumentType;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.portfolio.dto.FnoDetailsDTO;
+import com.urva.myfinance.coinTrack.portfolio.dto.FnoPositionDTO;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentFixture;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentIndex;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentMaster;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.model.enums.FnoInstrumentType;
+import com.urva.myfinance.coinTrack.portfolio.model.enums.OptionType;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FnoPositionServiceImpl")
+class FnoPositionServiceImplTest {
+
+    private static final String USER_ID = "user1";
+
+    @Mock private CanonicalPositionRepository positionRepository;
+    @Mock private MarketDataService marketDataService;
+    @Mock private InstrumentMaster instrumentMaster;
+
+    @InjectMocks
+    private FnoPositionServiceImpl service;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        when(instrumentMaster.index()).thenReturn(InstrumentIndex.empty());
+    }
+
+    static CanonicalPosition leg(String symbol, InstrumentType type, String qty, String avg) {
+        return CanonicalPosition.builder()
+                .id(symbol).userId(USER_ID).symbol(symbol).brokerType(Broker.ZERODHA)
+                .instrumentType(type).quantity(new BigDecimal(qty)).avgBuyPrice(new BigDecimal(avg))
+                .build();
+    }
+
+    static MarketPrice price(String symbol, String ltp, String close) {
+        return MarketPrice.builder().symbol(symbol)
+                .currentPrice(new BigDecimal(ltp))
+                .previousClose(close != null ? new BigDecimal(close) : null)
+                .updatedAt(LocalDateTime.now())
+                .build();
+    }
+
+    @Nested
+    @DisplayName("batched pricing")
+    class BatchedPricing {
+
+        @Test
+        @DisplayName("all legs priced with one getPrices call; per-leg getPrice is never used")
+        @SuppressWarnings("unchecked")
+        void singleBatchedLookup() {
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                    leg("NIFTY24JANFUT", InstrumentType.FUTURES, "50", "21000"),
+                    leg("BANKNIFTY24JAN48000CE", InstrumentType.OPTIONS, "-15", "300"),
+                    leg("NIFTY24JANFUT", InstrumentType.FUTURES, "50", "21100"),
+                    leg("INFY", InstrumentType.EQUITY, "10", "1500")));
+            when(marketDataService.getPrices(anyList())).thenReturn(Map.of(
+                    "NIFTY24JANFUT", price("NIFTY24JANFUT", "21050", "20950"),
+                    "BANKNIFTY24JAN48000CE", price("BANKNIFTY24JAN48000CE", "280", "310")));
+
+            List<FnoPositionDTO> result = service.getFnoPositionsForUser(USER_ID);
+
+            assertEquals(3, result.size());
+            ArgumentCaptor<List<String>> symbols = ArgumentCaptor.forClass(List.class);
+            verify(marketDataService, times(1)).getPrices(symbols.capture());
+            assertEquals(List.of("NIFTY24JANFUT", "BANKNIFTY24JAN48000CE"), symbols.getValue());
+            verify(marketDataService, never()).getPrice(any());
+        }
+
+        @Test
+        @DisplayName("MTM and day gain come from the same quote")
+        void mtmAndDayGain() {
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                    leg("NIFTY24JANFUT", InstrumentType.FUTURES, "50", "21000"),
+                    leg("BANKNIFTY24JAN48000CE", InstrumentType.OPTIONS, "-15", "300")));
+            when(marketDataService.getPrices(anyList())).thenReturn(Map.of(
+                    "NIFTY24JANFUT", price("NIFTY24JANFUT", "21050", "20950"),
+                    "BANKNIFTY24JAN48000CE", price("BANKNIFTY24JAN48000CE", "280", "310")));
+
+            List<FnoPositionDTO> result = service.getFnoPositionsForUser(USER_ID);
+
+            FnoPositionDTO fut = result.get(0);
+            assertEquals(new BigDecimal("21050.00"), fut.getCurrentLtp());
+            assertEquals(new BigDecimal("2500.00"), fut.getMtm());
+            assertEquals(new BigDecimal("5000.00"), fut.getDayGain());
+
+            FnoPositionDTO opt = result.get(1);
+            assertEquals(new BigDecimal("300.00"), opt.getMtm()); // short leg gains as premium falls
+            assertEquals(new BigDecimal("450.00"), opt.getDayGain());
+            assertEquals(48000, opt.getFnoDetails().getStrikePrice().intValue());
+        }
+
+        @Test
+        @DisplayName("missing quote or previous close → zero LTP / zero day gain, leg still listed")
+        void missingQuote() {
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                    leg("NIFTY24JANFUT", InstrumentType.FUTURES, "50", "21000"),
+                    leg("FINNIFTY24JANFUT", InstrumentType.FUTURES, "40", "20000")));
+            when(marketDataService.getPrices(anyList())).thenReturn(Map.of(
+                    "NIFTY24JANFUT", price("NIFTY24JANFUT", "21050", null)));
+
+            List<FnoPositionDTO> result = service.getFnoPositionsForUser(USER_ID);
+
+            assertEquals(new BigDecimal("0.00"), result.get(0).getDayGain());
+            assertEquals(new BigDecimal("2500.00"), result.get(0).getMtm());
+            assertEquals(new BigDecimal("0.00"), result.get(1).getCurrentLtp());
+        }
+
+        @Test
+        @DisplayName("multiplier from the position scales notional and day gain")
+        void positionMultiplier() {
+            CanonicalPosition gold = leg("MCX:GOLDM25JANFUT", InstrumentType.FUTURES, "1", "76000");
+            gold.setMultiplier(10);
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(gold));
+            when(marketDataService.getPrices(anyList())).thenReturn(Map.of(
+                    "MCX:GOLDM25JANFUT", price("MCX:GOLDM25JANFUT", "76100", "76050")));
+
+            FnoPositionDTO dto = service.getFnoPositionsForUser(USER_ID).get(0);
+
+            assertEquals(new BigDecimal("1000.00"), dto.getMtm());
+            assertEquals(new BigDecimal("500.00"), dto.getDayGain());
+        }
+
+        @Test
+        @DisplayName("no F&O legs → no pricing call at all")
+        void noLegs() {
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                    leg("INFY", InstrumentType.EQUITY, "10", "1500")));
+
+            assertTrue(service.getFnoPositionsForUser(USER_ID).isEmpty());
+            verifyNoInteractions(marketDataService);
+        }
+    }
+
+    @Nested
+    @DisplayName("contract metadata")
+    class ContractMetadata {
+
+        @Test
+        @DisplayName("instrument master supplies lot size, strike and expiry for canonical symbols")
+        void fromInstrumentMaster() {
+            when(instrumentMaster.index()).thenReturn(InstrumentFixture.load(dir));
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                    leg("NFO:NIFTY24D1224000CE", InstrumentType.OPTIONS, "75", "110"),
+                    leg("NFO:BANKNIFTY24DECFUT", InstrumentType.FUTURES, "15", "51000")));
+            when(marketDataService.getPrices(anyList())).thenReturn(Map.of());
+
+            List<FnoPositionDTO> result = service.getFnoPositionsForUser(USER_ID);
+
+            FnoDetailsDTO weekly = result.get(0).getFnoDetails();
+            assertEquals(25, weekly.getLotSize());
+            assertEquals(OptionType.CALL, weekly.getOptionType());
+            assertEquals(0, new BigDecimal("24000").compareTo(weekly.getStrikePrice()));
+            assertEquals(LocalDate.of(2024, 12, 12), weekly.getExpiryDate());
+            assertEquals("NIFTY", weekly.getUnderlyingSymbol());
+
+            FnoDetailsDTO future = result.get(1).getFnoDetails();
+            assertEquals(FnoInstrumentType.FUTURE, future.getInstrumentType());
+            assertEquals(15, future.getLotSize());
+            assertEquals(LocalDate.of(2024, 12, 24), future.getExpiryDate());
+        }
+
+        @Test
+        @DisplayName("contracts the master doesn't list fall back to symbol parsing, exchange prefix ignored")
+        void parsingFallback() {
+            when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                    leg("NFO:NIFTY24JANFUT", InstrumentType.FUTURES, "50", "21000")));
+            when(marketDataService.getPrices(anyList())).thenReturn(Map.of());
+
+            FnoDetailsDTO details = service.getFnoPositionsForUser(USER_ID).get(0).getFnoDetails();
+
+            assertEquals("NIFTY", details.getUnderlyingSymbol());
+            assertEquals(50, details.getLotSize());
+            assertEquals("NFO:NIFTY24JANFUT", details.getSymbol());
+        }
+    }
+}
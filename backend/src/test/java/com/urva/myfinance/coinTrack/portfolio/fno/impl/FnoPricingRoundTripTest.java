@@ -0,0 +1,153 @@
+package com.urva.myfinance.coinTrack.portfolio.fno.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.canonical.InstrumentType;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.portfolio.dto.FnoPositionDTO;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentIndex;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentMaster;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+/**
+ * Per-leg vs batched pricing of an F&O book, counted in MarketDataService round-trips.
+ *
+ * Each MarketDataService call stands for one round-trip (a Mongo read or Kite quote on an
+ * L1 miss), whether it asks for one symbol or many — which is what the batched path saves.
+ * The per-leg path is the former loop: one getPrice per leg.
+ */
+@DisplayName("F&O pricing round-trips: per-leg vs batched")
+class FnoPricingRoundTripTest {
+
+    private static final String USER_ID = "bench";
+    private static final int LEGS = 80;
+    private static final int ROUNDS = 5;
+
+    /** MarketDataService stand-in that counts calls, however many symbols each asks for. */
+    private static final class RoundTripMarketData implements MarketDataService {
+        private final Map<String, MarketPrice> quotes;
+        final AtomicInteger calls = new AtomicInteger();
+
+        RoundTripMarketData(Map<String, MarketPrice> quotes) {
+            this.quotes = quotes;
+        }
+
+        private void roundTrip() {
+            calls.incrementAndGet();
+        }
+
+        @Override
+        public MarketPrice getPrice(String symbol) {
+            roundTrip();
+            return quotes.get(symbol);
+        }
+
+        @Override
+        public Map<String, MarketPrice> getPrices(List<String> symbols) {
+            roundTrip();
+            Map<String, MarketPrice> result = new HashMap<>();
+            symbols.forEach(s -> { if (quotes.containsKey(s)) result.put(s, quotes.get(s)); });
+            return result;
+        }
+
+        @Override
+        public MarketPrice fetchAndCachePrice(String symbol) {
+            return getPrice(symbol);
+        }
+
+        @Override
+        public void warmupPrices(List<String> symbols) {
+        }
+
+        @Override
+        public Map<String, MarketPrice> refreshPrices(List<String> symbols) {
+            return getPrices(symbols);
+        }
+
+        @Override
+        public boolean isMarketOpen() {
+            return true;
+        }
+    }
+
+    private static List<CanonicalPosition> book() {
+        List<CanonicalPosition> positions = new ArrayList<>(LEGS);
+        for (int i = 0; i < LEGS; i++) {
+            String symbol = "NIFTY24JAN" + (20000 + (i / 2) * 50) + (i % 2 == 0 ? "CE" : "PE");
+            positions.add(CanonicalPosition.builder()
+                    .id("pos-" + i).userId(USER_ID).symbol(symbol).brokerType(Broker.ZERODHA)
+                    .instrumentType(InstrumentType.OPTIONS)
+                    .quantity(new BigDecimal(i % 3 == 0 ? "-50" : "50"))
+                    .avgBuyPrice(new BigDecimal("120"))
+                    .build());
+        }
+        return positions;
+    }
+
+    private static Map<String, MarketPrice> quotes(List<CanonicalPosition> book) {
+        Map<String, MarketPrice> quotes = new HashMap<>();
+        for (int i = 0; i < book.size(); i++) {
+            String symbol = book.get(i).getSymbol();
+            quotes.put(symbol, MarketPrice.builder().symbol(symbol)
+                    .currentPrice(BigDecimal.valueOf(100 + i))
+                    .previousClose(BigDecimal.valueOf(110 + i))
+                    .updatedAt(LocalDateTime.now())
+                    .build());
+        }
+        return quotes;
+    }
+
+    /** The former loop's pricing and MTM: one lookup per leg. */
+    private static List<BigDecimal> perLegMtm(List<CanonicalPosition> book, MarketDataService marketData) {
+        List<BigDecimal> mtm = new ArrayList<>();
+        for (CanonicalPosition pos : book) {
+            MarketPrice price = marketData.getPrice(pos.getSymbol());
+            BigDecimal ltp = price != null && price.getCurrentPrice() != null ? price.getCurrentPrice() : BigDecimal.ZERO;
+            mtm.add(ltp.subtract(pos.getAvgBuyPrice()).multiply(pos.getQuantity()).setScale(2, RoundingMode.HALF_UP));
+        }
+        return mtm;
+    }
+
+    @Test
+    @DisplayName("80 legs: batched path makes one round-trip instead of 80 and gives the same MTM")
+    void batchedVsPerLeg() {
+        List<CanonicalPosition> book = book();
+        CanonicalPositionRepository repository = mock(CanonicalPositionRepository.class);
+        when(repository.findByUserId(USER_ID)).thenReturn(book);
+
+        RoundTripMarketData perLegData = new RoundTripMarketData(quotes(book));
+        RoundTripMarketData batchedData = new RoundTripMarketData(quotes(book));
+        InstrumentMaster instrumentMaster = mock(InstrumentMaster.class);
+        when(instrumentMaster.index()).thenReturn(InstrumentIndex.empty());
+        FnoPositionServiceImpl batched = new FnoPositionServiceImpl(repository, batchedData, instrumentMaster);
+
+        List<BigDecimal> perLegResult = null;
+        List<FnoPositionDTO> batchedResult = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            perLegResult = perLegMtm(book, perLegData);
+            batchedResult = batched.getFnoPositionsForUser(USER_ID);
+        }
+
+        assertEquals(LEGS * ROUNDS, perLegData.calls.get());
+        assertEquals(ROUNDS, batchedData.calls.get());
+        for (int i = 0; i < LEGS; i++) {
+            assertEquals(perLegResult.get(i), batchedResult.get(i).getMtm(), "leg " + i);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioValueSeries;
+
+@DisplayName("DeltaCodec / DailyColumns / Downsampler")
+class DeltaCodecTest {
+
+    @Test
+    @DisplayName("round-trips negative, zero and extreme values")
+    void roundTrip() {
+        long[] values = { 0, 1, -1, 123_456_789_00L, -5, Long.MAX_VALUE, Long.MIN_VALUE, 42 };
+
+        assertArrayEquals(values, DeltaCodec.decode(DeltaCodec.encode(values, values.length), values.length));
+        assertEquals(0, DeltaCodec.encode(values, 0).length);
+    }
+
+    @Test
+    @DisplayName("a year of trading days: one byte per day, a few bytes per value")
+    void compact() {
+        int n = 250;
+        long[] days = new long[n];
+        long[] values = new long[n];
+        long day = LocalDate.of(2024, 1, 1).toEpochDay();
+        long value = 25_00_000_00L; // ₹25 lakh in paise
+        for (int i = 0; i < n; i++) {
+            day += i % 5 == 4 ? 3 : 1;
+            value += (i % 7 - 3) * 1_234_56L;
+            days[i] = day;
+            values[i] = value;
+        }
+
+        byte[] encodedDays = DeltaCodec.encode(days, n);
+        byte[] encodedValues = DeltaCodec.encode(values, n);
+
+        assertTrue(encodedDays.length <= n + 3, "days: " + encodedDays.length);
+        assertTrue(encodedValues.length <= n * 4 + 5, "values: " + encodedValues.length);
+        assertArrayEquals(days, DeltaCodec.decode(encodedDays, n));
+        assertArrayEquals(values, DeltaCodec.decode(encodedValues, n));
+    }
+
+    @Test
+    @DisplayName("truncated column is rejected")
+    void truncated() {
+        byte[] encoded = DeltaCodec.encode(new long[] { 1, 2, 3 }, 3);
+
+        assertThrows(IllegalArgumentException.class, () -> DeltaCodec.decode(encoded, 4));
+    }
+
+    @Test
+    @DisplayName("columns stay sorted by day, one point per day, through encode/decode")
+    void dailyColumns() {
+        DailyColumns columns = new DailyColumns(1);
+        columns.put(10, 100, 90);
+        columns.put(12, 120, 90);
+        columns.put(11, 110, 90); // backfill
+        columns.put(12, 125, 95); // same day again
+
+        DailyColumns decoded = DailyColumns.decode(columns.encode("NSE:INFY"));
+
+        assertEquals(3, decoded.size());
+        assertEquals(11, decoded.day(1));
+        assertEquals(125, decoded.value(2));
+        assertEquals(95, decoded.invested(2));
+
+        decoded.remove(11);
+        assertEquals(2, decoded.size());
+        assertEquals(12, decoded.day(1));
+        assertEquals(1, decoded.firstOnOrAfter(11));
+        assertEquals(0, DailyColumns.decode(new PortfolioValueSeries.Series()).size());
+    }
+
+    @Test
+    @DisplayName("LTTB keeps first, last and the extremes; short series pass through")
+    void downsample() {
+        int n = 1000;
+        long[] x = new long[n];
+        long[] y = new long[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = 1000 + (i % 10);
+        }
+        y[437] = 50_000; // spike
+        y[811] = -50_000; // crash
+
+        int[] kept = Downsampler.lttb(x, y, 0, n, 100);
+
+        assertEquals(100, kept.length);
+        assertEquals(0, kept[0]);
+        assertEquals(n - 1, kept[99]);
+        for (int i = 1; i < kept.length; i++) assertTrue(kept[i] > kept[i - 1]);
+        assertTrue(Arrays.stream(kept).anyMatch(i -> i == 437));
+        assertTrue(Arrays.stream(kept).anyMatch(i -> i == 811));
+
+        assertArrayEquals(new int[] { 3, 4, 5 }, Downsampler.lttb(x, y, 3, 6, 100));
+    }
+}
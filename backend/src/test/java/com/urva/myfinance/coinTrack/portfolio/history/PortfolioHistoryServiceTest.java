@@ -0,0 +1,283 @@
+package com.urva.myfinance.coinTrack.portfolio.history;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.DataConfidence;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.mutualfund.service.settlement.BusinessDayCalendar;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioHistoryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryHoldingDTO;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioValueSeries;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.PortfolioValueSeriesRepository;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.HoldingEnricher;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.PortfolioTotalsCalculator;
+import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PortfolioHistoryService")
+class PortfolioHistoryServiceTest {
+
+    private static final String USER_ID = "u1";
+    private static final int MAX_POINTS = 50;
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+
+    @Mock private PortfolioValueSeriesRepository seriesRepository;
+    @Mock private CanonicalHoldingRepository holdingRepository;
+    @Mock private MarketDataService marketDataService;
+    @Mock private BrokerAccountRepository brokerAccountRepository;
+    @Mock private SyncSafetyService syncSafetyService;
+    @Mock private BusinessDayCalendar businessDayCalendar;
+
+    private final Map<String, PortfolioValueSeries> store = new HashMap<>();
+    private PortfolioHistoryService service;
+
+    @BeforeEach
+    void setUp() {
+        // Repository backed by a map, like the collection keyed by userId:year
+        when(seriesRepository.findById(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(store.get(inv.<String>getArgument(0))));
+        when(seriesRepository.save(any(PortfolioValueSeries.class))).thenAnswer(inv -> {
+            PortfolioValueSeries doc = inv.getArgument(0);
+            store.put(doc.getId(), doc);
+            return doc;
+        });
+        when(seriesRepository.findYears(anyString(), anyInt(), anyInt())).thenAnswer(inv -> {
+            String userId = inv.getArgument(0);
+            int from = inv.getArgument(1);
+            int to = inv.getArgument(2);
+            List<PortfolioValueSeries> docs = new ArrayList<>();
+            store.values().stream()
+                    .filter(d -> d.getUserId().equals(userId) && d.getYear() >= from && d.getYear() <= to)
+                    .sorted(Comparator.comparingInt(PortfolioValueSeries::getYear))
+                    .forEach(docs::add);
+            return docs;
+        });
+        when(marketDataService.refreshPrices(anyList())).thenReturn(Map.of());
+        when(marketDataService.getPrices(anyList())).thenReturn(Map.of());
+        when(businessDayCalendar.isBusinessDay(any(LocalDate.class))).thenReturn(true);
+        when(businessDayCalendar.isBusinessDay(LocalDate.of(2024, 3, 8))).thenReturn(false);
+        when(businessDayCalendar.isBusinessDay(LocalDate.of(2024, 3, 9))).thenReturn(false);
+        service = new PortfolioHistoryService(seriesRepository, holdingRepository, marketDataService,
+                new HoldingEnricher(), new PortfolioTotalsCalculator(), brokerAccountRepository,
+                syncSafetyService, businessDayCalendar, new SimpleMeterRegistry(), MAX_POINTS);
+    }
+
+    static CanonicalHolding canonical(String userId, String symbol, String quantity) {
+        return CanonicalHolding.builder().userId(userId).symbol(symbol).brokerType(Broker.ZERODHA)
+                .quantity(new BigDecimal(quantity)).avgBuyPrice(new BigDecimal("1000"))
+                .dataConfidence(DataConfidence.LOW).build();
+    }
+
+    static SummaryHoldingDTO holding(String symbol, String value, String invested) {
+        return SummaryHoldingDTO.builder().symbol(symbol)
+                .currentValue(new BigDecimal(value)).investedValue(new BigDecimal(invested)).build();
+    }
+
+    static PortfolioSummaryResponse summary(SummaryHoldingDTO... holdings) {
+        BigDecimal value = BigDecimal.ZERO;
+        BigDecimal invested = BigDecimal.ZERO;
+        for (SummaryHoldingDTO h : holdings) {
+            value = value.add(h.getCurrentValue());
+            invested = invested.add(h.getInvestedValue());
+        }
+        return PortfolioSummaryResponse.builder()
+                .totalCurrentValue(value).totalInvestedValue(invested).holdingsList(List.of(holdings)).build();
+    }
+
+    @Nested
+    @DisplayName("recording")
+    class Recording {
+
+        @Test
+        @DisplayName("total and per-holding points; the same symbol across brokers is summed")
+        void recordsTotalAndHoldings() {
+            LocalDate day = LocalDate.of(2024, 3, 4);
+
+            assertTrue(service.recordEndOfDay(USER_ID, day, summary(
+                    holding("NSE:INFY", "1500.50", "1400"),
+                    holding("NSE:INFY", "750.25", "700"),
+                    holding("NSE:TCS", "4000", "4200"))));
+
+            PortfolioValueSeries doc = store.get("u1:2024");
+            assertEquals(2, doc.getHoldings().size());
+
+            PortfolioHistoryResponse total = service.getHistory(USER_ID, HistoryRange.ONE_WEEK, null, day);
+            assertEquals(1, total.getPoints().size());
+            assertEquals(new BigDecimal("6250.75"), total.getPoints().get(0).getValue());
+            assertEquals(new BigDecimal("-49.25"), total.getPoints().get(0).getPnl());
+
+            PortfolioHistoryResponse infy = service.getHistory(USER_ID, HistoryRange.ONE_WEEK, "NSE:INFY", day);
+            assertEquals(new BigDecimal("2250.75"), infy.getPoints().get(0).getValue());
+            assertEquals(new BigDecimal("2100.00"), infy.getPoints().get(0).getInvested());
+        }
+
+        @Test
+        @DisplayName("re-recording a day replaces its point, including holdings sold since")
+        void idempotentPerDay() {
+            LocalDate day = LocalDate.of(2024, 3, 4);
+            service.recordEndOfDay(USER_ID, day, summary(holding("NSE:INFY", "1500", "1400"),
+                    holding("NSE:TCS", "4000", "4200")));
+            service.recordEndOfDay(USER_ID, day, summary(holding("NSE:INFY", "1510", "1400")));
+
+            PortfolioHistoryResponse total = service.getHistory(USER_ID, HistoryRange.ONE_WEEK, null, day);
+            assertEquals(1, total.getTotalPoints());
+            assertEquals(new BigDecimal("1510.00"), total.getPoints().get(0).getValue());
+            assertEquals(1, store.get("u1:2024").getHoldings().size());
+            assertTrue(service.getHistory(USER_ID, HistoryRange.ONE_WEEK, "NSE:TCS", day).getPoints().isEmpty());
+        }
+
+        @Test
+        @DisplayName("user without holdings or history → nothing stored")
+        void skipsEmptyUser() {
+            assertFalse(service.recordEndOfDay(USER_ID, LocalDate.of(2024, 3, 4), summary()));
+            verify(seriesRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("nightly run records only the users this instance owns, once each")
+        void shardedRun() {
+            when(brokerAccountRepository.findByIsActiveTrue(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(
+                    BrokerAccount.builder().userId("u1").build(),
+                    BrokerAccount.builder().userId("u1").build(),
+                    BrokerAccount.builder().userId("u2").build())));
+            when(syncSafetyService.ownsUser("u1")).thenReturn(true);
+            when(syncSafetyService.ownsUser("u2")).thenReturn(false);
+            when(holdingRepository.findByUserIdIn(List.of("u1"))).thenReturn(List.of(canonical("u1", "NSE:INFY", "2")));
+
+            service.recordEndOfDayForAll(MONDAY);
+
+            ArgumentCaptor<Pageable> pages = ArgumentCaptor.forClass(Pageable.class);
+            verify(brokerAccountRepository).findByIsActiveTrue(pages.capture());
+            assertEquals(Sort.by("userId", "id"), pages.getValue().getSort());
+            verify(holdingRepository).findByUserIdIn(List.of("u1"));
+            assertTrue(store.containsKey(PortfolioValueSeries.idFor("u1", 2024)));
+            assertFalse(store.containsKey(PortfolioValueSeries.idFor("u2", 2024)));
+        }
+
+        @Test
+        @DisplayName("nightly run values canonical holdings at fresh closing quotes, one fetch per symbol")
+        void valuedAtClosingQuotes() {
+            when(brokerAccountRepository.findByIsActiveTrue(any(Pageable.class))).thenReturn(new PageImpl<>(List.of(
+                    BrokerAccount.builder().userId("u1").build(),
+                    BrokerAccount.builder().userId("u2").build())));
+            when(syncSafetyService.ownsUser(anyString())).thenReturn(true);
+            when(holdingRepository.findByUserIdIn(anyCollection())).thenReturn(List.of(
+                    canonical("u1", "NSE:INFY", "2"), canonical("u2", "NSE:INFY", "3")));
+            when(marketDataService.refreshPrices(List.of("NSE:INFY"))).thenReturn(Map.of("NSE:INFY",
+                    MarketPrice.builder().symbol("NSE:INFY").currentPrice(new BigDecimal("1500")).build()));
+
+            service.recordEndOfDayForAll(MONDAY);
+
+            verify(marketDataService, times(1)).refreshPrices(anyList());
+            PortfolioHistoryResponse history = service.getHistory("u2", HistoryRange.ONE_WEEK, null, MONDAY);
+            assertEquals(0, new BigDecimal("4500").compareTo(history.getPoints().get(0).getValue()));
+            assertEquals(0, new BigDecimal("3000").compareTo(history.getPoints().get(0).getInvested()));
+        }
+
+        @Test
+        @DisplayName("days that are not NSE business days record nothing")
+        void skipsNonTradingDays() {
+            service.recordEndOfDayForAll(LocalDate.of(2024, 3, 8)); // holiday
+            service.recordEndOfDayForAll(LocalDate.of(2024, 3, 9)); // Saturday
+
+            verifyNoInteractions(brokerAccountRepository, holdingRepository, marketDataService);
+        }
+    }
+
+    @Nested
+    @DisplayName("range queries")
+    class RangeQueries {
+
+        /** Weekday points from {@code from} through {@code to}, value rising by ₹10 a day. */
+        private void recordDaily(LocalDate from, LocalDate to) {
+            int i = 0;
+            for (LocalDate d = from; !d.isAfter(to); d = d.plusDays(1)) {
+                if (d.getDayOfWeek().getValue() >= 6) continue;
+                service.recordEndOfDay(USER_ID, d, summary(
+                        holding("NSE:INFY", String.valueOf(1000 + 10 * i++), "1000")));
+            }
+        }
+
+        @Test
+        @DisplayName("1W / 1M windows are cut to the range and not downsampled")
+        void shortRanges() {
+            LocalDate today = LocalDate.of(2024, 6, 28);
+            recordDaily(LocalDate.of(2024, 5, 1), today);
+
+            PortfolioHistoryResponse week = service.getHistory(USER_ID, HistoryRange.ONE_WEEK, null, today);
+            assertEquals(6, week.getTotalPoints()); // Fri 21st through Fri 28th
+            assertEquals(LocalDate.of(2024, 6, 21), week.getPoints().get(0).getDate());
+            assertEquals(today, week.getPoints().get(week.getPoints().size() - 1).getDate());
+            assertFalse(week.isDownsampled());
+
+            PortfolioHistoryResponse month = service.getHistory(USER_ID, HistoryRange.ONE_MONTH, null, today);
+            assertEquals(24, month.getTotalPoints());
+            assertEquals(LocalDate.of(2024, 5, 28), month.getFrom());
+        }
+
+        @Test
+        @DisplayName("ALL spans year documents and is downsampled to max-points, keeping both ends")
+        void allAcrossYears() {
+            LocalDate today = LocalDate.of(2024, 6, 28);
+            recordDaily(LocalDate.of(2022, 1, 3), today);
+            assertEquals(3, store.size());
+
+            PortfolioHistoryResponse all = service.getHistory(USER_ID, HistoryRange.ALL, null, today);
+
+            assertTrue(all.getTotalPoints() > 600);
+            assertTrue(all.isDownsampled());
+            assertEquals(MAX_POINTS, all.getPoints().size());
+            assertEquals(LocalDate.of(2022, 1, 3), all.getFrom());
+            assertEquals(LocalDate.of(2022, 1, 3), all.getPoints().get(0).getDate());
+            assertEquals(today, all.getPoints().get(MAX_POINTS - 1).getDate());
+        }
+
+        @Test
+        @DisplayName("1Y reads only the years it overlaps")
+        void yearWindow() {
+            LocalDate today = LocalDate.of(2024, 6, 28);
+            recordDaily(LocalDate.of(2022, 1, 3), today);
+
+            PortfolioHistoryResponse year = service.getHistory(USER_ID, HistoryRange.ONE_YEAR, null, today);
+
+            verify(seriesRepository).findYears(USER_ID, 2023, 2024);
+            assertEquals(LocalDate.of(2023, 6, 28), year.getFrom());
+            assertFalse(year.getPoints().get(0).getDate().isBefore(LocalDate.of(2023, 6, 28)));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.urva.myfinance.coinTrack.portfolio.intraday;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.portfolio.dto.IntradayPnlResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.dto.SummaryPositionDTO;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.PortfolioSummaryMaterializer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("IntradayPnlTracker")
+class IntradayPnlTrackerTest {
+
+    /** A Wednesday. */
+    private static final LocalDateTime OPEN = LocalDateTime.of(2024, 6, 26, 9, 15);
+
+    @Mock private PortfolioSummaryMaterializer summaryMaterializer;
+
+    private IntradayPnlTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        tracker = new IntradayPnlTracker(summaryMaterializer, new SimpleMeterRegistry(), 2);
+    }
+
+    private static PortfolioSummaryResponse summary(String dayGain, String value) {
+        return PortfolioSummaryResponse.builder()
+                .totalDayGain(new BigDecimal(dayGain)).totalCurrentValue(new BigDecimal(value))
+                .positionsList(List.of()).build();
+    }
+
+    @Test
+    @DisplayName("registers with the materializer")
+    void listens() {
+        verify(summaryMaterializer).addSummaryListener(any());
+    }
+
+    @Test
+    @DisplayName("session minutes map to slots 0..375; outside the session and weekends → -1")
+    void slots() {
+        assertEquals(0, IntradayPnlTracker.slotOf(OPEN));
+        assertEquals(0, IntradayPnlTracker.slotOf(OPEN.plusSeconds(59)));
+        assertEquals(375, IntradayPnlTracker.slotOf(OPEN.withHour(15).withMinute(30)));
+        assertEquals(-1, IntradayPnlTracker.slotOf(OPEN.minusMinutes(1)));
+        assertEquals(-1, IntradayPnlTracker.slotOf(OPEN.withHour(15).withMinute(31)));
+        assertEquals(-1, IntradayPnlTracker.slotOf(OPEN.plusDays(3))); // Saturday
+    }
+
+    @Test
+    @DisplayName("last update in a minute wins; quiet minutes repeat the previous point; late updates dropped")
+    void buffer() {
+        IntradayPnlBuffer buffer = new IntradayPnlBuffer(0);
+        buffer.record(5, 100, 1000);
+        buffer.record(5, 120, 1010);
+        buffer.record(8, 90, 990);
+        buffer.record(7, 500, 500); // late
+
+        IntradayPnlBuffer.Snapshot snapshot = buffer.snapshot();
+
+        assertEquals(5, snapshot.first());
+        assertArrayEquals(new long[] { 120, 120, 120, 90 }, snapshot.pnl());
+        assertArrayEquals(new long[] { 1010, 1010, 1010, 990 }, snapshot.value());
+    }
+
+    @Test
+    @DisplayName("curve: day P&L includes positions, one point per minute from the first update")
+    void curve() {
+        PortfolioSummaryResponse summary = PortfolioSummaryResponse.builder()
+                .totalDayGain(new BigDecimal("150.25")).totalCurrentValue(new BigDecimal("10000"))
+                .positionsList(List.of(SummaryPositionDTO.builder().dayGain(new BigDecimal("-50.10")).build()))
+                .build();
+        tracker.record("u1", summary, OPEN.plusMinutes(3));
+        tracker.record("u1", summary("80", "9990"), OPEN.plusMinutes(5));
+
+        IntradayPnlResponse curve = tracker.getCurve("u1", OPEN.plusMinutes(6));
+
+        assertEquals(LocalTime.of(9, 18), curve.getFrom());
+        assertEquals(List.of(new BigDecimal("100.15"), new BigDecimal("100.15"), new BigDecimal("80.00")),
+                curve.getPnl());
+        assertEquals(new BigDecimal("9990.00"), curve.getValue().get(2));
+        verify(summaryMaterializer, never()).get(any());
+    }
+
+    @Test
+    @DisplayName("curve: a user without one is seeded from the current summary during the session")
+    void seeded() {
+        when(summaryMaterializer.get("u1")).thenReturn(summary("42", "1000"));
+
+        IntradayPnlResponse curve = tracker.getCurve("u1", OPEN.plusMinutes(30));
+
+        assertEquals(LocalTime.of(9, 45), curve.getFrom());
+        assertEquals(List.of(new BigDecimal("42.00")), curve.getPnl());
+
+        IntradayPnlResponse afterClose = tracker.getCurve("u2", OPEN.withHour(18));
+        assertTrue(afterClose.getPnl().isEmpty());
+        verify(summaryMaterializer, never()).get("u2");
+    }
+
+    @Test
+    @DisplayName("updates outside the session are ignored; buffers are capped at max-users")
+    void bounded() {
+        tracker.record("u1", summary("1", "1"), OPEN.minusMinutes(5));
+        assertEquals(0, tracker.bufferCount());
+
+        tracker.record("u1", summary("1", "1"), OPEN);
+        tracker.record("u2", summary("1", "1"), OPEN);
+        tracker.record("u3", summary("1", "1"), OPEN);
+        assertEquals(2, tracker.bufferCount());
+
+        tracker.evictAll();
+        assertEquals(0, tracker.bufferCount());
+    }
+
+    @Test
+    @DisplayName("a new session starts a fresh curve instead of extending yesterday's")
+    void nextDayResets() {
+        tracker.record("u1", summary("1", "1"), OPEN.plusMinutes(200));
+        tracker.record("u1", summary("2", "2"), OPEN.plusDays(1).plusMinutes(10));
+        tracker.record("u2", summary("1", "1"), OPEN.plusDays(1));
+
+        assertEquals(2, tracker.bufferCount());
+    }
+}
@@ -0,0 +1,100 @@
+package com.urva.myfinance.coinTrack.portfolio.market.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+
+@DisplayName("MarketPriceCache")
+class MarketPriceCacheTest {
+
+    private final MarketPriceCache cache = new MarketPriceCache();
+
+    private static MarketPrice price(String symbol, String value, LocalDateTime updatedAt) {
+        return MarketPrice.builder()
+                .symbol(symbol)
+                .currentPrice(new BigDecimal(value))
+                .updatedAt(updatedAt)
+                .build();
+    }
+
+    @Test
+    @DisplayName("put then getAllPresent returns the cached price")
+    void putThenGet() {
+        cache.put(price("NSE:INFY", "1500.00", LocalDateTime.now()));
+
+        Map<String, MarketPrice> present = cache.getAllPresent(List.of("NSE:INFY", "NSE:TCS"));
+
+        assertEquals(1, present.size());
+        assertEquals(new BigDecimal("1500.00"), present.get("NSE:INFY").getCurrentPrice());
+    }
+
+    @Test
+    @DisplayName("entry older than the TTL is never served")
+    void expiredByUpdatedAt() {
+        cache.put(price("NSE:INFY", "1500.00", LocalDateTime.now().minusHours(1)));
+
+        assertTrue(cache.getAllPresent(List.of("NSE:INFY")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("getAll only loads symbols that are not cached")
+    void getAllLoadsOnlyMisses() {
+        cache.put(price("NSE:INFY", "1500.00", LocalDateTime.now()));
+        AtomicInteger loadedCount = new AtomicInteger();
+
+        Map<String, MarketPrice> result = cache.getAll(List.of("NSE:INFY", "NSE:TCS"), keys -> {
+            loadedCount.addAndGet(keys.size());
+            assertEquals(java.util.Set.of("NSE:TCS"), keys);
+            return Map.of("NSE:TCS", price("NSE:TCS", "3500.00", LocalDateTime.now()));
+        });
+
+        assertEquals(1, loadedCount.get());
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    @DisplayName("symbols the loader cannot resolve are not cached")
+    void unresolvedNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.getAll(List.of("NSE:XYZ"), keys -> { calls.incrementAndGet(); return Map.of(); });
+        Map<String, MarketPrice> second = cache.getAll(List.of("NSE:XYZ"), keys -> { calls.incrementAndGet(); return Map.of(); });
+
+        assertTrue(second.isEmpty());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("loader exception is swallowed and treated as a miss")
+    void loaderExceptionIsMiss() {
+        Map<String, MarketPrice> result = cache.getAll(List.of("NSE:INFY"), keys -> {
+            throw new IllegalStateException("boom");
+        });
+
+        assertTrue(result.isEmpty());
+        assertEquals(0, cache.getAllPresent(List.of("NSE:INFY")).size());
+    }
+
+    @Test
+    @DisplayName("change listeners hear about moved prices only")
+    void changeListenerOnMove() {
+        List<String> changed = new ArrayList<>();
+        cache.addChangeListener(changed::add);
+
+        cache.put(price("NSE:INFY", "1500.00", LocalDateTime.now()));
+        cache.put(price("NSE:INFY", "1500.0", LocalDateTime.now()));
+        cache.put(price("NSE:INFY", "1501.00", LocalDateTime.now()));
+
+        assertEquals(List.of("NSE:INFY", "NSE:INFY"), changed);
+    }
+}
@@ -9,6 +9,11 @@ import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -23,15 +28,20 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.urva.myfinance.coinTrack.broker.core.session.BrokerSessionCache;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
 import com.urva.myfinance.coinTrack.broker.model.ExpiryReason;
 import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
 import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.market.universe.SymbolUniverse;
 import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
 import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
 import com.urva.myfinance.coinTrack.portfolio.repository.MarketPriceRepository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @MockitoSettings(strictness = Strictness.LENIENT)
 @ExtendWith(MockitoExtension.class)
 @DisplayName("MarketDataServiceImpl - Comprehensive Tests")
@@ -41,6 +51,7 @@ class MarketDataServiceImplTest {
     @Mock private BrokerAccountRepository brokerAccountRepository;
     @Mock private CanonicalHoldingRepository holdingRepository;
     @Mock private EncryptionUtil encryptionUtil;
+    @Mock private SymbolUniverse symbolUniverse;
     @Mock private WebClient.Builder webClientBuilder;
     @Mock private WebClient webClient;
     @Mock private WebClient.RequestHeadersUriSpec requestHeadersUriSpec;
@@ -57,7 +68,7 @@ class MarketDataServiceImplTest {
         lenient().when(webClientBuilder.build()).thenReturn(webClient);
         service = new MarketDataServiceImpl(
                 priceRepository, brokerAccountRepository, holdingRepository,
-                encryptionUtil, webClientBuilder);
+                new BrokerSessionCache(encryptionUtil, new SimpleMeterRegistry()), new MarketPriceCache(), symbolUniverse, webClientBuilder);
     }
 
     // ── getPrices: null / empty ──────────────────────────────────
@@ -113,6 +124,33 @@ class MarketDataServiceImplTest {
         verify(brokerAccountRepository).findByBroker(Broker.ZERODHA);
     }
 
+    @Test
+    @DisplayName("getPrices: universe symbol miss falls back instead of calling Zerodha while the refresher serves it")
+    void getPrices_universeSymbol_noOutboundCall() {
+        when(symbolUniverse.isServing()).thenReturn(true);
+        when(symbolUniverse.contains(SYMBOL_A)).thenReturn(true);
+        when(priceRepository.findBySymbolIn(anyList())).thenReturn(Collections.emptyList());
+        when(holdingRepository.findBySymbolIn(anyList())).thenReturn(Collections.emptyList());
+
+        service.getPrices(List.of(SYMBOL_A));
+
+        verify(brokerAccountRepository, never()).findByBroker(any());
+    }
+
+    @Test
+    @DisplayName("getPrices: symbols outside the universe are still fetched")
+    void getPrices_nonUniverseSymbol_fetched() {
+        when(symbolUniverse.isServing()).thenReturn(true);
+        when(symbolUniverse.contains(SYMBOL_A)).thenReturn(true);
+        when(priceRepository.findBySymbolIn(anyList())).thenReturn(Collections.emptyList());
+        when(holdingRepository.findBySymbolIn(anyList())).thenReturn(Collections.emptyList());
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(Collections.emptyList());
+
+        service.getPrices(List.of(SYMBOL_A, SYMBOL_B));
+
+        verify(brokerAccountRepository).findByBroker(Broker.ZERODHA);
+    }
+
     // ── getPrices: partial cache hit ─────────────────────────────
 
     @Test
@@ -534,4 +572,80 @@ class MarketDataServiceImplTest {
         assertEquals(1, result.size());
         assertEquals(new BigDecimal("2500.00"), result.get(SYMBOL_A).getCurrentPrice());
     }
+
+    // ── L1 cache + single-flight ─────────────────────────────────
+
+    @Test
+    @DisplayName("getPrices: second call is served from L1 without touching Mongo")
+    void getPrices_secondCall_servedFromL1() {
+        MarketPrice cached = MarketPrice.builder()
+                .symbol(SYMBOL_A)
+                .currentPrice(new BigDecimal("2500.00"))
+                .updatedAt(LocalDateTime.now().minusSeconds(1))
+                .build();
+        when(priceRepository.findBySymbolIn(List.of(SYMBOL_A))).thenReturn(List.of(cached));
+
+        service.getPrices(List.of(SYMBOL_A));
+        Map<String, MarketPrice> second = service.getPrices(List.of(SYMBOL_A));
+
+        assertEquals(new BigDecimal("2500.00"), second.get(SYMBOL_A).getCurrentPrice());
+        verify(priceRepository, times(1)).findBySymbolIn(anyList());
+    }
+
+    @Test
+    @DisplayName("getPrices: canonical fallback prices are not promoted into L1")
+    void getPrices_canonicalFallback_notCachedInL1() {
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(Collections.emptyList());
+        when(holdingRepository.findBySymbolIn(List.of(SYMBOL_A))).thenReturn(List.of(
+                com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding.builder()
+                        .symbol(SYMBOL_A)
+                        .currentPrice(new BigDecimal("1800.00"))
+                        .build()));
+
+        service.getPrices(List.of(SYMBOL_A));
+        service.getPrices(List.of(SYMBOL_A));
+
+        // loader runs on both calls (plus one stale-cache read per fallback)
+        verify(brokerAccountRepository, times(2)).findByBroker(Broker.ZERODHA);
+    }
+
+    @Test
+    @DisplayName("getPrices: concurrent misses for the same symbol share one load")
+    void getPrices_concurrentMisses_coalesced() throws Exception {
+        CountDownLatch loaderEntered = new CountDownLatch(1);
+        CountDownLatch releaseLoader = new CountDownLatch(1);
+        MarketPrice fresh = MarketPrice.builder()
+                .symbol(SYMBOL_A)
+                .currentPrice(new BigDecimal("2600.00"))
+                .updatedAt(LocalDateTime.now())
+                .build();
+
+        when(priceRepository.findBySymbolIn(List.of(SYMBOL_A))).thenAnswer(inv -> {
+            loaderEntered.countDown();
+            releaseLoader.await(5, TimeUnit.SECONDS);
+            return List.of(fresh);
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<Map<String, MarketPrice>> leader = pool.submit(() -> service.getPrices(List.of(SYMBOL_A)));
+            assertTrue(loaderEntered.await(5, TimeUnit.SECONDS));
+
+            List<Future<Map<String, MarketPrice>>> followers = List.of(
+                    pool.submit(() -> service.getPrices(List.of(SYMBOL_A))),
+                    pool.submit(() -> service.getPrices(List.of(SYMBOL_A))),
+                    pool.submit(() -> service.getPrices(List.of(SYMBOL_A))));
+            Thread.sleep(100);
+            releaseLoader.countDown();
+
+            assertEquals(new BigDecimal("2600.00"), leader.get(5, TimeUnit.SECONDS).get(SYMBOL_A).getCurrentPrice());
+            for (Future<Map<String, MarketPrice>> f : followers) {
+                assertEquals(new BigDecimal("2600.00"), f.get(5, TimeUnit.SECONDS).get(SYMBOL_A).getCurrentPrice());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        verify(priceRepository, times(1)).findBySymbolIn(anyList());
+    }
 }
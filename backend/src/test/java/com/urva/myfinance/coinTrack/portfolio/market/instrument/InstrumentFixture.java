@@ -0,0 +1,46 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+/**
+ * Builds indexes from {@code kite/instruments.csv} — a slice of the real Kite dump covering
+ * NSE/BSE equity, an index, NFO futures and options (one with a fractional strike) and an MCX
+ * future.
+ */
+public final class InstrumentFixture {
+
+    public static final String RESOURCE = "/kite/instruments.csv";
+
+    private InstrumentFixture() {}
+
+    /** Writes the fixture index into {@code dir} and maps it. */
+    public static InstrumentIndex load(Path dir) {
+        try (InputStream in = InstrumentFixture.class.getResourceAsStream(RESOURCE);
+             Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            Path file = Files.createTempFile(dir, "instruments-", ".idx");
+            InstrumentIndex.write(reader, file, Instant.now());
+            return InstrumentIndex.open(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** Copies the fixture CSV into {@code dir}, as the download would leave it. */
+    public static Path copyCsv(Path dir) {
+        try (InputStream in = InstrumentFixture.class.getResourceAsStream(RESOURCE)) {
+            Path csv = dir.resolve("fixture-instruments.csv");
+            Files.copy(in, csv);
+            return csv;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@DisplayName("InstrumentIndex")
+class InstrumentIndexTest {
+
+    @TempDir
+    Path dir;
+
+    private InstrumentIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = InstrumentFixture.load(dir);
+    }
+
+    @Test
+    @DisplayName("every fixture row is indexed")
+    void size() {
+        assertEquals(12, index.size());
+        assertEquals(0, InstrumentIndex.empty().size());
+        assertEquals(-1, InstrumentIndex.empty().indexOfCanonical("NSE:INFY"));
+    }
+
+    @Test
+    @DisplayName("option: lot size, tick size, strike, expiry, segment and underlying")
+    void optionFields() {
+        int i = index.indexOf("NFO", "NIFTY24D1224000CE");
+        assertTrue(i >= 0);
+        assertEquals(10268930L, index.token(i));
+        assertEquals(25, index.lotSize(i));
+        assertEquals(0, new BigDecimal("0.05").compareTo(index.tickSize(i)));
+        assertEquals(0, new BigDecimal("24000").compareTo(index.strike(i)));
+        assertEquals(LocalDate.of(2024, 12, 12), index.expiry(i));
+        assertEquals("NFO-OPT", index.segment(i));
+        assertEquals("CE", index.instrumentType(i));
+        assertEquals("NIFTY", index.name(i));
+
+        Instrument fractional = index.get(index.indexOfCanonical("NFO:BANKNIFTY24DEC51500.5CE"));
+        assertEquals(0, new BigDecimal("51500.5").compareTo(fractional.strike()));
+        assertTrue(fractional.isDerivative());
+    }
+
+    @Test
+    @DisplayName("equity: same tradingsymbol is distinct per exchange; no strike or expiry")
+    void perExchange() {
+        int nse = index.indexOfCanonical("NSE:RELIANCE");
+        int bse = index.indexOf("BSE", "RELIANCE");
+        assertEquals(738561L, index.token(nse));
+        assertEquals(128083204L, index.token(bse));
+        assertNull(index.strike(nse));
+        assertNull(index.expiry(nse));
+        assertEquals("RELIANCE INDUSTRIES", index.name(nse));
+        assertEquals("NSE:RELIANCE", index.get(nse).canonicalSymbol());
+    }
+
+    @Test
+    @DisplayName("token lookup resolves back to the canonical symbol")
+    void byToken() {
+        assertEquals("NFO:NIFTY24DECFUT", index.canonicalSymbol(index.indexOfToken(13238786L)));
+        assertEquals("MCX:GOLDM25JANFUT", index.canonicalSymbol(index.indexOfToken(109134855L)));
+        assertEquals(-1, index.indexOfToken(42L));
+    }
+
+    @Test
+    @DisplayName("misses: unknown symbol, unknown exchange, malformed canonical, sub-range lookup")
+    void misses() {
+        assertEquals(-1, index.indexOfCanonical("NSE:UNKNOWN"));
+        assertEquals(-1, index.indexOfCanonical("XYZ:RELIANCE"));
+        assertEquals(-1, index.indexOfCanonical("RELIANCE"));
+        assertEquals(-1, index.indexOfCanonical(":RELIANCE"));
+        assertEquals(-1, index.indexOf("NSE", "RELIANC"));
+        assertEquals(index.indexOf("NSE", "INFY"), index.indexOf("NSE", "INFY-EQ", 0, 4));
+    }
+
+    @Test
+    @DisplayName("listed lookup: an unlisted series suffix falls back to the bare symbol")
+    void listedIgnoresSeries() {
+        assertEquals(index.indexOfCanonical("NSE:INFY"), index.indexOfListed("NSE:INFY-EQ"));
+        assertEquals(index.indexOfCanonical("NSE:IDEA-BE"), index.indexOfListed("NSE:IDEA-BE"));
+        assertEquals(index.indexOfCanonical("NSE:INFY"), index.indexOfListed("NSE:INFY"));
+        assertEquals(-1, index.indexOfListed("NSE:FOO-EQ"));
+        assertEquals(-1, index.indexOfListed("NSE:-EQ"));
+        assertEquals(-1, index.indexOfListed("XYZ:INFY-EQ"));
+    }
+
+    @Test
+    @DisplayName("reopening the file gives the same answers; malformed rows are skipped")
+    void reopenAndMalformed() throws Exception {
+        Path file = dir.resolve("small.idx");
+        String csv = """
+                instrument_token,exchange_token,tradingsymbol,name,last_price,expiry,strike,tick_size,lot_size,instrument_type,segment,exchange
+                not-a-number,1,BROKEN,"X",0,,0,0.05,1,EQ,NSE,NSE
+                408065,1594,INFY,"INFOSYS, LTD",0,,0,0.05,1,EQ,NSE,NSE
+                """;
+        assertEquals(1, InstrumentIndex.write(new StringReader(csv), file, Instant.parse("2024-12-02T03:00:00Z")));
+
+        InstrumentIndex reopened = InstrumentIndex.open(file);
+        assertEquals(Instant.parse("2024-12-02T03:00:00Z"), reopened.builtAt());
+        assertEquals("INFOSYS, LTD", reopened.name(reopened.indexOfCanonical("NSE:INFY")));
+        assertEquals(-1, reopened.indexOfCanonical("NSE:BROKEN"));
+    }
+}
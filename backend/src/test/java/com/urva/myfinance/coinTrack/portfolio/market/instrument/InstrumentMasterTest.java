@@ -0,0 +1,143 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("InstrumentMaster")
+class InstrumentMasterTest {
+
+    @Mock private BrokerAccountRepository brokerAccountRepository;
+    @Mock private EncryptionUtil encryptionUtil;
+    @Mock private WebClient.Builder webClientBuilder;
+    @Mock private WebClient webClient;
+
+    @TempDir
+    Path dir;
+
+    private SimpleMeterRegistry meterRegistry;
+    private InstrumentMaster master;
+
+    @BeforeEach
+    void setUp() {
+        when(webClientBuilder.build()).thenReturn(webClient);
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(List.of());
+        meterRegistry = new SimpleMeterRegistry();
+        master = newMaster();
+    }
+
+    private InstrumentMaster newMaster() {
+        return new InstrumentMaster(brokerAccountRepository, encryptionUtil, webClientBuilder, meterRegistry,
+                true, "http://localhost/instruments", dir.resolve("index"));
+    }
+
+    private List<Path> indexFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve("index"))) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    @DisplayName("empty until built; rebuild from the fixture swaps in a mapped index")
+    void rebuildSwaps() throws IOException {
+        assertEquals(0, master.index().size());
+
+        master.rebuild(InstrumentFixture.copyCsv(dir));
+
+        assertEquals(12, master.index().size());
+        assertTrue(master.index().indexOfCanonical("NFO:NIFTY24DECFUT") >= 0);
+        assertEquals(1, indexFiles().size());
+        assertEquals(12.0, meterRegistry.get("kite.instruments.loaded").gauge().value());
+    }
+
+    @Test
+    @DisplayName("a newer build replaces the file; readers of the old index keep working")
+    void rebuildReplaces() throws IOException, InterruptedException {
+        Path csv = InstrumentFixture.copyCsv(dir);
+        master.rebuild(csv);
+        InstrumentIndex old = master.index();
+
+        Thread.sleep(2);
+        master.rebuild(csv);
+
+        assertNotSame(old, master.index());
+        assertEquals(1, indexFiles().size());
+        assertEquals(738561L, old.token(old.indexOfCanonical("NSE:RELIANCE")));
+    }
+
+    @Test
+    @DisplayName("a truncated dump is rejected and the current index kept")
+    void truncatedRejected() throws IOException {
+        master.rebuild(InstrumentFixture.copyCsv(dir));
+        InstrumentIndex current = master.index();
+
+        Path truncated = dir.resolve("truncated.csv");
+        List<String> lines = Files.readAllLines(InstrumentFixture.copyCsv(Files.createDirectory(dir.resolve("t"))));
+        Files.write(truncated, lines.subList(0, 3));
+
+        assertThrows(IOException.class, () -> master.rebuild(truncated));
+        assertSame(current, master.index());
+        assertEquals(1, indexFiles().size());
+    }
+
+    @Test
+    @DisplayName("startup maps the newest index already on disk without downloading")
+    void startupMapsExisting() throws IOException {
+        master.rebuild(InstrumentFixture.copyCsv(dir));
+
+        InstrumentMaster restarted = newMaster();
+        restarted.loadOnStartup();
+
+        assertEquals(12, restarted.index().size());
+        assertEquals("NSE:INFY", restarted.index().canonicalSymbol(restarted.index().indexOfToken(408065L)));
+        verifyNoInteractions(webClient);
+    }
+
+    @Test
+    @DisplayName("startup without today's index returns at once and rebuilds in the background")
+    void startupRefreshAsync() throws InterruptedException {
+        CountDownLatch downloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(webClient.get()).thenAnswer(inv -> {
+            downloading.countDown();
+            release.await();
+            throw new IllegalStateException("offline");
+        });
+
+        master.loadOnStartup();
+
+        assertTrue(downloading.await(1, TimeUnit.SECONDS));
+        assertEquals(0, master.index().size());
+        release.countDown();
+        await().atMost(Duration.ofSeconds(1)).until(() ->
+                meterRegistry.get("kite.instruments.rebuild").tag("outcome", "failure").counter().count() == 1);
+    }
+}
@@ -0,0 +1,159 @@
+package com.urva.myfinance.coinTrack.portfolio.market.instrument;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.broker.service.ZerodhaLiveDataService;
+import com.urva.myfinance.coinTrack.portfolio.dto.kite.MfInstrumentDTO;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MfInstrumentCatalog")
+class MfInstrumentCatalogTest {
+
+    private static final String CSV = """
+            tradingsymbol,amc,name,purchase_allowed,redemption_allowed,minimum_purchase_amount,purchase_amount_multiplier,minimum_additional_purchase_amount,minimum_redemption_quantity,redemption_quantity_multiplier,dividend_type,scheme_type,plan,settlement_type,last_price,last_price_date\r
+            INF209K01157,BirlaSunLifeMutualFund_MF,"Aditya Birla Sun Life Frontline Equity Fund, Growth",1,1,1000,1,1000,0.001,0.001,growth,equity,regular,T3,289.45,2024-06-25\r
+            INF846K01DP8,AxisMutualFund_MF,Axis Bluechip Fund - Direct Plan,1,1,5000,1,1000,0.001,0.001,growth,equity,direct,T3,58.12,2024-06-25\r
+            \r
+            INF179K01BB8,HDFCMutualFund_MF,"HDFC Liquid Fund \"\"Direct\"\"",0,1,,1,,0.001,0.001,idcw,debt,direct,T1,4700.5,2024-06-25
+            """;
+
+    @Mock private ZerodhaLiveDataService zerodhaLiveDataService;
+    @Mock private BrokerAccountRepository brokerAccountRepository;
+
+    private MfInstrumentCatalog catalog;
+    private BrokerAccount account;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new MfInstrumentCatalog(zerodhaLiveDataService, brokerAccountRepository,
+                new SimpleMeterRegistry(), Duration.ofMinutes(5));
+        account = BrokerAccount.builder().id("acc1").userId("u1").broker(Broker.ZERODHA).isActive(true)
+                .zerodhaAccessToken("token").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+        when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(account));
+    }
+
+    private static List<MfInstrumentDTO> parse(Reader reader) throws IOException {
+        List<MfInstrumentDTO> out = new ArrayList<>();
+        MfInstrumentCsv.parse(reader, out::add);
+        return out;
+    }
+
+    @Test
+    @DisplayName("parser: quoted commas and quotes, CRLF, blank lines and empty numbers")
+    void parses() throws IOException {
+        List<MfInstrumentDTO> rows = parse(new StringReader(CSV));
+
+        assertEquals(3, rows.size());
+        MfInstrumentDTO first = rows.get(0);
+        assertEquals("INF209K01157", first.getTradingSymbol());
+        assertEquals("INF209K01157", first.getIsin());
+        assertEquals("Aditya Birla Sun Life Frontline Equity Fund, Growth", first.getName());
+        assertEquals("BirlaSunLifeMutualFund_MF", first.getFundHouse());
+        assertEquals(new BigDecimal("289.45"), first.getLastPrice());
+        assertEquals(new BigDecimal("0.001"), first.getMinimumRedemptionQuantity());
+        assertTrue(first.getPurchaseAllowed());
+        assertNull(first.getRaw());
+
+        MfInstrumentDTO liquid = rows.get(2);
+        assertEquals("HDFC Liquid Fund \"Direct\"", liquid.getName());
+        assertFalse(liquid.getPurchaseAllowed());
+        assertEquals(BigDecimal.ZERO, liquid.getMinimumPurchaseAmount());
+        assertSame(rows.get(1).getPlan(), liquid.getPlan());
+    }
+
+    @Test
+    @DisplayName("parser: rows split across reads parse the same; unknown columns go to raw")
+    void streamsInSmallReads() throws IOException {
+        String csv = "tradingsymbol,name,exit_load\nINF1,\"A, B\",1%\nINF2,C,\n";
+        Reader trickle = new StringReader(csv) {
+            @Override
+            public int read(char[] buf, int off, int len) throws IOException {
+                return super.read(buf, off, Math.min(len, 3));
+            }
+        };
+
+        List<MfInstrumentDTO> rows = parse(trickle);
+
+        assertEquals(2, rows.size());
+        assertEquals("A, B", rows.get(0).getName());
+        assertEquals("1%", rows.get(0).getRaw().get("exit_load"));
+        assertEquals("", rows.get(1).getRaw().get("exit_load"));
+    }
+
+    @Test
+    @DisplayName("query: search, filters, ISIN lookup and paging")
+    void query() throws IOException {
+        MfInstrumentCatalog.Snapshot snapshot = MfInstrumentCatalog.Snapshot.of(LocalDate.of(2024, 6, 26),
+                parse(new StringReader(CSV)));
+
+        assertEquals(2, MfInstrumentCatalog.query(snapshot,
+                new MfInstrumentQuery(null, null, null, "DIRECT", null, 0, null)).total());
+        assertEquals("INF846K01DP8", MfInstrumentCatalog.query(snapshot,
+                new MfInstrumentQuery("bluechip", null, null, null, null, 0, null)).data().get(0).getIsin());
+        assertEquals(1, MfInstrumentCatalog.query(snapshot,
+                new MfInstrumentQuery(null, "inf179k01bb8", null, null, null, 0, null)).total());
+        assertEquals(0, MfInstrumentCatalog.query(snapshot,
+                new MfInstrumentQuery(null, "INF179K01BB8", null, null, "equity", 0, null)).total());
+
+        MfInstrumentCatalog.Result page = MfInstrumentCatalog.query(snapshot,
+                new MfInstrumentQuery(null, null, null, null, null, 1, 2));
+        assertEquals(3, page.total());
+        assertEquals(1, page.data().size());
+        assertEquals(2, page.size());
+        assertTrue(MfInstrumentCatalog.query(snapshot,
+                new MfInstrumentQuery(null, null, null, null, null, 5, 2)).data().isEmpty());
+    }
+
+    @Test
+    @DisplayName("loads once per day; a failed load keeps the previous list and is not retried at once")
+    void dailyCache() throws IOException {
+        LocalDate day = LocalDate.of(2024, 6, 26);
+        when(zerodhaLiveDataService.fetchMfInstruments(account)).thenReturn(parse(new StringReader(CSV)));
+
+        catalog.current("u1", day);
+        catalog.current("u1", day);
+        verify(zerodhaLiveDataService, times(1)).fetchMfInstruments(any());
+
+        when(zerodhaLiveDataService.fetchMfInstruments(account)).thenThrow(new RuntimeException("502"));
+        assertEquals(3, catalog.current("u1", day.plusDays(1)).instruments().size());
+        assertEquals(3, catalog.current("u1", day.plusDays(1)).instruments().size());
+        verify(zerodhaLiveDataService, times(2)).fetchMfInstruments(any());
+    }
+
+    @Test
+    @DisplayName("without any connected Zerodha account the list is empty")
+    void noAccount() {
+        when(brokerAccountRepository.findByUserId("u2")).thenReturn(List.of());
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(List.of());
+
+        assertTrue(catalog.query("u2", MfInstrumentQuery.all()).data().isEmpty());
+        verify(zerodhaLiveDataService, never()).fetchMfInstruments(any());
+    }
+}
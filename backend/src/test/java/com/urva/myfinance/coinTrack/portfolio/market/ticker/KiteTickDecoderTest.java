@@ -0,0 +1,109 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+@DisplayName("KiteTickDecoder")
+class KiteTickDecoderTest {
+
+    private final KiteTick scratch = new KiteTick();
+
+    /** Snapshot of the fields we care about — the scratch tick is overwritten per packet. */
+    private record Seen(long token, KiteTick.Mode mode, boolean index, BigDecimal ltp,
+                        BigDecimal open, BigDecimal close, long volume) {}
+
+    private List<Seen> decodeAll(ByteBuffer buffer) {
+        List<Seen> seen = new ArrayList<>();
+        KiteTickDecoder.decode(buffer, scratch, t -> seen.add(new Seen(t.instrumentToken(), t.mode(),
+                t.isIndex(), t.lastPrice(), t.open(), t.close(), t.volume())));
+        return seen;
+    }
+
+    static ByteBuffer message(int[]... packets) {
+        int size = 2;
+        for (int[] p : packets) size += 2 + p.length * 4;
+        ByteBuffer buf = ByteBuffer.allocate(size);
+        buf.putShort((short) packets.length);
+        for (int[] p : packets) {
+            buf.putShort((short) (p.length * 4));
+            for (int v : p) buf.putInt(v);
+        }
+        return buf.flip();
+    }
+
+    @Test
+    @DisplayName("quote packet decodes LTP, OHLC and volume in paise")
+    void quotePacket() {
+        ByteBuffer buf = message(new int[] {738561, 285050, 10, 285000, 1234567, 100, 200, 283000, 286000, 282500, 282075});
+
+        List<Seen> seen = decodeAll(buf);
+
+        assertEquals(1, seen.size());
+        Seen tick = seen.get(0);
+        assertEquals(738561L, tick.token());
+        assertEquals(KiteTick.Mode.QUOTE, tick.mode());
+        assertFalse(tick.index());
+        assertEquals(new BigDecimal("2850.50"), tick.ltp());
+        assertEquals(new BigDecimal("2830.00"), tick.open());
+        assertEquals(new BigDecimal("2820.75"), tick.close());
+        assertEquals(1234567L, tick.volume());
+    }
+
+    @Test
+    @DisplayName("LTP packet has no OHLC; multiple packets in one message are all delivered")
+    void ltpAndIndexPackets() {
+        ByteBuffer buf = message(
+                new int[] {408065, 150025},
+                new int[] {256265, 2455015, 2460000, 2440000, 2445000, 2441010, 13995, 1760000000});
+
+        List<Seen> seen = decodeAll(buf);
+
+        assertEquals(2, seen.size());
+        assertEquals(KiteTick.Mode.LTP, seen.get(0).mode());
+        assertEquals(new BigDecimal("1500.25"), seen.get(0).ltp());
+        assertNull(seen.get(0).open());
+
+        assertTrue(seen.get(1).index());
+        assertEquals(KiteTick.Mode.FULL, seen.get(1).mode());
+        assertEquals(new BigDecimal("24450.00"), seen.get(1).open());
+    }
+
+    @Test
+    @DisplayName("currency segment uses 7 decimal places")
+    void currencyScale() {
+        int cdsToken = (1234 << 8) | 3;
+        List<Seen> seen = decodeAll(message(new int[] {cdsToken, 832512345}));
+
+        assertEquals(new BigDecimal("83.2512345"), seen.get(0).ltp());
+    }
+
+    @Test
+    @DisplayName("heartbeat and truncated messages deliver nothing and leave the buffer untouched")
+    void heartbeatAndTruncated() {
+        ByteBuffer heartbeat = ByteBuffer.wrap(new byte[] {0});
+        assertEquals(0, KiteTickDecoder.decode(heartbeat, scratch, t -> fail("no tick expected")));
+
+        ByteBuffer full = message(new int[] {408065, 150025});
+        ByteBuffer truncated = full.slice(0, full.limit() - 3);
+        assertEquals(0, KiteTickDecoder.decode(truncated, scratch, t -> fail("no tick expected")));
+        assertEquals(0, truncated.position());
+    }
+
+    @Test
+    @DisplayName("unknown packet lengths are skipped without losing the following packets")
+    void unknownLengthSkipped() {
+        ByteBuffer buf = message(new int[] {1, 2, 3}, new int[] {408065, 150025});
+
+        List<Seen> seen = decodeAll(buf);
+
+        assertEquals(1, seen.size());
+        assertEquals(408065L, seen.get(0).token());
+    }
+}
@@ -0,0 +1,171 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/**
+ * Runs the client against a local stand-in for wss://ws.kite.trade that records the control
+ * messages it receives and replays binary frames recorded in {@code kite/ticker-frames.bin}.
+ */
+@DisplayName("KiteTickerClient")
+class KiteTickerClientTest {
+
+    private final Queue<String> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final Map<Long, BigDecimal> lastPrices = new ConcurrentHashMap<>();
+
+    private volatile boolean closeAfterReplay;
+    private DisposableServer server;
+    private KiteTickerClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        List<byte[]> frames = loadFrames();
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .route(routes -> routes.ws("/", (in, out) -> {
+                    connections.incrementAndGet();
+                    Sinks.One<Boolean> firstCommand = Sinks.one();
+                    Mono<Void> inbound = in.receive().asString()
+                            .doOnNext(cmd -> {
+                                commands.add(cmd);
+                                firstCommand.tryEmitValue(true);
+                            })
+                            .then();
+                    Mono<Void> replay = out.sendObject(firstCommand.asMono()
+                            .thenMany(Flux.fromIterable(frames))
+                            .map(bytes -> new BinaryWebSocketFrame(Unpooled.wrappedBuffer(bytes))))
+                            .then();
+                    if (closeAfterReplay) {
+                        inbound.subscribe();
+                        return replay;
+                    }
+                    return Mono.when(inbound, replay);
+                }))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stop() {
+        if (client != null) client.stop();
+        server.disposeNow();
+    }
+
+    private KiteTickerClient newClient() {
+        URI uri = URI.create("ws://127.0.0.1:" + server.port() + "/?api_key=k&access_token=t");
+        return new KiteTickerClient(uri, tick -> lastPrices.put(tick.instrumentToken(), tick.lastPrice()));
+    }
+
+    @Test
+    @DisplayName("subscribes on connect in quote mode and decodes replayed ticks")
+    void subscribesAndDecodes() {
+        client = newClient();
+        client.subscribe(List.of(738561L, 256265L, 408065L));
+        client.start();
+
+        awaitTrue(() -> lastPrices.size() == 3);
+
+        assertEquals(new BigDecimal("2850.50"), lastPrices.get(738561L));
+        assertEquals(new BigDecimal("24550.15"), lastPrices.get(256265L));
+        assertEquals(new BigDecimal("1500.25"), lastPrices.get(408065L));
+        assertEquals(3, client.ticksReceived());
+        assertTrue(commands.stream().anyMatch(c -> c.startsWith("{\"a\":\"subscribe\"")));
+        assertTrue(commands.stream().anyMatch(c -> c.startsWith("{\"a\":\"mode\",\"v\":[\"quote\"")));
+    }
+
+    @Test
+    @DisplayName("resubscribing while connected only sends the diff")
+    void resubscribeSendsDiff() {
+        client = newClient();
+        client.subscribe(List.of(738561L, 408065L));
+        client.start();
+        awaitTrue(client::isConnected);
+        awaitTrue(() -> commands.size() >= 2);
+        commands.clear();
+
+        client.subscribe(List.of(738561L, 256265L));
+
+        awaitTrue(() -> commands.size() >= 3);
+        List<String> sent = new ArrayList<>(commands);
+        assertEquals("{\"a\":\"unsubscribe\",\"v\":[408065]}", sent.get(0));
+        assertEquals("{\"a\":\"subscribe\",\"v\":[256265]}", sent.get(1));
+        assertEquals("{\"a\":\"mode\",\"v\":[\"quote\",[256265]]}", sent.get(2));
+        assertEquals(Set.of(738561L, 256265L), client.subscribedTokens());
+    }
+
+    @Test
+    @DisplayName("reconnects after the server drops the connection and re-sends the subscription")
+    void reconnects() {
+        closeAfterReplay = true;
+        client = newClient();
+        client.subscribe(List.of(738561L));
+        client.start();
+
+        awaitTrue(() -> connections.get() >= 2
+                && commands.stream().filter(c -> c.startsWith("{\"a\":\"subscribe\"")).count() >= 2);
+        assertTrue(client.isRunning());
+    }
+
+    // ── Helpers ─────────────────────────────────────────────────
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) fail("Condition not met within 10s");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted");
+            }
+        }
+    }
+
+    /** Fixture layout: repeated [int32 length][frame bytes]. */
+    private static List<byte[]> loadFrames() throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (InputStream raw = KiteTickerClientTest.class.getResourceAsStream("/kite/ticker-frames.bin");
+             DataInputStream in = new DataInputStream(raw)) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                frames.add(in.readNBytes(length));
+            }
+        }
+        return frames;
+    }
+}
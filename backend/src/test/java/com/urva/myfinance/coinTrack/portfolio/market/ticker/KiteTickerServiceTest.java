@@ -0,0 +1,175 @@
+package com.urva.myfinance.coinTrack.portfolio.market.ticker;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.common.util.EncryptionUtil;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentFixture;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentIndex;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.InstrumentMaster;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("KiteTickerService")
+class KiteTickerServiceTest {
+
+    @Mock private BrokerAccountRepository brokerAccountRepository;
+    @Mock private CanonicalHoldingRepository holdingRepository;
+    @Mock private CanonicalPositionRepository positionRepository;
+    @Mock private EncryptionUtil encryptionUtil;
+    @Mock private KiteTickerClient client;
+    @Mock private InstrumentMaster instrumentMaster;
+
+    @TempDir
+    Path dir;
+
+    private MarketPriceCache priceCache;
+    private KiteTickerService service;
+    private int clientsCreated;
+
+    @BeforeEach
+    void setUp() {
+        priceCache = new MarketPriceCache();
+        service = new KiteTickerService(brokerAccountRepository, holdingRepository, positionRepository,
+                encryptionUtil, priceCache, instrumentMaster, true, "ws://localhost") {
+            @Override
+            KiteTickerClient createClient(BrokerAccount account) {
+                clientsCreated++;
+                return client;
+            }
+        };
+
+        when(instrumentMaster.index()).thenReturn(InstrumentIndex.empty());
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(List.of(account("enc-token-1")));
+        when(holdingRepository.findAllWithInstrumentToken()).thenReturn(List.of(
+                CanonicalHolding.builder().symbol("RELIANCE").instrumentToken(738561L).build()));
+        when(positionRepository.findAllWithInstrumentToken()).thenReturn(List.of(
+                CanonicalPosition.builder().symbol("INFY").instrumentToken(408065L).build(),
+                CanonicalPosition.builder().symbol("RELIANCE").instrumentToken(738561L).build()));
+    }
+
+    private static BrokerAccount account(String encryptedToken) {
+        BrokerAccount a = new BrokerAccount();
+        a.setId("acc-1");
+        a.setBroker(Broker.ZERODHA);
+        a.setIsActive(true);
+        a.setZerodhaApiKey("api-key");
+        a.setZerodhaAccessToken(encryptedToken);
+        a.setZerodhaTokenExpiresAt(LocalDateTime.now().plusHours(6));
+        return a;
+    }
+
+    @Test
+    @DisplayName("market open: starts one client subscribed to the deduplicated universe")
+    @SuppressWarnings("unchecked")
+    void startsWithUniverse() {
+        service.reconcile(true);
+
+        ArgumentCaptor<Collection<Long>> tokens = ArgumentCaptor.forClass(Collection.class);
+        verify(client).subscribe(tokens.capture());
+        verify(client).start();
+        assertEquals(Set.of(738561L, 408065L), Set.copyOf(tokens.getValue()));
+        assertEquals(1, clientsCreated);
+    }
+
+    @Test
+    @DisplayName("holdings from other brokers join the universe when the instrument master resolves them")
+    @SuppressWarnings("unchecked")
+    void resolvesUntokenizedViaInstrumentMaster() {
+        when(instrumentMaster.index()).thenReturn(InstrumentFixture.load(dir));
+        when(holdingRepository.findAllWithoutInstrumentToken()).thenReturn(List.of(
+                CanonicalHolding.builder().symbol("NSE:TCS-EQ").build(),
+                CanonicalHolding.builder().symbol("NSE:NOT-LISTED").build()));
+        when(positionRepository.findAllWithoutInstrumentToken()).thenReturn(List.of(
+                CanonicalPosition.builder().symbol("NFO:NIFTY24DECFUT").build()));
+
+        service.reconcile(true);
+
+        ArgumentCaptor<Collection<Long>> tokens = ArgumentCaptor.forClass(Collection.class);
+        verify(client).subscribe(tokens.capture());
+        assertEquals(Set.of(738561L, 408065L, 2953217L, 13238786L), Set.copyOf(tokens.getValue()));
+    }
+
+    @Test
+    @DisplayName("second reconcile with same credentials reuses the connection")
+    void reusesConnection() {
+        service.reconcile(true);
+        service.reconcile(true);
+
+        assertEquals(1, clientsCreated);
+        verify(client, times(1)).start();
+        verify(client, times(2)).subscribe(anyCollection());
+    }
+
+    @Test
+    @DisplayName("new access token restarts the connection")
+    void tokenChangeRestarts() {
+        service.reconcile(true);
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(List.of(account("enc-token-2")));
+
+        service.reconcile(true);
+
+        assertEquals(2, clientsCreated);
+        verify(client).stop();
+    }
+
+    @Test
+    @DisplayName("market closed or no eligible account: no connection")
+    void closedOrNoAccount() {
+        service.reconcile(false);
+        when(brokerAccountRepository.findByBroker(Broker.ZERODHA)).thenReturn(List.of());
+        service.reconcile(true);
+
+        assertEquals(0, clientsCreated);
+        verify(holdingRepository, never()).findAllWithInstrumentToken();
+    }
+
+    @Test
+    @DisplayName("ticks for subscribed tokens land in the price cache with day OHLC")
+    void tickWritesPriceCache() {
+        service.reconcile(true);
+        ByteBuffer msg = KiteTickDecoderTest.message(
+                new int[] {738561, 285050, 10, 285000, 1234567, 100, 200, 283000, 286000, 282500, 282075},
+                new int[] {999, 100});
+
+        KiteTickDecoder.decode(msg, new KiteTick(), service::onTick);
+
+        Map<String, MarketPrice> cached = priceCache.getAllPresent(List.of("RELIANCE"));
+        MarketPrice price = cached.get("RELIANCE");
+        assertNotNull(price);
+        assertEquals(new BigDecimal("2850.50"), price.getCurrentPrice());
+        assertEquals(new BigDecimal("2820.75"), price.getPreviousClose());
+        assertEquals(new BigDecimal("2860.00"), price.getHigh());
+        assertEquals(1, priceCache.size());
+    }
+}
@@ -0,0 +1,140 @@
+package com.urva.myfinance.coinTrack.portfolio.market.universe;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.repository.MarketPriceRepository;
+import com.urva.myfinance.coinTrack.portfolio.sync.cluster.SyncClusterMembership;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PriceUniverseRefresher")
+class PriceUniverseRefresherTest {
+
+    @Mock private SymbolUniverse universe;
+    @Mock private MarketDataService marketDataService;
+    @Mock private MarketPriceRepository priceRepository;
+    @Mock private SyncClusterMembership membership;
+
+    private MarketPriceCache priceCache;
+    private SimpleMeterRegistry registry;
+    private PriceUniverseRefresher refresher;
+
+    @BeforeEach
+    void setUp() {
+        priceCache = new MarketPriceCache();
+        registry = new SimpleMeterRegistry();
+        refresher = new PriceUniverseRefresher(universe, marketDataService, priceCache, priceRepository,
+                membership, registry, Duration.ofSeconds(10), Duration.ofMinutes(4));
+        when(membership.owns(anyString())).thenReturn(true);
+        when(marketDataService.refreshPrices(anyList())).thenAnswer(inv -> {
+            Map<String, MarketPrice> out = new HashMap<>();
+            for (String s : inv.<List<String>>getArgument(0)) out.put(s, price(s, LocalDateTime.now()));
+            return out;
+        });
+    }
+
+    private static MarketPrice price(String symbol, LocalDateTime updatedAt) {
+        return MarketPrice.builder().symbol(symbol).currentPrice(BigDecimal.TEN).updatedAt(updatedAt).build();
+    }
+
+    private static List<String> symbols(int n) {
+        List<String> symbols = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) symbols.add("SYM" + i);
+        return symbols;
+    }
+
+    @Test
+    @DisplayName("450 due symbols go out as 200 + 200 + 50")
+    void packsFullBatches() {
+        when(universe.symbols()).thenReturn(symbols(450));
+
+        assertEquals(450, refresher.refresh(true, 100_000));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> batches = ArgumentCaptor.forClass(List.class);
+        verify(marketDataService, times(3)).refreshPrices(batches.capture());
+        assertEquals(List.of(200, 200, 50), batches.getAllValues().stream().map(List::size).toList());
+        assertEquals(3, registry.counter("market.universe.batches").count());
+        verify(universe).markRefreshed(Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("symbols with a fresh cached price (e.g. from ticks) are skipped")
+    void skipsFresh() {
+        when(universe.symbols()).thenReturn(List.of("TICKED", "STALE", "MISSING"));
+        priceCache.put(price("TICKED", LocalDateTime.now()));
+        priceCache.put(price("STALE", LocalDateTime.now().minusSeconds(8)));
+
+        refresher.refresh(true, 100_000);
+
+        verify(marketDataService).refreshPrices(List.of("STALE", "MISSING"));
+        assertEquals(1, registry.counter("market.universe.skipped").count());
+    }
+
+    @Test
+    @DisplayName("passes follow the session cadence: 10s while open, 4 min while closed")
+    void cadence() {
+        when(universe.symbols()).thenReturn(List.of("INFY"));
+
+        refresher.refresh(true, 100_000);
+        refresher.refresh(true, 105_000);
+        refresher.refresh(true, 110_000);
+        verify(marketDataService, times(2)).refreshPrices(anyList());
+
+        refresher.refresh(false, 200_000);
+        verify(marketDataService, times(2)).refreshPrices(anyList());
+        refresher.refresh(false, 110_000 + Duration.ofMinutes(4).toMillis());
+        verify(marketDataService, times(3)).refreshPrices(anyList());
+    }
+
+    @Test
+    @DisplayName("each node quotes only the symbols it owns and reads the rest from the shared cache")
+    void shardedAcrossNodes() {
+        when(universe.symbols()).thenReturn(List.of("MINE", "THEIRS"));
+        when(membership.owns("THEIRS")).thenReturn(false);
+        when(priceRepository.findBySymbolIn(List.of("THEIRS")))
+                .thenReturn(List.of(price("THEIRS", LocalDateTime.now().minusSeconds(3))));
+
+        assertEquals(1, refresher.refresh(true, 100_000));
+
+        verify(marketDataService).refreshPrices(List.of("MINE"));
+        assertNotNull(priceCache.getAllPresent(List.of("THEIRS")).get("THEIRS"));
+        assertEquals(1, registry.counter("market.universe.shared").count());
+    }
+
+    @Test
+    @DisplayName("an empty universe makes no calls but still marks the pass")
+    void emptyUniverse() {
+        when(universe.symbols()).thenReturn(List.of());
+
+        assertEquals(0, refresher.refresh(true, 100_000));
+
+        verify(marketDataService, never()).refreshPrices(anyList());
+        verify(universe).markRefreshed(any());
+    }
+}
@@ -0,0 +1,105 @@
+package com.urva.myfinance.coinTrack.portfolio.market.universe;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SymbolUniverse")
+class SymbolUniverseTest {
+
+    @Mock private CanonicalHoldingRepository holdingRepository;
+    @Mock private CanonicalPositionRepository positionRepository;
+
+    private SymbolUniverse universe;
+
+    @BeforeEach
+    void setUp() {
+        universe = new SymbolUniverse(holdingRepository, positionRepository, new SimpleMeterRegistry(), true);
+    }
+
+    private static CanonicalHolding holding(String userId, String symbol) {
+        return CanonicalHolding.builder().userId(userId).symbol(symbol).build();
+    }
+
+    @Test
+    @DisplayName("symbols are ref-counted per user and drop out when the last holder sells")
+    void refCounting() {
+        universe.setUserSymbols("u1", Set.of("INFY", "TCS"));
+        universe.setUserSymbols("u2", Set.of("TCS"));
+        assertEquals(2, universe.refCount("TCS"));
+
+        universe.setUserSymbols("u1", Set.of("INFY", "SBIN"));
+        assertEquals(1, universe.refCount("TCS"));
+        assertTrue(universe.contains("SBIN"));
+
+        universe.setUserSymbols("u2", Set.of());
+        assertFalse(universe.contains("TCS"));
+        assertEquals(Set.of("INFY", "SBIN"), Set.copyOf(universe.symbols()));
+    }
+
+    @Test
+    @DisplayName("a sync re-reads the user's holdings and positions")
+    void refreshUser() {
+        when(holdingRepository.findSymbolsByUserId("u1")).thenReturn(List.of(holding(null, "INFY")));
+        when(positionRepository.findSymbolsByUserId("u1"))
+                .thenReturn(List.of(CanonicalPosition.builder().symbol("NIFTY24JANFUT").build()));
+
+        universe.refreshUser("u1");
+
+        assertTrue(universe.contains("INFY"));
+        assertTrue(universe.contains("NIFTY24JANFUT"));
+    }
+
+    @Test
+    @DisplayName("rebuild replaces the universe, dropping users that no longer hold anything")
+    void rebuild() {
+        universe.setUserSymbols("gone", Set.of("YESBANK"));
+        when(holdingRepository.findAllUserSymbols())
+                .thenReturn(List.of(holding("u1", "INFY"), holding("u2", "INFY"), holding("u2", "TCS")));
+        when(positionRepository.findAllUserSymbols()).thenReturn(List.of());
+
+        universe.rebuild();
+
+        assertFalse(universe.contains("YESBANK"));
+        assertEquals(2, universe.refCount("INFY"));
+        assertEquals(1, universe.refCount("TCS"));
+    }
+
+    @Test
+    @DisplayName("serves only once loaded and while the refresher's last pass is recent")
+    void serving() {
+        when(holdingRepository.findAllUserSymbols()).thenReturn(List.of());
+        when(positionRepository.findAllUserSymbols()).thenReturn(List.of());
+        assertFalse(universe.isServing());
+
+        universe.markRefreshed(Duration.ofSeconds(30));
+        assertFalse(universe.isServing());
+
+        universe.rebuild();
+        assertTrue(universe.isServing());
+
+        universe.markRefreshed(Duration.ZERO);
+        assertFalse(universe.isServing());
+    }
+}
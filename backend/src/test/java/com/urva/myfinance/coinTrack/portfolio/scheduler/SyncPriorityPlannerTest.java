@@ -0,0 +1,262 @@
+package com.urva.myfinance.coinTrack.portfolio.scheduler;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.circuit.BrokerCircuitBreaker;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
+import com.urva.myfinance.coinTrack.portfolio.model.UserActivity;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+import com.urva.myfinance.coinTrack.portfolio.scheduler.SyncPriorityPlanner.SyncCandidate;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SyncPriorityPlanner")
+class SyncPriorityPlannerTest {
+
+    private static final Instant NOW = Instant.parse("2026-10-16T05:00:00Z");
+    private static final ZoneId INDIA = ZoneId.of("Asia/Kolkata");
+
+    @Mock private BrokerAccountRepository brokerAccountRepository;
+    @Mock private CanonicalPositionRepository positionRepository;
+    @Mock private BrokerCircuitBreaker circuitBreaker;
+    @Mock private MongoTemplate mongoTemplate;
+
+    private MutableClock clock;
+    private UserActivityTracker activityTracker;
+    private SyncPriorityPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(NOW);
+        activityTracker = new UserActivityTracker(mongoTemplate, clock, Duration.ofMinutes(30));
+        planner = new SyncPriorityPlanner(brokerAccountRepository, positionRepository, circuitBreaker,
+                activityTracker, clock, Duration.ofMinutes(5), Duration.ofMinutes(3), Duration.ofMinutes(30));
+        when(circuitBreaker.state(any(), any())).thenReturn(BrokerCircuitBreaker.State.CLOSED);
+        when(positionRepository.findDerivativesByUserIdIn(any())).thenReturn(List.of());
+    }
+
+    private BrokerAccount account(String userId, Broker broker, long minutesSinceSync) {
+        LocalDateTime expiry = LocalDateTime.now().plusHours(1);
+        return BrokerAccount.builder()
+                .id("acc-" + userId + "-" + broker).userId(userId).broker(broker).isActive(true)
+                .zerodhaApiKey("key").zerodhaTokenExpiresAt(expiry)
+                .upstoxApiKey("key").encryptedUpstoxApiSecret("secret").tokenExpiresAt(expiry)
+                .angelOneApiKey("key").angelOneClientCode("c").encryptedAngelOnePassword("p")
+                .encryptedAngelOneTotpSecret("t").angelOneTokenExpiresAt(expiry)
+                .lastSuccessfulSync(LocalDateTime.ofInstant(NOW, INDIA).minusMinutes(minutesSinceSync))
+                .build();
+    }
+
+    private void seenMinutesAgo(String userId, long minutes) {
+        clock.set(NOW.minus(Duration.ofMinutes(minutes)));
+        activityTracker.touch(userId);
+        clock.set(NOW);
+    }
+
+    @Test
+    @DisplayName("recently active user outranks a merely warm one with the same staleness")
+    void activityRaisesPriority() {
+        seenMinutesAgo("active", 1);
+        seenMinutesAgo("warm", 20);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(
+                account("warm", Broker.ZERODHA, 10), account("active", Broker.ZERODHA, 10)));
+
+        List<SyncCandidate> plan = planner.plan(Set.of("active", "warm"), true, 10);
+
+        assertEquals(List.of("active", "warm"), plan.stream().map(SyncCandidate::userId).toList());
+        assertTrue(plan.get(0).active());
+    }
+
+    @Test
+    @DisplayName("open F&O position raises priority during market hours only")
+    void derivativesRaisePriorityInMarketHours() {
+        seenMinutesAgo("fno", 20);
+        seenMinutesAgo("equity", 20);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(
+                account("equity", Broker.ZERODHA, 40), account("fno", Broker.ZERODHA, 40)));
+        when(positionRepository.findDerivativesByUserIdIn(any())).thenReturn(List.of(
+                CanonicalPosition.builder().userId("fno").quantity(new BigDecimal("50")).build(),
+                CanonicalPosition.builder().userId("equity").quantity(BigDecimal.ZERO).build()));
+
+        List<SyncCandidate> open = planner.plan(Set.of("fno", "equity"), true, 10);
+        assertEquals("fno", open.get(0).userId());
+        assertTrue(open.get(0).openDerivatives());
+        assertFalse(open.get(1).openDerivatives());
+
+        planner.plan(Set.of("fno", "equity"), false, 10);
+        verify(positionRepository, times(1)).findDerivativesByUserIdIn(any());
+    }
+
+    @Test
+    @DisplayName("users fresher than min-staleness are not queued")
+    void freshUsersSkipped() {
+        seenMinutesAgo("fresh", 1);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(
+                account("fresh", Broker.ZERODHA, 1)));
+
+        assertTrue(planner.plan(Set.of("fresh"), true, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("off hours use the longer min-staleness")
+    void offHoursStaleness() {
+        seenMinutesAgo("u1", 1);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(
+                account("u1", Broker.ZERODHA, 10)));
+
+        assertEquals(1, planner.plan(Set.of("u1"), true, 10).size());
+        assertTrue(planner.plan(Set.of("u1"), false, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("user whose only broker circuit is open is skipped; half-open halves the score")
+    void brokerHealth() {
+        seenMinutesAgo("down", 1);
+        seenMinutesAgo("mixed", 1);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(
+                account("down", Broker.UPSTOX, 10),
+                account("mixed", Broker.ZERODHA, 10), account("mixed", Broker.ANGELONE, 10)));
+        when(circuitBreaker.state(eq(Broker.UPSTOX), any())).thenReturn(BrokerCircuitBreaker.State.OPEN);
+        when(circuitBreaker.state(eq(Broker.ANGELONE), any())).thenReturn(BrokerCircuitBreaker.State.HALF_OPEN);
+
+        List<SyncCandidate> plan = planner.plan(Set.of("down", "mixed"), true, 10);
+
+        assertEquals(1, plan.size());
+        assertEquals("mixed", plan.get(0).userId());
+        assertEquals(0.75, plan.get(0).health(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("budget caps the plan at the highest-scoring users")
+    void budgetCaps() {
+        for (String u : List.of("a", "b", "c")) seenMinutesAgo(u, 1);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(
+                account("a", Broker.ZERODHA, 5), account("b", Broker.ZERODHA, 50),
+                account("c", Broker.ZERODHA, 20)));
+
+        List<SyncCandidate> plan = planner.plan(Set.of("a", "b", "c"), true, 2);
+
+        assertEquals(List.of("b", "c"), plan.stream().map(SyncCandidate::userId).toList());
+    }
+
+    @Test
+    @DisplayName("never-synced account counts as maximally stale")
+    void neverSynced() {
+        seenMinutesAgo("new", 1);
+        BrokerAccount fresh = account("new", Broker.ZERODHA, 0);
+        fresh.setLastSuccessfulSync(null);
+        when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(fresh));
+
+        assertTrue(planner.isStale("new", false));
+        assertEquals(SyncPriorityPlanner.MAX_STALENESS_MINUTES,
+                planner.plan(Set.of("new"), true, 1).get(0).staleMinutes());
+    }
+
+    @Test
+    @DisplayName("activity tracker: touch reports idle → warm transitions and evicts idle users")
+    void activityTracker() {
+        assertNull(activityTracker.touch("u1"));
+        assertNotNull(activityTracker.touch("u1"));
+
+        clock.set(NOW.plus(Duration.ofMinutes(31)));
+        assertNull(activityTracker.lastSeen("u1"));
+        activityTracker.evictIdle();
+        assertEquals(0, activityTracker.size());
+        assertNull(activityTracker.touch("u1"));
+    }
+
+    @Test
+    @DisplayName("activity tracker: publishes local hits and picks up hits seen by other nodes")
+    void activitySharedAcrossNodes() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(UserActivity.class))).thenReturn(bulk);
+        Instant remoteHit = NOW.minus(Duration.ofMinutes(2));
+        when(mongoTemplate.find(any(Query.class), eq(UserActivity.class))).thenReturn(List.of(
+                UserActivity.builder().id("remote").lastSeenAt(remoteHit)
+                        .expiresAt(remoteHit.plus(Duration.ofMinutes(30))).build()));
+
+        activityTracker.touch("local");
+        activityTracker.shareWithCluster();
+
+        verify(bulk, times(1)).upsert(any(Query.class), any(Update.class));
+        verify(bulk).execute();
+        assertEquals(Set.of("local", "remote"), activityTracker.warmUsers());
+        assertEquals(remoteHit, activityTracker.lastSeen("remote"));
+
+        // Nothing new to publish on the next tick
+        activityTracker.shareWithCluster();
+        verify(bulk, times(1)).execute();
+    }
+
+    @Test
+    @DisplayName("activity tracker: hits evicted before publishing send no empty bulk")
+    void evictedHitsNotPublished() {
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(UserActivity.class))).thenReturn(bulk);
+        when(mongoTemplate.find(any(Query.class), eq(UserActivity.class))).thenReturn(List.of());
+
+        clock.set(NOW.minus(Duration.ofHours(1)));
+        activityTracker.touch("gone");
+        clock.set(NOW);
+        activityTracker.evictIdle();
+        activityTracker.shareWithCluster();
+
+        verify(bulk, never()).execute();
+        assertEquals(0, activityTracker.size());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return Clock.fixed(instant, zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.urva.myfinance.coinTrack.portfolio.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.BrokerPassThroughFetcher.Dataset;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.BrokerPassThroughFetcher.Fetched;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.BrokerPassThroughFetcher.Pending;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("BrokerPassThroughFetcher")
+class BrokerPassThroughFetcherTest {
+
+    private static final BrokerAccount ZERODHA = account("z1", Broker.ZERODHA);
+    private static final BrokerAccount UPSTOX = account("u1", Broker.UPSTOX);
+    private static final BrokerAccount ANGELONE = account("a1", Broker.ANGELONE);
+
+    private SimpleMeterRegistry meterRegistry;
+    private BrokerPassThroughFetcher fetcher;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        fetcher = new BrokerPassThroughFetcher(meterRegistry, Duration.ofSeconds(20),
+                Duration.ofSeconds(2), Duration.ofSeconds(2), Duration.ofMillis(300));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fetcher.shutdown();
+    }
+
+    private static BrokerAccount account(String id, Broker broker) {
+        return BrokerAccount.builder().id(id).userId("user1").broker(broker).build();
+    }
+
+    private static Function<BrokerAccount, List<String>> sleeping(long millis) {
+        return account -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of(account.getBroker().name());
+        };
+    }
+
+    private double loads(Dataset dataset) {
+        return meterRegistry.counter("portfolio.passthrough.loads", "dataset", dataset.name()).count();
+    }
+
+    @Test
+    @DisplayName("brokers are fetched in parallel: latency is the slowest broker, not the sum")
+    void parallel() {
+        long started = System.nanoTime();
+
+        Fetched<String> fetched = fetcher.fetch("user1", List.of(ZERODHA, UPSTOX), Dataset.ORDERS, sleeping(200));
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertEquals(List.of("ZERODHA", "UPSTOX"), fetched.data());
+        assertFalse(fetched.partial());
+        assertTrue(elapsedMillis < 380, "took " + elapsedMillis + "ms");
+    }
+
+    @Test
+    @DisplayName("a slow broker is reported unavailable; the others are returned")
+    void timeoutIsPartial() {
+        Fetched<String> fetched = fetcher.fetch("user1", List.of(ZERODHA, ANGELONE), Dataset.TRADES,
+                account -> sleeping(account.getBroker() == Broker.ANGELONE ? 1_000 : 0).apply(account));
+
+        assertEquals(List.of("ZERODHA"), fetched.data());
+        assertTrue(fetched.partial());
+        assertEquals(List.of("ANGELONE"), fetched.unavailableBrokers());
+        assertEquals(1.0, meterRegistry.counter("portfolio.passthrough.unavailable",
+                "dataset", "TRADES", "reason", "timeout").count());
+    }
+
+    @Test
+    @DisplayName("repeat requests within the TTL are served from the cache")
+    void cached() {
+        AtomicInteger calls = new AtomicInteger();
+        Function<BrokerAccount, List<String>> loader = account -> {
+            calls.incrementAndGet();
+            return List.of("o1");
+        };
+
+        fetcher.fetch("user1", List.of(ZERODHA), Dataset.ORDERS, loader);
+        Fetched<String> second = fetcher.fetch("user1", List.of(ZERODHA), Dataset.ORDERS, loader);
+        fetcher.fetch("user2", List.of(ZERODHA), Dataset.TRADES, loader);
+
+        assertEquals(List.of("o1"), second.data());
+        assertEquals(2, calls.get()); // user1 ORDERS once, TRADES once
+        assertEquals(1.0, loads(Dataset.ORDERS));
+    }
+
+    @Test
+    @DisplayName("concurrent requests for the same key share one broker call")
+    void coalesced() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+        Function<BrokerAccount, List<String>> loader = account -> {
+            calls.incrementAndGet();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of("s1");
+        };
+
+        Pending<String> first = fetcher.start("user1", List.of(ZERODHA), Dataset.MF_SIPS, loader);
+        Pending<String> second = fetcher.start("user1", List.of(ZERODHA), Dataset.MF_SIPS, loader);
+        release.countDown();
+
+        assertEquals(List.of("s1"), first.await().data());
+        assertEquals(List.of("s1"), second.await().data());
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    @DisplayName("failures are not cached")
+    void failureNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        Function<BrokerAccount, List<String>> loader = account -> {
+            if (calls.incrementAndGet() == 1) throw new IllegalStateException("502 from broker");
+            return List.of("h1");
+        };
+
+        Fetched<String> failed = fetcher.fetch("user1", List.of(ZERODHA), Dataset.MF_HOLDINGS, loader);
+        Fetched<String> retried = fetcher.fetch("user1", List.of(ZERODHA), Dataset.MF_HOLDINGS, loader);
+
+        assertEquals(List.of("ZERODHA"), failed.unavailableBrokers());
+        assertEquals(List.of("h1"), retried.data());
+        assertFalse(retried.partial());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    @DisplayName("a load that fails at once is reported, not retried within the same request")
+    void fastFailureNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+        Function<BrokerAccount, List<String>> loader = account -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("429 from broker");
+        };
+
+        for (int i = 0; i < 20; i++) {
+            Fetched<String> fetched = fetcher.fetch("user" + i, List.of(ZERODHA), Dataset.ORDERS, loader);
+
+            assertEquals(List.of("ZERODHA"), fetched.unavailableBrokers());
+            assertEquals(i + 1, calls.get());
+        }
+    }
+}
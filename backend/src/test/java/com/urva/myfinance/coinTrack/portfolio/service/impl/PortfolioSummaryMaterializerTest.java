@@ -0,0 +1,270 @@
+package com.urva.myfinance.coinTrack.portfolio.service.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.DataConfidence;
+import com.urva.myfinance.coinTrack.broker.core.canonical.Exchange;
+import com.urva.myfinance.coinTrack.broker.model.Broker;
+import com.urva.myfinance.coinTrack.portfolio.dto.PortfolioSummaryResponse;
+import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
+import com.urva.myfinance.coinTrack.portfolio.model.PortfolioSummarySnapshot;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
+import com.urva.myfinance.coinTrack.portfolio.repository.SyncLogRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PortfolioSummaryMaterializer")
+class PortfolioSummaryMaterializerTest {
+
+    private static final String USER_ID = "user1";
+
+    @Mock private CanonicalHoldingRepository holdingRepository;
+    @Mock private CanonicalPositionRepository positionRepository;
+    @Mock private SyncLogRepository syncLogRepository;
+    @Mock private MarketDataService marketDataService;
+    @Mock private MongoTemplate mongoTemplate;
+
+    private final Map<String, MarketPrice> prices = new ConcurrentHashMap<>();
+    private MarketPriceCache priceCache;
+    private PortfolioSummaryMaterializer materializer;
+
+    @BeforeEach
+    void setUp() {
+        priceCache = new MarketPriceCache();
+        materializer = new PortfolioSummaryMaterializer(holdingRepository, positionRepository, syncLogRepository,
+                marketDataService, new HoldingEnricher(), new PositionEnricher(), new PortfolioTotalsCalculator(),
+                priceCache, mongoTemplate, new SimpleMeterRegistry(), Duration.ofMinutes(30));
+
+        when(holdingRepository.findByUserId(USER_ID)).thenReturn(List.of(holding("NSE:INFY", "10", "1400.00")));
+        when(positionRepository.findByUserId(USER_ID)).thenReturn(List.of());
+        when(syncLogRepository.findFirstByUserIdAndStatusOrderByTimestampDesc(eq(USER_ID), any()))
+                .thenReturn(Optional.empty());
+        when(marketDataService.getPrices(anyList())).thenAnswer(inv -> Map.copyOf(prices));
+        setPrice("NSE:INFY", "1500.00");
+    }
+
+    private static CanonicalHolding holding(String symbol, String qty, String avg) {
+        return CanonicalHolding.builder()
+                .userId(USER_ID).symbol(symbol).exchange(Exchange.NSE).brokerType(Broker.ZERODHA)
+                .quantity(new BigDecimal(qty)).avgBuyPrice(new BigDecimal(avg))
+                .dataConfidence(DataConfidence.LOW)
+                .build();
+    }
+
+    private void setPrice(String symbol, String value) {
+        prices.put(symbol, MarketPrice.builder().symbol(symbol).currentPrice(new BigDecimal(value))
+                .updatedAt(LocalDateTime.now()).build());
+    }
+
+    @Test
+    @DisplayName("first read computes; later reads are served without touching Mongo or prices")
+    void readsServedFromView() {
+        PortfolioSummaryResponse first = materializer.get(USER_ID);
+        PortfolioSummaryResponse second = materializer.get(USER_ID);
+
+        assertSame(first, second);
+        assertNotNull(first.getVersion());
+        assertNotNull(first.getAsOf());
+        assertEquals(0, new BigDecimal("15000").compareTo(first.getTotalCurrentValue()));
+        verify(holdingRepository, times(1)).findByUserId(USER_ID);
+        verify(marketDataService, times(1)).getPrices(anyList());
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(PortfolioSummarySnapshot.class));
+    }
+
+    @Test
+    @DisplayName("tick on a held symbol reprices from memory and bumps the version")
+    void tickReprices() {
+        PortfolioSummaryResponse before = materializer.get(USER_ID);
+
+        setPrice("NSE:INFY", "1510.00");
+        priceCache.put(prices.get("NSE:INFY"));
+        materializer.refresh();
+
+        PortfolioSummaryResponse after = materializer.get(USER_ID);
+        assertEquals(0, new BigDecimal("15100").compareTo(after.getTotalCurrentValue()));
+        assertTrue(after.getVersion() > before.getVersion());
+        verify(holdingRepository, times(1)).findByUserId(USER_ID);
+    }
+
+    @Test
+    @DisplayName("tick that leaves the summary unchanged keeps the version")
+    void unchangedKeepsVersion() {
+        PortfolioSummaryResponse before = materializer.get(USER_ID);
+
+        materializer.onPriceChanged("NSE:INFY");
+        materializer.refresh();
+
+        assertSame(before, materializer.get(USER_ID));
+    }
+
+    @Test
+    @DisplayName("summary listeners see the first load and every reprice")
+    void listenersNotified() {
+        List<BigDecimal> seen = new ArrayList<>();
+        materializer.addSummaryListener((userId, summary) -> seen.add(summary.getTotalCurrentValue()));
+
+        materializer.get(USER_ID);
+        setPrice("NSE:INFY", "1510.00");
+        priceCache.put(prices.get("NSE:INFY"));
+        materializer.refresh();
+        materializer.get(USER_ID);
+
+        assertEquals(2, seen.size());
+        assertEquals(0, new BigDecimal("15100").compareTo(seen.get(1)));
+    }
+
+    @Test
+    @DisplayName("ticks on symbols nobody holds are ignored")
+    void unrelatedTickIgnored() {
+        materializer.get(USER_ID);
+
+        priceCache.put(MarketPrice.builder().symbol("NSE:TCS").currentPrice(new BigDecimal("3500"))
+                .updatedAt(LocalDateTime.now()).build());
+        materializer.refresh();
+
+        verify(marketDataService, times(1)).getPrices(anyList());
+    }
+
+    @Test
+    @DisplayName("completed sync bumps syncVersion and reloads rows on the next refresh")
+    void syncReloads() {
+        materializer.get(USER_ID);
+        when(holdingRepository.findByUserId(USER_ID)).thenReturn(List.of(
+                holding("NSE:INFY", "10", "1400.00"), holding("NSE:TCS", "2", "3000.00")));
+        setPrice("NSE:TCS", "3500.00");
+
+        materializer.onSyncCompleted(USER_ID);
+        materializer.refresh();
+
+        PortfolioSummaryResponse after = materializer.get(USER_ID);
+        assertEquals(2, after.getHoldingsList().size());
+        assertEquals(0, new BigDecimal("22000").compareTo(after.getTotalCurrentValue()));
+        verify(mongoTemplate).upsert(any(Query.class),
+                argThat((Update u) -> u.getUpdateObject().containsKey("$inc")), eq(PortfolioSummarySnapshot.class));
+    }
+
+    @Test
+    @DisplayName("versions are readable from memory; the input epoch moves on sync notice and reprice")
+    void versionsAndEpoch() {
+        assertNull(materializer.summaryVersion(USER_ID));
+        long epoch = materializer.inputEpoch(USER_ID);
+        assertNotNull(materializer.summaryVersion(USER_ID));
+
+        materializer.onSyncCompleted(USER_ID);
+        long afterSync = materializer.inputEpoch(USER_ID);
+        assertTrue(afterSync > epoch);
+
+        materializer.onPriceChanged("NSE:INFY");
+        materializer.refresh();
+        assertTrue(materializer.inputEpoch(USER_ID) > afterSync);
+        verify(holdingRepository, times(2)).findByUserId(USER_ID);
+    }
+
+    @Test
+    @DisplayName("stored summary current with the latest sync is served on a cold read")
+    void coldReadFromSnapshot() {
+        PortfolioSummaryResponse stored = PortfolioSummaryResponse.builder().version(42L).build();
+        when(mongoTemplate.findById(USER_ID, PortfolioSummarySnapshot.class)).thenReturn(
+                PortfolioSummarySnapshot.builder().id(USER_ID).syncVersion(3).materializedSyncVersion(3)
+                        .pricedAt(LocalDateTime.now()).summary(stored).build());
+
+        assertSame(stored, materializer.get(USER_ID));
+        verify(holdingRepository, never()).findByUserId(any());
+
+        materializer.refresh();
+        assertEquals(1, materializer.get(USER_ID).getHoldingsList().size());
+    }
+
+    @Test
+    @DisplayName("stored summary with prices older than the L1 price TTL is recomputed")
+    void stalePricedSnapshotRecomputed() {
+        when(mongoTemplate.findById(USER_ID, PortfolioSummarySnapshot.class)).thenReturn(
+                PortfolioSummarySnapshot.builder().id(USER_ID).syncVersion(3).materializedSyncVersion(3)
+                        .pricedAt(LocalDateTime.now().minus(MarketPriceCache.currentTtl()).minusMinutes(1))
+                        .summary(PortfolioSummaryResponse.builder().version(42L).build()).build());
+
+        PortfolioSummaryResponse response = materializer.get(USER_ID);
+
+        assertEquals(0, new BigDecimal("15000").compareTo(response.getTotalCurrentValue()));
+        verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(PortfolioSummarySnapshot.class));
+    }
+
+    @Test
+    @DisplayName("stored summary older than the latest sync is recomputed")
+    void outdatedSnapshotRecomputed() {
+        when(mongoTemplate.findById(USER_ID, PortfolioSummarySnapshot.class)).thenReturn(
+                PortfolioSummarySnapshot.builder().id(USER_ID).syncVersion(4).materializedSyncVersion(3)
+                        .summary(PortfolioSummaryResponse.builder().version(42L).build()).build());
+
+        PortfolioSummaryResponse response = materializer.get(USER_ID);
+
+        assertEquals(1, response.getHoldingsList().size());
+        assertTrue(response.getVersion() > 42L);
+    }
+
+    @Test
+    @DisplayName("reconcile reloads views another node synced and evicts idle ones")
+    void reconcile() throws InterruptedException {
+        materializer.get(USER_ID);
+        when(mongoTemplate.find(any(Query.class), eq(PortfolioSummarySnapshot.class))).thenReturn(List.of(
+                PortfolioSummarySnapshot.builder().id(USER_ID).syncVersion(1).build()));
+
+        materializer.reconcile();
+        materializer.refresh();
+        verify(holdingRepository, times(2)).findByUserId(USER_ID);
+
+        PortfolioSummaryMaterializer shortLived = new PortfolioSummaryMaterializer(holdingRepository,
+                positionRepository, syncLogRepository, marketDataService, new HoldingEnricher(),
+                new PositionEnricher(), new PortfolioTotalsCalculator(), priceCache, mongoTemplate,
+                new SimpleMeterRegistry(), Duration.ZERO);
+        shortLived.get(USER_ID);
+        Thread.sleep(5);
+        shortLived.reconcile();
+        assertEquals(0, shortLived.residentViews());
+    }
+
+    @Test
+    @DisplayName("conditional reads of the version keep the view resident")
+    void versionReadKeepsViewResident() throws InterruptedException {
+        PortfolioSummaryMaterializer polled = new PortfolioSummaryMaterializer(holdingRepository,
+                positionRepository, syncLogRepository, marketDataService, new HoldingEnricher(),
+                new PositionEnricher(), new PortfolioTotalsCalculator(), priceCache, mongoTemplate,
+                new SimpleMeterRegistry(), Duration.ofSeconds(1));
+        polled.get(USER_ID);
+        Thread.sleep(700);
+        assertNotNull(polled.summaryVersion(USER_ID)); // a 304 poll
+        Thread.sleep(400);
+
+        polled.reconcile();
+        assertEquals(1, polled.residentViews());
+    }
+}
@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -20,6 +21,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.MongoTemplate;
 
 import com.urva.myfinance.coinTrack.broker.adapters.angelone.AngelOneBrokerAdapter;
 import com.urva.myfinance.coinTrack.broker.adapters.upstox.UpstoxBrokerAdapter;
@@ -45,6 +47,9 @@ import com.urva.myfinance.coinTrack.portfolio.dto.kite.OrderDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.TradeDTO;
 import com.urva.myfinance.coinTrack.portfolio.dto.kite.UserProfileDTO;
 import com.urva.myfinance.coinTrack.portfolio.market.MarketDataService;
+import com.urva.myfinance.coinTrack.portfolio.market.cache.MarketPriceCache;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentCatalog;
+import com.urva.myfinance.coinTrack.portfolio.market.instrument.MfInstrumentQuery;
 import com.urva.myfinance.coinTrack.portfolio.model.MarketPrice;
 import com.urva.myfinance.coinTrack.portfolio.model.SyncLog;
 import com.urva.myfinance.coinTrack.portfolio.model.SyncStatus;
@@ -54,6 +59,8 @@ import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalMfOrderReposit
 import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
 import com.urva.myfinance.coinTrack.portfolio.repository.SyncLogRepository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @MockitoSettings(strictness = Strictness.LENIENT)
 @ExtendWith(MockitoExtension.class)
 @DisplayName("PortfolioSummaryServiceImpl - Comprehensive Tests")
@@ -72,6 +79,7 @@ class PortfolioSummaryServiceImplTest {
     @Mock private AngelOneBrokerAdapter angelOneBrokerAdapter;
     @Mock private CanonicalFundsRepository canonicalFundsRepository;
     @Mock private CanonicalMfOrderRepository canonicalMfOrderRepository;
+    @Mock private MongoTemplate mongoTemplate;
 
     private PortfolioSummaryServiceImpl service;
 
@@ -80,12 +88,18 @@ class PortfolioSummaryServiceImplTest {
 
     @BeforeEach
     void setUp() {
-        service = new PortfolioSummaryServiceImpl(
+        PortfolioSummaryMaterializer materializer = new PortfolioSummaryMaterializer(
                 holdingRepository, positionRepository, syncLogRepository,
-                marketDataService, holdingEnricher, positionEnricher,
-                totalsCalculator, brokerAccountRepository, zerodhaLiveDataService,
+                marketDataService, holdingEnricher, positionEnricher, totalsCalculator,
+                new MarketPriceCache(), mongoTemplate, new SimpleMeterRegistry(), Duration.ofMinutes(30));
+        service = new PortfolioSummaryServiceImpl(
+                materializer, brokerAccountRepository, zerodhaLiveDataService,
                 upstoxBrokerAdapter, angelOneBrokerAdapter,
-                canonicalFundsRepository, canonicalMfOrderRepository);
+                canonicalFundsRepository, canonicalMfOrderRepository,
+                new BrokerPassThroughFetcher(new SimpleMeterRegistry(), Duration.ofSeconds(20),
+                        Duration.ofSeconds(2), Duration.ofSeconds(2), Duration.ofSeconds(2)),
+                new MfInstrumentCatalog(zerodhaLiveDataService, brokerAccountRepository,
+                        new SimpleMeterRegistry(), Duration.ofMinutes(5)));
     }
 
     // ── Helper builders ──────────────────────────────────────────
@@ -530,6 +544,8 @@ class PortfolioSummaryServiceImplTest {
 
         assertNotNull(response);
         assertTrue(response.getData().isEmpty());
+        assertEquals(Boolean.TRUE, response.getPartial());
+        assertEquals(List.of("ZERODHA"), response.getUnavailableBrokers());
     }
 
     @Test
@@ -778,6 +794,25 @@ class PortfolioSummaryServiceImplTest {
         assertEquals("LIVE", response.getSource());
     }
 
+    @Test
+    @DisplayName("getMfSips: executions are linked on a copy, never on the fetched SIP")
+    void getMfSips_doesNotMutateFetchedSips() {
+        BrokerAccount account = buildZerodhaAccount(true, true);
+        when(brokerAccountRepository.findByUserId(USER_ID)).thenReturn(List.of(account));
+
+        MfSipDTO fetchedSip = buildMfSip("SIP1", "Axis Bluechip");
+        MutualFundOrderDTO execution = buildMfOrder("O1", "Axis Bluechip");
+        execution.setVariety("sip");
+        execution.setRaw(Map.of("instruction_id", "SIP1"));
+        when(zerodhaLiveDataService.fetchMfSips(account)).thenReturn(new ArrayList<>(List.of(fetchedSip)));
+        when(zerodhaLiveDataService.fetchMfOrders(account)).thenReturn(new ArrayList<>(List.of(execution)));
+
+        var response = service.getMfSips(USER_ID);
+
+        assertEquals(List.of(execution), response.getData().get(0).getExecutions());
+        assertNull(fetchedSip.getExecutions());
+    }
+
     @Test
     @DisplayName("getMfSips: exception during fetch is handled gracefully")
     void getMfSips_exceptionHandled() {
@@ -804,12 +839,37 @@ class PortfolioSummaryServiceImplTest {
         mockInstrument.setTradingSymbol("HDFC-MIDCAP");
         when(zerodhaLiveDataService.fetchMfInstruments(account)).thenReturn(new ArrayList<>(List.of(mockInstrument)));
 
-        var response = service.getMfInstruments(USER_ID);
+        var response = service.getMfInstruments(USER_ID, MfInstrumentQuery.all());
 
         assertNotNull(response);
         assertEquals(1, response.getData().size());
     }
 
+    @Test
+    @DisplayName("getMfInstruments: paged query reports totals; the catalog is loaded once per day")
+    void getMfInstruments_paged() {
+        BrokerAccount account = buildZerodhaAccount(true, true);
+        when(brokerAccountRepository.findByUserId(USER_ID)).thenReturn(List.of(account));
+        List<MfInstrumentDTO> instruments = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            MfInstrumentDTO dto = new MfInstrumentDTO();
+            dto.setTradingSymbol("INF00000000" + i);
+            dto.setIsin("INF00000000" + i);
+            dto.setName("Fund " + i);
+            instruments.add(dto);
+        }
+        when(zerodhaLiveDataService.fetchMfInstruments(account)).thenReturn(instruments);
+
+        var response = service.getMfInstruments(USER_ID, new MfInstrumentQuery(null, null, null, null, null, 1, 2));
+        service.getMfInstruments(USER_ID, MfInstrumentQuery.all());
+
+        assertEquals(List.of("INF000000002", "INF000000003"),
+                response.getData().stream().map(MfInstrumentDTO::getTradingSymbol).toList());
+        assertEquals(5L, response.getTotalElements());
+        assertEquals(3, response.getTotalPages());
+        verify(zerodhaLiveDataService, times(1)).fetchMfInstruments(account);
+    }
+
     @Test
     @DisplayName("getMfInstruments: exception during fetch returns empty")
     void getMfInstruments_exceptionReturnsEmpty() {
@@ -817,7 +877,7 @@ class PortfolioSummaryServiceImplTest {
         when(brokerAccountRepository.findByUserId(USER_ID)).thenReturn(List.of(account));
         when(zerodhaLiveDataService.fetchMfInstruments(account)).thenThrow(new RuntimeException("error"));
 
-        var response = service.getMfInstruments(USER_ID);
+        var response = service.getMfInstruments(USER_ID, MfInstrumentQuery.all());
 
         assertNotNull(response);
         assertTrue(response.getData().isEmpty());
@@ -1,10 +1,12 @@
 package com.urva.myfinance.coinTrack.portfolio.sync;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,20 +14,23 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
 import org.springframework.test.context.ActiveProfiles;
 
 import com.urva.myfinance.coinTrack.broker.core.canonical.*;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.portfolio.repository.*;
+import com.urva.myfinance.coinTrack.portfolio.sync.impl.BulkUpsertResult;
+import com.urva.myfinance.coinTrack.portfolio.sync.impl.CanonicalBulkWriter;
+import com.urva.myfinance.coinTrack.portfolio.sync.impl.CanonicalChangeDetector;
 
 /**
  * Integration tests for canonical model upsert logic against embedded MongoDB.
  *
- * Tests the exact pattern used by PortfolioSyncServiceImpl.persistAggregatedData():
- *   1. findByCompoundKey()
- *   2. if found → setId(existing.getId())
- *   3. save()
+ * Covers both the repository find-then-save upsert pattern and the unordered bulk upserts
+ * (CanonicalBulkWriter) that PortfolioSyncServiceImpl.persistAggregatedData() now uses.
  *
  * These tests verify:
  *   - Insert creates a new document
@@ -37,11 +42,13 @@ import com.urva.myfinance.coinTrack.portfolio.repository.*;
  */
 @DataMongoTest
 @ActiveProfiles("test")
+@Import({CanonicalBulkWriter.class, CanonicalChangeDetector.class})
 class CanonicalUpsertIntegrationTest {
 
     private static final String USER_ID = "user-test-1";
     private static final String ACCOUNT_ZERODHA = "acc-zerodha-1";
     private static final String ACCOUNT_ANGELONE = "acc-angelone-1";
+    private static final long FENCE = 5L;
 
     @Autowired
     private CanonicalHoldingRepository holdingRepo;
@@ -55,6 +62,9 @@ class CanonicalUpsertIntegrationTest {
     @Autowired
     private CanonicalFundsRepository fundsRepo;
 
+    @Autowired
+    private CanonicalBulkWriter bulkWriter;
+
     @BeforeEach
     void cleanup() {
         holdingRepo.deleteAll();
@@ -493,26 +503,15 @@ class CanonicalUpsertIntegrationTest {
         }
 
         /**
-         * Replicates the exact upsert pattern from PortfolioSyncServiceImpl.persistAggregatedData()
+         * Same persistence path as PortfolioSyncServiceImpl.persistAggregatedData()
          */
         private void persistSync(List<CanonicalHolding> holdings, List<CanonicalPosition> positions, CanonicalFunds funds) {
-            for (CanonicalHolding h : holdings) {
-                h.setUserId(USER_ID);
-                holdingRepo.findByUserIdAndBrokerAccountIdAndIsin(USER_ID, h.getBrokerAccountId(), h.getIsin())
-                    .ifPresent(existing -> h.setId(existing.getId()));
-                holdingRepo.save(h);
-            }
-            for (CanonicalPosition p : positions) {
-                p.setUserId(USER_ID);
-                positionRepo.findByUserIdAndBrokerAccountIdAndSymbolAndInstrumentType(
-                    USER_ID, p.getBrokerAccountId(), p.getSymbol(), p.getInstrumentType())
-                    .ifPresent(existing -> p.setId(existing.getId()));
-                positionRepo.save(p);
-            }
+            holdings.forEach(h -> h.setUserId(USER_ID));
+            positions.forEach(p -> p.setUserId(USER_ID));
             funds.setUserId(USER_ID);
-            fundsRepo.findByUserIdAndBrokerAccountId(USER_ID, funds.getBrokerAccountId())
-                .ifPresent(existing -> funds.setId(existing.getId()));
-            fundsRepo.save(funds);
+            bulkWriter.syncHoldings(USER_ID, holdings, Set.of(ACCOUNT_ZERODHA), FENCE);
+            bulkWriter.syncPositions(USER_ID, positions, Set.of(ACCOUNT_ZERODHA), FENCE);
+            bulkWriter.syncFunds(USER_ID, List.of(funds), FENCE);
         }
 
         private CanonicalHolding buildHolding(String isin, String symbol, BigDecimal qty, BigDecimal price) {
@@ -523,4 +522,88 @@ class CanonicalUpsertIntegrationTest {
                 .dataConfidence(DataConfidence.HIGH).lastSyncedAt(Instant.now()).build();
         }
     }
+
+    // ────────────────────────────────────────────────────────────────────
+    // BULK UPSERT COUNTS
+    // ────────────────────────────────────────────────────────────────────
+
+    @Nested
+    @DisplayName("CanonicalBulkWriter counts")
+    class BulkUpsertCountTests {
+
+        @Test
+        @DisplayName("first write inserts, identical rewrite is unchanged, changed row is modified")
+        void insertedModifiedUnchanged() {
+            Instant syncedAt = Instant.parse("2026-01-05T04:00:00Z");
+            CanonicalHolding reliance = holding("INE002A01018", "NSE:RELIANCE", "10", syncedAt);
+            CanonicalHolding tcs = holding("INE467B01029", "NSE:TCS", "5", syncedAt);
+
+            BulkUpsertResult first = bulkWriter.syncHoldings(USER_ID, List.of(reliance, tcs), Set.of(), FENCE);
+            assertThat(first).isEqualTo(new BulkUpsertResult(2, 0, 0, 0));
+
+            BulkUpsertResult same = bulkWriter.syncHoldings(USER_ID, List.of(
+                    holding("INE002A01018", "NSE:RELIANCE", "10", syncedAt.plusSeconds(300)),
+                    holding("INE467B01029", "NSE:TCS", "5", syncedAt.plusSeconds(300))), Set.of(), FENCE);
+            assertThat(same).isEqualTo(new BulkUpsertResult(0, 0, 2, 0));
+
+            BulkUpsertResult changed = bulkWriter.syncHoldings(USER_ID, List.of(
+                    holding("INE002A01018", "NSE:RELIANCE", "12", syncedAt),
+                    holding("INE467B01029", "NSE:TCS", "5", syncedAt)), Set.of(), FENCE);
+            assertThat(changed).isEqualTo(new BulkUpsertResult(0, 1, 1, 0));
+
+            assertThat(holdingRepo.findByUserId(USER_ID)).hasSize(2);
+            assertThat(holdingRepo.findByUserIdAndBrokerAccountIdAndIsin(USER_ID, ACCOUNT_ZERODHA, "INE002A01018")
+                    .orElseThrow().getQuantity()).isEqualByComparingTo("12");
+        }
+
+        @Test
+        @DisplayName("row missing from an authoritative fetch is removed; other accounts are kept")
+        void vanishedRowRemoved() {
+            Instant syncedAt = Instant.parse("2026-01-05T04:00:00Z");
+            bulkWriter.syncHoldings(USER_ID, List.of(
+                    holding("INE002A01018", "NSE:RELIANCE", "10", syncedAt),
+                    holding("INE467B01029", "NSE:TCS", "5", syncedAt)), Set.of(), FENCE);
+            holdingRepo.save(CanonicalHolding.builder()
+                .userId(USER_ID).brokerAccountId(ACCOUNT_ANGELONE).brokerType(Broker.ANGELONE)
+                .isin("INE009A01021").symbol("NSE:INFY").exchange(Exchange.NSE)
+                .quantity(new BigDecimal("3")).lastSyncedAt(syncedAt).build());
+
+            BulkUpsertResult sold = bulkWriter.syncHoldings(USER_ID, List.of(
+                    holding("INE002A01018", "NSE:RELIANCE", "10", syncedAt)), Set.of(ACCOUNT_ZERODHA), FENCE);
+
+            assertThat(sold).isEqualTo(new BulkUpsertResult(0, 0, 1, 1));
+            assertThat(holdingRepo.findByUserIdAndBrokerAccountIdAndIsin(USER_ID, ACCOUNT_ZERODHA, "INE467B01029")).isEmpty();
+            assertThat(holdingRepo.findByUserId(USER_ID)).hasSize(2);
+        }
+
+        @Test
+        @DisplayName("a write fenced with an older lease token is refused and changes nothing")
+        void staleFenceRefused() {
+            Instant syncedAt = Instant.parse("2026-01-05T04:00:00Z");
+            bulkWriter.syncHoldings(USER_ID, List.of(
+                    holding("INE002A01018", "NSE:RELIANCE", "10", syncedAt),
+                    holding("INE467B01029", "NSE:TCS", "5", syncedAt)), Set.of(), FENCE);
+
+            BulkOperationException refused = assertThrows(BulkOperationException.class, () ->
+                    bulkWriter.syncHoldings(USER_ID, List.of(
+                            holding("INE002A01018", "NSE:RELIANCE", "99", syncedAt)), Set.of(ACCOUNT_ZERODHA), FENCE - 1));
+
+            assertThat(CanonicalBulkWriter.fencedOut(refused)).isTrue();
+            assertThat(holdingRepo.findByUserIdAndBrokerAccountIdAndIsin(USER_ID, ACCOUNT_ZERODHA, "INE002A01018")
+                    .orElseThrow().getQuantity()).isEqualByComparingTo("10");
+            assertThat(holdingRepo.findByUserId(USER_ID)).hasSize(2);
+
+            BulkUpsertResult newer = bulkWriter.syncHoldings(USER_ID, List.of(
+                    holding("INE002A01018", "NSE:RELIANCE", "11", syncedAt)), Set.of(), FENCE + 1);
+            assertThat(newer).isEqualTo(new BulkUpsertResult(0, 1, 0, 0));
+        }
+
+        private CanonicalHolding holding(String isin, String symbol, String qty, Instant syncedAt) {
+            return CanonicalHolding.builder()
+                .userId(USER_ID).brokerAccountId(ACCOUNT_ZERODHA).brokerType(Broker.ZERODHA)
+                .isin(isin).symbol(symbol).exchange(Exchange.NSE)
+                .quantity(new BigDecimal(qty)).avgBuyPrice(new BigDecimal("100.00"))
+                .dataConfidence(DataConfidence.HIGH).lastSyncedAt(syncedAt).build();
+        }
+    }
 }
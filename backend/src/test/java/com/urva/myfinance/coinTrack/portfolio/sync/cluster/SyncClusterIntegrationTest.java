@@ -0,0 +1,184 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.cluster;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.urva.myfinance.coinTrack.portfolio.model.SyncLease;
+import com.urva.myfinance.coinTrack.portfolio.model.SyncNode;
+import com.urva.myfinance.coinTrack.portfolio.sync.impl.SyncSafetyServiceImpl;
+
+/**
+ * Several application instances against one embedded MongoDB.
+ *
+ * Each "node" is a child application context of the @DataMongoTest context with its own
+ * node id, SyncClusterMembership, SyncLeaseManager and SyncSafetyServiceImpl, sharing only
+ * the MongoTemplate — the same isolation separate JVMs would have. Heartbeats are driven by
+ * hand instead of by the scheduler.
+ */
+@DataMongoTest
+@ActiveProfiles("test")
+class SyncClusterIntegrationTest {
+
+    @Autowired
+    private ApplicationContext parent;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final List<AnnotationConfigApplicationContext> nodes = new ArrayList<>();
+
+    @BeforeEach
+    void cleanup() {
+        mongoTemplate.remove(new Query(), SyncLease.class);
+        mongoTemplate.remove(new Query(), SyncNode.class);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(AnnotationConfigApplicationContext::close);
+        nodes.clear();
+    }
+
+    private AnnotationConfigApplicationContext startNode(String nodeId, String leaseTtl) {
+        AnnotationConfigApplicationContext ctx = new AnnotationConfigApplicationContext();
+        ctx.setParent(parent);
+        ctx.getEnvironment().getPropertySources().addFirst(new MapPropertySource("node-" + nodeId, Map.of(
+                "portfolio.sync.cluster.node-id", nodeId,
+                "portfolio.sync.cluster.lease-ttl", leaseTtl)));
+        ctx.getBeanFactory().setConversionService(ApplicationConversionService.getSharedInstance());
+        ctx.register(SyncClusterMembership.class, SyncLeaseManager.class, SyncSafetyServiceImpl.class);
+        ctx.refresh();
+        nodes.add(ctx);
+        return ctx;
+    }
+
+    private static SyncSafetyServiceImpl safety(ApplicationContext node) {
+        return node.getBean(SyncSafetyServiceImpl.class);
+    }
+
+    private static SyncLeaseManager leases(ApplicationContext node) {
+        return node.getBean(SyncLeaseManager.class);
+    }
+
+    private static SyncClusterMembership membership(ApplicationContext node) {
+        return node.getBean(SyncClusterMembership.class);
+    }
+
+    private void heartbeatAll() {
+        // Twice, so every node sees the registrations made after its own first beat
+        for (int round = 0; round < 2; round++) {
+            nodes.forEach(n -> membership(n).heartbeat());
+        }
+    }
+
+    @Test
+    @DisplayName("an account lease is exclusive across nodes and each acquisition gets a new fencing token")
+    void leaseExclusiveAcrossNodes() {
+        var a = startNode("node-a", "30s");
+        var b = startNode("node-b", "30s");
+
+        assertTrue(safety(a).tryAccountLock("acc1"));
+        assertFalse(safety(b).tryAccountLock("acc1"));
+        assertFalse(safety(a).tryAccountLock("acc1"), "leases are not re-entrant");
+        long firstToken = leases(a).held("account:acc1").orElseThrow().fencingToken();
+
+        safety(a).releaseAccountLock("acc1");
+        assertTrue(safety(b).tryAccountLock("acc1"));
+        assertTrue(leases(b).held("account:acc1").orElseThrow().fencingToken() > firstToken,
+                "tokens come from one cluster-wide sequence");
+        assertTrue(safety(b).isAccountLockCurrent("acc1"));
+        assertFalse(safety(a).isAccountLockCurrent("acc1"));
+    }
+
+    @Test
+    @DisplayName("an expired lease is taken over and fences out the stalled holder")
+    void expiredLeaseFencesOutOldHolder() throws InterruptedException {
+        var a = startNode("node-a", "1s");
+        var b = startNode("node-b", "1s");
+
+        assertTrue(safety(a).tryUserLock("u1"));
+        Thread.sleep(1200); // node-a "stalls" past its TTL without heartbeating
+
+        assertTrue(safety(b).tryUserLock("u1"));
+        assertFalse(safety(a).isUserLockCurrent("u1"));
+        assertTrue(safety(b).isUserLockCurrent("u1"));
+
+        // node-a wakes up: renewal fails and it forgets the lease; its release is a no-op
+        leases(a).renewHeld();
+        assertTrue(leases(a).held("user:u1").isEmpty());
+        safety(a).releaseUserLock("u1");
+        assertTrue(safety(b).isUserLockCurrent("u1"));
+    }
+
+    @Test
+    @DisplayName("heartbeat renewal keeps a lease alive past its TTL")
+    void heartbeatKeepsLeaseAlive() throws InterruptedException {
+        var a = startNode("node-a", "1s");
+        var b = startNode("node-b", "1s");
+
+        assertTrue(safety(a).tryAccountLock("acc1"));
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(400);
+            leases(a).renewHeld();
+        }
+
+        assertFalse(safety(b).tryAccountLock("acc1"));
+        assertTrue(safety(a).isAccountLockCurrent("acc1"));
+    }
+
+    @Test
+    @DisplayName("users are split across live nodes, and a leaving node only moves its own users")
+    void usersShardedAcrossLiveNodes() {
+        var a = startNode("node-a", "30s");
+        var b = startNode("node-b", "30s");
+        var c = startNode("node-c", "30s");
+        heartbeatAll();
+
+        List<String> users = IntStream.range(0, 600).mapToObj(i -> "user-" + i).toList();
+        Map<String, String> before = new HashMap<>();
+        Map<String, Integer> perNode = new HashMap<>();
+        for (String user : users) {
+            List<String> owners = nodes.stream().filter(n -> safety(n).ownsUser(user))
+                    .map(n -> membership(n).nodeId()).toList();
+            assertEquals(1, owners.size(), "exactly one owner for " + user);
+            assertEquals(owners.get(0), membership(b).ownerOf(user), "nodes agree on the owner");
+            before.put(user, owners.get(0));
+            perNode.merge(owners.get(0), 1, Integer::sum);
+        }
+        assertThat(perNode).containsOnlyKeys("node-a", "node-b", "node-c");
+        perNode.values().forEach(count -> assertThat(count).isGreaterThan(100));
+
+        c.close();
+        nodes.remove(c);
+        heartbeatAll();
+
+        assertEquals(List.of("node-a", "node-b"), membership(a).liveNodes());
+        for (String user : users) {
+            String owner = membership(a).ownerOf(user);
+            assertEquals(owner, membership(b).ownerOf(user));
+            if (!"node-c".equals(before.get(user))) {
+                assertEquals(before.get(user), owner, "users of surviving nodes stay put");
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonInt32;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.canonical.InstrumentType;
+
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CanonicalBulkWriter")
+class CanonicalBulkWriterTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private BulkOperations bulkOps;
+
+    private CanonicalChangeDetector detector;
+    private CanonicalBulkWriter writer;
+    private final List<Document> existingRows = new ArrayList<>();
+    private static final long FENCE = 3L;
+
+    static MappingMongoConverter converter() {
+        MongoCustomConversions conversions = new MongoCustomConversions(Collections.emptyList());
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        mappingContext.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(mongoTemplate.getConverter()).thenReturn(converter());
+        when(mongoTemplate.getCollectionName(any())).thenReturn("canonical_holdings");
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), anyString())).thenReturn(existingRows);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), any(Class.class))).thenReturn(bulkOps);
+        when(bulkOps.execute()).thenReturn(BulkWriteResult.acknowledged(0, 0, 0, 0, Collections.emptyList(), Collections.emptyList()));
+        detector = new CanonicalChangeDetector(mongoTemplate);
+        writer = new CanonicalBulkWriter(mongoTemplate, detector);
+    }
+
+    private static CanonicalHolding holding(String account, String isin, String qty) {
+        return CanonicalHolding.builder().userId("u1").brokerAccountId(account)
+                .isin(isin).symbol("NSE:" + isin).quantity(new BigDecimal(qty)).build();
+    }
+
+    /** What the detector's projection query returns for a stored row. */
+    private Document stored(CanonicalHolding row) {
+        Document full = detector.toDocument(row);
+        return new Document("_id", new ObjectId())
+                .append("brokerAccountId", full.get("brokerAccountId"))
+                .append("isin", full.get("isin"))
+                .append("contentHash", full.get("contentHash"));
+    }
+
+    @Test
+    @DisplayName("nothing fetched and nothing removable: no Mongo calls")
+    void emptyInput() {
+        assertEquals(BulkUpsertResult.EMPTY, writer.syncHoldings("u1", List.of(), Set.of(), FENCE));
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    @DisplayName("new rows: one unordered upsert per row keyed on (userId, brokerAccountId, isin), single execute")
+    void newRowsUpserted() {
+        CanonicalHolding a = holding("acc1", "INE002A01018", "10");
+        a.setId("should-not-be-set");
+
+        writer.syncHoldings("u1", List.of(a, holding("acc1", "INE467B01029", "5")), Set.of(), FENCE);
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOps, times(2)).upsert(queries.capture(), updates.capture());
+        verify(bulkOps, times(1)).execute();
+        verify(mongoTemplate).bulkOps(BulkOperations.BulkMode.UNORDERED, CanonicalHolding.class);
+
+        Document filter = queries.getAllValues().get(0).getQueryObject();
+        assertEquals("u1", filter.get("userId"));
+        assertEquals("acc1", filter.get("brokerAccountId"));
+        assertEquals("INE002A01018", filter.get("isin"));
+
+        Document set = (Document) updates.getAllValues().get(0).getUpdateObject().get("$set");
+        assertEquals("NSE:INE002A01018", set.get("symbol"));
+        assertEquals(FENCE, set.get("syncFence"));
+        assertNotNull(set.get("contentHash"));
+        assertFalse(set.containsKey("_id"), "_id must never be part of the $set");
+    }
+
+    @Test
+    @DisplayName("unchanged content hash: no bulk write at all")
+    void unchangedSkipped() {
+        CanonicalHolding row = holding("acc1", "INE002A01018", "10");
+        existingRows.add(stored(row));
+
+        BulkUpsertResult result = writer.syncHoldings("u1", List.of(holding("acc1", "INE002A01018", "10")), Set.of("acc1"), FENCE);
+
+        assertEquals(new BulkUpsertResult(0, 0, 1, 0), result);
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), any(Class.class));
+    }
+
+    @Test
+    @DisplayName("only rows whose hash changed are sent")
+    void onlyChangedSent() {
+        existingRows.add(stored(holding("acc1", "INE002A01018", "10")));
+        existingRows.add(stored(holding("acc1", "INE467B01029", "5")));
+
+        writer.syncHoldings("u1", List.of(
+                holding("acc1", "INE002A01018", "10"),
+                holding("acc1", "INE467B01029", "6")), Set.of(), FENCE);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOps, times(1)).upsert(query.capture(), any(Update.class));
+        assertEquals("INE467B01029", query.getValue().getQueryObject().get("isin"));
+    }
+
+    @Test
+    @DisplayName("vanished rows are removed only for removable accounts")
+    void vanishedRemoved() {
+        Document soldOnZerodha = stored(holding("acc1", "INE009A01021", "3"));
+        Document onStaleBroker = stored(holding("acc2", "INE040A01034", "7"));
+        existingRows.add(soldOnZerodha);
+        existingRows.add(onStaleBroker);
+
+        writer.syncHoldings("u1", List.of(), Set.of("acc1"), FENCE);
+
+        ArgumentCaptor<Query> removal = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOps).remove(removal.capture());
+        Document in = (Document) removal.getValue().getQueryObject().get("_id");
+        assertEquals(List.of(soldOnZerodha.get("_id")), in.get("$in"));
+        verify(bulkOps, never()).upsert(any(Query.class), any(Update.class));
+    }
+
+    @Test
+    @DisplayName("upserts and removes only match rows fenced with the same or an older token")
+    void writesFenced() {
+        existingRows.add(stored(holding("acc1", "INE009A01021", "3")));
+
+        writer.syncHoldings("u1", List.of(holding("acc1", "INE002A01018", "10")), Set.of("acc1"), FENCE);
+
+        ArgumentCaptor<Query> upsert = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Query> removal = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOps).upsert(upsert.capture(), any(Update.class));
+        verify(bulkOps).remove(removal.capture());
+        Document expectedFence = new Document("$or", List.of(
+                new Document("syncFence", new Document("$exists", false)),
+                new Document("syncFence", new Document("$lte", FENCE))));
+        assertEquals(expectedFence.get("$or"), upsert.getValue().getQueryObject().get("$or"));
+        assertEquals(expectedFence.get("$or"), removal.getValue().getQueryObject().get("$or"));
+    }
+
+    @Test
+    @DisplayName("positions: key includes symbol and instrumentType")
+    void positionsKey() {
+        CanonicalPosition p = CanonicalPosition.builder().userId("u1").brokerAccountId("acc1")
+                .symbol("NSE:NIFTY25JANFUT").instrumentType(InstrumentType.FUTURES).build();
+
+        writer.syncPositions("u1", List.of(p), Set.of(), FENCE);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(bulkOps).upsert(query.capture(), any(Update.class));
+        Document filter = query.getValue().getQueryObject();
+        assertEquals("NSE:NIFTY25JANFUT", filter.get("symbol"));
+        assertEquals("FUTURES", filter.get("instrumentType"));
+    }
+
+    @Test
+    @DisplayName("counts: upserts → inserted, modified → modified, hash-skipped + matched-not-modified → unchanged, deletes → removed")
+    void counts() {
+        existingRows.add(stored(holding("acc1", "INE002A01018", "10")));
+        when(bulkOps.execute()).thenReturn(BulkWriteResult.acknowledged(0, 3, 4, 2,
+                List.of(new BulkWriteUpsert(0, new BsonInt32(1))), Collections.emptyList()));
+
+        BulkUpsertResult result = writer.syncHoldings("u1", List.of(
+                holding("acc1", "INE002A01018", "10"),
+                holding("acc1", "INE467B01029", "5")), Set.of(), FENCE);
+
+        assertEquals(new BulkUpsertResult(1, 2, 2, 4), result);
+        assertEquals(7, result.written());
+    }
+}
@@ -0,0 +1,73 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
+
+@DisplayName("CanonicalChangeDetector")
+class CanonicalChangeDetectorTest {
+
+    private CanonicalChangeDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getConverter()).thenReturn(CanonicalBulkWriterTest.converter());
+        detector = new CanonicalChangeDetector(mongoTemplate);
+    }
+
+    private static CanonicalHolding holding(String qty, Instant syncedAt) {
+        return CanonicalHolding.builder().id("abc").userId("u1").brokerAccountId("acc1")
+                .isin("INE002A01018").symbol("NSE:RELIANCE")
+                .quantity(new BigDecimal(qty)).lastSyncedAt(syncedAt).build();
+    }
+
+    @Test
+    @DisplayName("hash ignores id and lastSyncedAt")
+    void hashIgnoresVolatileFields() {
+        Document first = detector.toDocument(holding("10", Instant.parse("2026-01-05T04:00:00Z")));
+        CanonicalHolding later = holding("10", Instant.parse("2026-01-05T04:05:00Z"));
+        later.setId("other");
+
+        assertEquals(first.getString("contentHash"), detector.toDocument(later).getString("contentHash"));
+    }
+
+    @Test
+    @DisplayName("hash changes with broker content")
+    void hashTracksContent() {
+        Instant now = Instant.now();
+        assertNotEquals(
+                detector.toDocument(holding("10", now)).getString("contentHash"),
+                detector.toDocument(holding("11", now)).getString("contentHash"));
+    }
+
+    @Test
+    @DisplayName("stored form drops _id and keeps lastSyncedAt for the write")
+    void storedForm() {
+        Document document = detector.toDocument(holding("10", Instant.now()));
+
+        assertFalse(document.containsKey("_id"));
+        assertTrue(document.containsKey("lastSyncedAt"));
+    }
+
+    @Test
+    @DisplayName("null key parts form a stable key")
+    void nullKeyParts() {
+        Document noIsin = new Document("brokerAccountId", "acc1");
+        Document nullIsin = new Document("brokerAccountId", "acc1").append("isin", null);
+
+        assertEquals(CanonicalChangeDetector.key(noIsin, List.of("brokerAccountId", "isin")),
+                CanonicalChangeDetector.key(nullIsin, List.of("brokerAccountId", "isin")));
+    }
+}
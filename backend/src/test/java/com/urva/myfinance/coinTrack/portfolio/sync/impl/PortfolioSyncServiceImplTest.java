@@ -4,10 +4,14 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.bson.BsonDocument;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
@@ -15,22 +19,29 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
 
+import com.mongodb.bulk.BulkWriteError;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalFunds;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalMfHolding;
 import com.urva.myfinance.coinTrack.broker.core.canonical.CanonicalPosition;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor;
+import com.urva.myfinance.coinTrack.broker.core.ratelimit.BrokerRateGovernor.EndpointClass;
 import com.urva.myfinance.coinTrack.broker.model.Broker;
 import com.urva.myfinance.coinTrack.broker.model.BrokerAccount;
 import com.urva.myfinance.coinTrack.broker.repository.BrokerAccountRepository;
 import com.urva.myfinance.coinTrack.portfolio.aggregation.AggregatedPortfolio;
 import com.urva.myfinance.coinTrack.portfolio.aggregation.BrokerSyncError;
+import com.urva.myfinance.coinTrack.portfolio.aggregation.CompletedFetch;
 import com.urva.myfinance.coinTrack.portfolio.aggregation.PortfolioAggregationService;
 import com.urva.myfinance.coinTrack.portfolio.dto.ManualRefreshResponse;
 import com.urva.myfinance.coinTrack.portfolio.model.SyncLog;
@@ -40,13 +51,20 @@ import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalHoldingReposit
 import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalMfHoldingRepository;
 import com.urva.myfinance.coinTrack.portfolio.repository.CanonicalPositionRepository;
 import com.urva.myfinance.coinTrack.portfolio.repository.SyncLogRepository;
+import com.urva.myfinance.coinTrack.portfolio.market.universe.SymbolUniverse;
+import com.urva.myfinance.coinTrack.portfolio.service.impl.PortfolioSummaryMaterializer;
 import com.urva.myfinance.coinTrack.portfolio.sync.SyncSafetyService;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 @MockitoSettings(strictness = Strictness.LENIENT)
 @ExtendWith(MockitoExtension.class)
 @DisplayName("PortfolioSyncServiceImpl - Comprehensive Tests")
 class PortfolioSyncServiceImplTest {
 
+    private static final Sort BY_USER = Sort.by("userId", "id");
+    private static final long FENCE = 7L;
+
     @InjectMocks private PortfolioSyncServiceImpl service;
     @Mock private BrokerAccountRepository brokerAccountRepository;
     @Mock private CanonicalHoldingRepository holdingRepository;
@@ -56,6 +74,12 @@ class PortfolioSyncServiceImplTest {
     @Mock private SyncLogRepository syncLogRepository;
     @Mock private PortfolioAggregationService aggregationService;
     @Mock private SyncSafetyService syncSafetyService;
+    @Mock private CanonicalBulkWriter bulkWriter;
+    @Mock private BrokerRateGovernor rateGovernor;
+    @Mock private PortfolioSummaryMaterializer summaryMaterializer;
+    @Mock private SymbolUniverse symbolUniverse;
+    @Spy private SyncSweepRunner sweepRunner =
+            new SyncSweepRunner(new SimpleMeterRegistry(), 4, Duration.ofSeconds(5));
 
     private BrokerAccount activeAccount;
 
@@ -67,6 +91,17 @@ class PortfolioSyncServiceImplTest {
                 .zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1))
                 .build();
         when(syncLogRepository.save(any())).thenAnswer(inv -> inv.getArgument(0));
+        when(bulkWriter.syncHoldings(any(), any(), any(), anyLong())).thenReturn(BulkUpsertResult.EMPTY);
+        when(bulkWriter.syncPositions(any(), any(), any(), anyLong())).thenReturn(BulkUpsertResult.EMPTY);
+        when(bulkWriter.syncFunds(any(), any(), anyLong())).thenReturn(BulkUpsertResult.EMPTY);
+        when(bulkWriter.syncMfHoldings(any(), any(), any(), anyLong())).thenReturn(BulkUpsertResult.EMPTY);
+        when(rateGovernor.awaitHeadroom(any(), any(), any(), anyInt())).thenReturn(true);
+        when(syncSafetyService.tryUserLock(anyString())).thenReturn(true);
+        when(syncSafetyService.isUserLockCurrent(anyString())).thenReturn(true);
+        when(syncSafetyService.isAccountLockCurrent(anyString())).thenReturn(true);
+        when(syncSafetyService.userLockToken(anyString())).thenReturn(OptionalLong.of(FENCE));
+        when(syncSafetyService.accountLockToken(anyString())).thenReturn(OptionalLong.of(FENCE));
+        when(syncSafetyService.ownsUser(anyString())).thenReturn(true);
     }
 
     private AggregatedPortfolio emptyAgg() {
@@ -136,6 +171,8 @@ class PortfolioSyncServiceImplTest {
             verify(aggregationService).aggregateForUser("u1");
             verify(brokerAccountRepository).save(argThat(a -> a.getLastSuccessfulSync() != null));
             verify(syncLogRepository).save(argThat(l -> SyncStatus.SUCCESS.equals(l.getStatus())));
+            verify(summaryMaterializer).onSyncCompleted("u1");
+            verify(symbolUniverse).refreshUser("u1");
         }
 
         @Test
@@ -171,6 +208,80 @@ class PortfolioSyncServiceImplTest {
             when(aggregationService.aggregateForUser("u1")).thenThrow(new RuntimeException("Network error"));
 
             assertThrows(RuntimeException.class, () -> service.syncUser("u1"));
+            verify(syncSafetyService).releaseUserLock("u1");
+        }
+
+        @Test
+        @DisplayName("user locked elsewhere → skips without fetching")
+        void userLockHeld() {
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(syncSafetyService.tryUserLock("u1")).thenReturn(false);
+
+            service.syncUser("u1");
+
+            verify(aggregationService, never()).aggregateForUser(anyString());
+            verify(syncSafetyService, never()).releaseUserLock("u1");
+        }
+
+        @Test
+        @DisplayName("lease lost during fetch → results discarded, lock released")
+        void leaseLostDuringFetch() {
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+            when(syncSafetyService.isUserLockCurrent("u1")).thenReturn(false);
+
+            service.syncUser("u1");
+
+            verify(bulkWriter, never()).syncHoldings(any(), any(), any(), anyLong());
+            verify(brokerAccountRepository, never()).save(any());
+            verify(syncLogRepository, never()).save(any());
+            verify(summaryMaterializer, never()).onSyncCompleted(anyString());
+            verify(syncSafetyService).releaseUserLock("u1");
+        }
+
+        @Test
+        @DisplayName("writes carry the user lease's fencing token")
+        void writesFenced() {
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+
+            service.syncUser("u1");
+
+            verify(bulkWriter).syncHoldings(eq("u1"), any(), any(), eq(FENCE));
+            verify(bulkWriter).syncPositions(eq("u1"), any(), any(), eq(FENCE));
+            verify(bulkWriter).syncFunds(eq("u1"), any(), eq(FENCE));
+            verify(bulkWriter).syncMfHoldings(eq("u1"), any(), any(), eq(FENCE));
+        }
+
+        @Test
+        @DisplayName("lease taken over between the check and the write → Mongo refuses it, sync stops")
+        void fencedOutDuringWrite() {
+            BulkOperationException refused = mock(BulkOperationException.class);
+            when(refused.getErrors()).thenReturn(List.of(
+                    new BulkWriteError(11000, "E11000 duplicate key", new BsonDocument(), 0)));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+            when(bulkWriter.syncHoldings(any(), any(), any(), anyLong())).thenThrow(refused);
+
+            assertDoesNotThrow(() -> service.syncUser("u1"));
+
+            verify(bulkWriter, never()).syncPositions(any(), any(), any(), anyLong());
+            verify(brokerAccountRepository, never()).save(any());
+            verify(syncLogRepository, never()).save(any());
+            verify(syncSafetyService).releaseUserLock("u1");
+        }
+
+        @Test
+        @DisplayName("lease already dropped by the heartbeat → no token, results discarded")
+        void noTokenDiscards() {
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+            when(syncSafetyService.userLockToken("u1")).thenReturn(OptionalLong.empty());
+
+            service.syncUser("u1");
+
+            verify(bulkWriter, never()).syncHoldings(any(), any(), any(), anyLong());
+            verify(syncSafetyService).releaseUserLock("u1");
         }
     }
 
@@ -235,6 +346,21 @@ class PortfolioSyncServiceImplTest {
             verify(syncSafetyService).releaseAccountLock("acc1");
         }
 
+        @Test
+        @DisplayName("account lease lost during fetch → FAILURE, nothing persisted")
+        void accountLeaseLost() {
+            when(syncSafetyService.tryAccountLock("acc1")).thenReturn(true);
+            when(syncSafetyService.isAccountLockCurrent("acc1")).thenReturn(false);
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+
+            SyncLog result = service.runFullSyncForAccount(activeAccount);
+
+            assertEquals(SyncStatus.FAILURE, result.getStatus());
+            assertTrue(result.getMessage().contains("lease lost"));
+            verify(bulkWriter, never()).syncHoldings(any(), any(), any(), anyLong());
+            verify(syncSafetyService).releaseAccountLock("acc1");
+        }
+
         @Test
         @DisplayName("account lock fails → FAILURE with locked message")
         void lockFails() {
@@ -325,6 +451,39 @@ class PortfolioSyncServiceImplTest {
             verify(syncSafetyService).releaseGlobalSyncLock();
         }
 
+        @Test
+        @DisplayName("waits for portfolio headroom on the account's own API key before each user")
+        void pacedAgainstRateGovernor() {
+            when(syncSafetyService.tryGlobalSyncLock()).thenReturn(true);
+            when(syncSafetyService.isMarketOpen()).thenReturn(true);
+            when(brokerAccountRepository.findByIsActiveTrue(any(PageRequest.class)))
+                    .thenReturn(new PageImpl<>(List.of(activeAccount)));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+
+            service.syncAllActiveAccounts();
+
+            var inOrder = inOrder(rateGovernor, aggregationService);
+            inOrder.verify(rateGovernor).awaitHeadroom(eq(Broker.ZERODHA), eq("key123"), eq(EndpointClass.PORTFOLIO), eq(4));
+            inOrder.verify(aggregationService).aggregateForUser("u1");
+        }
+
+        @Test
+        @DisplayName("headroom wait timing out still syncs the user")
+        void headroomTimeoutStillSyncs() {
+            when(rateGovernor.awaitHeadroom(any(), any(), any(), anyInt())).thenReturn(false);
+            when(syncSafetyService.tryGlobalSyncLock()).thenReturn(true);
+            when(syncSafetyService.isMarketOpen()).thenReturn(true);
+            when(brokerAccountRepository.findByIsActiveTrue(any(PageRequest.class)))
+                    .thenReturn(new PageImpl<>(List.of(activeAccount)));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+
+            service.syncAllActiveAccounts();
+
+            verify(aggregationService).aggregateForUser("u1");
+        }
+
         @Test
         @DisplayName("pagination: processes multiple pages")
         void pagination() {
@@ -341,8 +500,8 @@ class PortfolioSyncServiceImplTest {
 
             when(syncSafetyService.tryGlobalSyncLock()).thenReturn(true);
             when(syncSafetyService.isMarketOpen()).thenReturn(true);
-            when(brokerAccountRepository.findByIsActiveTrue(PageRequest.of(0, 100))).thenReturn(page1);
-            when(brokerAccountRepository.findByIsActiveTrue(PageRequest.of(1, 100))).thenReturn(page2);
+            when(brokerAccountRepository.findByIsActiveTrue(PageRequest.of(0, 100, BY_USER))).thenReturn(page1);
+            when(brokerAccountRepository.findByIsActiveTrue(PageRequest.of(1, 100, BY_USER))).thenReturn(page2);
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(a1));
             when(brokerAccountRepository.findByUserId("u2")).thenReturn(List.of(a2));
             when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
@@ -376,6 +535,43 @@ class PortfolioSyncServiceImplTest {
             service.syncAllActiveAccounts();
 
             verify(aggregationService, times(1)).aggregateForUser("u1");
+            verify(rateGovernor).awaitHeadroom(eq(Broker.ZERODHA), eq("k1"), eq(EndpointClass.PORTFOLIO), anyInt());
+            verify(rateGovernor).awaitHeadroom(eq(Broker.ANGELONE), eq("k2"), eq(EndpointClass.PORTFOLIO), anyInt());
+        }
+
+        @Test
+        @DisplayName("a user whose accounts straddle a page boundary is synced once, paced for every account")
+        void userAcrossPages() {
+            BrokerAccount a1 = BrokerAccount.builder()
+                    .id("a1").userId("u1").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k1").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+            BrokerAccount a2 = BrokerAccount.builder()
+                    .id("a2").userId("u1").broker(Broker.ANGELONE)
+                    .angelOneApiKey("k2").angelOneClientCode("c2")
+                    .encryptedAngelOnePassword("p2").encryptedAngelOneTotpSecret("t2")
+                    .angelOneTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+            BrokerAccount a3 = BrokerAccount.builder()
+                    .id("a3").userId("u2").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k3").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+
+            when(syncSafetyService.tryGlobalSyncLock()).thenReturn(true);
+            when(syncSafetyService.isMarketOpen()).thenReturn(true);
+            when(brokerAccountRepository.findByIsActiveTrue(PageRequest.of(0, 100, BY_USER)))
+                    .thenReturn(new PageImpl<>(List.of(a1), PageRequest.of(0, 100), 200));
+            when(brokerAccountRepository.findByIsActiveTrue(PageRequest.of(1, 100, BY_USER)))
+                    .thenReturn(new PageImpl<>(List.of(a2, a3), PageRequest.of(1, 100), 200));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(a1, a2));
+            when(brokerAccountRepository.findByUserId("u2")).thenReturn(List.of(a3));
+            when(aggregationService.aggregateForUser(anyString())).thenReturn(emptyAgg());
+
+            service.syncAllActiveAccounts();
+
+            verify(aggregationService, times(1)).aggregateForUser("u1");
+            verify(aggregationService, times(1)).aggregateForUser("u2");
+            var inOrder = inOrder(rateGovernor, aggregationService);
+            inOrder.verify(rateGovernor).awaitHeadroom(eq(Broker.ZERODHA), eq("k1"), any(), anyInt());
+            inOrder.verify(rateGovernor).awaitHeadroom(eq(Broker.ANGELONE), eq("k2"), any(), anyInt());
+            inOrder.verify(aggregationService).aggregateForUser("u1");
         }
 
         @Test
@@ -392,6 +588,60 @@ class PortfolioSyncServiceImplTest {
             verify(syncSafetyService).releaseGlobalSyncLock();
         }
 
+        @Test
+        @DisplayName("users on one page sync concurrently and are all joined before the lock is released")
+        void usersSyncConcurrently() {
+            BrokerAccount a1 = BrokerAccount.builder()
+                    .id("a1").userId("u1").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k1").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+            BrokerAccount a2 = BrokerAccount.builder()
+                    .id("a2").userId("u2").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k2").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+            // Each user waits for the other: a serial sweep would stall until the latch timed out
+            CountDownLatch bothStarted = new CountDownLatch(2);
+
+            when(syncSafetyService.tryGlobalSyncLock()).thenReturn(true);
+            when(syncSafetyService.isMarketOpen()).thenReturn(true);
+            when(brokerAccountRepository.findByIsActiveTrue(any(PageRequest.class)))
+                    .thenReturn(new PageImpl<>(List.of(a1, a2)));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(a1));
+            when(brokerAccountRepository.findByUserId("u2")).thenReturn(List.of(a2));
+            when(aggregationService.aggregateForUser(anyString())).thenAnswer(inv -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(2, TimeUnit.SECONDS), "users were not synced concurrently");
+                return emptyAgg();
+            });
+
+            service.syncAllActiveAccounts();
+
+            verify(syncLogRepository, times(2)).save(argThat(log -> log.getStatus() == SyncStatus.SUCCESS));
+            var inOrder = inOrder(syncLogRepository, syncSafetyService);
+            inOrder.verify(syncLogRepository, times(2)).save(any());
+            inOrder.verify(syncSafetyService).releaseGlobalSyncLock();
+        }
+
+        @Test
+        @DisplayName("users owned by another node are left to that node")
+        void shardedAcrossNodes() {
+            BrokerAccount other = BrokerAccount.builder()
+                    .id("a2").userId("u2").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k2").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+
+            when(syncSafetyService.tryGlobalSyncLock()).thenReturn(true);
+            when(syncSafetyService.isMarketOpen()).thenReturn(true);
+            when(syncSafetyService.ownsUser("u2")).thenReturn(false);
+            when(brokerAccountRepository.findByIsActiveTrue(any(PageRequest.class)))
+                    .thenReturn(new PageImpl<>(List.of(activeAccount, other)));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+
+            service.syncAllActiveAccounts();
+
+            verify(aggregationService).aggregateForUser("u1");
+            verify(aggregationService, never()).aggregateForUser("u2");
+            verify(rateGovernor, times(1)).awaitHeadroom(any(), any(), any(), anyInt());
+        }
+
         @Test
         @DisplayName("no active accounts: nothing happens")
         void noActiveAccounts() {
@@ -407,6 +657,63 @@ class PortfolioSyncServiceImplTest {
         }
     }
 
+    // ══════════════════════════════════════════════════════════════
+    //  syncUsers
+    // ══════════════════════════════════════════════════════════════
+    @Nested
+    @DisplayName("syncUsers")
+    class SyncUsers {
+        @Test
+        @DisplayName("paces every syncable account and syncs only owned users")
+        void pacedAndSharded() {
+            BrokerAccount angel = BrokerAccount.builder()
+                    .id("a2").userId("u1").broker(Broker.ANGELONE)
+                    .angelOneApiKey("angel-key").angelOneClientCode("c2")
+                    .encryptedAngelOnePassword("p2").encryptedAngelOneTotpSecret("t2")
+                    .angelOneTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+            BrokerAccount other = BrokerAccount.builder()
+                    .id("a3").userId("u2").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k3").zerodhaTokenExpiresAt(LocalDateTime.now().plusHours(1)).build();
+
+            when(syncSafetyService.ownsUser("u2")).thenReturn(false);
+            when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(List.of("u1", "u2")))
+                    .thenReturn(List.of(activeAccount, angel, other));
+            when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount, angel));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+
+            service.syncUsers(List.of("u1", "u2"));
+
+            verify(aggregationService).aggregateForUser("u1");
+            verify(aggregationService, never()).aggregateForUser("u2");
+            verify(rateGovernor).awaitHeadroom(eq(Broker.ZERODHA), eq("key123"), eq(EndpointClass.PORTFOLIO), anyInt());
+            verify(rateGovernor).awaitHeadroom(eq(Broker.ANGELONE), eq("angel-key"), eq(EndpointClass.PORTFOLIO), anyInt());
+            verify(rateGovernor, times(2)).awaitHeadroom(any(), any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("users without a syncable account are skipped")
+        void skipsUsersWithoutCredentials() {
+            BrokerAccount expired = BrokerAccount.builder()
+                    .id("a2").userId("u2").broker(Broker.ZERODHA)
+                    .zerodhaApiKey("k2").zerodhaTokenExpiresAt(LocalDateTime.now().minusHours(1)).build();
+
+            when(brokerAccountRepository.findByUserIdInAndIsActiveTrue(any())).thenReturn(List.of(expired));
+
+            service.syncUsers(List.of("u2", "u3"));
+
+            verify(aggregationService, never()).aggregateForUser(anyString());
+            verify(rateGovernor, never()).awaitHeadroom(any(), any(), any(), anyInt());
+        }
+
+        @Test
+        @DisplayName("empty plan: no repository lookup")
+        void emptyPlan() {
+            service.syncUsers(List.of());
+
+            verifyNoInteractions(brokerAccountRepository, aggregationService);
+        }
+    }
+
     // ══════════════════════════════════════════════════════════════
     //  triggerManualRefreshForUser
     // ══════════════════════════════════════════════════════════════
@@ -485,141 +792,138 @@ class PortfolioSyncServiceImplTest {
     @DisplayName("persistAggregatedData via syncUser")
     class PersistAggregatedData {
         @Test
-        @DisplayName("new holdings: saves without id lookup")
-        void newHoldings() {
+        @DisplayName("holdings: stamped with userId and bulk-upserted in one call")
+        void holdings() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
             CanonicalHolding h = CanonicalHolding.builder()
                     .isin("INE123").symbol("RELIANCE").build();
             when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithHoldings(h));
-            when(holdingRepository.findByUserIdAndBrokerAccountIdAndIsin(any(), any(), any()))
-                    .thenReturn(Optional.empty());
 
             service.syncUser("u1");
 
-            verify(holdingRepository).save(any());
+            verify(bulkWriter).syncHoldings(eq("u1"), argThat(rows -> rows.size() == 1
+                    && "u1".equals(rows.iterator().next().getUserId())), any(), anyLong());
         }
 
         @Test
-        @DisplayName("existing holdings: upserts with existing id")
-        void existingHoldings() {
+        @DisplayName("positions: bulk-upserted")
+        void positions() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalHolding h = CanonicalHolding.builder()
-                    .isin("INE123").symbol("RELIANCE").build();
-            CanonicalHolding existing = CanonicalHolding.builder()
-                    .id("existing-id").isin("INE123").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithHoldings(h));
-            when(holdingRepository.findByUserIdAndBrokerAccountIdAndIsin(any(), any(), any()))
-                    .thenReturn(Optional.of(existing));
+            CanonicalPosition p = CanonicalPosition.builder()
+                    .symbol("RELIANCE").build();
+            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithPosition(p));
 
             service.syncUser("u1");
 
-            verify(holdingRepository).save(argThat(saved -> "existing-id".equals(saved.getId())));
+            verify(bulkWriter).syncPositions(eq("u1"), argThat(rows -> rows.size() == 1
+                    && "u1".equals(rows.iterator().next().getUserId())), any(), anyLong());
         }
 
         @Test
-        @DisplayName("new positions: saves")
-        void newPositions() {
+        @DisplayName("MF holdings: bulk-upserted")
+        void mfHoldings() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalPosition p = CanonicalPosition.builder()
-                    .symbol("RELIANCE").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithPosition(p));
-            when(positionRepository.findByUserIdAndBrokerAccountIdAndSymbolAndInstrumentType(
-                    any(), any(), any(), any()))
-                    .thenReturn(Optional.empty());
+            CanonicalMfHolding mf = CanonicalMfHolding.builder()
+                    .isin("INF123").fundName("Test Fund").build();
+            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithMfHolding(mf));
 
             service.syncUser("u1");
 
-            verify(positionRepository).save(any());
+            verify(bulkWriter).syncMfHoldings(eq("u1"), argThat(rows -> rows.size() == 1
+                    && "u1".equals(rows.iterator().next().getUserId())), any(), anyLong());
         }
 
         @Test
-        @DisplayName("existing positions: upserts with existing id")
-        void existingPositions() {
+        @DisplayName("funds: bulk-upserted")
+        void funds() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalPosition p = CanonicalPosition.builder()
-                    .symbol("RELIANCE").build();
-            CanonicalPosition existing = CanonicalPosition.builder()
-                    .id("pos-existing").symbol("RELIANCE").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithPosition(p));
-            when(positionRepository.findByUserIdAndBrokerAccountIdAndSymbolAndInstrumentType(
-                    any(), any(), any(), any()))
-                    .thenReturn(Optional.of(existing));
+            CanonicalFunds funds = CanonicalFunds.builder()
+                    .brokerAccountId("acc1").build();
+            when(aggregationService.aggregateForUser("u1")).thenReturn(
+                    new AggregatedPortfolio(
+                            Collections.emptyList(), Collections.emptyList(),
+                            Map.of(Broker.ZERODHA, funds), Collections.emptyList(),
+                            Collections.emptyList(), Instant.now(), Collections.emptySet()));
 
             service.syncUser("u1");
 
-            verify(positionRepository).save(argThat(s -> "pos-existing".equals(s.getId())));
+            verify(bulkWriter).syncFunds(eq("u1"), argThat(rows -> rows.size() == 1
+                    && "u1".equals(rows.iterator().next().getUserId())), anyLong());
         }
 
         @Test
-        @DisplayName("new MF holdings: saves")
-        void newMfHoldings() {
+        @DisplayName("no per-row repository round-trips")
+        void noPerRowRoundTrips() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalMfHolding mf = CanonicalMfHolding.builder()
-                    .isin("INF123").fundName("Test Fund").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithMfHolding(mf));
-            when(mfHoldingRepository.findByUserIdAndBrokerAccountIdAndIsin(any(), any(), any()))
-                    .thenReturn(Optional.empty());
+            CanonicalHolding h = CanonicalHolding.builder()
+                    .isin("INE123").symbol("RELIANCE").build();
+            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithHoldings(h));
 
             service.syncUser("u1");
 
-            verify(mfHoldingRepository).save(any());
+            verifyNoInteractions(holdingRepository, positionRepository, fundsRepository, mfHoldingRepository);
         }
 
         @Test
-        @DisplayName("existing MF holdings: upserts with existing id")
-        void existingMfHoldings() {
+        @DisplayName("vanished rows: only accounts with a completed, non-stale fetch are reconcilable")
+        void removableAccountsExcludeStaleAndFailed() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalMfHolding mf = CanonicalMfHolding.builder()
-                    .isin("INF123").fundName("Test Fund").build();
-            CanonicalMfHolding existing = CanonicalMfHolding.builder()
-                    .id("mf-existing").isin("INF123").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(aggWithMfHolding(mf));
-            when(mfHoldingRepository.findByUserIdAndBrokerAccountIdAndIsin(any(), any(), any()))
-                    .thenReturn(Optional.of(existing));
+            AggregatedPortfolio agg = new AggregatedPortfolio(
+                    Collections.emptyList(), Collections.emptyList(),
+                    Collections.emptyMap(), Collections.emptyList(),
+                    Collections.emptyList(), Instant.now(), Set.of(Broker.UPSTOX),
+                    Set.of(new CompletedFetch(Broker.ZERODHA, "acc1", CompletedFetch.Dataset.HOLDINGS),
+                           new CompletedFetch(Broker.UPSTOX, "acc2", CompletedFetch.Dataset.HOLDINGS),
+                           new CompletedFetch(Broker.ZERODHA, "acc1", CompletedFetch.Dataset.MF_HOLDINGS)));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(agg);
 
             service.syncUser("u1");
 
-            verify(mfHoldingRepository).save(argThat(s -> "mf-existing".equals(s.getId())));
+            verify(bulkWriter).syncHoldings(eq("u1"), any(), eq(Set.of("acc1")), anyLong());
+            verify(bulkWriter).syncPositions(eq("u1"), any(), eq(Set.of()), anyLong());
+            verify(bulkWriter).syncMfHoldings(eq("u1"), any(), eq(Set.of("acc1")), anyLong());
         }
 
         @Test
-        @DisplayName("funds: upserts correctly")
-        void funds() {
+        @DisplayName("no completion info (legacy result) → nothing is removable")
+        void legacyResultRemovesNothing() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalFunds funds = CanonicalFunds.builder()
-                    .brokerAccountId("acc1").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(
-                    new AggregatedPortfolio(
-                            Collections.emptyList(), Collections.emptyList(),
-                            Map.of(Broker.ZERODHA, funds), Collections.emptyList(),
-                            Collections.emptyList(), Instant.now(), Collections.emptySet()));
-            when(fundsRepository.findByUserIdAndBrokerAccountId(any(), any()))
-                    .thenReturn(Optional.empty());
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
 
             service.syncUser("u1");
 
-            verify(fundsRepository).save(any());
+            verify(bulkWriter).syncHoldings(eq("u1"), any(), eq(Set.of()), anyLong());
         }
 
         @Test
-        @DisplayName("existing funds: upserts with existing id")
-        void existingFunds() {
+        @DisplayName("inserted / modified / unchanged counts are recorded on the sync log")
+        void countsOnSyncLog() {
             when(brokerAccountRepository.findByUserId("u1")).thenReturn(List.of(activeAccount));
-            CanonicalFunds funds = CanonicalFunds.builder()
-                    .brokerAccountId("acc1").build();
-            CanonicalFunds existing = CanonicalFunds.builder()
-                    .id("funds-existing").build();
-            when(aggregationService.aggregateForUser("u1")).thenReturn(
-                    new AggregatedPortfolio(
-                            Collections.emptyList(), Collections.emptyList(),
-                            Map.of(Broker.ZERODHA, funds), Collections.emptyList(),
-                            Collections.emptyList(), Instant.now(), Collections.emptySet()));
-            when(fundsRepository.findByUserIdAndBrokerAccountId(any(), any()))
-                    .thenReturn(Optional.of(existing));
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+            when(bulkWriter.syncHoldings(any(), any(), any(), anyLong())).thenReturn(new BulkUpsertResult(2, 3, 40, 1));
+            when(bulkWriter.syncPositions(any(), any(), any(), anyLong())).thenReturn(new BulkUpsertResult(1, 0, 4, 2));
 
             service.syncUser("u1");
 
-            verify(fundsRepository).save(argThat(s -> "funds-existing".equals(s.getId())));
+            verify(syncLogRepository).save(argThat(l -> Integer.valueOf(3).equals(l.getRowsInserted())
+                    && Integer.valueOf(3).equals(l.getRowsModified())
+                    && Integer.valueOf(44).equals(l.getRowsUnchanged())
+                    && Integer.valueOf(3).equals(l.getRowsRemoved())));
+        }
+
+        @Test
+        @DisplayName("bulk write failure → sync log FAILURE via runFullSyncForAccount")
+        void bulkFailure() {
+            when(syncSafetyService.tryAccountLock("acc1")).thenReturn(true);
+            activeAccount.setIsActive(true);
+            activeAccount.setZerodhaAccessToken("tok");
+            when(aggregationService.aggregateForUser("u1")).thenReturn(emptyAgg());
+            when(bulkWriter.syncHoldings(any(), any(), any(), anyLong())).thenThrow(new RuntimeException("E11000 duplicate key"));
+
+            SyncLog log = service.runFullSyncForAccount(activeAccount);
+
+            assertEquals(SyncStatus.FAILURE, log.getStatus());
+            assertTrue(log.getMessage().contains("E11000"));
         }
     }
 }
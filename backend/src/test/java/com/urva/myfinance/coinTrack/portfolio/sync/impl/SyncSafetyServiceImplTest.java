@@ -18,8 +18,11 @@ import org.mockito.quality.Strictness;
 
 import com.urva.myfinance.coinTrack.portfolio.model.SyncCooldown;
 import com.urva.myfinance.coinTrack.portfolio.repository.SyncCooldownRepository;
+import com.urva.myfinance.coinTrack.portfolio.sync.cluster.SyncClusterMembership;
+import com.urva.myfinance.coinTrack.portfolio.sync.cluster.SyncLeaseManager;
 
 import java.util.Optional;
+import java.util.OptionalLong;
 
 @MockitoSettings(strictness = Strictness.LENIENT)
 @ExtendWith(MockitoExtension.class)
@@ -27,6 +30,8 @@ import java.util.Optional;
 class SyncSafetyServiceImplTest {
 
     @Mock private SyncCooldownRepository cooldownRepository;
+    @Mock private SyncLeaseManager leaseManager;
+    @Mock private SyncClusterMembership membership;
 
     @InjectMocks private SyncSafetyServiceImpl service;
 
@@ -64,39 +69,60 @@ class SyncSafetyServiceImplTest {
         assertDoesNotThrow(() -> service.releaseGlobalSyncLock());
     }
 
-    // ── Account Lock ───────────────────────────────────────────────
+    // ── Account / User Leases ──────────────────────────────────────
 
     @Test
-    @DisplayName("tryAccountLock: when free → true")
-    void tryAccountLock_free_true() {
+    @DisplayName("tryAccountLock: acquires the account lease")
+    void tryAccountLock_acquiresLease() {
+        when(leaseManager.tryAcquire("account:" + ACCOUNT_ID))
+                .thenReturn(Optional.of(new SyncLeaseManager.Lease("account:" + ACCOUNT_ID, 1, Instant.now())));
         assertTrue(service.tryAccountLock(ACCOUNT_ID));
-        service.releaseAccountLock(ACCOUNT_ID);
     }
 
     @Test
-    @DisplayName("tryAccountLock: when held → false")
+    @DisplayName("tryAccountLock: lease held elsewhere → false")
     void tryAccountLock_held_false() {
-        assertTrue(service.tryAccountLock(ACCOUNT_ID));
+        when(leaseManager.tryAcquire("account:" + ACCOUNT_ID)).thenReturn(Optional.empty());
         assertFalse(service.tryAccountLock(ACCOUNT_ID));
+    }
+
+    @Test
+    @DisplayName("releaseAccountLock / isAccountLockCurrent: delegate to the account lease")
+    void accountLease_releaseAndFence() {
+        when(leaseManager.isCurrent("account:" + ACCOUNT_ID)).thenReturn(true);
+        assertTrue(service.isAccountLockCurrent(ACCOUNT_ID));
         service.releaseAccountLock(ACCOUNT_ID);
+        verify(leaseManager).release("account:" + ACCOUNT_ID);
     }
 
     @Test
-    @DisplayName("tryAccountLock: different accounts → both succeed")
-    void tryAccountLock_differentAccounts() {
-        assertTrue(service.tryAccountLock("a1"));
-        assertTrue(service.tryAccountLock("a2"));
-        service.releaseAccountLock("a1");
-        service.releaseAccountLock("a2");
+    @DisplayName("user locks use their own lease namespace")
+    void userLease_namespace() {
+        when(leaseManager.tryAcquire("user:" + USER_ID))
+                .thenReturn(Optional.of(new SyncLeaseManager.Lease("user:" + USER_ID, 7, Instant.now())));
+        assertTrue(service.tryUserLock(USER_ID));
+        assertFalse(service.isUserLockCurrent(USER_ID));
+        service.releaseUserLock(USER_ID);
+        verify(leaseManager).release("user:" + USER_ID);
     }
 
     @Test
-    @DisplayName("releaseAccountLock: releases for re-acquisition")
-    void releaseAccountLock_releases() {
-        assertTrue(service.tryAccountLock(ACCOUNT_ID));
-        service.releaseAccountLock(ACCOUNT_ID);
-        assertTrue(service.tryAccountLock(ACCOUNT_ID));
-        service.releaseAccountLock(ACCOUNT_ID);
+    @DisplayName("lock tokens: the held lease's fencing token, empty once the lease is gone")
+    void lockTokens() {
+        when(leaseManager.held("user:" + USER_ID))
+                .thenReturn(Optional.of(new SyncLeaseManager.Lease("user:" + USER_ID, 7, Instant.now())));
+        when(leaseManager.held("account:" + ACCOUNT_ID)).thenReturn(Optional.empty());
+
+        assertEquals(OptionalLong.of(7), service.userLockToken(USER_ID));
+        assertEquals(OptionalLong.empty(), service.accountLockToken(ACCOUNT_ID));
+    }
+
+    @Test
+    @DisplayName("ownsUser: delegates to cluster membership")
+    void ownsUser_delegates() {
+        when(membership.owns(USER_ID)).thenReturn(true);
+        assertTrue(service.ownsUser(USER_ID));
+        assertFalse(service.ownsUser("someone-else"));
     }
 
     // ── Market Hours ───────────────────────────────────────────────
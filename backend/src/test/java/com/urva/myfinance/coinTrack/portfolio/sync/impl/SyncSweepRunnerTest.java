@@ -0,0 +1,158 @@
+package com.urva.myfinance.coinTrack.portfolio.sync.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisplayName("SyncSweepRunner")
+class SyncSweepRunnerTest {
+
+    private SimpleMeterRegistry registry;
+    private SyncSweepRunner runner;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        runner = new SyncSweepRunner(registry, 3, Duration.ofMillis(300));
+    }
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    @DisplayName("runs users concurrently up to the parallelism limit")
+    void boundedParallelism() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        try (SyncSweepRunner.Sweep sweep = runner.open()) {
+            for (int i = 0; i < 12; i++) {
+                sweep.submit("u" + i, () -> {
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(30);
+                    running.decrementAndGet();
+                });
+            }
+        }
+
+        assertThat(peak.get()).isBetween(2, 3);
+        assertEquals(0, running.get());
+    }
+
+    @Test
+    @DisplayName("close joins every user before returning")
+    void closeJoinsAll() {
+        AtomicInteger done = new AtomicInteger();
+        SyncSweepRunner.Sweep sweep = runner.open();
+        for (int i = 0; i < 5; i++) {
+            sweep.submit("u" + i, () -> {
+                sleep(20);
+                done.incrementAndGet();
+            });
+        }
+        sweep.close();
+
+        assertEquals(5, done.get());
+        assertEquals(5, sweep.stats().users());
+        assertEquals(1L, registry.get("portfolio.sync.sweep.duration").timer().count());
+    }
+
+    @Test
+    @DisplayName("failing user is counted and does not abort the sweep")
+    void failureIsolated() {
+        AtomicInteger done = new AtomicInteger();
+        SyncSweepRunner.Sweep sweep = runner.open();
+        sweep.submit("bad", () -> { throw new IllegalStateException("boom"); });
+        sweep.submit("good", done::incrementAndGet);
+        sweep.close();
+
+        assertEquals(1, done.get());
+        assertEquals(1, sweep.stats().failed());
+        assertEquals(1L, registry.get("portfolio.sync.user.latency").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    @DisplayName("slow user is interrupted after the timeout and frees its slot")
+    void slowUserTimedOut() throws InterruptedException {
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicInteger done = new AtomicInteger();
+        long start = System.nanoTime();
+
+        SyncSweepRunner.Sweep sweep = runner.open();
+        sweep.submit("slow", () -> {
+            try {
+                never.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("interrupted", e);
+            }
+        });
+        for (int i = 0; i < 6; i++) sweep.submit("u" + i, done::incrementAndGet);
+        sweep.close();
+
+        assertEquals(6, done.get());
+        assertEquals(1, sweep.stats().timedOut());
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    @DisplayName("a timed-out user that ignores the interrupt still hands its slot on")
+    void stuckUserReleasesSlot() throws InterruptedException {
+        SyncSweepRunner single = new SyncSweepRunner(registry, 1, Duration.ofMillis(200));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch nextRan = new CountDownLatch(1);
+        try {
+            SyncSweepRunner.Sweep sweep = single.open();
+            sweep.submit("stuck", () -> {
+                // Simulates a call that swallows interrupts
+                while (release.getCount() > 0) {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException ignored) {
+                        // keep waiting
+                    }
+                }
+            });
+            sweep.submit("next", nextRan::countDown);
+
+            assertTrue(nextRan.await(5, TimeUnit.SECONDS), "next user ran while the stuck one was still running");
+            release.countDown();
+            sweep.close();
+
+            assertEquals(1, sweep.stats().timedOut());
+        } finally {
+            release.countDown();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("nearest-rank percentiles")
+    void percentiles() {
+        long[] sorted = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+        assertEquals(50, SyncSweepRunner.percentile(sorted, 0.50));
+        assertEquals(100, SyncSweepRunner.percentile(sorted, 0.95));
+        assertEquals(0, SyncSweepRunner.percentile(new long[0], 0.99));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}